@@ -0,0 +1,132 @@
+package com.skillstorm.aspects;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Records how long service, controller, and listener methods take as the operation.duration timer, tagged with the
+// operation and its outcome. Reactive results are timed from subscription to their terminal signal rather than to
+// assembly. The aspect is only registered when instrumentation.enabled is true, so when it's off nothing is proxied:
+@Aspect
+@Component
+@ConditionalOnProperty(name = "instrumentation.enabled", havingValue = "true")
+public class MetricsAspect {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsAspect.class);
+    private static final String METRIC_NAME = "operation.duration";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean percentileHistogram;
+    private final Map<Method, OperationTimers> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MetricsAspect(MeterRegistry meterRegistry, @Value("${instrumentation.percentile-histogram:true}") boolean percentileHistogram) {
+        this.meterRegistry = meterRegistry;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    // Public methods of services and controllers, and message listeners wherever they are declared:
+    @Pointcut("execution(public * com.skillstorm..*(..)) && (within(@org.springframework.stereotype.Service *) " +
+            "|| within(@org.springframework.web.bind.annotation.RestController *) " +
+            "|| @annotation(org.springframework.amqp.rabbit.annotation.RabbitListener))")
+    public void instrumented() {
+        /* Empty Hook */
+    }
+
+    @Around("instrumented()")
+    public Object time(ProceedingJoinPoint pjp) throws Throwable {
+        OperationTimers operation = timers.computeIfAbsent(((MethodSignature) pjp.getSignature()).getMethod(), this::operationTimers);
+        long start = System.nanoTime();
+
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable t) {
+            operation.record(SignalType.ON_ERROR, t, System.nanoTime() - start);
+            throw t;
+        }
+
+        // Reactive results are timed per subscription, since each subscription runs the pipeline again:
+        if(result instanceof Mono<?> mono) {
+            return Mono.defer(() -> {
+                long subscribed = System.nanoTime();
+                Throwable[] error = new Throwable[1];
+                return mono.doOnError(e -> error[0] = e)
+                        .doFinally(signal -> operation.record(signal, error[0], System.nanoTime() - subscribed));
+            });
+        }
+        if(result instanceof Flux<?> flux) {
+            return Flux.defer(() -> {
+                long subscribed = System.nanoTime();
+                Throwable[] error = new Throwable[1];
+                return flux.doOnError(e -> error[0] = e)
+                        .doFinally(signal -> operation.record(signal, error[0], System.nanoTime() - subscribed));
+            });
+        }
+        operation.record(SignalType.ON_COMPLETE, null, System.nanoTime() - start);
+        return result;
+    }
+
+    private OperationTimers operationTimers(Method method) {
+        return new OperationTimers(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+    }
+
+    // Timers for a single operation. Success and cancellation timers are registered up front, and error timers are
+    // added per exception type as they are first seen:
+    private class OperationTimers {
+
+        private final String operation;
+        private final Timer success;
+        private final Timer cancelled;
+        private final Map<Class<?>, Timer> errors = new ConcurrentHashMap<>();
+
+        OperationTimers(String operation) {
+            this.operation = operation;
+            this.success = timer("success", "none");
+            this.cancelled = timer("cancelled", "none");
+        }
+
+        void record(SignalType signal, Throwable error, long nanos) {
+            Timer timer = switch (signal) {
+                case ON_ERROR -> {
+                    if(log.isDebugEnabled()) {
+                        log.debug("{} failed after {} ms", operation, TimeUnit.NANOSECONDS.toMillis(nanos), error);
+                    }
+                    yield errors.computeIfAbsent(error == null ? Throwable.class : error.getClass(),
+                            type -> timer("error", type.getSimpleName()));
+                }
+                case CANCEL -> cancelled;
+                default -> success;
+            };
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        private Timer timer(String outcome, String exception) {
+            return Timer.builder(METRIC_NAME)
+                    .description("Time from subscription to completion of service, controller, and listener operations")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.skillstorm.configs;
 
 import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.cassandra.SessionFactory;
@@ -20,11 +21,14 @@ import org.springframework.data.cassandra.repository.config.EnableReactiveCassan
 @EnableReactiveCassandraRepositories(basePackages = {"com.skillstorm.repositories"})
 public class CassandraConfig {
 
+    // Pooling, throttling, and speculative execution are set in cassandra-tuning.conf. The driver's metrics are
+    // registered with the application's MeterRegistry:
     @Bean
-    CqlSessionFactoryBean session() {
+    CqlSessionFactoryBean session(MeterRegistry meterRegistry) {
         CqlSessionFactoryBean cqlSessionFactory = new CqlSessionFactoryBean();
         DriverConfigLoader loader = DriverConfigLoader.fromClasspath("application.conf");
-        cqlSessionFactory.setSessionBuilderConfigurer(sessionBuilder -> sessionBuilder.withConfigLoader(loader).withKeyspace("trms"));
+        cqlSessionFactory.setSessionBuilderConfigurer(sessionBuilder -> sessionBuilder.withConfigLoader(loader).withKeyspace("trms")
+                .withMetricRegistry(meterRegistry));
         cqlSessionFactory.setKeyspaceName("trms");
 
         return cqlSessionFactory;
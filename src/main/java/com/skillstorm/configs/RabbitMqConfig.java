@@ -1,14 +1,32 @@
 package com.skillstorm.configs;
 
 import com.skillstorm.constants.Queues;
+import com.skillstorm.dtos.ReimbursementMessageDto;
+import com.skillstorm.dtos.UserDto;
+import com.skillstorm.messaging.CorrelationRegistry;
+import com.skillstorm.messaging.DeadLetterRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.AsyncRabbitTemplate;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class RabbitMqConfig {
@@ -31,6 +49,10 @@ public class RabbitMqConfig {
         CachingConnectionFactory connectionFactory = new CachingConnectionFactory(host);
         connectionFactory.setUsername("guest");
         connectionFactory.setPassword("guest");
+
+        // Correlate publisher confirms and returns with the message that was sent:
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        connectionFactory.setPublisherReturns(true);
         return connectionFactory;
     }
 
@@ -40,215 +62,168 @@ public class RabbitMqConfig {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory());
         rabbitTemplate.setMessageConverter(messageConverter());
         rabbitTemplate.setReplyTimeout(6000);
-        return rabbitTemplate;
-    }
-
-    // Create the exchange:
-    @Bean
-    public Exchange directExchange() {
-        return new DirectExchange(directExchange);
-    }
-
-    // Create the queues:
-
-    // Lookup request queues:
-    @Bean
-    public Queue userLookupQueue() {
-        return new Queue(Queues.USER_LOOKUP.toString());
-    }
-
-    @Bean
-    public Queue supervisorLookupQueue() {
-        return new Queue(Queues.SUPERVISOR_LOOKUP.toString());
-    }
-
-    @Bean
-    public Queue departmentHeadLookupQueue() {
-        return new Queue(Queues.DEPARTMENT_HEAD_LOOKUP.toString());
-    }
-
-    @Bean
-    public Queue bencoLookupQueue() {
-        return new Queue(Queues.BENCO_LOOKUP.toString());
-    }
-
-    // Lookup response queues:
-    @Bean Queue userResponseQueue() {
-        return new Queue(Queues.USER_RESPONSE.toString());
-    }
-
-    @Bean
-    public Queue supervisorResponseQueue() {
-        return new Queue(Queues.SUPERVISOR_RESPONSE.toString());
-    }
-
-    @Bean
-    public Queue departmentHeadResponseQueue() {
-        return new Queue(Queues.DEPARTMENT_HEAD_RESPONSE.toString());
-    }
-
-    @Bean
-    public Queue bencoResponseQueue() {
-        return new Queue(Queues.BENCO_RESPONSE.toString());
-    }
-
-    // Final reimbursement queues:
-    @Bean
-    public Queue adjustmentRequestQueue() {
-        return new Queue(Queues.ADJUSTMENT_REQUEST.toString());
-    }
-
-    @Bean
-    public Queue adjustmentResponseQueue() {
-        return new Queue(Queues.ADJUSTMENT_RESPONSE.toString());
-    }
-
-    @Bean
-    public Queue cancelRequestQueue() {
-        return new Queue(Queues.CANCEL_REQUEST.toString());
-    }
-
-    // MessageService queues:
-    @Bean
-    public Queue approvalRequestQueue() {
-        return new Queue(Queues.APPROVAL_REQUEST.toString());
-    }
-
-    @Bean
-    public Queue deletionRequestQueue() { return new Queue(Queues.DELETION_REQUEST.toString()); }
-
-
-    @Bean
-    public Queue automaticApprovalQueue() {
-        return new Queue(Queues.AUTO_APPROVAL.toString());
-    }
-
-    @Bean Queue completionVerificationQueue() { return new Queue(Queues.COMPLETION_VERIFICATION.toString()); }
-
 
-    // Bind the queues to the exchange:
-
-    // Lookup request bindings:
-    @Bean
-    public Binding userLookupBinding(Queue userLookupQueue, Exchange directExchange) {
-        return BindingBuilder.bind(userLookupQueue)
-                .to(directExchange)
-                .with(Queues.USER_LOOKUP)
-                .noargs();
-    }
-
-    @Bean
-    public Binding supervisorLookupBinding(Queue supervisorLookupQueue, Exchange directExchange) {
-        return BindingBuilder.bind(supervisorLookupQueue)
-                .to(directExchange)
-                .with(Queues.SUPERVISOR_LOOKUP)
-                .noargs();
-    }
-
-    @Bean
-    public Binding departmentHeadLookupBinding(Queue departmentHeadLookupQueue, Exchange directExchange) {
-        return BindingBuilder.bind(departmentHeadLookupQueue)
-                .to(directExchange)
-                .with(Queues.DEPARTMENT_HEAD_LOOKUP)
-                .noargs();
+        // Unroutable messages are returned rather than dropped so the publisher can report them:
+        rabbitTemplate.setMandatory(true);
+        return rabbitTemplate;
     }
 
-    @Bean
-    public Binding bencoLookupBinding(Queue bencoLookupQueue, Exchange directExchange) {
-        return BindingBuilder.bind(bencoLookupQueue)
-                .to(directExchange)
-                .with(Queues.BENCO_LOOKUP)
-                .noargs();
+    // Bounded pool that outbound sends run on so that the event loop never waits on the broker:
+    @Bean(destroyMethod = "dispose")
+    public Scheduler publisherScheduler(@Value("${messaging.publisher.threads:4}") int threads,
+                                        @Value("${messaging.publisher.queued-tasks:10000}") int queuedTasks) {
+        return Schedulers.newBoundedElastic(threads, queuedTasks, "amqp-publisher", 60, true);
+    }
+
+    // How long to wait for a reply from another service before failing the request:
+    @Value("${messaging.reply-timeout:6s}")
+    private Duration replyTimeout;
+
+    // Replies from other services and cache invalidations. Each is handled inline in well under a millisecond, so a
+    // deep prefetch and acking in batches keep the consumers from waiting on the broker:
+    @Bean
+    public SimpleRabbitListenerContainerFactory replyListenerContainerFactory(
+            @Value("${messaging.listeners.replies.concurrency:2}") int concurrency,
+            @Value("${messaging.listeners.replies.max-concurrency:4}") int maxConcurrency,
+            @Value("${messaging.listeners.replies.prefetch:250}") int prefetch,
+            @Value("${messaging.listeners.replies.batch-size:25}") int batchSize,
+            DeadLetterRouter deadLetterRouter) {
+        return listenerContainerFactory(concurrency, maxConcurrency, prefetch, batchSize, deadLetterRouter);
+    }
+
+    // Work that triggers further lookups and writes, such as automatic approvals. Kept off the reply containers so a
+    // backlog can't hold up the replies it is itself waiting on. A shallow prefetch spreads the backlog across consumers,
+    // and consumers are added while it drains:
+    @Bean
+    public SimpleRabbitListenerContainerFactory workListenerContainerFactory(
+            @Value("${messaging.listeners.work.concurrency:4}") int concurrency,
+            @Value("${messaging.listeners.work.max-concurrency:16}") int maxConcurrency,
+            @Value("${messaging.listeners.work.prefetch:10}") int prefetch,
+            @Value("${messaging.listeners.work.batch-size:1}") int batchSize,
+            DeadLetterRouter deadLetterRouter) {
+        return listenerContainerFactory(concurrency, maxConcurrency, prefetch, batchSize, deadLetterRouter);
+    }
+
+    // Listeners that throw are not retried in place. The DeadLetterRouter hands the message to a retry queue instead, so
+    // the consumer moves straight on to the next message:
+    private SimpleRabbitListenerContainerFactory listenerContainerFactory(int concurrency, int maxConcurrency, int prefetch, int batchSize,
+                                                                          DeadLetterRouter deadLetterRouter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory());
+        factory.setMessageConverter(messageConverter());
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(maxConcurrency);
+        factory.setPrefetchCount(prefetch);
+        factory.setBatchSize(batchSize);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(1)
+                .recoverer(deadLetterRouter)
+                .build());
+        return factory;
+    }
+
+    // Sends requests with direct reply-to, so replies come straight back to the sending channel rather than through the
+    // fixed response queues. Only created when messaging.replies.mode is direct. Sends go to the default exchange like
+    // every other message. The template has its own channel so its sends don't need publisher confirms:
+    @Bean
+    @ConditionalOnProperty(name = "messaging.replies.mode", havingValue = "direct")
+    public AsyncRabbitTemplate asyncRabbitTemplate() {
+        RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory());
+        rabbitTemplate.setMessageConverter(messageConverter());
+        AsyncRabbitTemplate asyncRabbitTemplate = new AsyncRabbitTemplate(rabbitTemplate);
+        // The CorrelationRegistry fails the request first. This just makes sure abandoned futures are released:
+        asyncRabbitTemplate.setReceiveTimeout(replyTimeout.multipliedBy(2).toMillis());
+        return asyncRabbitTemplate;
     }
 
-    // Lookup response bindings:
-    @Bean
-    public Binding userResponseBinding(Queue userResponseQueue, Exchange directExchange) {
-        return BindingBuilder.bind(userResponseQueue)
-                .to(directExchange)
-                .with(Queues.USER_RESPONSE)
-                .noargs();
+    // Shared timer that expires request/reply exchanges that never receive a response:
+    @Bean(destroyMethod = "stop")
+    public HashedWheelTimer correlationTimer() {
+        return new HashedWheelTimer(new DefaultThreadFactory("correlation-timer", true), 100, TimeUnit.MILLISECONDS);
     }
 
+    // Pending approver lookups sent to the User-Service:
     @Bean
-    public Binding supervisorResponseBinding(Queue supervisorResponseQueue, Exchange directExchange) {
-        return BindingBuilder.bind(supervisorResponseQueue)
-                .to(directExchange)
-                .with(Queues.SUPERVISOR_RESPONSE)
-                .noargs();
+    public CorrelationRegistry<UserDto> lookupCorrelationRegistry(HashedWheelTimer correlationTimer, MeterRegistry meterRegistry) {
+        return new CorrelationRegistry<>("approver-lookup", replyTimeout, correlationTimer, meterRegistry);
     }
 
+    // Pending reimbursement adjustments sent to the User-Service:
     @Bean
-    public Binding departmentHeadResponseBinding(Queue departmentHeadResponseQueue, Exchange directExchange) {
-        return BindingBuilder.bind(departmentHeadResponseQueue)
-                .to(directExchange)
-                .with(Queues.DEPARTMENT_HEAD_RESPONSE)
-                .noargs();
+    public CorrelationRegistry<ReimbursementMessageDto> reimbursementCorrelationRegistry(HashedWheelTimer correlationTimer, MeterRegistry meterRegistry) {
+        return new CorrelationRegistry<>("reimbursement-adjustment", replyTimeout, correlationTimer, meterRegistry);
     }
 
+    // Create the exchange:
     @Bean
-    public Binding bencoResponseBinding(Queue bencoResponseQueue, Exchange directExchange) {
-        return BindingBuilder.bind(bencoResponseQueue)
-                .to(directExchange)
-                .with(Queues.BENCO_RESPONSE)
-                .noargs();
+    public Exchange directExchange() {
+        return new DirectExchange(directExchange);
     }
 
-    // Final reimbursement bindings:
+    // Declare every queue in Queues along with its parking lot and, for the queues this service consumes, its retry
+    // queues. The queues themselves are declared without arguments, as they always have been by this service and the
+    // others; their dead-letter route to the parking lot and their length limit come from the policies QueuePolicies
+    // sets. Retry queues hold a failed message for their TTL and then dead-letter it back to the queue it came from, so
+    // each retry waits longer than the last. The response queues aren't needed when replies use direct reply-to:
     @Bean
-    public Binding adjustmentRequestBinding(Queue adjustmentRequestQueue, Exchange directExchange) {
-        return BindingBuilder.bind(adjustmentRequestQueue)
-                .to(directExchange)
-                .with(Queues.ADJUSTMENT_REQUEST)
-                .noargs();
-    }
+    public Declarables queueDeclarables(Exchange directExchange,
+                                        @Value("${messaging.replies.mode:queues}") String repliesMode,
+                                        @Value("${messaging.retry.max-retries:3}") int maxRetries,
+                                        @Value("${messaging.retry.initial-delay:1s}") Duration initialDelay,
+                                        @Value("${messaging.retry.multiplier:4}") int multiplier) {
+        List<Declarable> declarables = new ArrayList<>();
+        for(Queues queue : Queues.values()) {
+            if(queue.getKind() == Queues.Kind.BROADCAST || (queue.getKind() == Queues.Kind.REPLY && "direct".equals(repliesMode))) {
+                continue;
+            }
 
-    @Bean
-    public Binding adjustmentResponseBinding(Queue adjustmentResponseQueue, Exchange directExchange) {
-        return BindingBuilder.bind(adjustmentResponseQueue)
-                .to(directExchange)
-                .with(Queues.ADJUSTMENT_RESPONSE)
-                .noargs();
-    }
+            Queue mainQueue = QueueBuilder.durable(queue.toString()).build();
+            declarables.add(mainQueue);
+            declarables.add(BindingBuilder.bind(mainQueue)
+                    .to(directExchange)
+                    .with(queue)
+                    .noargs());
+            declarables.add(QueueBuilder.durable(queue.parkingLot()).build());
 
-    @Bean
-    public Binding cancelRequestBinding(Queue cancelRequestQueue, Exchange directExchange) {
-        return BindingBuilder.bind(cancelRequestQueue)
-                .to(directExchange)
-                .with(Queues.CANCEL_REQUEST)
-                .noargs();
+            if(queue.isConsumed()) {
+                long delay = initialDelay.toMillis();
+                for(int retry = 1; retry <= maxRetries; retry++, delay *= multiplier) {
+                    declarables.add(QueueBuilder.durable(queue.retryQueue(retry))
+                            .ttl((int) delay)
+                            .deadLetterExchange("")
+                            .deadLetterRoutingKey(queue.toString())
+                            .build());
+                }
+            }
+        }
+        return new Declarables(declarables);
     }
 
-    // MessageService bindings:
+    // Cache invalidation queues. Anonymous so that every instance receives its own copy:
     @Bean
-    public Binding approvalRequestBinding(Queue approvalRequestQueue, Exchange directExchange) {
-        return BindingBuilder.bind(approvalRequestQueue)
-                .to(directExchange)
-                .with(Queues.APPROVAL_REQUEST)
-                .noargs();
+    public Queue approverInvalidationQueue() {
+        return new AnonymousQueue();
     }
 
     @Bean
-    public Binding deletionRequestBinding(Queue deletionRequestQueue, Exchange directExchange) {
-        return BindingBuilder.bind(deletionRequestQueue)
-                .to(directExchange)
-                .with(Queues.DELETION_REQUEST)
-                .noargs();
+    public Queue formInvalidationQueue() {
+        return new AnonymousQueue();
     }
 
+    // Cache invalidation bindings:
     @Bean
-    public Binding automaticApprovalBinding(Queue automaticApprovalQueue, Exchange directExchange) {
-        return BindingBuilder.bind(automaticApprovalQueue)
+    public Binding approverInvalidationBinding(Queue approverInvalidationQueue, Exchange directExchange) {
+        return BindingBuilder.bind(approverInvalidationQueue)
                 .to(directExchange)
-                .with(Queues.AUTO_APPROVAL)
+                .with(Queues.APPROVER_INVALIDATION)
                 .noargs();
     }
 
     @Bean
-    public Binding completionVerificationBinding(Queue completionVerificationQueue, Exchange directExchange) {
-        return BindingBuilder.bind(completionVerificationQueue)
+    public Binding formInvalidationBinding(Queue formInvalidationQueue, Exchange directExchange) {
+        return BindingBuilder.bind(formInvalidationQueue)
                 .to(directExchange)
-                .with(Queues.COMPLETION_VERIFICATION)
+                .with(Queues.FORM_INVALIDATION)
                 .noargs();
     }
-}
\ No newline at end of file
+}
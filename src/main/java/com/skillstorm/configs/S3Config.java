@@ -3,6 +3,7 @@ package com.skillstorm.configs;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 @Configuration
@@ -14,4 +15,12 @@ public class S3Config {
                 .region(Region.US_EAST_2)
                 .build();
     }
+
+    // Non-blocking client for the calls the service makes to S3 itself, such as starting and completing multipart uploads:
+    @Bean
+    public S3AsyncClient s3Client() {
+        return S3AsyncClient.builder()
+                .region(Region.US_EAST_2)
+                .build();
+    }
 }
@@ -1,5 +1,39 @@
 package com.skillstorm.constants;
 
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.UUID;
+
+@Getter
 public enum AttachmentType {
-    EVENT, SUPERVISOR_APPROVAL, DEPARTMENT_HEAD_APPROVAL, PROOF_OF_COMPLETION
+    EVENT("attachment", "attachment", Set.of("application/pdf", "image/png", "image/jpg", "image/jpeg", "text/plain",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document")),
+    SUPERVISOR_APPROVAL("supervisorAttachment", "supervisor_preapproval", Set.of("application/vnd.ms-outlook")),
+    DEPARTMENT_HEAD_APPROVAL("departmentHeadAttachment", "department_head_preapproval", Set.of("application/vnd.ms-outlook")),
+    PROOF_OF_COMPLETION("completionAttachment", "completion_attachment", Set.of("application/vnd.openxmlformats-officedocument.presentationml.presentation",
+            "application/vnd.openxmlformats-officedocument.presentationml.slideshow"));
+
+    // Name of the field on the Form and of the column it is stored in:
+    private final String fieldName;
+    private final String column;
+
+    // Content types that may be uploaded for this type of attachment:
+    private final Set<String> contentTypes;
+
+    AttachmentType(String fieldName, String column, Set<String> contentTypes) {
+        this.fieldName = fieldName;
+        this.column = column;
+        this.contentTypes = contentTypes;
+    }
+
+    // The key a pre-signed upload of this type of attachment to the Form is stored under:
+    public String keyFor(UUID formId) {
+        return formId + "/" + name().toLowerCase();
+    }
+
+    // Content types are case-insensitive, so they are compared in lower case:
+    public boolean accepts(String contentType) {
+        return contentType != null && contentTypes.contains(contentType.toLowerCase());
+    }
 }
@@ -0,0 +1,8 @@
+package com.skillstorm.constants;
+
+// Whether the change a FormEvent or outbox message belongs to was applied to the Form. Rows are written PENDING before
+// the conditional write they depend on and settled once its result is known. Rows with no outcome were written in the
+// same batch as their change, either before outcomes were recorded or by an unconditional write, so were applied:
+public enum EventOutcome {
+    PENDING, APPLIED, ABORTED
+}
@@ -0,0 +1,6 @@
+package com.skillstorm.constants;
+
+// Where an export is written when it isn't streamed back in the response:
+public enum ExportTarget {
+    FILE, S3
+}
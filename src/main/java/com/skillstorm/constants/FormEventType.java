@@ -0,0 +1,17 @@
+package com.skillstorm.constants;
+
+// What happened to a Form, as recorded in the form_events table:
+public enum FormEventType {
+    CREATED, IMPORTED, EDITED, SUBMITTED, APPROVED, DENIED, AWARDED, CANCELLED, DELETED, ATTACHMENTS_UPDATED;
+
+    // The event recorded when a Form moves to the target status:
+    public static FormEventType forTransition(Status target) {
+        return switch(target) {
+            case CREATED -> CREATED;
+            case AWAITING_SUPERVISOR_APPROVAL -> SUBMITTED;
+            case AWAITING_DEPARTMENT_HEAD_APPROVAL, AWAITING_BENCO_APPROVAL, PENDING -> APPROVED;
+            case APPROVED -> AWARDED;
+            case DENIED -> DENIED;
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.skillstorm.constants;
+
+import org.springframework.http.MediaType;
+
+// Formats accepted by the bulk import, one record per line. CSV files start with a header row naming the FormDto field
+// in each column:
+public enum ImportFormat {
+    NDJSON, CSV;
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    public static ImportFormat forContentType(MediaType contentType) {
+        return TEXT_CSV.isCompatibleWith(contentType) ? CSV : NDJSON;
+    }
+}
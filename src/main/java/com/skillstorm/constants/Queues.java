@@ -1,33 +1,77 @@
 package com.skillstorm.constants;
 
+import java.util.Arrays;
+import java.util.Optional;
+
+// Every queue this service publishes to or consumes from. RabbitMqConfig declares a queue, its parking lot, and its retry
+// queues from these entries, and QueuePolicies sets its dead-letter and length policy, so a new queue only needs adding here:
 public enum Queues {
     // Lookup request queues:
-    USER_LOOKUP("user-lookup-queue"),
-    SUPERVISOR_LOOKUP("supervisor-lookup-queue"),
-    DEPARTMENT_HEAD_LOOKUP("department-head-lookup-queue"),
-    BENCO_LOOKUP("benco-lookup-queue"),
+    USER_LOOKUP("user-lookup-queue", Kind.OUTBOUND),
+    SUPERVISOR_LOOKUP("supervisor-lookup-queue", Kind.OUTBOUND),
+    DEPARTMENT_HEAD_LOOKUP("department-head-lookup-queue", Kind.OUTBOUND),
+    BENCO_LOOKUP("benco-lookup-queue", Kind.OUTBOUND),
 
     // Lookup response queues:
-    USER_RESPONSE("user-response-queue"),
-    SUPERVISOR_RESPONSE("supervisor-response-queue"),
-    DEPARTMENT_HEAD_RESPONSE("department-head-response-queue"),
-    BENCO_RESPONSE("benco-response-queue"),
+    USER_RESPONSE("user-response-queue", Kind.REPLY),
+    SUPERVISOR_RESPONSE("supervisor-response-queue", Kind.REPLY),
+    DEPARTMENT_HEAD_RESPONSE("department-head-response-queue", Kind.REPLY),
+    BENCO_RESPONSE("benco-response-queue", Kind.REPLY),
 
     // Final reimbursement queues:
-    ADJUSTMENT_REQUEST("adjustment-request-queue"),
-    ADJUSTMENT_RESPONSE("adjustment-response-queue"),
-    CANCEL_REQUEST("cancel-request-queue"),
+    ADJUSTMENT_REQUEST("adjustment-request-queue", Kind.OUTBOUND),
+    ADJUSTMENT_RESPONSE("adjustment-response-queue", Kind.REPLY),
+    CANCEL_REQUEST("cancel-request-queue", Kind.OUTBOUND),
 
     // Inbox queues:
-    APPROVAL_REQUEST("approval-request-queue"),
-    DELETION_REQUEST("deletion-request-queue"),
-    AUTO_APPROVAL("automatic-approval-queue"),
-    COMPLETION_VERIFICATION("completion-verification-queue");
+    APPROVAL_REQUEST("approval-request-queue", Kind.OUTBOUND),
+    DELETION_REQUEST("deletion-request-queue", Kind.OUTBOUND),
+    INBOX_UPDATE("inbox-update-queue", Kind.OUTBOUND),
+    AUTO_APPROVAL("automatic-approval-queue", Kind.WORK),
+    COMPLETION_VERIFICATION("completion-verification-queue", Kind.OUTBOUND),
+
+    // Cache invalidation routing keys. Each instance binds its own anonymous queue:
+    APPROVER_INVALIDATION("approver-invalidation", Kind.BROADCAST),
+    FORM_INVALIDATION("form-invalidation", Kind.BROADCAST);
+
+    // OUTBOUND queues are consumed by other services, REPLY and WORK queues by this one. REPLY queues are only declared
+    // when replies don't use direct reply-to. BROADCAST entries are routing keys only and are never declared:
+    public enum Kind {
+        OUTBOUND, REPLY, WORK, BROADCAST
+    }
 
     private final String queue;
+    private final Kind kind;
 
-    Queues(String queue) {
+    Queues(String queue, Kind kind) {
         this.queue = queue;
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    // Whether this service consumes the queue, and so retries its failed messages through the retry queues:
+    public boolean isConsumed() {
+        return kind == Kind.REPLY || kind == Kind.WORK;
+    }
+
+    // Where messages go once they are rejected or have used up their retries, until they are replayed:
+    public String parkingLot() {
+        return queue + ".parking-lot";
+    }
+
+    // Delay queue for the given retry, counting from 1. Messages wait out its TTL and are then dead-lettered back:
+    public String retryQueue(int retry) {
+        return queue + ".retry." + retry;
+    }
+
+    // Find the entry for a queue name, e.g. the queue a message was consumed from:
+    public static Optional<Queues> forQueue(String name) {
+        return Arrays.stream(values())
+                .filter(queue -> queue.kind != Kind.BROADCAST && queue.queue.equals(name))
+                .findFirst();
     }
 
     @Override
@@ -1,6 +1,35 @@
 package com.skillstorm.constants;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum Status {
     CREATED, AWAITING_SUPERVISOR_APPROVAL, AWAITING_DEPARTMENT_HEAD_APPROVAL,
-    AWAITING_BENCO_APPROVAL, PENDING, APPROVED, DENIED
+    AWAITING_BENCO_APPROVAL, PENDING, APPROVED, DENIED;
+
+    // Allowed status transitions. Pre-approval attachments let a Form skip ahead, and Approved and Denied are final:
+    private static final Map<Status, Set<Status>> TRANSITIONS = new EnumMap<>(Status.class);
+
+    static {
+        TRANSITIONS.put(CREATED, EnumSet.of(AWAITING_SUPERVISOR_APPROVAL, AWAITING_DEPARTMENT_HEAD_APPROVAL, AWAITING_BENCO_APPROVAL));
+        TRANSITIONS.put(AWAITING_SUPERVISOR_APPROVAL, EnumSet.of(AWAITING_DEPARTMENT_HEAD_APPROVAL, AWAITING_BENCO_APPROVAL, DENIED));
+        TRANSITIONS.put(AWAITING_DEPARTMENT_HEAD_APPROVAL, EnumSet.of(AWAITING_BENCO_APPROVAL, DENIED));
+        TRANSITIONS.put(AWAITING_BENCO_APPROVAL, EnumSet.of(PENDING, DENIED));
+        TRANSITIONS.put(PENDING, EnumSet.of(APPROVED, DENIED));
+        TRANSITIONS.put(APPROVED, EnumSet.noneOf(Status.class));
+        TRANSITIONS.put(DENIED, EnumSet.noneOf(Status.class));
+    }
+
+    // Statuses in which a Form is waiting on an approver, and is escalated if it waits too long:
+    private static final Set<Status> AWAITING_APPROVAL = EnumSet.of(AWAITING_SUPERVISOR_APPROVAL, AWAITING_DEPARTMENT_HEAD_APPROVAL, AWAITING_BENCO_APPROVAL);
+
+    public boolean canTransitionTo(Status next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+
+    public boolean isAwaitingApproval() {
+        return AWAITING_APPROVAL.contains(this);
+    }
 }
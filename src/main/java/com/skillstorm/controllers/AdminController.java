@@ -0,0 +1,84 @@
+package com.skillstorm.controllers;
+
+import com.skillstorm.constants.Queues;
+import com.skillstorm.dtos.CacheStatsDto;
+import com.skillstorm.dtos.ProjectionDto;
+import com.skillstorm.dtos.ReindexResultDto;
+import com.skillstorm.dtos.ReplayResultDto;
+import com.skillstorm.messaging.DeadLetterRouter;
+import com.skillstorm.projections.FormProjector;
+import com.skillstorm.repositories.FormCache;
+import com.skillstorm.services.ApproverCache;
+import com.skillstorm.services.EscalationScheduler;
+import com.skillstorm.services.FormService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final DeadLetterRouter deadLetterRouter;
+    private final ApproverCache approverCache;
+    private final FormCache formCache;
+    private final FormProjector formProjector;
+    private final FormService formService;
+    private final EscalationScheduler escalationScheduler;
+
+    @Autowired
+    public AdminController(DeadLetterRouter deadLetterRouter, ApproverCache approverCache, FormCache formCache, FormProjector formProjector,
+                           FormService formService, EscalationScheduler escalationScheduler) {
+        this.deadLetterRouter = deadLetterRouter;
+        this.approverCache = approverCache;
+        this.formCache = formCache;
+        this.formProjector = formProjector;
+        this.formService = formService;
+        this.escalationScheduler = escalationScheduler;
+    }
+
+    // Move up to limit parked messages back onto their queue, e.g. /admin/queues/AUTO_APPROVAL/replay?limit=500:
+    @PostMapping("/queues/{queue}/replay")
+    public Mono<ReplayResultDto> replayParkedMessages(@PathVariable("queue") Queues queue,
+                                                      @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        return deadLetterRouter.replay(queue, limit)
+                .map(replayed -> new ReplayResultDto(queue.toString(), replayed));
+    }
+
+    // Hit rates for the approver and Form caches. The same counts are published as cache.gets through actuator:
+    @GetMapping("/caches")
+    public Flux<CacheStatsDto> cacheStats() {
+        return Flux.just(CacheStatsDto.of("approvers", approverCache.stats()), CacheStatsDto.of("forms", formCache.stats()));
+    }
+
+    // Current counts of a projection built from the form event history, e.g. /admin/projections/pending-approvals:
+    @GetMapping("/projections/{name}")
+    public Mono<ProjectionDto> projection(@PathVariable("name") String name) {
+        return formProjector.describe(name);
+    }
+
+    // Throw away a projection and rebuild it from the form event history without reading the form table:
+    @PostMapping("/projections/{name}/rebuild")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<Void> rebuildProjection(@PathVariable("name") String name) {
+        return formProjector.rebuild(name);
+    }
+
+    // Rebuild the forms_by_username index from the form table. Run once after upgrading, since Forms created before the
+    // index existed are missing from /forms/active until it has run:
+    @PostMapping("/forms/reindex")
+    public Mono<ReindexResultDto> reindexForms() {
+        return formService.reindexAll()
+                .map(ReindexResultDto::new);
+    }
+
+    // File escalation deadlines for Forms that were already waiting on an approver when the escalation index was
+    // introduced. Run once after upgrading, and again after rebuilding the pending-approvals projection:
+    @PostMapping("/escalations/reindex")
+    public Mono<ReindexResultDto> reindexEscalations() {
+        return escalationScheduler.backfill()
+                .map(ReindexResultDto::new);
+    }
+}
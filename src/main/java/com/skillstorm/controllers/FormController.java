@@ -2,19 +2,33 @@ package com.skillstorm.controllers;
 
 import com.skillstorm.constants.AttachmentType;
 import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.ExportTarget;
 import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.constants.ImportFormat;
 import com.skillstorm.constants.Status;
-import com.skillstorm.dtos.AttachmentUpdateDto;
-import com.skillstorm.dtos.DenialDto;
-import com.skillstorm.dtos.FormDto;
-import com.skillstorm.dtos.UploadUrlResponse;
+import com.skillstorm.dtos.*;
+import com.skillstorm.services.AttachmentUploadService;
+import com.skillstorm.services.FormExportService;
+import com.skillstorm.services.FormImportService;
 import com.skillstorm.services.FormService;
+import com.skillstorm.services.FormStatsService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -22,10 +36,19 @@ import java.util.UUID;
 public class FormController {
 
     private final FormService formService;
+    private final FormStatsService formStatsService;
+    private final AttachmentUploadService attachmentUploadService;
+    private final FormImportService formImportService;
+    private final FormExportService formExportService;
 
     @Autowired
-    public FormController(FormService formService) {
+    public FormController(FormService formService, FormStatsService formStatsService, AttachmentUploadService attachmentUploadService,
+                          FormImportService formImportService, FormExportService formExportService) {
         this.formService = formService;
+        this.formStatsService = formStatsService;
+        this.attachmentUploadService = attachmentUploadService;
+        this.formImportService = formImportService;
+        this.formExportService = formExportService;
     }
 
     // Test endpoint:
@@ -40,16 +63,67 @@ public class FormController {
         return newForm.flatMap(formService::createForm);
     }
 
+    // Dashboard counts by status and approver, read from the projections rather than by scanning Forms:
+    @GetMapping("/stats")
+    public Mono<FormStatsDto> getStats() {
+        return formStatsService.getStats();
+    }
+
+    // Import Forms in bulk from newline delimited JSON, or CSV with a header row, such as a file from the export. The body
+    // is read a line at a time and the result for each record is streamed back as newline delimited JSON:
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ImportResultDto> importForms(ServerHttpRequest request) {
+        MediaType contentType = request.getHeaders().getContentType();
+        Flux<String> lines = StringDecoder.allMimeTypes().decode(request.getBody(), ResolvableType.forClass(String.class), contentType, Map.of());
+        return formImportService.importForms(lines, ImportFormat.forContentType(contentType));
+    }
+
+    // Export Forms as CSV for reporting, streamed back as it is read. Only the named columns are exported, or all of them
+    // if none are named:
+    @GetMapping(value = "/export", produces = "text/csv")
+    public Flux<String> exportForms(@RequestParam(value = "columns", required = false) List<String> columns,
+                                    @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                    @RequestParam(value = "status", required = false) Status status,
+                                    @RequestParam(value = "eventType", required = false) EventType eventType,
+                                    ServerHttpResponse response) {
+        response.getHeaders().setContentDisposition(ContentDisposition.attachment().filename("forms.csv").build());
+        return formExportService.exportCsv(new FormExportDto(columns, from, to, status, eventType));
+    }
+
+    // Export Forms as CSV to a file on this instance or to an S3 object, returning where it was written once it's done:
+    @PostMapping("/export")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<ExportResultDto> exportFormsTo(@RequestParam("target") ExportTarget target,
+                                               @RequestParam(value = "columns", required = false) List<String> columns,
+                                               @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                               @RequestParam(value = "status", required = false) Status status,
+                                               @RequestParam(value = "eventType", required = false) EventType eventType) {
+        return formExportService.exportTo(target, new FormExportDto(columns, from, to, status, eventType));
+    }
+
     // Find Form by ID:
     @GetMapping("/{id}")
     public Mono<FormDto> findById(@PathVariable("id") UUID id) {
         return formService.findById(id);
     }
 
-    // Find all Forms. Test utility for now, but may eventually return all Forms created by a specific User:
+    // Find all Forms. Optionally filter by status and event type. Returned as a JSON array, or as newline delimited JSON
+    // when the client asks for application/x-ndjson, in which case each Form is written as soon as it is read:
     @GetMapping
-    public Flux<FormDto> findAll() {
-        return formService.findAll();
+    public Flux<FormDto> findAll(@RequestParam(value = "status", required = false) Status status,
+                                 @RequestParam(value = "eventType", required = false) EventType eventType) {
+        return formService.streamAll(status, eventType);
+    }
+
+    // Page through all Forms. Optionally filter by status and event type. Pass the returned token back to get the next page:
+    @GetMapping("/page")
+    public Mono<FormPageDto> findPage(@RequestParam(value = "pageSize", defaultValue = "50") int pageSize,
+                                      @RequestParam(value = "pageToken", required = false) String pageToken,
+                                      @RequestParam(value = "status", required = false) Status status,
+                                      @RequestParam(value = "eventType", required = false) EventType eventType) {
+        return formService.findPage(pageSize, pageToken, status, eventType);
     }
 
     // View all of a User's Forms. Optionally filter by status:
@@ -135,6 +209,23 @@ public class FormController {
         return denialDto.flatMap(denial -> formService.denyRequest(id, denial));
     }
 
+    // Approve a batch of Forms in a single request. Results are streamed back as each group of Forms is persisted:
+    @PutMapping(value = "/batch/approve", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<BatchResultDto> batchApprove(@Valid @RequestBody Mono<BatchApprovalDto> batchApproval, @RequestHeader("username") String approver) {
+        return batchApproval.flatMapMany(batch -> formService.batchApprove(batch.getFormIds(), approver));
+    }
+
+    // Deny a batch of Forms in a single request:
+    @PutMapping(value = "/batch/deny", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<BatchResultDto> batchDeny(@Valid @RequestBody Mono<BatchDenialDto> batchDenial) {
+        return batchDenial.flatMapMany(batch -> {
+            DenialDto denial = new DenialDto();
+            denial.setApprover(batch.getApprover());
+            denial.setReason(batch.getReason());
+            return formService.batchDeny(batch.getFormIds(), denial);
+        });
+    }
+
     // Generate a Pre-signed Url to allow user to upload file attachments to S3:
     @PostMapping("/{id}/attachments/url")
     public Mono<UploadUrlResponse> generateUploadUrl(@PathVariable("id") UUID id, @RequestParam("contentType") String contentType,
@@ -142,10 +233,16 @@ public class FormController {
         return formService.generateUploadUrl(id,contentType, attachmentType);
     }
 
-    // Update the Form's attachment fields after a successful upload:
+    // Update the Form's attachment fields after a successful upload. The key has to be the one the upload was given:
     @PutMapping("/{id}/attachments/url")
     public Mono<AttachmentUpdateDto> updateAttachmentField(@PathVariable("id") UUID id, @RequestParam("attachmentType") AttachmentType attachmentType, @RequestParam("key") String key) {
-        return formService.updateAttachmentField(id, attachmentType, key);
+        return attachmentUploadService.registerUploads(id, Map.of(attachmentType, key)).next();
+    }
+
+    // Register several uploaded attachments in one call, keyed by attachment type:
+    @PutMapping("/{id}/attachments")
+    public Flux<AttachmentUpdateDto> updateAttachmentFields(@PathVariable("id") UUID id, @RequestBody Map<AttachmentType, String> keys) {
+        return attachmentUploadService.registerUploads(id, keys);
     }
 
     // Generate a Pre-signed Url to allow user to download file attachments from S3:
@@ -153,4 +250,47 @@ public class FormController {
     public Mono<String> generateDownloadUrl(@PathVariable("id") UUID id, @RequestParam("attachmentType") AttachmentType attachmentType) {
         return formService.generateDownloadUrl(id, attachmentType);
     }
+
+    // Generate Pre-signed Urls to download all of the Form's attachments, keyed by attachment type:
+    @GetMapping("/{id}/attachments/urls")
+    public Mono<Map<AttachmentType, String>> generateDownloadUrls(@PathVariable("id") UUID id) {
+        return formService.generateDownloadUrls(id);
+    }
+
+    // Start a multipart upload of a large attachment. The response says how large each part must be:
+    @PostMapping("/{id}/attachments/uploads")
+    public Mono<MultipartUploadResponse> startUpload(@PathVariable("id") UUID id, @RequestParam("attachmentType") AttachmentType attachmentType,
+                                                     @RequestParam("contentType") String contentType, @RequestParam("size") long size) {
+        return attachmentUploadService.startUpload(id, attachmentType, contentType, size);
+    }
+
+    // Generate a Pre-signed Url for one part. The part must be sent with the same base64 Content-MD5 header:
+    @PostMapping("/{id}/attachments/uploads/{uploadId}/parts/{partNumber}")
+    public Mono<UploadPartResponse> generateUploadPartUrl(@PathVariable("id") UUID id, @PathVariable("uploadId") String uploadId,
+                                                          @PathVariable("partNumber") int partNumber, @RequestParam("attachmentType") AttachmentType attachmentType,
+                                                          @RequestParam("contentMd5") String contentMd5) {
+        return attachmentUploadService.generateUploadPartUrl(id, attachmentType, uploadId, partNumber, contentMd5);
+    }
+
+    // List the parts received so far, to resume an interrupted upload:
+    @GetMapping("/{id}/attachments/uploads/{uploadId}/parts")
+    public Flux<UploadedPartDto> findUploadedParts(@PathVariable("id") UUID id, @PathVariable("uploadId") String uploadId,
+                                                   @RequestParam("attachmentType") AttachmentType attachmentType) {
+        return attachmentUploadService.findUploadedParts(id, attachmentType, uploadId);
+    }
+
+    // Complete the upload and, once the stored file is verified, set the Form's attachment field:
+    @PostMapping("/{id}/attachments/uploads/{uploadId}/complete")
+    public Mono<AttachmentUpdateDto> completeUpload(@PathVariable("id") UUID id, @PathVariable("uploadId") String uploadId,
+                                                    @RequestParam("attachmentType") AttachmentType attachmentType) {
+        return attachmentUploadService.completeUpload(id, attachmentType, uploadId);
+    }
+
+    // Abandon an upload:
+    @DeleteMapping("/{id}/attachments/uploads/{uploadId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> abortUpload(@PathVariable("id") UUID id, @PathVariable("uploadId") String uploadId,
+                                  @RequestParam("attachmentType") AttachmentType attachmentType) {
+        return attachmentUploadService.abortUpload(id, attachmentType, uploadId);
+    }
 }
@@ -0,0 +1,16 @@
+package com.skillstorm.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BatchApprovalDto {
+
+    @NotEmpty(message = "{batch.forms.must}")
+    @Size(max = 500, message = "{batch.forms.size}")
+    private List<UUID> formIds;
+}
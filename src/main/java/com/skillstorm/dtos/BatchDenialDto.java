@@ -0,0 +1,25 @@
+package com.skillstorm.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BatchDenialDto {
+
+    @NotEmpty(message = "{batch.forms.must}")
+    @Size(max = 500, message = "{batch.forms.size}")
+    private List<UUID> formIds;
+
+    @NotNull
+    @NotEmpty
+    private String approver;
+
+    @NotNull(message = "{denial.reason.must}")
+    @NotEmpty(message = "{denial.reason.must}")
+    private String reason;
+}
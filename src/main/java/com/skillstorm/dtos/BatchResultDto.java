@@ -0,0 +1,17 @@
+package com.skillstorm.dtos;
+
+import com.skillstorm.constants.Status;
+
+import java.util.UUID;
+
+// Outcome for a single Form within a batch request. Status is null when the Form could not be processed:
+public record BatchResultDto(UUID formId, Status status, String error) {
+
+    public static BatchResultDto success(UUID formId, Status status) {
+        return new BatchResultDto(formId, status, null);
+    }
+
+    public static BatchResultDto failure(UUID formId, String error) {
+        return new BatchResultDto(formId, null, error);
+    }
+}
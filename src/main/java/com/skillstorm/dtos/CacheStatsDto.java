@@ -0,0 +1,11 @@
+package com.skillstorm.dtos;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+// Hit and eviction counts for one of the service's caches since startup:
+public record CacheStatsDto(String cache, long hits, long misses, double hitRate, long evictions) {
+
+    public static CacheStatsDto of(String cache, CacheStats stats) {
+        return new CacheStatsDto(cache, stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+}
@@ -0,0 +1,6 @@
+package com.skillstorm.dtos;
+
+// Where an export was written, and how many Forms it holds:
+public record ExportResultDto(String location, long rows) {
+
+}
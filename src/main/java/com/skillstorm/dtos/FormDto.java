@@ -1,5 +1,6 @@
 package com.skillstorm.dtos;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -8,7 +9,12 @@ import com.skillstorm.constants.GradeFormat;
 import com.skillstorm.constants.Status;
 import com.skillstorm.entities.Form;
 import jakarta.validation.constraints.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -38,13 +44,15 @@ public class FormDto {
     @Pattern(regexp = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$", message = "{email.invalid}")
     private String email;
 
-    //TODO: decide on a time format
+    // Dates and times stay typed and are only formatted or parsed by Jackson at the edge of the service. Times are
+    // written as HH:mm, and read with or without seconds, which are dropped when the Form is saved:
     @NotNull(message = "{event.time.must}")
-    private String time;
+    @JsonFormat(pattern = "HH:mm")
+    @Setter(AccessLevel.NONE)
+    private LocalTime time;
 
-    //TODO: decide on a date format
     @NotNull(message = "{event.date.must}")
-    private String date;
+    private LocalDate date;
 
     @NotNull(message = "{event.location.must}")
     @NotEmpty(message = "{event.location.must}")
@@ -54,6 +62,7 @@ public class FormDto {
     @Size(min = 5, max = 100, message = "{event.description.must}")
     private String description;
 
+    @NotNull(message = "{event.cost.must}")
     @Min(value = 0, message = "{event.cost.must}")
     private BigDecimal cost;
 
@@ -95,6 +104,19 @@ public class FormDto {
     @Pattern(regexp = "^\\S+\\.(pdf|png|jpe?g|txt|doc|msg|pptx|ppsx)$", message = "{completion.attachment.invalid}")
     private String completionAttachment;
 
+    // Derived values are computed on first use and cleared by the setters of the fields they depend on:
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Boolean urgent;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private BigDecimal defaultReimbursement;
+
     public FormDto() {
         this.id = UUID.randomUUID();
         this.status = Status.CREATED;
@@ -106,8 +128,8 @@ public class FormDto {
         this.firstName = form.getFirstName();
         this.lastName = form.getLastName();
         this.email = form.getEmail();
-        this.time = form.getTime().toString();
-        this.date = form.getDate().toString();
+        this.time = form.getTime();
+        this.date = form.getDate();
         this.location = form.getLocation();
         this.description = form.getDescription();
         this.cost = form.getCost();
@@ -134,8 +156,8 @@ public class FormDto {
         form.setFirstName(firstName);
         form.setLastName(lastName);
         form.setEmail(email);
-        form.setTime(LocalTime.parse(time).truncatedTo(ChronoUnit.MINUTES));
-        form.setDate(LocalDate.parse(date));
+        form.setTime(time.truncatedTo(ChronoUnit.MINUTES));
+        form.setDate(date);
         form.setLocation(location);
         form.setDescription(description);
         form.setCost(cost.setScale(2, RoundingMode.HALF_UP));
@@ -156,12 +178,33 @@ public class FormDto {
         return form;
     }
 
+    public void setDate(LocalDate date) {
+        this.date = date;
+        this.urgent = null;
+    }
+
+    public void setCost(BigDecimal cost) {
+        this.cost = cost;
+        this.defaultReimbursement = null;
+    }
+
+    @JsonFormat(pattern = "HH:mm[:ss]")
+    public void setTime(LocalTime time) {
+        this.time = time;
+    }
+
+    public void setEventType(EventType eventType) {
+        this.eventType = eventType;
+        this.defaultReimbursement = null;
+    }
+
     // If Event takes place within two weeks, the Form will be marked as Urgent:
     @JsonGetter
     public boolean isUrgent() {
-        return LocalDate.parse(date)
-                .minusDays(14)
-                .isBefore(LocalDate.now());
+        if(urgent == null) {
+            urgent = date.minusDays(14).isBefore(LocalDate.now());
+        }
+        return urgent;
     }
 
     // If no passingGrade was supplied, use the default defined in GradeFormat:
@@ -176,10 +219,13 @@ public class FormDto {
     // Generate Reimbursement Amount based on cost and EventType but don't
     // overwrite any adjustments made by Benco or yearly reimbursement cap:
     public BigDecimal getReimbursement() {
-        if(reimbursement == null) {
-            return cost.multiply(BigDecimal.valueOf(eventType.getRate()))
+        if(reimbursement != null) {
+            return reimbursement;
+        }
+        if(defaultReimbursement == null) {
+            defaultReimbursement = cost.multiply(BigDecimal.valueOf(eventType.getRate()))
                     .setScale(2, RoundingMode.HALF_UP);
         }
-        return reimbursement;
+        return defaultReimbursement;
     }
 }
@@ -0,0 +1,13 @@
+package com.skillstorm.dtos;
+
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Which columns to export, and which Forms. Every column is exported if none are named, and any filter may be null.
+// The event date range is inclusive:
+public record FormExportDto(List<String> columns, LocalDate from, LocalDate to, Status status, EventType eventType) {
+
+}
@@ -0,0 +1,7 @@
+package com.skillstorm.dtos;
+
+import java.util.UUID;
+
+// Tells other instances to drop their cached copy of a Form. Origin identifies the sending instance so it can skip its own:
+public record FormInvalidationDto(UUID formId, String origin) {
+}
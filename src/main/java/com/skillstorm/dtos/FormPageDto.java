@@ -0,0 +1,8 @@
+package com.skillstorm.dtos;
+
+import java.util.List;
+
+// One page of Forms. The nextPageToken is opaque to the client and is null on the last page:
+public record FormPageDto(List<FormDto> forms, String nextPageToken) {
+
+}
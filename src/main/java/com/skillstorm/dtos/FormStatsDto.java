@@ -0,0 +1,17 @@
+package com.skillstorm.dtos;
+
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+// Dashboard statistics, read from the projections built from the form event history. Up to date as of asOf:
+//   byStatus: number of Forms in each status.
+//   pendingByApprover: for each approval stage, the number of Forms waiting on each approver.
+//   urgentAwaitingApproval: for each approval stage, the number of waiting Forms whose event is less than two weeks away.
+//   pendingReimbursementByEventType: reimbursement on Forms that are awaiting approval or pending, by event type.
+public record FormStatsDto(Instant asOf, Map<Status, Long> byStatus, Map<Status, Map<String, Long>> pendingByApprover,
+                           Map<Status, Long> urgentAwaitingApproval, Map<EventType, BigDecimal> pendingReimbursementByEventType) {
+}
@@ -0,0 +1,9 @@
+package com.skillstorm.dtos;
+
+import java.util.List;
+import java.util.UUID;
+
+// The outcome of one imported record. Line numbers count from 1 and include any header row:
+public record ImportResultDto(long line, UUID id, boolean imported, List<String> errors) {
+
+}
@@ -0,0 +1,5 @@
+package com.skillstorm.dtos;
+
+// Moves a request between inboxes in one message: add puts it in the next inbox and remove clears it from the last one:
+public record InboxUpdateDto(ApprovalRequestDto add, ApprovalRequestDto remove) {
+}
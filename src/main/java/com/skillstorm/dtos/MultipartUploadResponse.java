@@ -0,0 +1,6 @@
+package com.skillstorm.dtos;
+
+// The upload to send parts to. Every part but the last must be exactly partSize bytes:
+public record MultipartUploadResponse(String key, String uploadId, long partSize, int partCount) {
+
+}
@@ -0,0 +1,8 @@
+package com.skillstorm.dtos;
+
+import java.time.Instant;
+import java.util.Map;
+
+// The counts held by a projection, up to date as of the event written at checkpoint:
+public record ProjectionDto(String projection, Instant checkpoint, Map<String, Long> counts) {
+}
@@ -0,0 +1,5 @@
+package com.skillstorm.dtos;
+
+// Number of Forms whose index entries were rewritten by an admin reindex:
+public record ReindexResultDto(long forms) {
+}
@@ -0,0 +1,5 @@
+package com.skillstorm.dtos;
+
+// Number of parked messages moved back onto a queue by a replay:
+public record ReplayResultDto(String queue, int replayed) {
+}
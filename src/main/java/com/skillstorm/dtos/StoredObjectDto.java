@@ -0,0 +1,8 @@
+package com.skillstorm.dtos;
+
+import java.util.Map;
+
+// What S3 reports about a stored object, from a HEAD request:
+public record StoredObjectDto(long size, String contentType, String eTag, Map<String, String> metadata) {
+
+}
@@ -0,0 +1,5 @@
+package com.skillstorm.dtos;
+
+public record UploadPartResponse(int partNumber, String url) {
+
+}
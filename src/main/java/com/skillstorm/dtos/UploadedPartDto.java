@@ -0,0 +1,6 @@
+package com.skillstorm.dtos;
+
+// A part S3 has received. The ETag is the MD5 of the part's bytes, in hex:
+public record UploadedPartDto(int partNumber, long size, String eTag) {
+
+}
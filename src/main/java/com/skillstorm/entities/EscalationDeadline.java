@@ -0,0 +1,46 @@
+package com.skillstorm.entities;
+
+import com.skillstorm.constants.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+// When a Form waiting on an approver is due to be escalated, filed in a partition per hour of the deadline so that
+// finding what's due only reads the hours that have passed. Entries are written with the status change that starts the
+// wait and never updated. One left behind when the Form moves on is skipped once it falls due, then deleted:
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("escalation_deadlines")
+public class EscalationDeadline {
+
+    public static final Duration BUCKET_WIDTH = Duration.ofHours(1);
+
+    @PrimaryKeyColumn(name = "bucket", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private Instant bucket;
+
+    @PrimaryKeyColumn(name = "deadline", ordinal = 1, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+    private Instant deadline;
+
+    @PrimaryKeyColumn(name = "form_id", ordinal = 2, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+    private UUID formId;
+
+    // The status the Form was waiting in, and on whom. The entry is stale if the Form is no longer in this status:
+    private Status status;
+
+    private String approver;
+
+    // The start of the hour whose partition holds deadlines at this instant:
+    public static Instant bucketOf(Instant deadline) {
+        long width = BUCKET_WIDTH.toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(deadline.toEpochMilli(), width) * width);
+    }
+}
@@ -5,7 +5,9 @@ import com.skillstorm.constants.GradeFormat;
 import com.skillstorm.constants.Status;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
 import org.springframework.data.cassandra.core.mapping.Column;
 import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
 import org.springframework.data.cassandra.core.mapping.Table;
@@ -13,6 +15,7 @@ import org.springframework.data.cassandra.core.mapping.Table;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -78,4 +81,19 @@ public class Form {
 
     @Column("completion_attachment")
     private String completionAttachment;
+
+    // Whether each conditional change, keyed by its event id, was applied. Set by the change itself, or marked false by
+    // whoever settles a change left pending so that it can no longer apply. An applied change's entry is dropped once its
+    // event is settled, so only aborted changes that had been left pending stay. Never written by saving the whole Form.
+    // Tables created before this column existed need: ALTER TABLE form ADD outcomes map<timeuuid, boolean>:
+    @ReadOnlyProperty
+    @CassandraType(type = CassandraType.Name.MAP, typeArguments = {CassandraType.Name.TIMEUUID, CassandraType.Name.BOOLEAN})
+    private Map<UUID, Boolean> outcomes;
+
+    // The event of the removal that has claimed the Form. Set by a conditional removal, and the row is deleted along with
+    // settling the removal's event. Tables created before this column existed need: ALTER TABLE form ADD removed_by timeuuid:
+    @ReadOnlyProperty
+    @Column("removed_by")
+    @CassandraType(type = CassandraType.Name.TIMEUUID)
+    private UUID removedBy;
 }
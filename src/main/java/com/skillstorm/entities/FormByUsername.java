@@ -0,0 +1,157 @@
+package com.skillstorm.entities;
+
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.constants.Status;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+// Denormalized copy of the form table partitioned by username so that a User's Forms can be read from a single partition.
+// Clustering columns cannot be updated in place, so any change to status or date must delete the old row and insert a new one:
+@Data
+@NoArgsConstructor
+@Table("forms_by_username")
+public class FormByUsername {
+
+    @PrimaryKeyColumn(name = "username", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private String username;
+
+    @PrimaryKeyColumn(name = "status", ordinal = 1, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+    private Status status;
+
+    @PrimaryKeyColumn(name = "date", ordinal = 2, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+    private LocalDate date;
+
+    @PrimaryKeyColumn(name = "id", ordinal = 3, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+    private UUID id;
+
+    @Column("first_name")
+    private String firstName;
+
+    @Column("last_name")
+    private String lastName;
+
+    private String email;
+
+    private LocalTime time;
+
+    private String location;
+
+    private String description;
+
+    private BigDecimal cost;
+
+    @Column("grade_format")
+    private GradeFormat gradeFormat;
+
+    @Column("passing_grade")
+    private String passingGrade;
+
+    @Column("event_type")
+    private EventType eventType;
+
+    private String justification;
+
+    @Column("hours_missed")
+    private int hoursMissed;
+
+    private String attachment;
+
+    @Column("supervisor_preapproval")
+    private String supervisorAttachment;
+
+    @Column("department_head_preapproval")
+    private String departmentHeadAttachment;
+
+    @Column("reason_denied")
+    private String reasonDenied;
+
+    @Column("excess_funds_approved")
+    private boolean excessFundsApproved;
+
+    private BigDecimal reimbursement;
+
+    @Column("completion_attachment")
+    private String completionAttachment;
+
+    public FormByUsername(Form form) {
+        this.username = form.getUsername();
+        this.status = form.getStatus();
+        this.date = form.getDate();
+        this.id = form.getId();
+        this.firstName = form.getFirstName();
+        this.lastName = form.getLastName();
+        this.email = form.getEmail();
+        this.time = form.getTime();
+        this.location = form.getLocation();
+        this.description = form.getDescription();
+        this.cost = form.getCost();
+        this.gradeFormat = form.getGradeFormat();
+        this.passingGrade = form.getPassingGrade();
+        this.eventType = form.getEventType();
+        this.justification = form.getJustification();
+        this.hoursMissed = form.getHoursMissed();
+        this.attachment = form.getAttachment();
+        this.supervisorAttachment = form.getSupervisorAttachment();
+        this.departmentHeadAttachment = form.getDepartmentHeadAttachment();
+        this.reasonDenied = form.getReasonDenied();
+        this.excessFundsApproved = form.isExcessFundsApproved();
+        this.reimbursement = form.getReimbursement();
+        this.completionAttachment = form.getCompletionAttachment();
+    }
+
+    // Only the primary key columns are needed to delete a stale row:
+    public static FormByUsername keyOf(Form form) {
+        FormByUsername key = new FormByUsername();
+        key.setUsername(form.getUsername());
+        key.setStatus(form.getStatus());
+        key.setDate(form.getDate());
+        key.setId(form.getId());
+        return key;
+    }
+
+    // Whether the given Form would be stored under a different primary key than this one:
+    public static boolean keyChanged(Form previous, Form current) {
+        return !previous.getUsername().equals(current.getUsername())
+                || previous.getStatus() != current.getStatus()
+                || !previous.getDate().equals(current.getDate());
+    }
+
+    public Form toForm() {
+        Form form = new Form();
+        form.setId(id);
+        form.setUsername(username);
+        form.setFirstName(firstName);
+        form.setLastName(lastName);
+        form.setEmail(email);
+        form.setTime(time);
+        form.setDate(date);
+        form.setLocation(location);
+        form.setDescription(description);
+        form.setCost(cost);
+        form.setGradeFormat(gradeFormat);
+        form.setPassingGrade(passingGrade);
+        form.setEventType(eventType);
+        form.setJustification(justification);
+        form.setHoursMissed(hoursMissed);
+        form.setAttachment(attachment);
+        form.setSupervisorAttachment(supervisorAttachment);
+        form.setDepartmentHeadAttachment(departmentHeadAttachment);
+        form.setStatus(status);
+        form.setReasonDenied(reasonDenied);
+        form.setExcessFundsApproved(excessFundsApproved);
+        form.setReimbursement(reimbursement);
+        form.setCompletionAttachment(completionAttachment);
+        return form;
+    }
+}
@@ -0,0 +1,142 @@
+package com.skillstorm.entities;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventOutcome;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.FormEventType;
+import com.skillstorm.constants.Status;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.UUID;
+
+// One change to a Form, appended to a partition per UTC day. The event of a conditional write is written as pending
+// before the write is attempted and rewritten once its outcome is known, by the writer or, if it failed part way, by
+// whoever resolves it; other events are written in the same logged batch as their change. Leaving out aborted events,
+// the table is a history of every Form from history-start on. Readers that follow it by id only wait settle-time for
+// rows to become visible, so an event delayed longer than that is missed until they rebuild. The time-based id orders
+// events within a day, and across days with the bucket:
+@Data
+@NoArgsConstructor
+@Table("form_events")
+public class FormEvent {
+
+    @PrimaryKeyColumn(name = "bucket", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private LocalDate bucket;
+
+    @PrimaryKeyColumn(name = "id", ordinal = 1, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+    @CassandraType(type = CassandraType.Name.TIMEUUID)
+    private UUID id;
+
+    @Column("form_id")
+    private UUID formId;
+
+    private String username;
+
+    private FormEventType type;
+
+    // Status before and after the change. Null before a Form is created and after it is removed:
+    @Column("from_status")
+    private Status fromStatus;
+
+    @Column("to_status")
+    private Status toStatus;
+
+    // Whose approval the Form is waiting on after the change, if anyone's:
+    private String approver;
+
+    // Anything else about the change, such as which attachment columns were set:
+    private String detail;
+
+    // The fields dashboard statistics are grouped and summed by, before and after the change, so that a projection can
+    // move a Form's contribution without reading the Form. Null on the side where the Form doesn't exist:
+    @Column("previous_event_type")
+    private EventType previousEventType;
+
+    @Column("previous_event_date")
+    private LocalDate previousEventDate;
+
+    @Column("previous_reimbursement")
+    private BigDecimal previousReimbursement;
+
+    @Column("event_type")
+    private EventType eventType;
+
+    @Column("event_date")
+    private LocalDate eventDate;
+
+    private BigDecimal reimbursement;
+
+    // Whether the change was applied, for events written ahead of a conditional write. Tables created before this
+    // column existed need: ALTER TABLE form_events ADD outcome text:
+    private EventOutcome outcome;
+
+    private FormEvent(UUID formId, String username, FormEventType type, Form before, Form after) {
+        this.id = Uuids.timeBased();
+        this.bucket = bucketOf(id);
+        this.formId = formId;
+        this.username = username;
+        this.type = type;
+        if(before != null) {
+            this.fromStatus = before.getStatus();
+            this.previousEventType = before.getEventType();
+            this.previousEventDate = before.getDate();
+            this.previousReimbursement = before.getReimbursement();
+        }
+        if(after != null) {
+            this.toStatus = after.getStatus();
+            this.eventType = after.getEventType();
+            this.eventDate = after.getDate();
+            this.reimbursement = after.getReimbursement();
+        }
+    }
+
+    public static FormEvent created(Form form) {
+        return new FormEvent(form.getId(), form.getUsername(), FormEventType.CREATED, null, form);
+    }
+
+    // A Form loaded by a bulk import, in whatever status it was imported with:
+    public static FormEvent imported(Form form) {
+        return new FormEvent(form.getId(), form.getUsername(), FormEventType.IMPORTED, null, form);
+    }
+
+    // An edit to the Form's details. The status doesn't change:
+    public static FormEvent edited(Form previous, Form updated) {
+        return new FormEvent(updated.getId(), updated.getUsername(), FormEventType.EDITED, previous, updated);
+    }
+
+    // A status change, waiting on the approver afterwards if there is one:
+    public static FormEvent transition(Form previous, Form updated, String approver) {
+        FormEvent event = new FormEvent(updated.getId(), updated.getUsername(), FormEventType.forTransition(updated.getStatus()), previous, updated);
+        event.setApprover(approver == null ? null : approver.toLowerCase());
+        return event;
+    }
+
+    // The Form was cancelled or deleted:
+    public static FormEvent removed(Form form, FormEventType type) {
+        return new FormEvent(form.getId(), form.getUsername(), type, form, null);
+    }
+
+    // The attachment columns were set. Only the id is known, since attachments are written without reading the Form:
+    public static FormEvent attachmentsUpdated(UUID formId, Collection<String> columns) {
+        FormEvent event = new FormEvent(formId, null, FormEventType.ATTACHMENTS_UPDATED, null, null);
+        event.setDetail(String.join(",", columns));
+        return event;
+    }
+
+    // The day whose partition holds the event with this id:
+    public static LocalDate bucketOf(UUID id) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(Uuids.unixTimestamp(id)), ZoneOffset.UTC);
+    }
+}
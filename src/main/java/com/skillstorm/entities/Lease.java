@@ -0,0 +1,22 @@
+package com.skillstorm.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+// Which instance is doing a piece of background work that only one should do at a time, such as escalating an hour of
+// deadlines or reconciling the statistics. Taken with a conditional insert and written with a TTL, so a lease whose
+// holder dies lapses on its own:
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("leases")
+public class Lease {
+
+    @PrimaryKey
+    private String name;
+
+    private String owner;
+}
@@ -0,0 +1,25 @@
+package com.skillstorm.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.util.UUID;
+
+// How far the relay has got through a shard of the outbox. Every message with an id up to the position has been
+// relayed. Only the instance holding the shard's lease moves it on:
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("outbox_cursors")
+public class OutboxCursor {
+
+    @PrimaryKey
+    private int shard;
+
+    @CassandraType(type = CassandraType.Name.TIMEUUID)
+    private UUID position;
+}
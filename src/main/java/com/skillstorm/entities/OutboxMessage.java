@@ -0,0 +1,69 @@
+package com.skillstorm.entities;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventOutcome;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+// A RabbitMQ message waiting to be relayed, filed in a partition per shard and minute of its id. Messages for a Form
+// always land in the same shard. Rows are written ahead of the state change that sends them and rewritten once its
+// outcome is known, but never deleted: the relay keeps a cursor per shard instead, and rows expire once outbox.retention
+// has passed. This replaces the outbox table, whose rows were deleted as they were relayed. Anything left in it is not
+// relayed, so let the previous version drain it before upgrading:
+@Data
+@NoArgsConstructor
+@Table("outbox_messages")
+public class OutboxMessage {
+
+    public static final Duration BUCKET_WIDTH = Duration.ofMinutes(1);
+
+    @PrimaryKeyColumn(name = "shard", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private int shard;
+
+    @PrimaryKeyColumn(name = "bucket", ordinal = 1, type = PrimaryKeyType.PARTITIONED)
+    private Instant bucket;
+
+    @PrimaryKeyColumn(name = "id", ordinal = 2, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+    @CassandraType(type = CassandraType.Name.TIMEUUID)
+    private UUID id;
+
+    @Column("routing_key")
+    private String routingKey;
+
+    // The already converted message, so that the relay sends exactly what the request path would have sent:
+    @Column("content_type")
+    private String contentType;
+
+    @Column("type_id")
+    private String typeId;
+
+    private ByteBuffer body;
+
+    // The Form and the event of the change that sends the message, and whether that change was applied. A message is
+    // only relayed once it is:
+    @Column("form_id")
+    private UUID formId;
+
+    @Column("event_id")
+    @CassandraType(type = CassandraType.Name.TIMEUUID)
+    private UUID eventId;
+
+    private EventOutcome outcome;
+
+    // The start of the minute whose partition holds the message with this id:
+    public static Instant bucketOf(UUID id) {
+        long width = BUCKET_WIDTH.toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(Uuids.unixTimestamp(id), width) * width);
+    }
+}
@@ -0,0 +1,51 @@
+package com.skillstorm.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.util.Collection;
+import java.util.UUID;
+
+// A row of a read model built from form_events. Each projection lives in a single partition along with the checkpoint
+// of the last event applied to it, so that a batch of changes and the checkpoint that covers them commit together:
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("form_projections")
+public class ProjectionRow {
+
+    // Row key of the projection's checkpoint. Its value is the id of the last event applied:
+    public static final String CHECKPOINT = "#checkpoint";
+
+    @PrimaryKeyColumn(name = "projection", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private String projection;
+
+    @PrimaryKeyColumn(name = "row_key", ordinal = 1, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+    private String key;
+
+    @Column("row_count")
+    private long count;
+
+    @Column("row_value")
+    private String value;
+
+    // The checkpoint among a projection's rows, or null if it has none:
+    public static UUID checkpointOf(Collection<ProjectionRow> rows) {
+        return rows.stream()
+                .filter(row -> CHECKPOINT.equals(row.getKey()))
+                .map(row -> UUID.fromString(row.getValue()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    // The smallest key greater than every key with the prefix:
+    public static String prefixEnd(String prefix) {
+        return prefix.substring(0, prefix.length() - 1) + (char) (prefix.charAt(prefix.length() - 1) + 1);
+    }
+}
@@ -10,7 +10,7 @@ import reactor.core.publisher.Mono;
 public class GlobalExceptionHandler {
 
     // Handle requests for resources that do not exist, attempts to submit for events less than a week away, attempts to cancel requests that have already completed, and unsupported file types in attachments:
-    @ExceptionHandler(FormNotFoundException.class)
+    @ExceptionHandler({FormNotFoundException.class, ProjectionNotFoundException.class})
     public Mono<ResponseEntity<ErrorMessage>> handleNotFoundExceptions(IllegalArgumentException e) {
         ErrorMessage error = new ErrorMessage();
         error.setCode(HttpStatus.NOT_FOUND.value());
@@ -19,8 +19,9 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(error));
     }
 
-    // Handle attempts to submit for events less than a week away, attempts to cancel requests that have already completed, and unsupported file types in attachments:
-    @ExceptionHandler({InsufficientNoticeException.class, RequestAlreadyAwardedException.class, UnsupportedFileTypeException.class})
+    // Handle attempts to submit for events less than a week away, attempts to cancel requests that have already completed, unsupported file types in attachments, malformed page tokens, uploads that are too large or fail verification, and exports of unknown columns:
+    @ExceptionHandler({InsufficientNoticeException.class, RequestAlreadyAwardedException.class, UnsupportedFileTypeException.class, InvalidPageTokenException.class, InvalidUploadException.class,
+            InvalidExportException.class})
     public Mono<ResponseEntity<ErrorMessage>> handleBadRequests(IllegalArgumentException e) {
         ErrorMessage error = new ErrorMessage();
         error.setCode(HttpStatus.NOT_FOUND.value());
@@ -28,4 +29,34 @@ public class GlobalExceptionHandler {
 
         return Mono.just(ResponseEntity.badRequest().body(error));
     }
+
+    // Handle requests that timed out waiting on a reply from another service:
+    @ExceptionHandler(QueueResponseTimeoutException.class)
+    public Mono<ResponseEntity<ErrorMessage>> handleQueueTimeouts(QueueResponseTimeoutException e) {
+        ErrorMessage error = new ErrorMessage();
+        error.setCode(HttpStatus.GATEWAY_TIMEOUT.value());
+        error.setMessage(e.getMessage());
+
+        return Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(error));
+    }
+
+    // Handle messages the broker did not accept, so the caller knows the change was not propagated:
+    @ExceptionHandler(MessagePublishException.class)
+    public Mono<ResponseEntity<ErrorMessage>> handlePublishFailures(MessagePublishException e) {
+        ErrorMessage error = new ErrorMessage();
+        error.setCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+        error.setMessage(e.getMessage());
+
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error));
+    }
+
+    // Handle status changes that are not allowed from the Form's current status, including ones lost to a concurrent update:
+    @ExceptionHandler(InvalidStatusTransitionException.class)
+    public Mono<ResponseEntity<ErrorMessage>> handleConflicts(InvalidStatusTransitionException e) {
+        ErrorMessage error = new ErrorMessage();
+        error.setCode(HttpStatus.CONFLICT.value());
+        error.setMessage(e.getMessage());
+
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(error));
+    }
 }
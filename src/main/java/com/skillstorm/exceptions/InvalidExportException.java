@@ -0,0 +1,7 @@
+package com.skillstorm.exceptions;
+
+public class InvalidExportException extends IllegalArgumentException {
+    public InvalidExportException(String message) {
+        super(message);
+    }
+}
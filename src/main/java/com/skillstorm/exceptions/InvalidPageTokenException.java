@@ -0,0 +1,7 @@
+package com.skillstorm.exceptions;
+
+public class InvalidPageTokenException extends IllegalArgumentException {
+    public InvalidPageTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.skillstorm.exceptions;
+
+import com.skillstorm.constants.Status;
+
+public class InvalidStatusTransitionException extends IllegalStateException {
+
+    public InvalidStatusTransitionException(String message) {
+        super(message);
+    }
+
+    public InvalidStatusTransitionException(String message, Status current, Status target) {
+        this(message + " " + current + " -> " + target);
+    }
+}
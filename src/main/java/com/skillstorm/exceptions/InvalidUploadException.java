@@ -0,0 +1,7 @@
+package com.skillstorm.exceptions;
+
+public class InvalidUploadException extends IllegalArgumentException {
+    public InvalidUploadException(String message) {
+        super(message);
+    }
+}
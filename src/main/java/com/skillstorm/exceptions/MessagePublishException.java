@@ -0,0 +1,12 @@
+package com.skillstorm.exceptions;
+
+public class MessagePublishException extends RuntimeException {
+
+    public MessagePublishException(String message, String routingKey) {
+        super(message + " " + routingKey);
+    }
+
+    public MessagePublishException(String message, String routingKey, Throwable cause) {
+        super(message + " " + routingKey, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package com.skillstorm.exceptions;
+
+public class ProjectionNotFoundException extends IllegalArgumentException {
+
+    public ProjectionNotFoundException(String message, String projection) {
+        super(message + " " + projection);
+    }
+}
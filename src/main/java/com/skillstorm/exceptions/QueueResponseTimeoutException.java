@@ -0,0 +1,12 @@
+package com.skillstorm.exceptions;
+
+public class QueueResponseTimeoutException extends RuntimeException {
+
+    public QueueResponseTimeoutException(String message) {
+        super(message);
+    }
+
+    public QueueResponseTimeoutException(String message, String correlationId) {
+        this(message + " " + correlationId);
+    }
+}
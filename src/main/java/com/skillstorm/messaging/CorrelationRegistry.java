@@ -0,0 +1,107 @@
+package com.skillstorm.messaging;
+
+import com.skillstorm.exceptions.QueueResponseTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Tracks request/reply exchanges with another service by correlation ID. Every request gets a deadline on a shared
+// hashed-wheel timer, and its entry is removed as soon as the reply arrives, the deadline passes, or the subscriber cancels:
+public class CorrelationRegistry<T> {
+
+    private final Map<String, PendingReply<T>> inFlight = new ConcurrentHashMap<>();
+    private final Timer timer;
+    private final Duration timeout;
+    private final Counter timeouts;
+
+    public CorrelationRegistry(String name, Duration timeout, Timer timer, MeterRegistry meterRegistry) {
+        this.timer = timer;
+        this.timeout = timeout;
+        this.timeouts = Counter.builder("correlation.timeouts")
+                .tag("registry", name)
+                .register(meterRegistry);
+
+        Gauge.builder("correlation.in.flight", inFlight, Map::size)
+                .tag("registry", name)
+                .register(meterRegistry);
+        Gauge.builder("correlation.oldest.age", this, CorrelationRegistry::oldestAgeSeconds)
+                .tag("registry", name)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // Register a pending reply and hand its correlation ID to the sender. If sending fails, the Mono errors and the entry is removed:
+    public Mono<T> request(Function<String, Mono<Void>> sender) {
+        return Mono.create(sink -> {
+            String correlationId = UUID.randomUUID().toString();
+            PendingReply<T> pending = new PendingReply<>(sink, System.nanoTime());
+            inFlight.put(correlationId, pending);
+            pending.deadline = timer.newTimeout(t -> expire(correlationId), timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+            // Runs on success, error, and cancellation alike so abandoned requests never linger in the map:
+            sink.onDispose(() -> remove(correlationId));
+
+            sender.apply(correlationId).subscribe(null, sink::error);
+        });
+    }
+
+    // Complete the pending request. Returns false for late or unknown replies:
+    public boolean complete(String correlationId, T reply) {
+        PendingReply<T> pending = remove(correlationId);
+        if(pending == null) {
+            return false;
+        }
+        pending.sink.success(reply);
+        return true;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private void expire(String correlationId) {
+        PendingReply<T> pending = inFlight.remove(correlationId);
+        if(pending != null) {
+            timeouts.increment();
+            pending.sink.error(new QueueResponseTimeoutException("queue.response.timeout", correlationId));
+        }
+    }
+
+    private PendingReply<T> remove(String correlationId) {
+        PendingReply<T> pending = inFlight.remove(correlationId);
+        if(pending != null && pending.deadline != null) {
+            pending.deadline.cancel();
+        }
+        return pending;
+    }
+
+    private double oldestAgeSeconds() {
+        long now = System.nanoTime();
+        return inFlight.values().stream()
+                .mapToLong(pending -> now - pending.registeredAt)
+                .max()
+                .orElse(0L) / 1_000_000_000.0;
+    }
+
+    private static final class PendingReply<T> {
+        private final MonoSink<T> sink;
+        private final long registeredAt;
+        private volatile Timeout deadline;
+
+        private PendingReply(MonoSink<T> sink, long registeredAt) {
+            this.sink = sink;
+            this.registeredAt = registeredAt;
+        }
+    }
+}
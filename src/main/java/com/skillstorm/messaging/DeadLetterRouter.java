@@ -0,0 +1,146 @@
+package com.skillstorm.messaging;
+
+import com.rabbitmq.client.GetResponse;
+import com.skillstorm.constants.Queues;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.ConditionalRejectingErrorHandler;
+import org.springframework.amqp.rabbit.listener.FatalExceptionStrategy;
+import org.springframework.amqp.rabbit.retry.MessageRecoverer;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+// Routes messages that could not be processed. A failed message is republished to the retry queue for its next attempt,
+// where it waits out that queue's TTL before being dead-lettered back to the queue it came from. The retry count travels
+// with the message, so nothing is held in memory while it waits. Once its retries are used up, or if retrying can't fix
+// the failure, the message is moved to the queue's parking lot until it is replayed. Messages from the anonymous
+// broadcast queues, such as cache invalidations, have neither, so a failed one is logged and dropped:
+@Component
+public class DeadLetterRouter implements MessageRecoverer {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterRouter.class);
+
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+    public static final String EXCEPTION_HEADER = "x-exception-message";
+
+    public enum Outcome {
+        RETRIED, PARKED, DROPPED
+    }
+
+    private final MessagePublisher messagePublisher;
+    private final RabbitTemplate rabbitTemplate;
+    private final int maxRetries;
+    private final MeterRegistry meterRegistry;
+    private final FatalExceptionStrategy fatalExceptions = new ConditionalRejectingErrorHandler.DefaultExceptionStrategy();
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+
+    @Autowired
+    public DeadLetterRouter(MessagePublisher messagePublisher, RabbitTemplate rabbitTemplate,
+                            @Value("${messaging.retry.max-retries:3}") int maxRetries, MeterRegistry meterRegistry) {
+        this.messagePublisher = messagePublisher;
+        this.rabbitTemplate = rabbitTemplate;
+        this.maxRetries = maxRetries;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Send the message to its next retry queue, or park it if it has no retries left:
+    public Mono<Outcome> retryOrPark(Message message, Throwable cause) {
+        Optional<Queues> consumed = consumedFrom(message);
+        if(consumed.isEmpty()) {
+            return drop(message, cause);
+        }
+        Queues queue = consumed.get();
+        Integer retries = message.getMessageProperties().getHeader(RETRY_COUNT_HEADER);
+        int retry = (retries == null ? 0 : retries) + 1;
+        if(retry > maxRetries) {
+            return park(message, cause);
+        }
+
+        message.getMessageProperties().setHeader(RETRY_COUNT_HEADER, retry);
+        return messagePublisher.publish(queue.retryQueue(retry), message)
+                .doOnSuccess(sent -> count(queue, "retried"))
+                .thenReturn(Outcome.RETRIED);
+    }
+
+    // Park the message straight away, for failures that retrying won't fix:
+    public Mono<Outcome> park(Message message, Throwable cause) {
+        Optional<Queues> consumed = consumedFrom(message);
+        if(consumed.isEmpty()) {
+            return drop(message, cause);
+        }
+        Queues queue = consumed.get();
+        message.getMessageProperties().setHeader(EXCEPTION_HEADER, String.valueOf(cause.getMessage()));
+        log.warn("Parking message from {}: {}", queue, cause.getMessage());
+        return messagePublisher.publish(queue.parkingLot(), message)
+                .doOnSuccess(sent -> count(queue, "parked"))
+                .thenReturn(Outcome.PARKED);
+    }
+
+    // Recoverer for synchronous listeners. Runs on the container's consumer thread, which is free to wait for the
+    // confirm. Messages that can't be converted are parked without being retried:
+    @Override
+    public void recover(Message message, Throwable cause) {
+        (fatalExceptions.isFatal(cause) ? park(message, cause) : retryOrPark(message, cause)).block();
+    }
+
+    // Move up to limit messages from the queue's parking lot back onto the queue with a fresh set of retries. Each
+    // message is only acked off the parking lot once the broker has confirmed its replay. Returns how many were replayed:
+    public Mono<Integer> replay(Queues queue, int limit) {
+        // Broadcast queues are anonymous and have no parking lot:
+        if(queue.getKind() == Queues.Kind.BROADCAST) {
+            return Mono.just(0);
+        }
+        return Mono.fromCallable(() -> rabbitTemplate.execute(channel -> {
+                    int replayed = 0;
+                    GetResponse response;
+                    while(replayed < limit && (response = channel.basicGet(queue.parkingLot(), false)) != null) {
+                        long deliveryTag = response.getEnvelope().getDeliveryTag();
+                        Message message = new Message(response.getBody(), propertiesConverter.toMessageProperties(
+                                response.getProps(), response.getEnvelope(), StandardCharsets.UTF_8.name()));
+                        message.getMessageProperties().getHeaders().remove(RETRY_COUNT_HEADER);
+                        message.getMessageProperties().getHeaders().remove(EXCEPTION_HEADER);
+                        try {
+                            messagePublisher.publish(queue.toString(), message).block();
+                        } catch(RuntimeException e) {
+                            channel.basicNack(deliveryTag, false, true);
+                            throw e;
+                        }
+                        channel.basicAck(deliveryTag, false);
+                        replayed++;
+                    }
+                    return replayed;
+                }))
+                .doOnNext(replayed -> meterRegistry.counter("messaging.dead.letters", "queue", queue.toString(), "outcome", "replayed")
+                        .increment(replayed))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Only queues this service consumes have retry queues and a parking lot declared for them:
+    private static Optional<Queues> consumedFrom(Message message) {
+        return Queues.forQueue(message.getMessageProperties().getConsumerQueue())
+                .filter(Queues::isConsumed);
+    }
+
+    private Mono<Outcome> drop(Message message, Throwable cause) {
+        log.warn("Dropping message from {}, which has no retry queues: {}", message.getMessageProperties().getConsumerQueue(), cause.getMessage());
+        meterRegistry.counter("messaging.dead.letters", "queue", "broadcast", "outcome", "dropped")
+                .increment();
+        return Mono.just(Outcome.DROPPED);
+    }
+
+    private void count(Queues queue, String outcome) {
+        meterRegistry.counter("messaging.dead.letters", "queue", queue.toString(), "outcome", outcome)
+                .increment();
+    }
+}
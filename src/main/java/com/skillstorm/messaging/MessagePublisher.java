@@ -0,0 +1,156 @@
+package com.skillstorm.messaging;
+
+import com.skillstorm.exceptions.MessagePublishException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Publishes outbound messages without ever blocking the caller's thread. Sends run on a dedicated bounded scheduler and
+// each message carries correlation data, so the returned Mono only completes once the broker has confirmed it. A nack,
+// an unroutable return, or a missing confirm fails the Mono instead of dropping the message silently:
+@Component
+public class MessagePublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final Scheduler scheduler;
+    private final Duration confirmTimeout;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger unconfirmed = new AtomicInteger();
+    private final Map<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MessagePublisher(RabbitTemplate rabbitTemplate, @Qualifier("publisherScheduler") Scheduler scheduler,
+                            @Value("${messaging.publisher.confirm-timeout:5s}") Duration confirmTimeout, MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.scheduler = scheduler;
+        this.confirmTimeout = confirmTimeout;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("amqp.publish.unconfirmed", unconfirmed, AtomicInteger::get)
+                .description("Messages sent to the broker that have not yet been confirmed")
+                .register(meterRegistry);
+    }
+
+    public Mono<Void> publish(String routingKey, Object payload) {
+        return publish(routingKey, payload, message -> message);
+    }
+
+    // Publish a single message, e.g. a request that needs a reply-to and correlation ID set by the post processor:
+    public Mono<Void> publish(String routingKey, Object payload, MessagePostProcessor postProcessor) {
+        return send(rabbitTemplate.getExchange(), routingKey, payload, postProcessor);
+    }
+
+    // Publish to a named exchange rather than the default one, e.g. to reach every queue bound with the routing key:
+    public Mono<Void> broadcast(String exchange, String routingKey, Object payload) {
+        return send(exchange, routingKey, payload, message -> message);
+    }
+
+    private Mono<Void> send(String exchange, String routingKey, Object payload, MessagePostProcessor postProcessor) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            CorrelationData correlation = new CorrelationData();
+            unconfirmed.incrementAndGet();
+            try {
+                rabbitTemplate.convertAndSend(exchange, routingKey, payload, postProcessor, correlation);
+            } catch(AmqpException e) {
+                unconfirmed.decrementAndGet();
+                record(routingKey, "error", start);
+                return Mono.error(new MessagePublishException("message.publish.failed", routingKey, e));
+            }
+            return awaitConfirm(routingKey, correlation, start);
+        }).subscribeOn(scheduler);
+    }
+
+    // Publish a group of messages over a single channel and wait for all of their confirms together. The broker acks
+    // several deliveries at once, so a group costs one round trip rather than one per message:
+    public Mono<Void> publishAll(List<OutboundMessage> messages) {
+        if(messages.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            List<CorrelationData> correlations = new ArrayList<>(messages.size());
+            try {
+                rabbitTemplate.invoke(operations -> {
+                    for(OutboundMessage message : messages) {
+                        CorrelationData correlation = new CorrelationData();
+                        unconfirmed.incrementAndGet();
+                        correlations.add(correlation);
+                        operations.convertAndSend(rabbitTemplate.getExchange(), message.routingKey(), message.payload(), correlation);
+                    }
+                    return null;
+                });
+            } catch(AmqpException e) {
+                // The whole group is failed, so confirms for any messages that did go out are no longer awaited:
+                unconfirmed.addAndGet(-correlations.size());
+                String routingKey = messages.get(Math.max(0, correlations.size() - 1)).routingKey();
+                record(routingKey, "error", start);
+                return Mono.error(new MessagePublishException("message.publish.failed", routingKey, e));
+            }
+            return Flux.range(0, correlations.size())
+                    .flatMap(i -> awaitConfirm(messages.get(i).routingKey(), correlations.get(i), start))
+                    .then();
+        }).subscribeOn(scheduler);
+    }
+
+    public int unconfirmed() {
+        return unconfirmed.get();
+    }
+
+    // Confirms arrive on the connection's thread, so downstream work is moved back onto the publisher scheduler:
+    private Mono<Void> awaitConfirm(String routingKey, CorrelationData correlation, long start) {
+        return Mono.fromFuture(correlation.getFuture())
+                .timeout(confirmTimeout)
+                .publishOn(scheduler)
+                .flatMap(confirm -> {
+                    if(correlation.getReturned() != null) {
+                        record(routingKey, "returned", start);
+                        return Mono.<Void>error(new MessagePublishException("message.publish.returned", routingKey));
+                    }
+                    if(!confirm.isAck()) {
+                        record(routingKey, "nack", start);
+                        return Mono.<Void>error(new MessagePublishException("message.publish.nacked", routingKey));
+                    }
+                    record(routingKey, "ack", start);
+                    return Mono.<Void>empty();
+                })
+                .onErrorMap(TimeoutException.class, e -> {
+                    record(routingKey, "timeout", start);
+                    return new MessagePublishException("message.publish.unconfirmed", routingKey, e);
+                })
+                .doFinally(signal -> unconfirmed.decrementAndGet());
+    }
+
+    private void record(String routingKey, String outcome, long start) {
+        latencyTimers.computeIfAbsent(routingKey + ':' + outcome, key -> Timer.builder("amqp.publish.latency")
+                        .description("Time from sending a message to the broker confirming it")
+                        .tag("routing.key", routingKey)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public record OutboundMessage(String routingKey, Object payload) {
+    }
+}
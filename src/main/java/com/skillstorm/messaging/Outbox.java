@@ -0,0 +1,64 @@
+package com.skillstorm.messaging;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.Queues;
+import com.skillstorm.entities.OutboxMessage;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+// Turns outbound payloads into outbox rows and back into AMQP messages. Each row's id doubles as the message id so that
+// consumers can discard the duplicates at-least-once relaying may produce:
+@Component
+public class Outbox {
+
+    private final MessageConverter messageConverter;
+    private final int shards;
+
+    @Autowired
+    public Outbox(MessageConverter messageConverter, @Value("${outbox.shards:16}") int shards) {
+        this.messageConverter = messageConverter;
+        this.shards = shards;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    // Convert the payload now so the relay doesn't need to know its type:
+    public OutboxMessage message(UUID formId, Queues routingKey, Object payload) {
+        Message message = messageConverter.toMessage(payload, new MessageProperties());
+
+        OutboxMessage outboxMessage = new OutboxMessage();
+        outboxMessage.setShard(Math.floorMod(formId.hashCode(), shards));
+        outboxMessage.setId(Uuids.timeBased());
+        outboxMessage.setBucket(OutboxMessage.bucketOf(outboxMessage.getId()));
+        outboxMessage.setFormId(formId);
+        outboxMessage.setRoutingKey(routingKey.toString());
+        outboxMessage.setContentType(message.getMessageProperties().getContentType());
+        outboxMessage.setTypeId(message.getMessageProperties().getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME));
+        outboxMessage.setBody(ByteBuffer.wrap(message.getBody()));
+        return outboxMessage;
+    }
+
+    public Message toAmqpMessage(OutboxMessage outboxMessage) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(outboxMessage.getId().toString());
+        properties.setContentType(outboxMessage.getContentType());
+        if(outboxMessage.getTypeId() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, outboxMessage.getTypeId());
+        }
+
+        ByteBuffer buffer = outboxMessage.getBody().duplicate();
+        byte[] body = new byte[buffer.remaining()];
+        buffer.get(body);
+        return new Message(body, properties);
+    }
+}
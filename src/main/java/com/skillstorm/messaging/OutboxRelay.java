@@ -0,0 +1,213 @@
+package com.skillstorm.messaging;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventOutcome;
+import com.skillstorm.entities.OutboxCursor;
+import com.skillstorm.entities.OutboxMessage;
+import com.skillstorm.messaging.MessagePublisher.OutboundMessage;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.LeaseRepository;
+import com.skillstorm.repositories.OutboxCursorRepository;
+import com.skillstorm.repositories.OutboxRepository;
+import com.skillstorm.services.Poller;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Drains the outbox to RabbitMQ in the background. A shard is relayed by whichever instance holds its lease, reading
+// forward from the shard's cursor one minute's partition at a time, a batch at a time, and moving the cursor on once
+// every message in the batch has been confirmed. Anything that fails is read again on the next poll, so delivery is
+// at-least-once. Messages are relayed in id order, which matches the order they were written only as closely as the
+// writers' clocks agree. Only ids older than settle-time are read, so a write still in flight isn't passed over; one
+// that becomes visible later than that is missed. Messages are written as pending before the change that sends them is
+// attempted: those marked aborted are skipped, and those still pending are resolved through their event first, which
+// fences off a change that has yet to apply:
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final String LEASE_PREFIX = "outbox:";
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxCursorRepository outboxCursorRepository;
+    private final LeaseRepository leaseRepository;
+    private final FormRepository formRepository;
+    private final MessagePublisher messagePublisher;
+    private final Outbox outbox;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final Duration settleTime;
+    private final Duration leaseTtl;
+    private final Duration lookback;
+    private final Counter relayed;
+    private final Counter failures;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // When each shard's lease held here runs out, and when a shard held elsewhere may next be tried for:
+    private final Map<Integer, Instant> held = new ConcurrentHashMap<>();
+    private final Map<Integer, Instant> nextAttempt = new ConcurrentHashMap<>();
+    private Disposable polling;
+
+    @Autowired
+    public OutboxRelay(OutboxRepository outboxRepository, OutboxCursorRepository outboxCursorRepository, LeaseRepository leaseRepository,
+                       FormRepository formRepository, MessagePublisher messagePublisher, Outbox outbox,
+                       @Value("${outbox.relay.poll-interval:500ms}") Duration pollInterval,
+                       @Value("${outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${outbox.relay.settle-time:5s}") Duration settleTime,
+                       @Value("${outbox.relay.lease-ttl:30s}") Duration leaseTtl,
+                       @Value("${outbox.relay.lookback:1h}") Duration lookback, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.outboxCursorRepository = outboxCursorRepository;
+        this.leaseRepository = leaseRepository;
+        this.formRepository = formRepository;
+        this.messagePublisher = messagePublisher;
+        this.outbox = outbox;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.settleTime = settleTime;
+        this.leaseTtl = leaseTtl;
+        this.lookback = lookback;
+        this.relayed = Counter.builder("outbox.relayed")
+                .description("Outbox messages confirmed by the broker")
+                .register(meterRegistry);
+        this.failures = Counter.builder("outbox.relay.failures")
+                .description("Outbox batches that could not be relayed and will be retried")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        polling = Poller.every(pollInterval, "relay the outbox", this::drain);
+    }
+
+    // Leases held here are left to lapse, so another instance picks the shards up within lease-ttl:
+    @Override
+    public void destroy() {
+        if(polling != null) {
+            polling.dispose();
+        }
+    }
+
+    // Relay every shard held here once. Returns the number of messages relayed:
+    public Mono<Long> drain() {
+        UUID horizon = Uuids.startOf(Instant.now().minus(settleTime).toEpochMilli());
+        return Flux.range(0, outbox.getShards())
+                .concatMap(shard -> hold(shard)
+                        .flatMap(holding -> holding ? drainShard(shard, horizon) : Mono.just(0L)))
+                .reduce(0L, Long::sum);
+    }
+
+    // A lease held here is renewed once half of it has gone. One held elsewhere is only tried for every half lease-ttl,
+    // so that idle instances don't contend for it on every poll:
+    private Mono<Boolean> hold(int shard) {
+        Instant now = Instant.now();
+        String lease = LEASE_PREFIX + shard;
+        Instant expiry = held.get(shard);
+        if(expiry != null && now.isBefore(expiry.minus(leaseTtl.dividedBy(2)))) {
+            return Mono.just(true);
+        }
+        if(expiry == null && now.isBefore(nextAttempt.getOrDefault(shard, Instant.MIN))) {
+            return Mono.just(false);
+        }
+        nextAttempt.put(shard, now.plus(leaseTtl.dividedBy(2)));
+        Mono<Boolean> taken = (expiry != null) ? leaseRepository.renew(lease, instanceId, leaseTtl) : leaseRepository.acquire(lease, instanceId, leaseTtl);
+        return taken
+                .onErrorReturn(false)
+                .doOnNext(holding -> {
+                    if(holding) {
+                        held.put(shard, now.plus(leaseTtl));
+                    } else {
+                        held.remove(shard);
+                    }
+                });
+    }
+
+    // Keep relaying from the cursor until the horizon is reached. A shard with no cursor yet starts lookback ago:
+    private Mono<Long> drainShard(int shard, UUID horizon) {
+        return outboxCursorRepository.findById(shard)
+                .map(OutboxCursor::getPosition)
+                .defaultIfEmpty(Uuids.startOf(Instant.now().minus(lookback).toEpochMilli()))
+                .flatMap(start -> relayBatch(shard, start, horizon)
+                        .expand(step -> (step.next() == null) ? Mono.empty() : relayBatch(shard, step.next(), horizon))
+                        .map(Step::relayed)
+                        .reduce(0L, Long::sum))
+                .onErrorResume(e -> {
+                    failures.increment();
+                    log.warn("Failed to relay outbox shard {}: {}", shard, e.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    // Relay the next batch after the position and move the cursor past it. An empty partition moves the cursor on to the
+    // next minute, until the minute holding the horizon has been read:
+    private Mono<Step> relayBatch(int shard, UUID after, UUID horizon) {
+        Instant bucket = OutboxMessage.bucketOf(after);
+        return outboxRepository.findBetween(shard, bucket, after, horizon, batchSize)
+                .collectList()
+                .flatMap(batch -> {
+                    if(!batch.isEmpty()) {
+                        UUID last = batch.get(batch.size() - 1).getId();
+                        return applied(batch)
+                                .flatMap(sent -> publish(sent)
+                                        .then(Mono.defer(() -> outboxCursorRepository.save(new OutboxCursor(shard, last))))
+                                        .doOnSuccess(saved -> relayed.increment(sent.size()))
+                                        .thenReturn(new Step(sent.size(), last)));
+                    }
+                    Instant nextBucket = bucket.plus(OutboxMessage.BUCKET_WIDTH);
+                    if(!nextBucket.isBefore(Instant.ofEpochMilli(Uuids.unixTimestamp(horizon)))) {
+                        return Mono.just(new Step(0, null));
+                    }
+                    UUID next = Uuids.startOf(nextBucket.toEpochMilli());
+                    return outboxCursorRepository.save(new OutboxCursor(shard, next))
+                            .thenReturn(new Step(0, next));
+                });
+    }
+
+    // The messages in the batch whose change applied, resolving each pending change once. Messages with no outcome were
+    // written before outcomes were recorded, once their change had applied:
+    private Mono<List<OutboxMessage>> applied(List<OutboxMessage> batch) {
+        return Flux.fromIterable(batch)
+                .filter(message -> message.getOutcome() == EventOutcome.PENDING)
+                .distinct(OutboxMessage::getEventId)
+                .concatMap(message -> formRepository.resolve(message.getFormId(), message.getEventId())
+                        .map(applied -> Map.entry(message.getEventId(), applied)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(resolved -> batch.stream()
+                        .filter(message -> message.getOutcome() == null || message.getOutcome() == EventOutcome.APPLIED
+                                || (message.getOutcome() == EventOutcome.PENDING && resolved.get(message.getEventId())))
+                        .toList());
+    }
+
+    private Mono<Void> publish(List<OutboxMessage> batch) {
+        if(batch.isEmpty()) {
+            return Mono.empty();
+        }
+        return messagePublisher.publishAll(batch.stream()
+                .map(message -> new OutboundMessage(message.getRoutingKey(), outbox.toAmqpMessage(message)))
+                .toList());
+    }
+
+    // How many messages a batch relayed, and where to read from next. No next position once the horizon is reached:
+    private record Step(long relayed, UUID next) {
+    }
+}
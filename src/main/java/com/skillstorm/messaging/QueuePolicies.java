@@ -0,0 +1,92 @@
+package com.skillstorm.messaging;
+
+import com.skillstorm.constants.Queues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Applies each queue's dead-letter route and length limit through a RabbitMQ policy, set over the management API. The
+// queues in Queues are shared with the other services and were first declared without arguments, and the broker
+// refuses to redeclare a queue with different ones, so a policy is the only way to change them in place. Each queue
+// gets a policy of its own, since each dead-letters to its own parking lot. A broker without the management plugin
+// leaves the queues unlimited, and the failure is logged:
+@Component
+@ConditionalOnProperty(name = "messaging.queues.policies.enabled", havingValue = "true", matchIfMissing = true)
+public class QueuePolicies {
+
+    private static final Logger log = LoggerFactory.getLogger(QueuePolicies.class);
+
+    private static final String POLICY_PREFIX = "form-service.";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final WebClient webClient;
+    private final String virtualHost;
+    private final String repliesMode;
+    private final long maxLength;
+    private final int priority;
+
+    @Autowired
+    public QueuePolicies(WebClient.Builder webClientBuilder,
+                         @Value("${AWS_HOSTNAME:localhost}") String host,
+                         @Value("${messaging.management.port:15672}") int port,
+                         @Value("${messaging.management.username:guest}") String username,
+                         @Value("${messaging.management.password:guest}") String password,
+                         @Value("${messaging.management.virtual-host:/}") String virtualHost,
+                         @Value("${messaging.replies.mode:queues}") String repliesMode,
+                         @Value("${messaging.queues.max-length:100000}") long maxLength,
+                         @Value("${messaging.queues.policies.priority:10}") int priority) {
+        this.webClient = webClientBuilder
+                .baseUrl("http://" + host + ":" + port)
+                .defaultHeaders(headers -> headers.setBasicAuth(username, password))
+                .build();
+        this.virtualHost = virtualHost;
+        this.repliesMode = repliesMode;
+        this.maxLength = maxLength;
+        this.priority = priority;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        apply().subscribe();
+    }
+
+    // Set the policy of every declared queue. Setting a policy again with the same definition changes nothing:
+    public Mono<Void> apply() {
+        return Flux.fromArray(Queues.values())
+                .filter(queue -> queue.getKind() != Queues.Kind.BROADCAST
+                        && !(queue.getKind() == Queues.Kind.REPLY && "direct".equals(repliesMode)))
+                .concatMap(queue -> webClient.put()
+                        .uri("/api/policies/{vhost}/{name}", virtualHost, POLICY_PREFIX + queue)
+                        .bodyValue(policyFor(queue))
+                        .retrieve()
+                        .toBodilessEntity()
+                        .timeout(TIMEOUT)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to set the policy of {}: {}", queue, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    // Matches the queue by its exact name, so the policy never applies to its parking lot or retry queues:
+    Map<String, Object> policyFor(Queues queue) {
+        return Map.of("pattern", "^" + queue.toString().replace(".", "\\.") + "$",
+                "apply-to", "queues",
+                "priority", priority,
+                "definition", Map.of("dead-letter-exchange", "",
+                        "dead-letter-routing-key", queue.parkingLot(),
+                        "max-length", maxLength,
+                        "overflow", "reject-publish"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.skillstorm.messaging;
+
+import com.skillstorm.constants.Queues;
+import org.springframework.amqp.rabbit.AsyncRabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Optional;
+
+// Sends a request to another service and waits for its reply. By default replies come back on a fixed response queue
+// and are matched up by correlation ID in a @RabbitListener. With messaging.replies.mode set to direct, requests go out
+// with RabbitMQ's direct reply-to instead, so replies are delivered straight to the channel that sent them and no
+// response queues are needed. Either way the CorrelationRegistry enforces the deadline and tracks what is in flight.
+// Sending a direct reply-to request blocks on the channel, so like every other publish it runs on the publisher threads:
+@Component
+public class RequestReplyClient {
+
+    private final MessagePublisher messagePublisher;
+    private final AsyncRabbitTemplate asyncRabbitTemplate;
+    private final Scheduler scheduler;
+
+    @Autowired
+    public RequestReplyClient(MessagePublisher messagePublisher, Optional<AsyncRabbitTemplate> asyncRabbitTemplate,
+                              @Qualifier("publisherScheduler") Scheduler scheduler) {
+        this.messagePublisher = messagePublisher;
+        this.asyncRabbitTemplate = asyncRabbitTemplate.orElse(null);
+        this.scheduler = scheduler;
+    }
+
+    public <T> Mono<T> request(CorrelationRegistry<T> registry, Queues requestQueue, Queues responseQueue, Object payload, Class<T> replyType) {
+        if(asyncRabbitTemplate != null) {
+            return registry.request(correlationId -> Mono.defer(() -> Mono.fromFuture(asyncRabbitTemplate.convertSendAndReceiveAsType(
+                                    requestQueue.toString(), payload, ParameterizedTypeReference.<T>forType(replyType))))
+                    .subscribeOn(scheduler)
+                    .doOnNext(reply -> registry.complete(correlationId, reply))
+                    .then());
+        }
+        return registry.request(correlationId ->
+            messagePublisher.publish(requestQueue.toString(), payload, message -> {
+                message.getMessageProperties().setCorrelationId(correlationId);
+                message.getMessageProperties().setReplyTo(responseQueue.toString());
+                return message;
+            }));
+    }
+}
@@ -0,0 +1,13 @@
+package com.skillstorm.projections;
+
+import com.skillstorm.entities.FormEvent;
+
+// A read model kept up to date from the form_events table by the FormProjector. Events are applied one at a time, in
+// the order they were written, and each is applied exactly once since the rows and the checkpoint commit together:
+public interface FormProjection {
+
+    // Name of the projection's partition in form_projections:
+    String getName();
+
+    void apply(FormEvent event, ProjectionState state);
+}
@@ -0,0 +1,215 @@
+package com.skillstorm.projections;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventOutcome;
+import com.skillstorm.dtos.ProjectionDto;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.entities.ProjectionRow;
+import com.skillstorm.exceptions.ProjectionNotFoundException;
+import com.skillstorm.repositories.FormEventRepository;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.ProjectionRowRepository;
+import com.skillstorm.services.Poller;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Feeds new form_events to each projection in the background. A projection's rows are loaded once and kept in memory;
+// each batch of events is applied to them and the changed rows are committed along with the new checkpoint, on the
+// condition that the checkpoint hasn't moved. If another instance got there first the commit misses, the rows are
+// reloaded, and that batch is picked up from the other instance's checkpoint. Events are only read once they are
+// settle-time old, so that an event whose write was still in flight can't be passed over. Events of aborted changes
+// are skipped, and those still pending are resolved first, which fences off a change that has yet to apply:
+@Component
+public class FormProjector implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FormProjector.class);
+
+    private final Map<String, FormProjection> projections;
+    private final FormEventRepository formEventRepository;
+    private final FormRepository formRepository;
+    private final ProjectionRowRepository projectionRowRepository;
+    private final UUID historyStart;
+    private final boolean enabled;
+    private final Duration pollInterval;
+    private final Duration settleTime;
+    private final int batchSize;
+    private final MeterRegistry meterRegistry;
+    private final Counter conflicts;
+    private final Map<String, ProjectionState> states = new ConcurrentHashMap<>();
+    private Disposable polling;
+
+    @Autowired
+    public FormProjector(List<FormProjection> projections, FormEventRepository formEventRepository, FormRepository formRepository,
+                         ProjectionRowRepository projectionRowRepository,
+                         @Value("${form-events.history-start}") LocalDate historyStart,
+                         @Value("${form-events.projector.enabled:true}") boolean enabled,
+                         @Value("${form-events.projector.poll-interval:1s}") Duration pollInterval,
+                         @Value("${form-events.projector.settle-time:10s}") Duration settleTime,
+                         @Value("${form-events.projector.batch-size:100}") int batchSize, MeterRegistry meterRegistry) {
+        this.projections = projections.stream().collect(Collectors.toMap(FormProjection::getName, Function.identity()));
+        this.formEventRepository = formEventRepository;
+        this.formRepository = formRepository;
+        this.projectionRowRepository = projectionRowRepository;
+        this.historyStart = Uuids.startOf(historyStart.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+        this.enabled = enabled;
+        this.pollInterval = pollInterval;
+        this.settleTime = settleTime;
+        this.batchSize = batchSize;
+        this.meterRegistry = meterRegistry;
+        this.conflicts = Counter.builder("form.projections.conflicts")
+                .description("Projection commits that missed because another instance had moved the checkpoint")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(!enabled) {
+            return;
+        }
+        polling = Poller.every(pollInterval, "bring the form projections up to date", this::catchUp);
+    }
+
+    @Override
+    public void destroy() {
+        if(polling != null) {
+            polling.dispose();
+        }
+    }
+
+    // Bring every projection up to date. Returns the number of events applied:
+    public Mono<Long> catchUp() {
+        UUID horizon = Uuids.startOf(Instant.now().minus(settleTime).toEpochMilli());
+        return Flux.fromIterable(projections.values())
+                .concatMap(projection -> catchUp(projection, horizon))
+                .reduce(0L, Long::sum);
+    }
+
+    // Rebuild a projection from the start of the event history. Only form_events is read. Progress is committed a batch
+    // at a time as usual, so a rebuild that is interrupted carries on from its last checkpoint rather than starting over:
+    public Mono<Void> rebuild(String name) {
+        return projection(name).flatMap(projection -> projectionRowRepository.reset(projection.getName(), historyStart)
+                .doOnSuccess(reset -> states.remove(projection.getName())));
+    }
+
+    // The counts a projection holds, read from Cassandra rather than this instance's copy:
+    public Mono<ProjectionDto> describe(String name) {
+        return projection(name).flatMap(projection -> projectionRowRepository.findAllByProjection(projection.getName())
+                .collectList()
+                .map(rows -> {
+                    UUID checkpoint = ProjectionRow.checkpointOf(rows);
+                    return new ProjectionDto(projection.getName(), checkpoint == null ? null : Instant.ofEpochMilli(Uuids.unixTimestamp(checkpoint)),
+                            rows.stream()
+                                    .filter(row -> row.getCount() != 0)
+                                    .collect(Collectors.toMap(ProjectionRow::getKey, ProjectionRow::getCount, Long::sum, TreeMap::new)));
+                }));
+    }
+
+    // Keep taking batches while they come back full. A failure drops the in-memory rows, since they may hold events
+    // that were never committed, and the next poll reloads them:
+    private Mono<Long> catchUp(FormProjection projection, UUID horizon) {
+        return projectBatch(projection, horizon)
+                .expand(count -> (count == batchSize) ? projectBatch(projection, horizon) : Mono.empty())
+                .reduce(0L, Long::sum)
+                .onErrorResume(e -> {
+                    states.remove(projection.getName());
+                    log.warn("Failed to update projection {}: {}", projection.getName(), e.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    private Mono<Long> projectBatch(FormProjection projection, UUID horizon) {
+        return state(projection).flatMap(state -> eventsBetween(state.getCheckpoint(), horizon).collectList()
+                .flatMap(events -> {
+                    // With nothing new, a checkpoint left in an earlier day is moved up to the horizon so that later
+                    // polls don't walk the empty days in between:
+                    UUID checkpoint = events.isEmpty() ?
+                            (FormEvent.bucketOf(state.getCheckpoint()).isBefore(FormEvent.bucketOf(horizon)) ? horizon : state.getCheckpoint()) :
+                            events.get(events.size() - 1).getId();
+                    if(checkpoint.equals(state.getCheckpoint())) {
+                        return Mono.just(0L);
+                    }
+
+                    return Flux.fromIterable(events)
+                            .filterWhen(this::applied)
+                            .doOnNext(event -> projection.apply(event, state))
+                            .then(Mono.defer(() -> projectionRowRepository.commit(projection.getName(), state.getCheckpoint(), checkpoint,
+                                    state.changedRows(), state.removedKeys())))
+                            .map(applied -> {
+                                if(!applied) {
+                                    states.remove(projection.getName(), state);
+                                    conflicts.increment();
+                                    return 0L;
+                                }
+                                state.committed(checkpoint);
+                                meterRegistry.counter("form.events.projected", "projection", projection.getName()).increment(events.size());
+                                return (long) events.size();
+                            });
+                }));
+    }
+
+    // Events with no outcome were written in the same batch as their change:
+    private Mono<Boolean> applied(FormEvent event) {
+        if(event.getOutcome() == EventOutcome.PENDING) {
+            return formRepository.resolve(event.getFormId(), event.getId());
+        }
+        return Mono.just(event.getOutcome() != EventOutcome.ABORTED);
+    }
+
+    // Up to a batch of events after the checkpoint and before the horizon, in the order they were written. Day buckets
+    // are read one at a time from the checkpoint's, and only as far as needed to fill the batch:
+    private Flux<FormEvent> eventsBetween(UUID after, UUID before) {
+        LocalDate last = FormEvent.bucketOf(before);
+        return Flux.fromStream(() -> FormEvent.bucketOf(after).datesUntil(last.plusDays(1)))
+                .concatMap(bucket -> formEventRepository.findBetween(bucket, after, before, batchSize))
+                .take(batchSize);
+    }
+
+    // This instance's copy of the projection's rows, loaded the first time it is needed:
+    private Mono<ProjectionState> state(FormProjection projection) {
+        ProjectionState state = states.get(projection.getName());
+        if(state != null) {
+            return Mono.just(state);
+        }
+        return projectionRowRepository.initialize(projection.getName(), historyStart)
+                .thenMany(projectionRowRepository.findAllByProjection(projection.getName()))
+                .collectList()
+                .map(rows -> {
+                    UUID checkpoint = ProjectionRow.checkpointOf(rows);
+                    if(checkpoint == null) {
+                        throw new IllegalStateException("Projection " + projection.getName() + " was reset while loading");
+                    }
+                    return new ProjectionState(projection.getName(), checkpoint, rows.stream()
+                            .filter(row -> !ProjectionRow.CHECKPOINT.equals(row.getKey()))
+                            .toList());
+                })
+                .doOnNext(loaded -> states.put(projection.getName(), loaded));
+    }
+
+    private Mono<FormProjection> projection(String name) {
+        return Mono.justOrEmpty(projections.get(name))
+                .switchIfEmpty(Mono.error(() -> new ProjectionNotFoundException("projection.not.found", name)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.skillstorm.projections;
+
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.FormEvent;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Aggregates behind the dashboard statistics. Each change moves the Form's contribution from what it was before to
+// what it is after, so edits are covered as well as status changes:
+//   "awaiting:" status ":" event date -> number of Forms awaiting approval at that stage, by the date of their event.
+//     Urgency depends on today's date, so it is worked out when the counts are read rather than stored.
+//   "reimbursement:" status ":" event type -> total reimbursement of the Forms in that status, in cents.
+@Component
+public class FormStatsProjection implements FormProjection {
+
+    public static final String NAME = "form-stats";
+    public static final String AWAITING_PREFIX = "awaiting:";
+    public static final String REIMBURSEMENT_PREFIX = "reimbursement:";
+
+    public static final Set<Status> AWAITING_APPROVAL = EnumSet.of(Status.AWAITING_SUPERVISOR_APPROVAL,
+            Status.AWAITING_DEPARTMENT_HEAD_APPROVAL, Status.AWAITING_BENCO_APPROVAL);
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void apply(FormEvent event, ProjectionState state) {
+        if(event.getFromStatus() != null) {
+            contribute(state, event.getFromStatus(), event.getPreviousEventType(), event.getPreviousEventDate(), event.getPreviousReimbursement(), -1);
+        }
+        if(event.getToStatus() != null) {
+            contribute(state, event.getToStatus(), event.getEventType(), event.getEventDate(), event.getReimbursement(), 1);
+        }
+    }
+
+    private static void contribute(ProjectionState state, Status status, EventType eventType, LocalDate eventDate, BigDecimal reimbursement, int sign) {
+        if(AWAITING_APPROVAL.contains(status) && eventDate != null) {
+            state.add(AWAITING_PREFIX + status + ":" + eventDate, sign);
+        }
+        if(eventType != null && reimbursement != null) {
+            state.add(REIMBURSEMENT_PREFIX + status + ":" + eventType, sign * cents(reimbursement));
+        }
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).longValue();
+    }
+}
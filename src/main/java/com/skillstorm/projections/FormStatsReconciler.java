@@ -0,0 +1,184 @@
+package com.skillstorm.projections;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.entities.ProjectionRow;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.LeaseRepository;
+import com.skillstorm.repositories.ProjectionRowRepository;
+import com.skillstorm.services.Poller;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Corrects drift in the projections that can be rebuilt from the form table: status-counts and form-stats. Drift
+// creeps in through events written before the history started, or written too late for the projector to see. Every
+// Form is read by token range, only the columns the statistics use, and fed to the projections as if it had just been
+// created. The result replaces the stored rows, batch-size at a time, and moves the checkpoint to the end of the scan.
+// A Form that changed while the scan was running may be counted as it was before or after the change; the next run
+// settles it. Only the instance holding the lease runs the scan. The pending-approvals projection isn't covered since
+// the form table doesn't record who a Form is waiting on:
+@Component
+public class FormStatsReconciler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FormStatsReconciler.class);
+
+    // How many times the replacement is retried if the projector moves the checkpoint while it is being written:
+    private static final int MAX_COMMIT_ATTEMPTS = 3;
+
+    private static final String LEASE = "form-stats-reconcile";
+
+    private static final List<String> COLUMNS = List.of("id", "status", "event_type", "date", "reimbursement");
+
+    private final FormRepository formRepository;
+    private final ProjectionRowRepository projectionRowRepository;
+    private final LeaseRepository leaseRepository;
+    private final List<FormProjection> projections;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int splits;
+    private final int concurrency;
+    private final int fetchSize;
+    private final int batchSize;
+    private final Duration leaseTtl;
+    private final MeterRegistry meterRegistry;
+    private final Timer scans;
+    private final String instanceId = UUID.randomUUID().toString();
+    private Disposable reconciling;
+
+    @Autowired
+    public FormStatsReconciler(FormRepository formRepository, ProjectionRowRepository projectionRowRepository, LeaseRepository leaseRepository,
+                               StatusCountsProjection statusCounts, FormStatsProjection formStats,
+                               @Value("${form-stats.reconcile.enabled:true}") boolean enabled,
+                               @Value("${form-stats.reconcile.interval:6h}") Duration interval,
+                               @Value("${form-stats.reconcile.splits:64}") int splits,
+                               @Value("${form-stats.reconcile.concurrency:4}") int concurrency,
+                               @Value("${form-stats.reconcile.fetch-size:500}") int fetchSize,
+                               @Value("${form-stats.reconcile.batch-size:20}") int batchSize,
+                               @Value("${form-stats.reconcile.lease-ttl:1h}") Duration leaseTtl, MeterRegistry meterRegistry) {
+        this.formRepository = formRepository;
+        this.projectionRowRepository = projectionRowRepository;
+        this.leaseRepository = leaseRepository;
+        this.projections = List.of(statusCounts, formStats);
+        this.enabled = enabled;
+        this.interval = interval;
+        this.splits = splits;
+        this.concurrency = concurrency;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+        this.leaseTtl = leaseTtl;
+        this.meterRegistry = meterRegistry;
+        this.scans = Timer.builder("form.stats.reconcile")
+                .description("Time taken to scan the form table and replace the statistics projections")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(!enabled) {
+            return;
+        }
+        reconciling = Poller.every(interval, "reconcile form statistics", this::reconcile);
+    }
+
+    @Override
+    public void destroy() {
+        if(reconciling != null) {
+            reconciling.dispose();
+        }
+    }
+
+    // Scan the form table and replace the projections with what it holds, if no other instance is. Returns the number
+    // of rows that had drifted. Counts and reimbursement totals are in different units, so drift is measured in rows
+    // rather than summed:
+    public Mono<Long> reconcile() {
+        return leaseRepository.acquire(LEASE, instanceId, leaseTtl)
+                .flatMap(acquired -> {
+                    if(!acquired) {
+                        return Mono.just(0L);
+                    }
+                    Mono<Void> release = leaseRepository.release(LEASE, instanceId)
+                            .onErrorResume(e -> Mono.empty());
+                    return scanAndReplace()
+                            .flatMap(drift -> release.thenReturn(drift))
+                            .onErrorResume(e -> release.then(Mono.error(e)));
+                });
+    }
+
+    private Mono<Long> scanAndReplace() {
+        Map<String, ProjectionState> scanned = projections.stream()
+                .collect(Collectors.toMap(FormProjection::getName, projection -> new ProjectionState(projection.getName(), null, List.of())));
+        long start = System.nanoTime();
+        return formRepository.scanByTokenRange(COLUMNS, splits, concurrency, fetchSize)
+                .doOnNext(form -> {
+                    FormEvent event = FormEvent.created(form);
+                    projections.forEach(projection -> projection.apply(event, scanned.get(projection.getName())));
+                })
+                .count()
+                .flatMap(forms -> {
+                    UUID checkpoint = Uuids.startOf(System.currentTimeMillis());
+                    meterRegistry.counter("form.stats.reconcile.rows").increment(forms);
+                    return Flux.fromIterable(scanned.values())
+                            .concatMap(state -> replace(state, checkpoint, 0))
+                            .reduce(0L, Long::sum);
+                })
+                .doOnSuccess(drift -> scans.record(Duration.ofNanos(System.nanoTime() - start)));
+    }
+
+    // Swap the stored rows for the scanned ones, conditional on the checkpoint they were read at:
+    private Mono<Long> replace(ProjectionState scanned, UUID checkpoint, int attempt) {
+        String name = scanned.getProjection();
+        return projectionRowRepository.initialize(name, checkpoint)
+                .thenMany(projectionRowRepository.findAllByProjection(name))
+                .collectList()
+                .flatMap(rows -> {
+                    UUID expected = ProjectionRow.checkpointOf(rows);
+                    Map<String, ProjectionRow> stored = rows.stream()
+                            .filter(row -> !ProjectionRow.CHECKPOINT.equals(row.getKey()))
+                            .collect(Collectors.toMap(ProjectionRow::getKey, Function.identity()));
+                    List<ProjectionRow> changed = scanned.changedRows().stream()
+                            .filter(row -> !sameRow(row, stored.get(row.getKey())))
+                            .toList();
+                    Set<String> removed = new HashSet<>(stored.keySet());
+                    scanned.changedRows().forEach(row -> removed.remove(row.getKey()));
+
+                    long drift = changed.size() + removed.size();
+                    return projectionRowRepository.replace(name, expected, checkpoint, changed, removed, batchSize)
+                            .flatMap(applied -> {
+                                if(applied) {
+                                    meterRegistry.counter("form.stats.drift", "projection", name).increment(drift);
+                                    if(drift != 0) {
+                                        log.info("Corrected {} drifted rows in projection {}", drift, name);
+                                    }
+                                    return Mono.just(drift);
+                                }
+                                return (attempt < MAX_COMMIT_ATTEMPTS) ? replace(scanned, checkpoint, attempt + 1) :
+                                        Mono.error(new IllegalStateException("Projection " + name + " kept moving during reconciliation"));
+                            });
+                });
+    }
+
+    private static boolean sameRow(ProjectionRow scanned, ProjectionRow stored) {
+        return stored != null && scanned.getCount() == stored.getCount() && Objects.equals(scanned.getValue(), stored.getValue());
+    }
+}
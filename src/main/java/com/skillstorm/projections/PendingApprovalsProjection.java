@@ -0,0 +1,39 @@
+package com.skillstorm.projections;
+
+import com.skillstorm.entities.FormEvent;
+import org.springframework.stereotype.Component;
+
+// Number of Forms waiting on each approver at each stage, keyed by "approver:", the status, and their username. Also
+// keeps where each waiting Form is assigned, keyed by "form:" and its id, so that the count can be moved when the Form
+// moves on. Only Forms that are waiting on someone have a row, so the partition grows with the approval backlog rather
+// than with the form table:
+@Component
+public class PendingApprovalsProjection implements FormProjection {
+
+    public static final String NAME = "pending-approvals";
+    public static final String APPROVER_PREFIX = "approver:";
+    public static final String FORM_PREFIX = "form:";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void apply(FormEvent event, ProjectionState state) {
+        // Edits and attachment updates don't move the Form:
+        if(event.getFromStatus() == event.getToStatus()) {
+            return;
+        }
+        String formKey = FORM_PREFIX + event.getFormId();
+        String previous = state.value(formKey);
+        if(previous != null) {
+            state.add(APPROVER_PREFIX + previous, -1);
+        }
+        String assignment = (event.getApprover() == null) ? null : event.getToStatus() + ":" + event.getApprover();
+        if(assignment != null) {
+            state.add(APPROVER_PREFIX + assignment, 1);
+        }
+        state.set(formKey, assignment);
+    }
+}
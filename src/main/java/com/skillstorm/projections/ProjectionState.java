@@ -0,0 +1,84 @@
+package com.skillstorm.projections;
+
+import com.skillstorm.entities.ProjectionRow;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// A projection's rows as of its checkpoint, held in memory by the FormProjector. Tracks which rows have changed since
+// the last commit. Rows left with no count and no value are removed rather than written:
+public class ProjectionState {
+
+    private final String projection;
+    private final Map<String, ProjectionRow> rows = new HashMap<>();
+    private final Set<String> changed = new HashSet<>();
+    private UUID checkpoint;
+
+    public ProjectionState(String projection, UUID checkpoint, Collection<ProjectionRow> rows) {
+        this.projection = projection;
+        this.checkpoint = checkpoint;
+        rows.forEach(row -> this.rows.put(row.getKey(), row));
+    }
+
+    public String getProjection() {
+        return projection;
+    }
+
+    public UUID getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long count(String key) {
+        ProjectionRow row = rows.get(key);
+        return row == null ? 0 : row.getCount();
+    }
+
+    public void add(String key, long delta) {
+        row(key).setCount(count(key) + delta);
+    }
+
+    public String value(String key) {
+        ProjectionRow row = rows.get(key);
+        return row == null ? null : row.getValue();
+    }
+
+    public void set(String key, String value) {
+        row(key).setValue(value);
+    }
+
+    // Rows written since the last commit:
+    public List<ProjectionRow> changedRows() {
+        return changed.stream()
+                .map(rows::get)
+                .filter(row -> !isEmpty(row))
+                .toList();
+    }
+
+    // Keys of rows emptied since the last commit:
+    public List<String> removedKeys() {
+        return changed.stream()
+                .filter(key -> isEmpty(rows.get(key)))
+                .toList();
+    }
+
+    // Once a commit applies the rows match what is stored, as of the new checkpoint:
+    public void committed(UUID checkpoint) {
+        removedKeys().forEach(rows::remove);
+        changed.clear();
+        this.checkpoint = checkpoint;
+    }
+
+    private ProjectionRow row(String key) {
+        changed.add(key);
+        return rows.computeIfAbsent(key, k -> new ProjectionRow(projection, k, 0, null));
+    }
+
+    private static boolean isEmpty(ProjectionRow row) {
+        return row.getCount() == 0 && row.getValue() == null;
+    }
+}
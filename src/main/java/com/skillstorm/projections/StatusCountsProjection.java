@@ -0,0 +1,29 @@
+package com.skillstorm.projections;
+
+import com.skillstorm.entities.FormEvent;
+import org.springframework.stereotype.Component;
+
+// Number of Forms in each status, keyed by status name:
+@Component
+public class StatusCountsProjection implements FormProjection {
+
+    public static final String NAME = "status-counts";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void apply(FormEvent event, ProjectionState state) {
+        if(event.getFromStatus() == event.getToStatus()) {
+            return;
+        }
+        if(event.getFromStatus() != null) {
+            state.add(event.getFromStatus().name(), -1);
+        }
+        if(event.getToStatus() != null) {
+            state.add(event.getToStatus().name(), 1);
+        }
+    }
+}
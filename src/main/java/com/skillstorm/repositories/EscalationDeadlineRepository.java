@@ -0,0 +1,18 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.EscalationDeadline;
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+@Repository
+public interface EscalationDeadlineRepository extends ReactiveCassandraRepository<EscalationDeadline, MapId> {
+
+    // Entries in an hour's bucket whose deadline has passed, earliest first:
+    @Query("SELECT * FROM escalation_deadlines WHERE bucket = ?0 AND deadline <= ?1")
+    Flux<EscalationDeadline> findDue(Instant bucket, Instant now);
+}
@@ -0,0 +1,69 @@
+package com.skillstorm.repositories;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.EscalationDeadline;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.InsertOptions;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+// Works out when a Form that starts waiting on an approver should be escalated: after it has waited sla, or event-lead
+// before its event starts if that comes sooner. A Form submitted too close to its event to allow that is due at once.
+// Entries expire retention after their deadline, so one that is never processed doesn't stay in the index forever:
+@Component
+public class EscalationIndex {
+
+    private final Duration sla;
+    private final Duration eventLead;
+    private final Duration retention;
+
+    @Autowired
+    public EscalationIndex(@Value("${escalation.sla:72h}") Duration sla,
+                           @Value("${escalation.event-lead:2d}") Duration eventLead,
+                           @Value("${escalation.retention:7d}") Duration retention) {
+        this.sla = sla;
+        this.eventLead = eventLead;
+        this.retention = retention;
+    }
+
+    // The entry for an event that leaves the Form waiting on an approver. Empty if it isn't waiting on anyone:
+    public Optional<EscalationDeadline> entryFor(FormEvent event) {
+        return entryFor(event.getFormId(), event.getToStatus(), event.getApprover(), Instant.ofEpochMilli(Uuids.unixTimestamp(event.getId())),
+                event.getEventDate());
+    }
+
+    // The entry for a Form found waiting on an approver without the event that started the wait:
+    public Optional<EscalationDeadline> entryFor(Form form, String approver, Instant waitingSince) {
+        return entryFor(form.getId(), form.getStatus(), approver, waitingSince, form.getDate());
+    }
+
+    private Optional<EscalationDeadline> entryFor(UUID formId, Status status, String approver, Instant waitingSince, LocalDate eventDate) {
+        if(status == null || !status.isAwaitingApproval() || approver == null) {
+            return Optional.empty();
+        }
+        Instant deadline = waitingSince.plus(sla);
+        if(eventDate != null) {
+            Instant beforeEvent = eventDate.atStartOfDay(ZoneOffset.UTC).toInstant().minus(eventLead);
+            deadline = beforeEvent.isBefore(deadline) ? beforeEvent : deadline;
+        }
+        deadline = deadline.isBefore(waitingSince) ? waitingSince : deadline;
+        return Optional.of(new EscalationDeadline(EscalationDeadline.bucketOf(deadline), deadline, formId, status, approver));
+    }
+
+    public InsertOptions insertOptions(EscalationDeadline entry) {
+        Duration ttl = Duration.between(Instant.now(), entry.getDeadline()).plus(retention);
+        return InsertOptions.builder()
+                .ttl(ttl.isNegative() ? retention : ttl)
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.FormByUsername;
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FormByUsernameRepository extends ReactiveCassandraRepository<FormByUsername, MapId>, FormByUsernameRepositoryCustom {
+}
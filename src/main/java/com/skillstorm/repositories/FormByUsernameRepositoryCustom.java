@@ -0,0 +1,14 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.FormByUsername;
+import reactor.core.publisher.Flux;
+
+// Reads of a User's Forms, served from prepared statements:
+public interface FormByUsernameRepositoryCustom {
+
+    // Find all of a User's Forms from a single partition:
+    Flux<FormByUsername> findAllByUsername(String username);
+
+    // Find all of a User's Forms with the given Status. Status is the first clustering column so no filtering is needed:
+    Flux<FormByUsername> findAllByUsernameAndStatus(String username, String status);
+}
@@ -0,0 +1,28 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.FormByUsername;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.core.ReactiveCassandraOperations;
+import reactor.core.publisher.Flux;
+
+public class FormByUsernameRepositoryCustomImpl implements FormByUsernameRepositoryCustom {
+
+    private final ReactiveCassandraOperations cassandraOperations;
+    private final FormStatements formStatements;
+
+    @Autowired
+    public FormByUsernameRepositoryCustomImpl(ReactiveCassandraOperations cassandraOperations, FormStatements formStatements) {
+        this.cassandraOperations = cassandraOperations;
+        this.formStatements = formStatements;
+    }
+
+    @Override
+    public Flux<FormByUsername> findAllByUsername(String username) {
+        return cassandraOperations.select(formStatements.findAllByUsername(username), FormByUsername.class);
+    }
+
+    @Override
+    public Flux<FormByUsername> findAllByUsernameAndStatus(String username, String status) {
+        return cassandraOperations.select(formStatements.findAllByUsernameAndStatus(username, status), FormByUsername.class);
+    }
+}
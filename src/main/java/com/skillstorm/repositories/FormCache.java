@@ -0,0 +1,97 @@
+package com.skillstorm.repositories;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.skillstorm.constants.Queues;
+import com.skillstorm.dtos.FormInvalidationDto;
+import com.skillstorm.entities.Form;
+import com.skillstorm.messaging.MessagePublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Near-cache of Form rows by id, so a chain of approvals reads each Form from Cassandra once rather than at every step.
+// The repository refreshes an entry whenever this instance writes the Form and evicts it when a write misses or the Form
+// is deleted. Entries written by other instances are only evicted if those instances broadcast their invalidations;
+// otherwise they may be served stale until the TTL. Cached Forms are shared, so callers must not modify them:
+@Component
+public class FormCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FormCache.class);
+
+    private final AsyncCache<UUID, Form> cache;
+    private final MessagePublisher messagePublisher;
+    private final String exchange;
+    private final boolean broadcastInvalidations;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Autowired
+    public FormCache(@Value("${form-cache.ttl:30s}") Duration ttl,
+                     @Value("${form-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${form-cache.broadcast-invalidations:false}") boolean broadcastInvalidations,
+                     @Value("${exchanges.direct}") String exchange,
+                     MessagePublisher messagePublisher, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .buildAsync();
+        this.messagePublisher = messagePublisher;
+        this.exchange = exchange;
+        this.broadcastInvalidations = broadcastInvalidations;
+
+        // Publishes hit, miss, and eviction counters as cache.gets and cache.evictions tagged with cache=forms:
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "forms");
+    }
+
+    // Return the cached Form or load it. Concurrent misses share one read, and a Form that doesn't exist isn't cached:
+    public Mono<Form> get(UUID id, Supplier<Mono<Form>> loader) {
+        return Mono.fromFuture(() -> cache.get(id, (key, executor) -> loader.get().toFuture()), true);
+    }
+
+    // Replace the entry with the version this instance just wrote:
+    public void put(Form form) {
+        cache.put(form.getId(), CompletableFuture.completedFuture(form));
+        broadcast(form.getId());
+    }
+
+    public void invalidate(UUID id) {
+        cache.synchronous().invalidate(id);
+        broadcast(id);
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    // Other instances' copies are only a hint, so a failed broadcast is logged rather than failing the write:
+    private void broadcast(UUID id) {
+        if(!broadcastInvalidations) {
+            return;
+        }
+        messagePublisher.broadcast(exchange, Queues.FORM_INVALIDATION.toString(), new FormInvalidationDto(id, instanceId))
+                .subscribe(null, e -> log.warn("Failed to broadcast invalidation of form {}: {}", id, e.getMessage()));
+    }
+
+    // Every instance listens on its own anonymous queue. An instance's own broadcasts are skipped, since its entry
+    // already holds the version it wrote:
+    @RabbitListener(queues = "#{formInvalidationQueue.name}", containerFactory = "replyListenerContainerFactory")
+    public void handleInvalidation(@Payload FormInvalidationDto invalidation) {
+        if(!instanceId.equals(invalidation.origin())) {
+            cache.synchronous().invalidate(invalidation.formId());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.FormEvent;
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Repository
+public interface FormEventRepository extends ReactiveCassandraRepository<FormEvent, MapId> {
+
+    // Oldest events in a day's bucket that fall strictly between two event ids:
+    @Query("SELECT * FROM form_events WHERE bucket = ?0 AND id > ?1 AND id < ?2 LIMIT ?3")
+    Flux<FormEvent> findBetween(LocalDate bucket, UUID after, UUID before, int limit);
+}
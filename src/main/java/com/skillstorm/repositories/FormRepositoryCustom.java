@@ -0,0 +1,91 @@
+package com.skillstorm.repositories;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.entities.OutboxMessage;
+import org.springframework.data.domain.Slice;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Lookups by id, write operations that keep the forms_by_username table in sync with the form table, and paged reads across the whole table.
+// Conditional writes that change a Form write their FormEvent and outbox messages as pending before the change is attempted,
+// then mark them applied or aborted. Rows left pending by a writer that failed part way are settled by resolve():
+public interface FormRepositoryCustom {
+
+    // Find a Form by id alone. Takes precedence over the derived CRUD method, which would need the username too:
+    Mono<Form> findById(UUID id);
+
+    // Every row stored under the id, read from Cassandra rather than the FormCache. More than one means the id was
+    // written under more than one username:
+    Flux<Form> findRows(UUID id);
+
+    // Read a single page of Forms, resuming from the driver's paging state. Either filter may be null:
+    Mono<Slice<Form>> findPage(int pageSize, ByteBuffer pagingState, Status status, EventType eventType);
+
+    // Stream every Form, fetching one page of fetchSize rows at a time as the subscriber requests them. Either filter may be null:
+    Flux<Form> streamAll(int fetchSize, Status status, EventType eventType);
+
+    // Read the given columns of every Form, one token range at a time with up to concurrency ranges in flight. Rows come
+    // back in no particular order:
+    Flux<Form> scanByTokenRange(List<String> columns, int splits, int concurrency, int fetchSize);
+
+    // Read the given columns of every Form with an event between from and to, inclusive, and in the given status and
+    // event type, one token range at a time at the given consistency. Any filter may be null. Rows come back in no
+    // particular order:
+    Flux<Row> exportByTokenRange(List<String> columns, LocalDate from, LocalDate to, Status status, EventType eventType,
+                                 int splits, int concurrency, int fetchSize, ConsistencyLevel consistency);
+
+    // Write the forms_by_username row of every Form, reading the form table one token range at a time with up to
+    // concurrency ranges in flight. Backfills the index for Forms written before it existed. Returns the number written:
+    Mono<Long> reindexAll(int splits, int concurrency, int fetchSize);
+
+    // File an escalation deadline for a Form already waiting on approver, counting its wait from now. Backfills the
+    // escalation index for Forms that started waiting before it existed. False if the Form isn't waiting on anyone:
+    Mono<Boolean> fileEscalation(Form form, String approver);
+
+    // Write new Forms, their forms_by_username rows, and their events in unlogged batches of up to batchSize rows, with
+    // up to concurrency batches in flight. Rows are written unconditionally, so callers must check that the ids are not
+    // taken. Returns the ids of the Forms that may not have been completely written:
+    Mono<Set<UUID>> importAll(List<Form> forms, List<FormEvent> events, int batchSize, int concurrency);
+
+    // Save a new Form and its forms_by_username row. If the previous version was stored under a different
+    // username, status, or date, its stale row is removed in the same batch. The event may be null:
+    Mono<Form> saveWithIndex(Form form, Form previous, FormEvent event);
+
+    // Write the editable columns of an existing Form only if none of its columns have changed since the previous version
+    // was read. Returns whether the write was applied:
+    Mono<Boolean> updateIfUnchanged(Form form, Form previous, FormEvent event);
+
+    // Move a Form to the updated status, writing only the columns that differ from the previous version and only if the
+    // stored row still matches the previous version. The outbox messages are marked applied only if the change is.
+    // Returns whether the write was applied:
+    Mono<Boolean> compareAndSetStatus(Form previous, Form updated, FormEvent event, List<OutboxMessage> outbox);
+
+    // Set one or more attachment columns on an existing Form without rewriting the rest of the row. Columns are keyed
+    // by column name. Returns false if the Form does not exist, or was removed while the write was in flight:
+    Mono<Boolean> updateAttachments(UUID id, Map<String, String> columns, FormEvent event);
+
+    // Delete the Form only if none of its columns have changed since it was read. The Form is claimed by the removal
+    // first, and no other conditional write applies to it until the row is deleted along with settling the event. The
+    // outbox messages are marked applied only if the delete is. Returns whether the delete was applied:
+    Mono<Boolean> deleteIfUnchanged(Form form, FormEvent event, List<OutboxMessage> outbox);
+
+    // Settle a change whose event was left pending: find out from the Form whether it applied, fencing it off if it has
+    // not yet, and rewrite its event, forms_by_username row and escalation deadline to match. The outbox messages are
+    // left for the relay, which resolves them through their event. Returns whether the change applied:
+    Mono<Boolean> resolve(UUID formId, UUID eventId);
+
+    // Delete the Form and its forms_by_username row:
+    Mono<Void> deleteWithIndex(Form form, FormEvent event);
+}
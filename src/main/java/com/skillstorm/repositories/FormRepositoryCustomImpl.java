@@ -0,0 +1,649 @@
+package com.skillstorm.repositories;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
+import com.datastax.oss.driver.api.querybuilder.select.Select;
+import com.datastax.oss.driver.api.querybuilder.update.OngoingAssignment;
+import com.datastax.oss.driver.api.querybuilder.update.UpdateWithAssignments;
+import com.skillstorm.constants.EventOutcome;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.EscalationDeadline;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.entities.FormByUsername;
+import com.skillstorm.entities.OutboxMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.ReactiveResultSet;
+import org.springframework.data.cassandra.core.DeleteOptions;
+import org.springframework.data.cassandra.core.EntityWriteResult;
+import org.springframework.data.cassandra.core.InsertOptions;
+import org.springframework.data.cassandra.core.ReactiveCassandraBatchOperations;
+import org.springframework.data.cassandra.core.ReactiveCassandraOperations;
+import org.springframework.data.cassandra.core.StatementFactory;
+import org.springframework.data.cassandra.core.cql.QueryOptions;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.cassandra.core.query.Criteria;
+import org.springframework.data.cassandra.core.query.CriteriaDefinition;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.literal;
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.selectFrom;
+
+public class FormRepositoryCustomImpl implements FormRepositoryCustom {
+
+    private static final Logger log = LoggerFactory.getLogger(FormRepositoryCustomImpl.class);
+
+    // How many times the forms_by_username row is re-targeted if the Form's status moves while it is being updated:
+    private static final int MAX_REINDEX_ATTEMPTS = 3;
+
+    // How many times a pending change is looked at again if the Form keeps changing while it is being resolved:
+    private static final int MAX_RESOLVE_ATTEMPTS = 3;
+
+    // Optional fields cleared by an edit need to be written as nulls rather than skipped:
+    private static final InsertOptions INSERT_NULLS = InsertOptions.builder().withInsertNulls().build();
+
+    private final ReactiveCassandraOperations cassandraOperations;
+    private final FormStatements formStatements;
+    private final FormCache formCache;
+    private final EscalationIndex escalationIndex;
+    private final InsertOptions outboxOptions;
+    private final StatementFactory statementFactory;
+
+    // Outbox rows are never deleted, so they are written to expire once the relay has long since passed them:
+    @Autowired
+    public FormRepositoryCustomImpl(ReactiveCassandraOperations cassandraOperations, FormStatements formStatements, FormCache formCache,
+                                    EscalationIndex escalationIndex, @Value("${outbox.retention:7d}") Duration outboxRetention) {
+        this.cassandraOperations = cassandraOperations;
+        this.formStatements = formStatements;
+        this.formCache = formCache;
+        this.escalationIndex = escalationIndex;
+        this.outboxOptions = InsertOptions.builder()
+                .ttl(outboxRetention)
+                .build();
+        this.statementFactory = new StatementFactory(cassandraOperations.getConverter());
+    }
+
+    // The form table is keyed by both id and username, so lookups by id alone go through a prepared statement rather
+    // than the derived query. Reads go through the FormCache, which every write below keeps up to date:
+    @Override
+    public Mono<Form> findById(UUID id) {
+        return formCache.get(id, () -> cassandraOperations.selectOne(formStatements.findById(id), Form.class));
+    }
+
+    @Override
+    public Flux<Form> findRows(UUID id) {
+        return cassandraOperations.select(formStatements.findById(id), Form.class);
+    }
+
+    // A page is a window over a token-ordered scan of the form table, so a filtered page may hold fewer than pageSize
+    // Forms even when more remain. Only the paging state is carried between requests; nothing is buffered server side:
+    @Override
+    public Mono<Slice<Form>> findPage(int pageSize, ByteBuffer pagingState, Status status, EventType eventType) {
+        Query query = filterBy(status, eventType)
+                .pageRequest(CassandraPageRequest.of(PageRequest.of(0, pageSize), pagingState));
+        return cassandraOperations.slice(query, Form.class);
+    }
+
+    @Override
+    public Flux<Form> streamAll(int fetchSize, Status status, EventType eventType) {
+        Query query = filterBy(status, eventType)
+                .queryOptions(QueryOptions.builder().pageSize(fetchSize).build());
+        return cassandraOperations.select(query, Form.class);
+    }
+
+    // Neither status nor event_type is part of the key, so a filtered scan needs ALLOW FILTERING. The scan reads the
+    // whole table either way; filtering just keeps non-matching rows off the wire:
+    private static Query filterBy(Status status, EventType eventType) {
+        List<CriteriaDefinition> criteria = new ArrayList<>();
+        if(status != null) {
+            criteria.add(Criteria.where("status").is(status));
+        }
+        if(eventType != null) {
+            criteria.add(Criteria.where("eventType").is(eventType));
+        }
+        Query query = Query.query(criteria);
+        return criteria.isEmpty() ? query : query.withAllowFiltering();
+    }
+
+    // Splitting the ring lets the ranges be read in parallel, each from its own replicas, without paging through the
+    // whole table on one coordinator. Reads are idempotent so the driver may retry or speculate on them:
+    @Override
+    public Flux<Form> scanByTokenRange(List<String> columns, int splits, int concurrency, int fetchSize) {
+        return formStatements.prepare(tokenRangeSelect(columns)
+                        .build()
+                        .setIdempotent(true))
+                .flatMapMany(statement -> Flux.fromIterable(tokenRanges(splits))
+                        .flatMap(range -> cassandraOperations.select(statement.bind(range[0], range[1]).setPageSize(fetchSize), Form.class),
+                                concurrency));
+    }
+
+    // As above, but filtered by Cassandra so that only matching rows cross the network. Rows are returned as the driver
+    // reads them rather than mapped to Forms, since only some columns are read:
+    @Override
+    public Flux<Row> exportByTokenRange(List<String> columns, LocalDate from, LocalDate to, Status status, EventType eventType,
+                                        int splits, int concurrency, int fetchSize, ConsistencyLevel consistency) {
+        Select select = tokenRangeSelect(columns);
+        List<Object> filters = new ArrayList<>();
+        if(status != null) {
+            select = select.whereColumn("status").isEqualTo(bindMarker());
+            filters.add(status.name());
+        }
+        if(eventType != null) {
+            select = select.whereColumn("event_type").isEqualTo(bindMarker());
+            filters.add(eventType.name());
+        }
+        if(from != null) {
+            select = select.whereColumn("date").isGreaterThanOrEqualTo(bindMarker());
+            filters.add(from);
+        }
+        if(to != null) {
+            select = select.whereColumn("date").isLessThanOrEqualTo(bindMarker());
+            filters.add(to);
+        }
+        if(!filters.isEmpty()) {
+            select = select.allowFiltering();
+        }
+
+        return formStatements.prepare(select.build().setIdempotent(true))
+                .flatMapMany(statement -> Flux.fromIterable(tokenRanges(splits))
+                        .flatMap(range -> cassandraOperations.getReactiveCqlOperations()
+                                .queryForRows(bindRange(statement, range, filters).setPageSize(fetchSize).setConsistencyLevel(consistency)),
+                                concurrency));
+    }
+
+    // Each index row is written at the write time of the Form's status as it was read, so if a transition moves the Form
+    // during the scan, its removal of the old row still wins over the copy written here, whichever lands first:
+    @Override
+    public Mono<Long> reindexAll(int splits, int concurrency, int fetchSize) {
+        List<String> columns = new ArrayList<>(List.of("id", "username", "hours_missed", "excess_funds_approved"));
+        columns.addAll(FormStatements.ROW_COLUMNS);
+        return formStatements.prepare(tokenRangeSelect(columns)
+                        .writeTime("status").as("status_written")
+                        .build()
+                        .setIdempotent(true))
+                .flatMapMany(statement -> Flux.fromIterable(tokenRanges(splits))
+                        .flatMap(range -> cassandraOperations.getReactiveCqlOperations()
+                                .queryForRows(statement.bind(range[0], range[1]).setPageSize(fetchSize)), concurrency))
+                .flatMap(row -> {
+                    InsertOptions options = InsertOptions.builder()
+                            .withInsertNulls()
+                            .timestamp(row.getLong("status_written"))
+                            .build();
+                    return cassandraOperations.insert(new FormByUsername(cassandraOperations.getConverter().read(Form.class, row)), options);
+                }, concurrency)
+                .count();
+    }
+
+    @Override
+    public Mono<Boolean> fileEscalation(Form form, String approver) {
+        return Mono.justOrEmpty(escalationIndex.entryFor(form, approver, Instant.now()))
+                .flatMap(entry -> cassandraOperations.insert(entry, escalationIndex.insertOptions(entry)))
+                .map(EntityWriteResult::wasApplied)
+                .defaultIfEmpty(false);
+    }
+
+    private static Select tokenRangeSelect(List<String> columns) {
+        return selectFrom(FormStatements.FORM_TABLE).columns(columns)
+                .whereToken("id").isGreaterThan(bindMarker())
+                .whereToken("id").isLessThanOrEqualTo(bindMarker());
+    }
+
+    private static BoundStatement bindRange(PreparedStatement statement, long[] range, List<Object> filters) {
+        List<Object> values = new ArrayList<>(filters.size() + 2);
+        values.add(range[0]);
+        values.add(range[1]);
+        values.addAll(filters);
+        return statement.bind(values.toArray());
+    }
+
+    // The form table uses the default Murmur3Partitioner, whose tokens run from just above Long.MIN_VALUE up to
+    // Long.MAX_VALUE. Returns (start, end] pairs that cover the ring between them:
+    private static List<long[]> tokenRanges(int splits) {
+        long width = Long.divideUnsigned(-1L, splits);
+        List<long[]> ranges = new ArrayList<>(splits);
+        for(int i = 0; i < splits; i++) {
+            long start = Long.MIN_VALUE + i * width;
+            ranges.add(new long[] {start, (i == splits - 1) ? Long.MAX_VALUE : start + width});
+        }
+        return ranges;
+    }
+
+    // A row to be written by an import, and the batch it may share with rows in the same table on the same replicas:
+    private record ImportWrite(UUID formId, SimpleStatement statement, List<Object> group) {
+    }
+
+    // Unlogged batches skip the batchlog, and each one only holds rows whose partitions live on the same replicas, so the
+    // driver sends it straight to one of them and nothing is forwarded. Every statement inserts the whole row, so a Form
+    // whose batch failed can simply be imported again. The Forms are new, but any cached copy is dropped all the same:
+    @Override
+    public Mono<Set<UUID>> importAll(List<Form> forms, List<FormEvent> events, int batchSize, int concurrency) {
+        List<ImportWrite> writes = new ArrayList<>();
+        for(Form form : forms) {
+            ByteBuffer formKey = TypeCodecs.UUID.encode(form.getId(), ProtocolVersion.DEFAULT);
+            writes.add(importWrite(form.getId(), form, formKey, FormStatements.FORM_TABLE));
+            ByteBuffer indexKey = TypeCodecs.TEXT.encode(form.getUsername(), ProtocolVersion.DEFAULT);
+            writes.add(importWrite(form.getId(), new FormByUsername(form), indexKey, FormStatements.FORMS_BY_USERNAME_TABLE));
+        }
+        for(FormEvent event : events) {
+            ByteBuffer eventKey = TypeCodecs.DATE.encode(event.getBucket(), ProtocolVersion.DEFAULT);
+            writes.add(importWrite(event.getFormId(), event, eventKey, "form_events"));
+        }
+
+        Map<List<Object>, List<ImportWrite>> groups = new LinkedHashMap<>();
+        writes.forEach(write -> groups.computeIfAbsent(write.group(), group -> new ArrayList<>()).add(write));
+        List<List<ImportWrite>> batches = new ArrayList<>();
+        for(List<ImportWrite> group : groups.values()) {
+            for(int start = 0; start < group.size(); start += batchSize) {
+                batches.add(group.subList(start, Math.min(start + batchSize, group.size())));
+            }
+        }
+
+        return Flux.fromIterable(batches)
+                .flatMap(batch -> cassandraOperations.execute(BatchStatement.newInstance(BatchType.UNLOGGED,
+                                        batch.stream().map(ImportWrite::statement).toArray(SimpleStatement[]::new))
+                                .setIdempotent(true))
+                        .then(Mono.<List<ImportWrite>>empty())
+                        .onErrorResume(e -> Mono.just(batch)), concurrency)
+                .flatMapIterable(failed -> failed)
+                .map(ImportWrite::formId)
+                .collect(HashSet<UUID>::new, Set::add)
+                .map(failed -> (Set<UUID>) failed)
+                .doFinally(signal -> forms.forEach(form -> formCache.invalidate(form.getId())));
+    }
+
+    private ImportWrite importWrite(UUID formId, Object entity, ByteBuffer routingKey, String table) {
+        SimpleStatement statement = statementFactory.insert(entity, INSERT_NULLS).build()
+                .setRoutingKey(routingKey);
+        return new ImportWrite(formId, statement, List.of(table, formStatements.replicasOf(routingKey)));
+    }
+
+    // The two tables live in different partitions, so a logged batch is used to guarantee both writes eventually apply:
+    @Override
+    public Mono<Form> saveWithIndex(Form form, Form previous, FormEvent event) {
+        ReactiveCassandraBatchOperations batch = cassandraOperations.batchOps(BatchType.LOGGED)
+                .insert(form, INSERT_NULLS)
+                .insert(new FormByUsername(form), INSERT_NULLS);
+
+        if(previous != null && FormByUsername.keyChanged(previous, form)) {
+            batch = batch.delete(FormByUsername.keyOf(previous));
+        }
+        if(event != null) {
+            batch = batch.insert(event);
+            Optional<EscalationDeadline> deadline = escalationIndex.entryFor(event);
+            if(deadline.isPresent()) {
+                batch = batch.insert(deadline.get(), escalationIndex.insertOptions(deadline.get()));
+            }
+        }
+
+        return batch.execute()
+                .doOnSuccess(result -> formCache.put(form))
+                .thenReturn(form);
+    }
+
+    // Only the editable columns are written, and only if the stored row still matches the one the edit was made to.
+    // Conditional writes can't share a batch with other tables, so the event is written ahead of the edit and the
+    // forms_by_username row is synced once the edit is applied:
+    @Override
+    public Mono<Boolean> updateIfUnchanged(Form form, Form previous, FormEvent event) {
+        List<Object> values = columnValues(form, FormStatements.EDITABLE_COLUMNS);
+        values.add(event.getId());
+        values.add(previous.getId());
+        values.add(previous.getUsername());
+        values.addAll(columnValues(previous, FormStatements.ROW_COLUMNS));
+        values.add(event.getId());
+
+        return writePending(event, List.of())
+                .then(cassandraOperations.execute(formStatements.updateIfUnchanged().bind(values.toArray())))
+                .map(ReactiveResultSet::wasApplied)
+                .doOnNext(applied -> cacheWrite(applied, previous, form))
+                .flatMap(applied -> settle(applied, applied ? reindex(previous, form, event, List.of()).then(clearOutcome(event, previous)) :
+                        abort(event, List.of())));
+    }
+
+    // Status changes only ever touch a handful of columns, so only those that changed are written, and only if the stored
+    // row still matches the previous version. The event and outbox rows are written as pending first, and settled along
+    // with the index update once the outcome is known:
+    @Override
+    public Mono<Boolean> compareAndSetStatus(Form previous, Form updated, FormEvent event, List<OutboxMessage> outbox) {
+        boolean reasonDenied = !Objects.equals(previous.getReasonDenied(), updated.getReasonDenied());
+        boolean reimbursement = !Objects.equals(previous.getReimbursement(), updated.getReimbursement());
+        boolean excessFundsApproved = previous.isExcessFundsApproved() != updated.isExcessFundsApproved();
+
+        List<Object> values = new ArrayList<>();
+        values.add(updated.getStatus().name());
+        if(reasonDenied) {
+            values.add(updated.getReasonDenied());
+        }
+        if(reimbursement) {
+            values.add(updated.getReimbursement());
+        }
+        if(excessFundsApproved) {
+            values.add(updated.isExcessFundsApproved());
+        }
+        values.add(event.getId());
+        values.add(previous.getId());
+        values.add(previous.getUsername());
+        values.addAll(columnValues(previous, FormStatements.ROW_COLUMNS));
+        values.add(event.getId());
+        BoundStatement statement = formStatements.compareAndSetStatus(reasonDenied, reimbursement, excessFundsApproved)
+                .bind(values.toArray());
+
+        return writePending(event, outbox)
+                .then(cassandraOperations.execute(statement))
+                .map(ReactiveResultSet::wasApplied)
+                .doOnNext(applied -> cacheWrite(applied, previous, updated))
+                .flatMap(applied -> settle(applied, applied ? reindex(previous, updated, event, outbox).then(clearOutcome(event, previous)) :
+                        abort(event, outbox)));
+    }
+
+    // The form table is keyed by both id and username, so the key columns are read first. That projected read replaces
+    // loading and remapping the whole row, and the existence check rides on the conditional update, which only applies
+    // while the Form has a status. The event is written as pending first and settled once the update is known:
+    @Override
+    public Mono<Boolean> updateAttachments(UUID id, Map<String, String> columns, FormEvent event) {
+        return findKey(id)
+                .flatMap(key -> {
+                    List<Object> values = new ArrayList<>(columns.values());
+                    values.add(event.getId());
+                    values.add(key.getId());
+                    values.add(key.getUsername());
+                    values.add(event.getId());
+                    return formStatements.prepare(assignAll(QueryBuilder.update(FormStatements.FORM_TABLE), columns)
+                                    .setMapValue("outcomes", bindMarker(), literal(true))
+                                    .whereColumn("id").isEqualTo(bindMarker())
+                                    .whereColumn("username").isEqualTo(bindMarker())
+                                    .ifElement("outcomes", bindMarker()).isEqualTo(literal(null))
+                                    .ifColumn("status").isNotEqualTo(literal(null))
+                                    .ifColumn("removed_by").isEqualTo(literal(null))
+                                    .build())
+                            .flatMap(statement -> writePending(event, List.of())
+                                    .then(cassandraOperations.execute(statement.bind(values.toArray()))))
+                            .map(ReactiveResultSet::wasApplied)
+                            .flatMap(applied -> settle(applied, applied ?
+                                    updateIndexedAttachments(key, columns, 0)
+                                            .then(record(event, List.of(), EventOutcome.APPLIED))
+                                            .then(clearOutcome(event, key)) :
+                                    abort(event, List.of())));
+                })
+                .defaultIfEmpty(false)
+                .doFinally(signal -> formCache.invalidate(id));
+    }
+
+    // The removal is a conditional claim on the Form rather than a delete, so that which removal applied is still known
+    // if the writer fails before the row is gone. The row is deleted in the same batch that settles the event:
+    @Override
+    public Mono<Boolean> deleteIfUnchanged(Form form, FormEvent event, List<OutboxMessage> outbox) {
+        List<Object> values = new ArrayList<>();
+        values.add(event.getId());
+        values.add(event.getId());
+        values.add(form.getId());
+        values.add(form.getUsername());
+        values.addAll(columnValues(form, FormStatements.ROW_COLUMNS));
+        values.add(event.getId());
+
+        return writePending(event, outbox)
+                .then(cassandraOperations.execute(formStatements.claimRemoval().bind(values.toArray())))
+                .map(ReactiveResultSet::wasApplied)
+                .doFinally(signal -> formCache.invalidate(form.getId()))
+                .flatMap(applied -> settle(applied, applied ? remove(form, event, outbox) : abort(event, outbox)));
+    }
+
+    // A change whose event is still pending once settle-time has passed had its writer fail between the conditional write
+    // and settling it. The Form is read at SERIAL, which finishes any conditional write still in flight, and the change's
+    // outcome there decides it, and an applied change's entry is dropped once it is settled. A change with no outcome yet
+    // is marked aborted on the Form, so that it can never apply afterwards. A removal that claimed the Form finishes
+    // deleting it. Once the Form is gone, nothing pending on it can apply any more, so its change counts as aborted unless
+    // its writer settled it in the meantime. Another removal is never taken for this one. An applied change has its
+    // forms_by_username row and escalation deadline rewritten from the Form as it is now, at the write time of its
+    // status, so that a later change's own index update still wins:
+    @Override
+    public Mono<Boolean> resolve(UUID formId, UUID eventId) {
+        return findEvent(eventId)
+                .flatMap(event -> (event.getOutcome() != EventOutcome.PENDING) ? Mono.just(event.getOutcome() != EventOutcome.ABORTED) :
+                        resolvePending(event, 0))
+                // The pending rows are written before the change is attempted, so without them it never was:
+                .defaultIfEmpty(false);
+    }
+
+    // The Form may have come from the cache, so its index key is read from the form table rather than trusted:
+    @Override
+    public Mono<Void> deleteWithIndex(Form form, FormEvent event) {
+        return findKey(form.getId())
+                .defaultIfEmpty(form)
+                .flatMap(key -> cassandraOperations.batchOps(BatchType.LOGGED)
+                        .delete(form)
+                        .delete(FormByUsername.keyOf(key))
+                        .insert(event)
+                        .execute())
+                .doFinally(signal -> formCache.invalidate(form.getId()))
+                .then();
+    }
+
+    // A conditional write that applied leaves the row exactly as written. One that missed means the cached copy the
+    // caller started from is out of date, so it is dropped and the caller's retry reads the latest version:
+    private void cacheWrite(boolean applied, Form previous, Form updated) {
+        if(applied) {
+            formCache.put(updated);
+        } else {
+            formCache.invalidate(previous.getId());
+        }
+    }
+
+    // The values of the given columns as they are stored, in the same order, with nulls for unset columns:
+    private List<Object> columnValues(Form form, List<String> columns) {
+        Map<CqlIdentifier, Object> row = new HashMap<>();
+        cassandraOperations.getConverter().write(form, row);
+        List<Object> values = new ArrayList<>(columns.size());
+        for(String column : columns) {
+            values.add(row.get(CqlIdentifier.fromCql(column)));
+        }
+        return values;
+    }
+
+    // Read only the columns that make up the primary keys of the form and forms_by_username tables:
+    private Mono<Form> findKey(UUID id) {
+        return cassandraOperations.selectOne(formStatements.findKey(id), Form.class);
+    }
+
+    // Mirror the attachment columns onto the forms_by_username row. The update is conditional so that a status change
+    // racing this one can't resurrect the old clustering row. If it misses, the current key is re-read and retried:
+    private Mono<Void> updateIndexedAttachments(Form key, Map<String, String> columns, int attempt) {
+        List<Object> values = new ArrayList<>(columns.values());
+        values.add(key.getUsername());
+        values.add(key.getStatus().name());
+        values.add(key.getDate());
+        values.add(key.getId());
+        return formStatements.prepare(assignAll(QueryBuilder.update(FormStatements.FORMS_BY_USERNAME_TABLE), columns)
+                        .whereColumn("username").isEqualTo(bindMarker())
+                        .whereColumn("status").isEqualTo(bindMarker())
+                        .whereColumn("date").isEqualTo(bindMarker())
+                        .whereColumn("id").isEqualTo(bindMarker())
+                        .ifExists()
+                        .build())
+                .flatMap(statement -> cassandraOperations.execute(statement.bind(values.toArray())))
+                .flatMap(result -> (result.wasApplied() || attempt >= MAX_REINDEX_ATTEMPTS) ? Mono.<Void>empty() :
+                        findKey(key.getId()).flatMap(latest -> updateIndexedAttachments(latest, columns, attempt + 1)));
+    }
+
+    private static UpdateWithAssignments assignAll(OngoingAssignment update, Map<String, String> columns) {
+        UpdateWithAssignments assignments = null;
+        for(String column : columns.keySet()) {
+            assignments = (assignments == null) ? update.setColumn(column, bindMarker()) : assignments.setColumn(column, bindMarker());
+        }
+        return assignments;
+    }
+
+    // Replace the forms_by_username row for a Form that has already been written to the form table, and mark the
+    // change's event and messages applied. A change that leaves the Form waiting on an approver also files its
+    // escalation deadline:
+    private Mono<Void> reindex(Form previous, Form updated, FormEvent event, List<OutboxMessage> outbox) {
+        ReactiveCassandraBatchOperations batch = cassandraOperations.batchOps(BatchType.LOGGED)
+                .insert(new FormByUsername(updated), INSERT_NULLS);
+
+        if(FormByUsername.keyChanged(previous, updated)) {
+            batch = batch.delete(FormByUsername.keyOf(previous));
+        }
+        return withDeadline(withOutcome(batch, event, outbox, EventOutcome.APPLIED), event)
+                .execute()
+                .then();
+    }
+
+    private Mono<Boolean> resolvePending(FormEvent event, int attempt) {
+        return cassandraOperations.getReactiveCqlOperations().queryForRows(formStatements.findLatest(event.getFormId()))
+                .next()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(row -> {
+                    if(row.isEmpty()) {
+                        return abortUnlessSettled(event, null);
+                    }
+                    Form form = cassandraOperations.getConverter().read(Form.class, row.get());
+                    if(event.getId().equals(form.getRemovedBy())) {
+                        return remove(form, event, List.of()).thenReturn(true);
+                    }
+                    Boolean outcome = (form.getOutcomes() == null) ? null : form.getOutcomes().get(event.getId());
+                    if(outcome != null) {
+                        Mono<Void> settled = outcome ? repair(event, form, row.get().getLong("status_written")).then(clearOutcome(event, form)) :
+                                record(event, List.of(), EventOutcome.ABORTED);
+                        return settled.thenReturn(outcome);
+                    }
+                    return cassandraOperations.execute(formStatements.abortChange(event.getId(), form.getId(), form.getUsername()))
+                            .flatMap(result -> {
+                                if(result.wasApplied()) {
+                                    return abortUnlessSettled(event, form);
+                                }
+                                return (attempt < MAX_RESOLVE_ATTEMPTS) ? resolvePending(event, attempt + 1) :
+                                        Mono.error(new IllegalStateException("Form " + event.getFormId() + " kept changing while resolving event " + event.getId()));
+                            });
+                });
+    }
+
+    // The change had no outcome on the Form, or there was no Form, either because it never ran or because its writer
+    // settled it after the event was read, dropping its entry or the whole row. The event is read again to tell the two
+    // apart, and in the second case the entry that fenced it is dropped as well, since the writer is finished with it:
+    private Mono<Boolean> abortUnlessSettled(FormEvent event, Form fenced) {
+        return findEvent(event.getId())
+                .filter(latest -> latest.getOutcome() != EventOutcome.PENDING)
+                .flatMap(latest -> ((fenced == null) ? Mono.<Void>empty() : clearOutcome(latest, fenced))
+                        .thenReturn(latest.getOutcome() != EventOutcome.ABORTED))
+                .switchIfEmpty(Mono.defer(() -> abort(event, List.of()).thenReturn(false)));
+    }
+
+    private Mono<FormEvent> findEvent(UUID eventId) {
+        return cassandraOperations.selectOne(Query.query(Criteria.where("bucket").is(FormEvent.bucketOf(eventId)), Criteria.where("id").is(eventId)),
+                FormEvent.class);
+    }
+
+    private Mono<Void> clearOutcome(FormEvent event, Form key) {
+        return cassandraOperations.execute(formStatements.clearOutcome(event.getId(), key.getId(), key.getUsername()))
+                .then();
+    }
+
+    // Delete a Form claimed by its removal, along with its forms_by_username row, and mark the removal applied:
+    private Mono<Void> remove(Form form, FormEvent event, List<OutboxMessage> outbox) {
+        return withOutcome(cassandraOperations.batchOps(BatchType.LOGGED)
+                        .delete(form)
+                        .delete(FormByUsername.keyOf(form)), event, outbox, EventOutcome.APPLIED)
+                .execute()
+                .then();
+    }
+
+    // Redo the follow-up of an applied change from the Form as it is now:
+    private Mono<Void> repair(FormEvent event, Form current, long statusWritten) {
+        ReactiveCassandraBatchOperations batch = cassandraOperations.batchOps(BatchType.LOGGED)
+                .insert(new FormByUsername(current), InsertOptions.builder().withInsertNulls().timestamp(statusWritten).build());
+
+        if(event.getFromStatus() != null) {
+            FormByUsername previous = previousKey(event);
+            if(FormByUsername.keyChanged(previous.toForm(), current)) {
+                batch = batch.delete(List.of(previous), DeleteOptions.builder().timestamp(statusWritten).build());
+            }
+        }
+        return withDeadline(withOutcome(batch, event, List.of(), EventOutcome.APPLIED), event)
+                .execute()
+                .then();
+    }
+
+    // The forms_by_username key the Form was stored under before the change:
+    private static FormByUsername previousKey(FormEvent event) {
+        FormByUsername key = new FormByUsername();
+        key.setUsername(event.getUsername());
+        key.setStatus(event.getFromStatus());
+        key.setDate(event.getPreviousEventDate());
+        key.setId(event.getFormId());
+        return key;
+    }
+
+    // Write the change's event and messages before it is attempted, so that they survive if the writer fails part way:
+    private Mono<Void> writePending(FormEvent event, List<OutboxMessage> outbox) {
+        outbox.forEach(message -> message.setEventId(event.getId()));
+        return record(event, outbox, EventOutcome.PENDING);
+    }
+
+    private Mono<Void> abort(FormEvent event, List<OutboxMessage> outbox) {
+        return record(event, outbox, EventOutcome.ABORTED);
+    }
+
+    private Mono<Void> record(FormEvent event, List<OutboxMessage> outbox, EventOutcome outcome) {
+        return withOutcome(cassandraOperations.batchOps(BatchType.LOGGED), event, outbox, outcome)
+                .execute()
+                .then();
+    }
+
+    private ReactiveCassandraBatchOperations withOutcome(ReactiveCassandraBatchOperations batch, FormEvent event, List<OutboxMessage> outbox,
+                                                         EventOutcome outcome) {
+        event.setOutcome(outcome);
+        outbox.forEach(message -> message.setOutcome(outcome));
+        return batch.insert(event)
+                .insert(outbox, outboxOptions);
+    }
+
+    private ReactiveCassandraBatchOperations withDeadline(ReactiveCassandraBatchOperations batch, FormEvent event) {
+        Optional<EscalationDeadline> deadline = escalationIndex.entryFor(event);
+        return deadline.isPresent() ? batch.insert(deadline.get(), escalationIndex.insertOptions(deadline.get())) : batch;
+    }
+
+    // Once the conditional write has answered, its outcome stands even if settling the rows fails. Pending rows left
+    // behind are resolved by whichever of the projector and the relay reaches them first:
+    private Mono<Boolean> settle(boolean applied, Mono<Void> settling) {
+        return settling
+                .onErrorResume(e -> {
+                    log.warn("Failed to settle a change to {}: {}", applied ? "applied" : "aborted", e.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn(applied);
+    }
+}
@@ -0,0 +1,249 @@
+package com.skillstorm.repositories;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
+import com.datastax.oss.driver.api.querybuilder.update.OngoingAssignment;
+import com.datastax.oss.driver.api.querybuilder.update.Update;
+import com.datastax.oss.driver.api.querybuilder.update.UpdateWithAssignments;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.SessionFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.literal;
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.selectFrom;
+
+// Prepares the form queries once at startup so each request only binds values to a statement the cluster has already
+// parsed. Reads are marked idempotent so the driver may retry them or send them speculatively. Conditional writes are
+// not, since a replayed write could apply twice. Takes the SessionFactory so the schema exists before anything is prepared:
+@Component
+public class FormStatements {
+
+    static final String FORM_TABLE = "form";
+    static final String FORMS_BY_USERNAME_TABLE = "forms_by_username";
+
+    // The columns of the form table outside its primary key that conditional writes compare with the copy the change was
+    // computed from, so that a stale copy, such as one from another instance's cache, is never written back. The two
+    // primitive columns are left out since an unset value reads back as 0 or false and would never match. Excess funds
+    // approval only changes along with the status, and hours missed is written by every edit:
+    static final List<String> ROW_COLUMNS = List.of("first_name", "last_name", "email", "time", "date", "location",
+            "description", "cost", "grade_format", "passing_grade", "event_type", "justification", "attachment",
+            "supervisor_preapproval", "department_head_preapproval", "status", "reason_denied", "reimbursement",
+            "completion_attachment");
+
+    // The columns a user may change by editing their Form:
+    static final List<String> EDITABLE_COLUMNS = List.of("first_name", "last_name", "email", "time", "date", "location",
+            "description", "cost", "grade_format", "passing_grade", "event_type", "justification", "hours_missed");
+
+    // Every column of the form table, with the outcomes of its conditional changes and the removal that has claimed it:
+    static final List<String> ALL_COLUMNS = Stream.of(List.of("id", "username", "hours_missed", "excess_funds_approved", "outcomes", "removed_by"), ROW_COLUMNS)
+            .flatMap(List::stream)
+            .toList();
+
+    private final CqlSession session;
+
+    // Statements whose columns depend on the request, such as which attachments are being set, keyed by their CQL:
+    private final Map<String, CompletionStage<PreparedStatement>> prepared = new ConcurrentHashMap<>();
+
+    private final PreparedStatement findById;
+    private final PreparedStatement findKey;
+    private final PreparedStatement findLatest;
+    private final PreparedStatement abortChange;
+    private final PreparedStatement clearOutcome;
+    private final PreparedStatement updateIfUnchanged;
+    private final PreparedStatement claimRemoval;
+    private final PreparedStatement findAllByUsername;
+    private final PreparedStatement findAllByUsernameAndStatus;
+
+    // One status update for each combination of the optional columns it may also set:
+    private final PreparedStatement[] compareAndSetStatus = new PreparedStatement[8];
+
+    @Autowired
+    public FormStatements(SessionFactory sessionFactory) {
+        this.session = sessionFactory.getSession();
+
+        findById = prepareNow(selectFrom(FORM_TABLE).all()
+                .whereColumn("id").isEqualTo(bindMarker())
+                .build()
+                .setIdempotent(true));
+        findKey = prepareNow(selectFrom(FORM_TABLE)
+                .columns("id", "username", "status", "date")
+                .whereColumn("id").isEqualTo(bindMarker())
+                .build()
+                .setIdempotent(true));
+        findLatest = prepareNow(selectFrom(FORM_TABLE).columns(ALL_COLUMNS)
+                .writeTime("status").as("status_written")
+                .whereColumn("id").isEqualTo(bindMarker())
+                .build()
+                .setIdempotent(true));
+        abortChange = prepareNow(QueryBuilder.update(FORM_TABLE)
+                .setMapValue("outcomes", bindMarker(), literal(false))
+                .whereColumn("id").isEqualTo(bindMarker())
+                .whereColumn("username").isEqualTo(bindMarker())
+                .ifElement("outcomes", bindMarker()).isEqualTo(literal(null))
+                .ifColumn("status").isNotEqualTo(literal(null))
+                .build()
+                .setIdempotent(false));
+        clearOutcome = prepareNow(QueryBuilder.deleteFrom(FORM_TABLE)
+                .element("outcomes", bindMarker())
+                .whereColumn("id").isEqualTo(bindMarker())
+                .whereColumn("username").isEqualTo(bindMarker())
+                .build()
+                .setIdempotent(true));
+        updateIfUnchanged = prepareNow(ifRowUnchanged(assignAll(QueryBuilder.update(FORM_TABLE), EDITABLE_COLUMNS)
+                .setMapValue("outcomes", bindMarker(), literal(true))
+                .whereColumn("id").isEqualTo(bindMarker())
+                .whereColumn("username").isEqualTo(bindMarker()))
+                .build()
+                .setIdempotent(false));
+        claimRemoval = prepareNow(ifRowUnchanged(QueryBuilder.update(FORM_TABLE)
+                .setColumn("removed_by", bindMarker())
+                .setMapValue("outcomes", bindMarker(), literal(true))
+                .whereColumn("id").isEqualTo(bindMarker())
+                .whereColumn("username").isEqualTo(bindMarker()))
+                .build()
+                .setIdempotent(false));
+        findAllByUsername = prepareNow(selectFrom(FORMS_BY_USERNAME_TABLE).all()
+                .whereColumn("username").isEqualTo(bindMarker())
+                .build()
+                .setIdempotent(true));
+        findAllByUsernameAndStatus = prepareNow(selectFrom(FORMS_BY_USERNAME_TABLE).all()
+                .whereColumn("username").isEqualTo(bindMarker())
+                .whereColumn("status").isEqualTo(bindMarker())
+                .build()
+                .setIdempotent(true));
+
+        for(int columns = 0; columns < compareAndSetStatus.length; columns++) {
+            compareAndSetStatus[columns] = prepareNow(compareAndSetStatusStatement((columns & 1) != 0, (columns & 2) != 0, (columns & 4) != 0));
+        }
+    }
+
+    public BoundStatement findById(UUID id) {
+        return findById.bind(id);
+    }
+
+    // Only the columns that make up the primary keys of the form and forms_by_username tables:
+    public BoundStatement findKey(UUID id) {
+        return findKey.bind(id);
+    }
+
+    // The whole row, with the write time of its status, read at SERIAL so that any conditional write in progress on it
+    // is finished first:
+    public BoundStatement findLatest(UUID id) {
+        return findLatest.bind(id)
+                .setConsistencyLevel(ConsistencyLevel.SERIAL);
+    }
+
+    // Mark a change that hasn't applied as aborted, so that it can no longer apply. Misses if the change has an outcome
+    // already, or the Form no longer exists:
+    public BoundStatement abortChange(UUID eventId, UUID id, String username) {
+        return abortChange.bind(eventId, id, username, eventId);
+    }
+
+    // Drop a change's outcome from the Form once its event is settled, since nothing reads it after that. A change marked
+    // aborted keeps its entry, as that is what stops a writer that is still running from applying it:
+    public BoundStatement clearOutcome(UUID eventId, UUID id, String username) {
+        return clearOutcome.bind(eventId, id, username);
+    }
+
+    // Binds the editable columns, then the event id, then id and username, then every row column as it was read, then
+    // the event id again:
+    public PreparedStatement updateIfUnchanged() {
+        return updateIfUnchanged;
+    }
+
+    // Claim the Form for a removal, which then deletes the row in the same batch that settles its event. The claim
+    // records which removal applied, so that once the row is gone no other removal can be mistaken for it. Binds the
+    // event id twice, then id and username, then every row column as it was read, then the event id again:
+    public PreparedStatement claimRemoval() {
+        return claimRemoval;
+    }
+
+    public BoundStatement findAllByUsername(String username) {
+        return findAllByUsername.bind(username);
+    }
+
+    public BoundStatement findAllByUsernameAndStatus(String username, String status) {
+        return findAllByUsernameAndStatus.bind(username, status);
+    }
+
+    // Binds the new status, then each optional column that is set, in this order, then the event id, then id and
+    // username, then every row column as it was read, then the event id again:
+    public PreparedStatement compareAndSetStatus(boolean reasonDenied, boolean reimbursement, boolean excessFundsApproved) {
+        return compareAndSetStatus[(reasonDenied ? 1 : 0) | (reimbursement ? 2 : 0) | (excessFundsApproved ? 4 : 0)];
+    }
+
+    // Prepare a statement built per request. Each distinct query is only prepared the first time it is seen. Prepared
+    // asynchronously since callers may be on a driver thread, and a failed prepare is dropped so the next call retries it:
+    public Mono<PreparedStatement> prepare(SimpleStatement statement) {
+        CompletionStage<PreparedStatement> preparing = prepared.computeIfAbsent(statement.getQuery(), query -> session.prepareAsync(statement));
+        return Mono.fromCompletionStage(preparing)
+                .doOnError(e -> prepared.remove(statement.getQuery(), preparing));
+    }
+
+    // The nodes holding the partition with this routing key. Writes to partitions on the same nodes can share a batch
+    // without the coordinator forwarding any of them. Without token metadata every partition is treated as the same:
+    public Set<Node> replicasOf(ByteBuffer routingKey) {
+        return session.getKeyspace()
+                .flatMap(keyspace -> session.getMetadata().getTokenMap()
+                        .map(tokenMap -> tokenMap.getReplicas(keyspace, routingKey)))
+                .orElse(Set.of());
+    }
+
+    // Statements that every instance needs are prepared up front, while startup can still wait on them:
+    private PreparedStatement prepareNow(SimpleStatement statement) {
+        return session.prepare(statement);
+    }
+
+    private static SimpleStatement compareAndSetStatusStatement(boolean reasonDenied, boolean reimbursement, boolean excessFundsApproved) {
+        UpdateWithAssignments update = QueryBuilder.update(FORM_TABLE)
+                .setColumn("status", bindMarker());
+        if(reasonDenied) {
+            update = update.setColumn("reason_denied", bindMarker());
+        }
+        if(reimbursement) {
+            update = update.setColumn("reimbursement", bindMarker());
+        }
+        if(excessFundsApproved) {
+            update = update.setColumn("excess_funds_approved", bindMarker());
+        }
+        update = update.setMapValue("outcomes", bindMarker(), literal(true));
+        return ifRowUnchanged(update.whereColumn("id").isEqualTo(bindMarker())
+                .whereColumn("username").isEqualTo(bindMarker()))
+                .build()
+                .setIdempotent(false);
+    }
+
+    private static UpdateWithAssignments assignAll(OngoingAssignment update, List<String> columns) {
+        UpdateWithAssignments assignments = null;
+        for(String column : columns) {
+            assignments = (assignments == null) ? update.setColumn(column, bindMarker()) : assignments.setColumn(column, bindMarker());
+        }
+        return assignments;
+    }
+
+    // A change also only applies while it has no outcome, so that once it has been marked aborted it never can, and
+    // while no removal has claimed the Form:
+    private static Update ifRowUnchanged(Update update) {
+        for(String column : ROW_COLUMNS) {
+            update = update.ifColumn(column).isEqualTo(bindMarker());
+        }
+        return update.ifElement("outcomes", bindMarker()).isEqualTo(literal(null))
+                .ifColumn("removed_by").isEqualTo(literal(null));
+    }
+}
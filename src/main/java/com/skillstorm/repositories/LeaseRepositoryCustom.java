@@ -0,0 +1,18 @@
+package com.skillstorm.repositories;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Conditional writes to leases, so that only one instance holds a lease at a time:
+public interface LeaseRepositoryCustom {
+
+    // Take the named lease for ttl if no one holds it. Returns whether it was taken:
+    Mono<Boolean> acquire(String name, String owner, Duration ttl);
+
+    // Hold on to the lease for another ttl, only if the owner still holds it. Returns whether it was renewed:
+    Mono<Boolean> renew(String name, String owner, Duration ttl);
+
+    // Give the lease back early, only if the owner still holds it:
+    Mono<Void> release(String name, String owner);
+}
@@ -0,0 +1,54 @@
+package com.skillstorm.repositories;
+
+import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.ReactiveResultSet;
+import org.springframework.data.cassandra.core.ReactiveCassandraOperations;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.literal;
+
+public class LeaseRepositoryCustomImpl implements LeaseRepositoryCustom {
+
+    private static final String TABLE = "leases";
+
+    private final ReactiveCassandraOperations cassandraOperations;
+
+    @Autowired
+    public LeaseRepositoryCustomImpl(ReactiveCassandraOperations cassandraOperations) {
+        this.cassandraOperations = cassandraOperations;
+    }
+
+    @Override
+    public Mono<Boolean> acquire(String name, String owner, Duration ttl) {
+        return cassandraOperations.execute(QueryBuilder.insertInto(TABLE)
+                        .value("name", literal(name))
+                        .value("owner", literal(owner))
+                        .ifNotExists()
+                        .usingTtl((int) ttl.toSeconds())
+                        .build())
+                .map(ReactiveResultSet::wasApplied);
+    }
+
+    @Override
+    public Mono<Boolean> renew(String name, String owner, Duration ttl) {
+        return cassandraOperations.execute(QueryBuilder.update(TABLE)
+                        .usingTtl((int) ttl.toSeconds())
+                        .setColumn("owner", literal(owner))
+                        .whereColumn("name").isEqualTo(literal(name))
+                        .ifColumn("owner").isEqualTo(literal(owner))
+                        .build())
+                .map(ReactiveResultSet::wasApplied);
+    }
+
+    @Override
+    public Mono<Void> release(String name, String owner) {
+        return cassandraOperations.execute(QueryBuilder.deleteFrom(TABLE)
+                        .whereColumn("name").isEqualTo(literal(name))
+                        .ifColumn("owner").isEqualTo(literal(owner))
+                        .build())
+                .then();
+    }
+}
@@ -0,0 +1,10 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.OutboxCursor;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxCursorRepository extends ReactiveCassandraRepository<OutboxCursor, Integer> {
+
+}
@@ -0,0 +1,19 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.OutboxMessage;
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface OutboxRepository extends ReactiveCassandraRepository<OutboxMessage, MapId> {
+
+    // Oldest messages in a shard's minute that fall strictly between two message ids:
+    @Query("SELECT * FROM outbox_messages WHERE shard = ?0 AND bucket = ?1 AND id > ?2 AND id < ?3 LIMIT ?4")
+    Flux<OutboxMessage> findBetween(int shard, Instant bucket, UUID after, UUID before, int limit);
+}
@@ -0,0 +1,20 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.ProjectionRow;
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface ProjectionRowRepository extends ReactiveCassandraRepository<ProjectionRow, MapId>, ProjectionRowRepositoryCustom {
+
+    // Every row of a projection, including its checkpoint:
+    @Query("SELECT * FROM form_projections WHERE projection = ?0")
+    Flux<ProjectionRow> findAllByProjection(String projection);
+
+    // Rows of a projection whose keys fall in [from, to), such as every key with a given prefix:
+    @Query("SELECT * FROM form_projections WHERE projection = ?0 AND row_key >= ?1 AND row_key < ?2")
+    Flux<ProjectionRow> findRange(String projection, String from, String to);
+}
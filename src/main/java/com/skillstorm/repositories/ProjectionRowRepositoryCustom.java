@@ -0,0 +1,28 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.entities.ProjectionRow;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.UUID;
+
+// Writes to a projection that are conditional on its checkpoint, so that only one projector can advance it at a time:
+public interface ProjectionRowRepositoryCustom {
+
+    // Create the projection's checkpoint if it doesn't exist yet:
+    Mono<Void> initialize(String projection, UUID checkpoint);
+
+    // Write the changed rows, delete the removed ones, and move the checkpoint on, all only if the checkpoint is still
+    // the one the changes were applied on top of. Returns whether the commit was applied:
+    Mono<Boolean> commit(String projection, UUID expected, UUID checkpoint, Collection<ProjectionRow> changed, Collection<String> removed);
+
+    // The same as commit, for changes too large for a single batch. The rows are written chunkSize at a time and the
+    // checkpoint is moved on last. Each chunk only applies if the checkpoint is still the expected one, and the first to
+    // miss stops the rest, but the chunks before it stay written, so a replacement that misses must be tried again.
+    // Returns whether the whole replacement was applied:
+    Mono<Boolean> replace(String projection, UUID expected, UUID checkpoint, Collection<ProjectionRow> changed, Collection<String> removed,
+                          int chunkSize);
+
+    // Drop every row of the projection and start it again from the checkpoint:
+    Mono<Void> reset(String projection, UUID checkpoint);
+}
@@ -0,0 +1,105 @@
+package com.skillstorm.repositories;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
+import com.skillstorm.entities.ProjectionRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.ReactiveResultSet;
+import org.springframework.data.cassandra.core.ReactiveCassandraOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static com.datastax.oss.driver.api.querybuilder.QueryBuilder.literal;
+
+public class ProjectionRowRepositoryCustomImpl implements ProjectionRowRepositoryCustom {
+
+    private static final String TABLE = "form_projections";
+
+    private final ReactiveCassandraOperations cassandraOperations;
+
+    @Autowired
+    public ProjectionRowRepositoryCustomImpl(ReactiveCassandraOperations cassandraOperations) {
+        this.cassandraOperations = cassandraOperations;
+    }
+
+    @Override
+    public Mono<Void> initialize(String projection, UUID checkpoint) {
+        return cassandraOperations.execute(QueryBuilder.insertInto(TABLE)
+                        .value("projection", literal(projection))
+                        .value("row_key", literal(ProjectionRow.CHECKPOINT))
+                        .value("row_value", literal(checkpoint.toString()))
+                        .ifNotExists()
+                        .build())
+                .then();
+    }
+
+    // The checkpoint's condition decides whether any of the commit applies:
+    @Override
+    public Mono<Boolean> commit(String projection, UUID expected, UUID checkpoint, Collection<ProjectionRow> changed, Collection<String> removed) {
+        return conditionally(projection, expected, checkpoint, writes(projection, changed, removed));
+    }
+
+    // Every chunk rewrites the checkpoint with the value it expects, so that it carries the condition without moving it:
+    @Override
+    public Mono<Boolean> replace(String projection, UUID expected, UUID checkpoint, Collection<ProjectionRow> changed, Collection<String> removed,
+                                 int chunkSize) {
+        List<SimpleStatement> writes = writes(projection, changed, removed);
+        return Flux.range(0, (writes.size() + chunkSize - 1) / chunkSize)
+                .concatMap(chunk -> conditionally(projection, expected, expected,
+                        writes.subList(chunk * chunkSize, Math.min(writes.size(), (chunk + 1) * chunkSize))))
+                .takeUntil(applied -> !applied)
+                .all(Boolean::booleanValue)
+                .flatMap(applied -> applied ? conditionally(projection, expected, checkpoint, List.of()) : Mono.just(false));
+    }
+
+    // Every row lives in the projection's partition, so this is a single-partition conditional batch:
+    private Mono<Boolean> conditionally(String projection, UUID expected, UUID checkpoint, List<SimpleStatement> writes) {
+        BatchStatementBuilder batch = BatchStatement.builder(DefaultBatchType.LOGGED)
+                .addStatement(QueryBuilder.update(TABLE)
+                        .setColumn("row_value", literal(checkpoint.toString()))
+                        .whereColumn("projection").isEqualTo(literal(projection))
+                        .whereColumn("row_key").isEqualTo(literal(ProjectionRow.CHECKPOINT))
+                        .ifColumn("row_value").isEqualTo(literal(expected.toString()))
+                        .build())
+                .addStatements(List.copyOf(writes));
+        return cassandraOperations.execute(batch.build())
+                .map(ReactiveResultSet::wasApplied);
+    }
+
+    private static List<SimpleStatement> writes(String projection, Collection<ProjectionRow> changed, Collection<String> removed) {
+        List<SimpleStatement> writes = new ArrayList<>(changed.size() + removed.size());
+        for(ProjectionRow row : changed) {
+            writes.add(QueryBuilder.update(TABLE)
+                    .setColumn("row_count", literal(row.getCount()))
+                    .setColumn("row_value", literal(row.getValue()))
+                    .whereColumn("projection").isEqualTo(literal(projection))
+                    .whereColumn("row_key").isEqualTo(literal(row.getKey()))
+                    .build());
+        }
+        for(String key : removed) {
+            writes.add(QueryBuilder.deleteFrom(TABLE)
+                    .whereColumn("projection").isEqualTo(literal(projection))
+                    .whereColumn("row_key").isEqualTo(literal(key))
+                    .build());
+        }
+        return writes;
+    }
+
+    // The partition delete and the fresh checkpoint are written one after the other, since in a batch they would share
+    // a timestamp and the delete would shadow the insert. A projector committing in between finds no checkpoint and misses:
+    @Override
+    public Mono<Void> reset(String projection, UUID checkpoint) {
+        return cassandraOperations.execute(QueryBuilder.deleteFrom(TABLE)
+                        .whereColumn("projection").isEqualTo(literal(projection))
+                        .build())
+                .then(Mono.defer(() -> initialize(projection, checkpoint)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.skillstorm.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.skillstorm.constants.Queues;
+import com.skillstorm.dtos.UserDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Caches approvers resolved through the User-Service so repeated approvals don't each pay for a RabbitMQ round trip.
+// Concurrent misses for the same key share a single in-flight lookup, and failed lookups are never cached:
+@Component
+public class ApproverCache {
+
+    private final AsyncCache<ApproverKey, UserDto> cache;
+
+    @Autowired
+    public ApproverCache(@Value("${approver-cache.ttl:5m}") Duration ttl,
+                         @Value("${approver-cache.maximum-size:10000}") long maximumSize,
+                         MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .buildAsync();
+
+        // Publishes hit, miss, and eviction counters as cache.gets and cache.evictions tagged with cache=approvers:
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "approvers");
+    }
+
+    // Return the cached approver or run the lookup. Cancelling one subscriber does not cancel a lookup other callers are waiting on:
+    public Mono<UserDto> get(String username, Queues lookupQueue, Supplier<Mono<UserDto>> lookup) {
+        ApproverKey key = new ApproverKey(username.toLowerCase(), lookupQueue);
+        return Mono.fromFuture(() -> cache.get(key, (k, executor) -> lookup.get().toFuture()), true);
+    }
+
+    // Drop every entry for the given User, both as the employee being looked up and as the approver that was returned,
+    // since a change in role or reporting line can affect either side. A lookup still in flight may have been answered
+    // before the change, so it is checked once its reply arrives and dropped only if that reply is the User. Its callers
+    // still get the reply, but it isn't cached. Lookups for anyone else are left alone:
+    public void invalidate(String username) {
+        String normalized = username.toLowerCase();
+        cache.asMap().forEach((key, lookup) -> {
+            if(key.username().equals(normalized)) {
+                cache.asMap().remove(key, lookup);
+                return;
+            }
+            lookup.thenAccept(approver -> {
+                if(approver != null && normalized.equalsIgnoreCase(approver.getUsername())) {
+                    cache.asMap().remove(key, lookup);
+                }
+            });
+        });
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    // The User-Service publishes a username whenever that User's role or reporting line changes. Every instance
+    // listens on its own anonymous queue so that the invalidation reaches all replicas:
+    @RabbitListener(queues = "#{approverInvalidationQueue.name}", containerFactory = "replyListenerContainerFactory")
+    public void handleInvalidation(@Payload String username) {
+        invalidate(username);
+    }
+
+    public record ApproverKey(String username, Queues lookupQueue) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.AttachmentType;
+import com.skillstorm.dtos.AttachmentUpdateDto;
+import com.skillstorm.dtos.MultipartUploadResponse;
+import com.skillstorm.dtos.UploadPartResponse;
+import com.skillstorm.dtos.UploadedPartDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface AttachmentUploadService {
+
+    // Start a multipart upload of an attachment of the declared content type and size:
+    Mono<MultipartUploadResponse> startUpload(UUID id, AttachmentType attachmentType, String contentType, long size);
+
+    // Generate a pre-signed URL for one part. Asking again for the same part lets it be re-sent after a failure:
+    Mono<UploadPartResponse> generateUploadPartUrl(UUID id, AttachmentType attachmentType, String uploadId, int partNumber, String contentMd5);
+
+    // Parts received so far, so an interrupted upload can resume with the parts that are missing:
+    Flux<UploadedPartDto> findUploadedParts(UUID id, AttachmentType attachmentType, String uploadId);
+
+    // Assemble the parts, verify the result against what was declared, and set the Form's attachment:
+    Mono<AttachmentUpdateDto> completeUpload(UUID id, AttachmentType attachmentType, String uploadId);
+
+    // Set the Form's attachments from objects already uploaded, keyed by attachment type. Each key has to be one the Form
+    // was given for that type, and each object has to pass the same checks as a completed upload:
+    Flux<AttachmentUpdateDto> registerUploads(UUID id, Map<AttachmentType, String> keys);
+
+    // Abandon an upload and discard its parts:
+    Mono<Void> abortUpload(UUID id, AttachmentType attachmentType, String uploadId);
+}
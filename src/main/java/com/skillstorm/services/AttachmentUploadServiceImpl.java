@@ -0,0 +1,220 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.AttachmentType;
+import com.skillstorm.dtos.AttachmentUpdateDto;
+import com.skillstorm.dtos.MultipartUploadResponse;
+import com.skillstorm.dtos.StoredObjectDto;
+import com.skillstorm.dtos.UploadPartResponse;
+import com.skillstorm.dtos.UploadedPartDto;
+import com.skillstorm.exceptions.InvalidUploadException;
+import com.skillstorm.exceptions.UnsupportedFileTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Multipart uploads of attachments straight to S3. The server picks the key and the part size, and each part is signed
+// with its MD5 so S3 rejects a damaged part on arrival. A part can be re-signed and re-sent any number of times until
+// the upload completes. Nothing the client reports is trusted at completion: the parts are listed from S3, and the
+// assembled object is checked with a HEAD request against the size, part size and content type declared when the
+// upload started. The content itself is only as sound as each part's MD5. Each upload is assembled under a key of its own, so the attachment the
+// Form already has is never touched: an object that passes becomes the Form's attachment, and one that fails is deleted
+// and the Form is left unchanged. The attachment it replaces is kept in S3. Attachments sent with a single pre-signed
+// PUT are only registered from the key the Form was given, and once a HEAD request shows an accepted size and type:
+@Service
+public class AttachmentUploadServiceImpl implements AttachmentUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentUploadServiceImpl.class);
+
+    // S3's limits on multipart uploads:
+    private static final long MINIMUM_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+    private static final int MAXIMUM_PARTS = 10_000;
+
+    // Object metadata recording what was declared when the upload started:
+    static final String DECLARED_SIZE = "declared-size";
+    static final String PART_SIZE = "part-size";
+
+    // Joins the upload's own key to the id S3 gave it. Neither a UUID nor an S3 upload id contains one:
+    static final String UPLOAD_ID_SEPARATOR = "~";
+
+    private final FormService formService;
+    private final S3Service s3Service;
+    private final long partSize;
+    private final long maximumSize;
+
+    @Autowired
+    public AttachmentUploadServiceImpl(FormService formService, S3Service s3Service,
+                                       @Value("${attachments.multipart.part-size:8MB}") DataSize partSize,
+                                       @Value("${attachments.multipart.maximum-size:1GB}") DataSize maximumSize) {
+        this.formService = formService;
+        this.s3Service = s3Service;
+        this.partSize = Math.max(partSize.toBytes(), MINIMUM_PART_SIZE);
+        this.maximumSize = maximumSize.toBytes();
+    }
+
+    @Override
+    public Mono<MultipartUploadResponse> startUpload(UUID id, AttachmentType attachmentType, String contentType, long size) {
+        if(!attachmentType.accepts(contentType)) {
+            return Mono.error(new UnsupportedFileTypeException("Invalid content type"));
+        }
+        if(size <= 0 || size > maximumSize) {
+            return Mono.error(new InvalidUploadException("upload.size.invalid"));
+        }
+        String upload = UUID.randomUUID().toString();
+        String key = uploadKey(id, attachmentType, upload);
+        long chosenPartSize = partSizeFor(size);
+        Map<String, String> metadata = Map.of(DECLARED_SIZE, Long.toString(size), PART_SIZE, Long.toString(chosenPartSize));
+
+        // Only Forms that exist get an upload:
+        return formService.findById(id)
+                .then(s3Service.createMultipartUpload(key, contentType.toLowerCase(), metadata))
+                .map(uploadId -> new MultipartUploadResponse(key, upload + UPLOAD_ID_SEPARATOR + uploadId, chosenPartSize, partCount(size, chosenPartSize)));
+    }
+
+    @Override
+    public Mono<UploadPartResponse> generateUploadPartUrl(UUID id, AttachmentType attachmentType, String uploadId, int partNumber, String contentMd5) {
+        if(partNumber < 1 || partNumber > MAXIMUM_PARTS) {
+            return Mono.error(new InvalidUploadException("upload.part.invalid"));
+        }
+        return Mono.fromCallable(() -> Upload.of(id, attachmentType, uploadId))
+                .flatMap(upload -> s3Service.generateUploadPartUrl(upload.key(), upload.s3UploadId(), partNumber, contentMd5))
+                .map(url -> new UploadPartResponse(partNumber, url));
+    }
+
+    @Override
+    public Flux<UploadedPartDto> findUploadedParts(UUID id, AttachmentType attachmentType, String uploadId) {
+        return Mono.fromCallable(() -> Upload.of(id, attachmentType, uploadId))
+                .flatMapMany(upload -> s3Service.listParts(upload.key(), upload.s3UploadId()));
+    }
+
+    @Override
+    public Mono<AttachmentUpdateDto> completeUpload(UUID id, AttachmentType attachmentType, String uploadId) {
+        return Mono.fromCallable(() -> Upload.of(id, attachmentType, uploadId))
+                .flatMap(upload -> s3Service.listParts(upload.key(), upload.s3UploadId())
+                        .collectList()
+                        .flatMap(parts -> {
+                            if(parts.isEmpty()) {
+                                return Mono.error(new InvalidUploadException("upload.incomplete"));
+                            }
+                            return s3Service.completeMultipartUpload(upload.key(), upload.s3UploadId(), parts)
+                                    .then(s3Service.headObject(upload.key()))
+                                    .flatMap(object -> {
+                                        if(matches(object, attachmentType, parts)) {
+                                            return formService.updateAttachmentField(id, attachmentType, upload.key());
+                                        }
+                                        log.warn("Deleting upload {}: size {} or content type {} do not match what was declared",
+                                                upload.key(), object.size(), object.contentType());
+                                        return s3Service.deleteObject(upload.key())
+                                                .then(Mono.error(new InvalidUploadException("upload.verification.failed")));
+                                    });
+                        }));
+    }
+
+    // Every key is checked before any is registered, so a request with one bad key changes nothing:
+    @Override
+    public Flux<AttachmentUpdateDto> registerUploads(UUID id, Map<AttachmentType, String> keys) {
+        return Flux.fromIterable(keys.entrySet())
+                .concatMap(entry -> verifyUpload(id, entry.getKey(), entry.getValue()))
+                .thenMany(Flux.defer(() -> formService.updateAttachmentFields(id, keys)));
+    }
+
+    private Mono<Void> verifyUpload(UUID id, AttachmentType attachmentType, String key) {
+        if(!isKeyOf(id, attachmentType, key)) {
+            return Mono.error(new InvalidUploadException("upload.not.found"));
+        }
+        return s3Service.headObject(key)
+                .onErrorMap(NoSuchKeyException.class, e -> new InvalidUploadException("upload.not.found"))
+                .flatMap(object -> {
+                    long declaredSize = Long.parseLong(object.metadata().getOrDefault(DECLARED_SIZE, Long.toString(object.size())));
+                    if(object.size() > 0 && object.size() <= maximumSize && object.size() == declaredSize
+                            && attachmentType.accepts(object.contentType())) {
+                        return Mono.empty();
+                    }
+                    log.warn("Rejecting attachment {}: size {}, content type {} are not accepted", key, object.size(), object.contentType());
+                    return Mono.error(new InvalidUploadException("upload.verification.failed"));
+                });
+    }
+
+    // The key a pre-signed upload was given, or the key of one of the Form's multipart uploads of that type:
+    private static boolean isKeyOf(UUID id, AttachmentType attachmentType, String key) {
+        if(key == null) {
+            return false;
+        }
+        if(key.equals(attachmentType.keyFor(id))) {
+            return true;
+        }
+        String prefix = uploadKey(id, attachmentType, "");
+        if(!key.startsWith(prefix)) {
+            return false;
+        }
+        try {
+            return key.equals(uploadKey(id, attachmentType, UUID.fromString(key.substring(prefix.length())).toString()));
+        } catch(IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Mono<Void> abortUpload(UUID id, AttachmentType attachmentType, String uploadId) {
+        return Mono.fromCallable(() -> Upload.of(id, attachmentType, uploadId))
+                .flatMap(upload -> s3Service.abortMultipartUpload(upload.key(), upload.s3UploadId()));
+    }
+
+    // Under the key a single-part upload uses, but unique to this upload:
+    private static String uploadKey(UUID id, AttachmentType attachmentType, String upload) {
+        return attachmentType.keyFor(id) + "/uploads/" + upload;
+    }
+
+    // The upload id given to the client names both the upload's own key and the upload S3 is assembling there. The key
+    // is only ever rebuilt from a UUID, so a client can't point an upload at any other object:
+    private record Upload(String key, String s3UploadId) {
+
+        static Upload of(UUID id, AttachmentType attachmentType, String uploadId) {
+            int separator = uploadId.indexOf(UPLOAD_ID_SEPARATOR);
+            if(separator < 0) {
+                throw new InvalidUploadException("upload.not.found");
+            }
+            try {
+                UUID upload = UUID.fromString(uploadId.substring(0, separator));
+                return new Upload(uploadKey(id, attachmentType, upload.toString()), uploadId.substring(separator + 1));
+            } catch(IllegalArgumentException e) {
+                throw new InvalidUploadException("upload.not.found");
+            }
+        }
+    }
+
+    // The configured part size, unless the file is so large that it would need more parts than S3 allows. Rounded up
+    // to a whole megabyte:
+    long partSizeFor(long size) {
+        long fewestParts = (size + MAXIMUM_PARTS - 1) / MAXIMUM_PARTS;
+        long megabyte = DataSize.ofMegabytes(1).toBytes();
+        return (Math.max(partSize, fewestParts) + megabyte - 1) / megabyte * megabyte;
+    }
+
+    private static int partCount(long size, long partSize) {
+        return (int) ((size + partSize - 1) / partSize);
+    }
+
+    // The object has to be the declared size, made of the listed parts at the declared part size, and of a type the
+    // attachment accepts:
+    private static boolean matches(StoredObjectDto object, AttachmentType attachmentType, List<UploadedPartDto> parts) {
+        long declaredSize = Long.parseLong(object.metadata().getOrDefault(DECLARED_SIZE, "-1"));
+        long declaredPartSize = Long.parseLong(object.metadata().getOrDefault(PART_SIZE, "-1"));
+        long partsSize = parts.stream().mapToLong(UploadedPartDto::size).sum();
+        boolean partsSized = parts.subList(0, parts.size() - 1).stream().allMatch(part -> part.size() == declaredPartSize);
+        return object.size() == declaredSize
+                && partsSize == declaredSize
+                && partsSized
+                && parts.size() == partCount(declaredSize, declaredPartSize)
+                && attachmentType.accepts(object.contentType());
+    }
+}
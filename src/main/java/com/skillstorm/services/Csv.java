@@ -0,0 +1,124 @@
+package com.skillstorm.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reading and writing CSV records. Fields holding commas, quotes, or line breaks are quoted, with any quotes inside them
+// doubled, so a record may span more than one line:
+final class Csv {
+
+    // The columns of the form table in the order they're exported, each with the FormDto field it's imported into, so
+    // that an exported file can be imported again as it is:
+    static final Map<String, String> FORM_COLUMNS = formColumns(List.of("id", "username", "first_name", "last_name", "email",
+            "time", "date", "location", "description", "cost", "grade_format", "passing_grade", "event_type", "justification",
+            "hours_missed", "attachment", "supervisor_preapproval", "department_head_preapproval", "status", "reason_denied",
+            "excess_funds_approved", "reimbursement", "completion_attachment"));
+
+    private Csv() {
+    }
+
+    // The FormDto field a header names. Headers may name either the column or the field:
+    static String fieldFor(String header) {
+        String name = header.trim();
+        return FORM_COLUMNS.getOrDefault(name.toLowerCase(), name);
+    }
+
+    // Whether a record is cut off inside a quoted field, and so carries on in the next line. Quotes inside a field are
+    // doubled, so only an odd count leaves one open:
+    static boolean endsInsideQuotes(String text) {
+        return text.chars().filter(c -> c == '"').count() % 2 == 1;
+    }
+
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for(int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if(quoted) {
+                if(c != '"') {
+                    field.append(c);
+                } else if(i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if(c == '"') {
+                quoted = true;
+            } else if(c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Nulls are written as empty fields. Ends the line with CRLF. Text that a spreadsheet would read as a formula is
+    // prefixed with a quote so it is shown as written. Numbers, dates, and ids are never neutralised, so a negative
+    // amount still reads as a number. Amounts are written out in full rather than in scientific notation:
+    static String formatLine(List<?> values) {
+        StringBuilder line = new StringBuilder();
+        for(int i = 0; i < values.size(); i++) {
+            if(i > 0) {
+                line.append(',');
+            }
+            Object value = values.get(i);
+            if(value instanceof CharSequence text) {
+                appendField(line, neutralise(text.toString()));
+            } else if(value instanceof BigDecimal amount) {
+                line.append(amount.toPlainString());
+            } else if(value != null) {
+                appendField(line, value.toString());
+            }
+        }
+        return line.append("\r\n").toString();
+    }
+
+    // The preapproval columns hold the attachments the approvals were given with:
+    private static Map<String, String> formColumns(List<String> columns) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for(String column : columns) {
+            fields.put(column, switch(column) {
+                case "supervisor_preapproval" -> "supervisorAttachment";
+                case "department_head_preapproval" -> "departmentHeadAttachment";
+                default -> toCamelCase(column);
+            });
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    private static String toCamelCase(String column) {
+        StringBuilder field = new StringBuilder();
+        for(String word : column.split("_")) {
+            field.append(field.isEmpty() ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        return field.toString();
+    }
+
+    private static String neutralise(String field) {
+        if(field.isEmpty()) {
+            return field;
+        }
+        return switch(field.charAt(0)) {
+            case '=', '+', '-', '@', '\t', '\r' -> "'" + field;
+            default -> field;
+        };
+    }
+
+    private static void appendField(StringBuilder line, String field) {
+        boolean quote = field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+        if(!quote) {
+            line.append(field);
+            return;
+        }
+        line.append('"').append(field.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,228 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.EscalationDeadline;
+import com.skillstorm.entities.ProjectionRow;
+import com.skillstorm.projections.PendingApprovalsProjection;
+import com.skillstorm.repositories.EscalationDeadlineRepository;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.LeaseRepository;
+import com.skillstorm.repositories.ProjectionRowRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Escalates Forms that have waited too long on an approver, without relying on automatic approval messages from another
+// service. Each run walks the hourly buckets of the escalation index from lookback ago up to now, and only the entries
+// already due are read. A bucket with due entries is escalated by whichever instance takes its lease, in batches of
+// batch-size spaced batch-interval apart so that a backlog doesn't flood the approvers' lookups. An entry is deleted
+// once it is handled, or found stale, and kept for the next run if escalating it fails. Buckets that have closed and
+// been emptied are remembered, so a run normally reads only the current hour's bucket. Forms that were already waiting
+// when the index was introduced are filed by backfill(); until then, and for Forms that started waiting before the
+// pending-approvals history begins, escalation still depends on the automatic-approval-queue:
+@Component
+public class EscalationScheduler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EscalationScheduler.class);
+
+    // Each bucket has its own lease, named after the start of its hour:
+    private static final String LEASE_PREFIX = "escalation:";
+
+    private final FormService formService;
+    private final EscalationDeadlineRepository escalationDeadlineRepository;
+    private final LeaseRepository leaseRepository;
+    private final FormRepository formRepository;
+    private final ProjectionRowRepository projectionRowRepository;
+    private final boolean enabled;
+    private final Duration interval;
+    private final Duration lookback;
+    private final Duration settleTime;
+    private final Duration leaseTtl;
+    private final int batchSize;
+    private final Duration batchInterval;
+    private final int concurrency;
+    private final MeterRegistry meterRegistry;
+    private final Timer runs;
+    private final DistributionSummary escalatedPerRun;
+    private final Counter bucketsRead;
+    private final Counter entriesRead;
+    private final Counter leaseMisses;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Closed buckets found empty. Nothing new is filed under a deadline that has passed, so they stay empty:
+    private final Set<Instant> drained = ConcurrentHashMap.newKeySet();
+    private Disposable scheduling;
+
+    @Autowired
+    public EscalationScheduler(FormService formService, EscalationDeadlineRepository escalationDeadlineRepository,
+                               LeaseRepository leaseRepository, FormRepository formRepository,
+                               ProjectionRowRepository projectionRowRepository,
+                               @Value("${escalation.enabled:true}") boolean enabled,
+                               @Value("${escalation.interval:1m}") Duration interval,
+                               @Value("${escalation.lookback:7d}") Duration lookback,
+                               @Value("${escalation.settle-time:1m}") Duration settleTime,
+                               @Value("${escalation.lease-ttl:2m}") Duration leaseTtl,
+                               @Value("${escalation.batch-size:50}") int batchSize,
+                               @Value("${escalation.batch-interval:1s}") Duration batchInterval,
+                               @Value("${escalation.concurrency:4}") int concurrency, MeterRegistry meterRegistry) {
+        this.formService = formService;
+        this.escalationDeadlineRepository = escalationDeadlineRepository;
+        this.leaseRepository = leaseRepository;
+        this.formRepository = formRepository;
+        this.projectionRowRepository = projectionRowRepository;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.lookback = lookback;
+        this.settleTime = settleTime;
+        this.leaseTtl = leaseTtl;
+        this.batchSize = batchSize;
+        this.batchInterval = batchInterval;
+        this.concurrency = concurrency;
+        this.meterRegistry = meterRegistry;
+        this.runs = Timer.builder("escalations.run")
+                .description("Time taken to escalate every overdue Form")
+                .register(meterRegistry);
+        this.escalatedPerRun = DistributionSummary.builder("escalations.per.run")
+                .description("Forms escalated in each run")
+                .register(meterRegistry);
+        this.bucketsRead = Counter.builder("escalations.scan.buckets")
+                .description("Escalation index partitions read")
+                .register(meterRegistry);
+        this.entriesRead = Counter.builder("escalations.scan.entries")
+                .description("Escalation index entries read")
+                .register(meterRegistry);
+        this.leaseMisses = Counter.builder("escalations.lease.misses")
+                .description("Buckets with overdue Forms skipped because another instance held the lease")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if(!enabled) {
+            return;
+        }
+        scheduling = Poller.every(interval, "escalate overdue forms", this::escalateOverdue);
+    }
+
+    @Override
+    public void destroy() {
+        if(scheduling != null) {
+            scheduling.dispose();
+        }
+    }
+
+    // Escalate every Form whose deadline has passed. Returns the number escalated:
+    public Mono<Long> escalateOverdue() {
+        Instant now = Instant.now();
+        Instant first = EscalationDeadline.bucketOf(now.minus(lookback));
+        drained.removeIf(bucket -> bucket.isBefore(first));
+        long start = System.nanoTime();
+        return Flux.fromStream(() -> Stream.iterate(first, bucket -> !bucket.isAfter(now), bucket -> bucket.plus(EscalationDeadline.BUCKET_WIDTH)))
+                .filter(bucket -> !drained.contains(bucket))
+                .concatMap(bucket -> escalateBucket(bucket, now))
+                .reduce(0L, Long::sum)
+                .doOnNext(escalated -> {
+                    runs.record(Duration.ofNanos(System.nanoTime() - start));
+                    escalatedPerRun.record(escalated);
+                });
+    }
+
+    // Only take the lease if there is something due, so that a quiet bucket costs a single read. The work is cut off
+    // at half the lease so it is done before the lease can lapse; whatever is left is picked up on the next run:
+    private Mono<Long> escalateBucket(Instant bucket, Instant now) {
+        bucketsRead.increment();
+        return escalationDeadlineRepository.findDue(bucket, now)
+                .hasElements()
+                .flatMap(due -> {
+                    if(!due) {
+                        if(bucket.plus(EscalationDeadline.BUCKET_WIDTH).plus(settleTime).isBefore(now)) {
+                            drained.add(bucket);
+                        }
+                        return Mono.just(0L);
+                    }
+                    String lease = LEASE_PREFIX + bucket;
+                    return leaseRepository.acquire(lease, instanceId, leaseTtl)
+                            .flatMap(acquired -> {
+                                if(!acquired) {
+                                    leaseMisses.increment();
+                                    return Mono.just(0L);
+                                }
+                                Mono<Void> release = leaseRepository.release(lease, instanceId)
+                                        .onErrorResume(e -> Mono.empty());
+                                return escalateDue(bucket, now)
+                                        .take(leaseTtl.dividedBy(2))
+                                        .reduce(0L, Long::sum)
+                                        .flatMap(escalated -> release.thenReturn(escalated))
+                                        .onErrorResume(e -> release.then(Mono.error(e)));
+                            });
+                });
+    }
+
+    // The bucket's due entries a batch at a time, with batch-interval between batches. Emits how many of each batch
+    // were escalated:
+    private Flux<Long> escalateDue(Instant bucket, Instant now) {
+        return escalationDeadlineRepository.findDue(bucket, now)
+                .doOnNext(entry -> entriesRead.increment())
+                .buffer(batchSize)
+                .index()
+                .concatMap(batch -> Mono.delay(batch.getT1() == 0 ? Duration.ZERO : batchInterval)
+                        .thenMany(Flux.fromIterable(batch.getT2()))
+                        .flatMap(this::escalate, concurrency)
+                        .filter(Boolean::booleanValue)
+                        .count());
+    }
+
+    // File a deadline for every Form the pending-approvals projection has waiting on an approver and that is still in
+    // that status. When each started waiting isn't kept, so each is given the full sla from now, still capped at
+    // event-lead before its event. Run once after upgrading. Returns the number filed:
+    public Mono<Long> backfill() {
+        String prefix = PendingApprovalsProjection.FORM_PREFIX;
+        return projectionRowRepository.findRange(PendingApprovalsProjection.NAME, prefix, ProjectionRow.prefixEnd(prefix))
+                .filter(row -> row.getValue() != null)
+                .flatMap(row -> {
+                    String[] assignment = row.getValue().split(":", 2);
+                    Status status = Status.valueOf(assignment[0]);
+                    return formRepository.findById(UUID.fromString(row.getKey().substring(prefix.length())))
+                            .filter(form -> form.getStatus() == status)
+                            .flatMap(form -> formRepository.fileEscalation(form, assignment[1]));
+                }, concurrency)
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    private Mono<Boolean> escalate(EscalationDeadline entry) {
+        return formService.escalate(entry.getFormId(), entry.getStatus(), entry.getApprover())
+                .flatMap(escalated -> escalationDeadlineRepository.delete(entry)
+                        .doOnSuccess(deleted -> count(escalated ? "escalated" : "stale"))
+                        .thenReturn(escalated))
+                .onErrorResume(e -> {
+                    log.warn("Failed to escalate form {}: {}", entry.getFormId(), e.getMessage());
+                    count("failed");
+                    return Mono.just(false);
+                });
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("escalations", "outcome", outcome)
+                .increment();
+    }
+}
@@ -0,0 +1,16 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.ExportTarget;
+import com.skillstorm.dtos.ExportResultDto;
+import com.skillstorm.dtos.FormExportDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface FormExportService {
+
+    // Stream the matching Forms as CSV, one line per Form after a header line naming the columns:
+    Flux<String> exportCsv(FormExportDto export);
+
+    // Write the same CSV to a new file or S3 object instead, completing once all of it has been written:
+    Mono<ExportResultDto> exportTo(ExportTarget target, FormExportDto export);
+}
@@ -0,0 +1,193 @@
+package com.skillstorm.services;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.skillstorm.constants.ExportTarget;
+import com.skillstorm.constants.ImportFormat;
+import com.skillstorm.dtos.ExportResultDto;
+import com.skillstorm.dtos.FormExportDto;
+import com.skillstorm.dtos.UploadedPartDto;
+import com.skillstorm.exceptions.InvalidExportException;
+import com.skillstorm.repositories.FormRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Exports Forms for reporting without going through the Form endpoints. The table is read a token range at a time at a
+// low consistency level, with only a few ranges in flight, and each row is formatted and written as soon as it arrives.
+// Nothing but the current pages and, for S3, the part being filled is ever held in memory, however many Forms match:
+@Service
+public class FormExportServiceImpl implements FormExportService {
+
+    // Every column of the form table, in the order they're exported when none are named:
+    static final List<String> COLUMNS = List.copyOf(Csv.FORM_COLUMNS.keySet());
+
+    private static final DateTimeFormatter EXPORT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final FormRepository formRepository;
+    private final S3Service s3Service;
+    private final Path directory;
+    private final int splits;
+    private final int concurrency;
+    private final int fetchSize;
+    private final ConsistencyLevel consistency;
+    private final long partSize;
+
+    // Rows exported, counted by where they were written:
+    private final Counter exportedToResponse;
+    private final Map<ExportTarget, Counter> exportedTo = new EnumMap<>(ExportTarget.class);
+
+    @Autowired
+    public FormExportServiceImpl(FormRepository formRepository, S3Service s3Service,
+                                 @Value("${forms.export.directory:${java.io.tmpdir}/form-exports}") Path directory,
+                                 @Value("${forms.export.splits:64}") int splits,
+                                 @Value("${forms.export.concurrency:2}") int concurrency,
+                                 @Value("${forms.export.fetch-size:1000}") int fetchSize,
+                                 @Value("${forms.export.consistency:LOCAL_ONE}") String consistency,
+                                 @Value("${forms.export.part-size:8MB}") DataSize partSize,
+                                 MeterRegistry meterRegistry) {
+        this.formRepository = formRepository;
+        this.s3Service = s3Service;
+        this.directory = directory;
+        this.splits = splits;
+        this.concurrency = concurrency;
+        this.fetchSize = fetchSize;
+        this.consistency = DefaultConsistencyLevel.valueOf(consistency);
+        this.partSize = partSize.toBytes();
+        this.exportedToResponse = meterRegistry.counter("form.exports.rows", "target", "response");
+        for(ExportTarget target : ExportTarget.values()) {
+            exportedTo.put(target, meterRegistry.counter("form.exports.rows", "target", target.name().toLowerCase()));
+        }
+    }
+
+    @Override
+    public Flux<String> exportCsv(FormExportDto export) {
+        return csv(export, exportedToResponse);
+    }
+
+    @Override
+    public Mono<ExportResultDto> exportTo(ExportTarget target, FormExportDto export) {
+        String name = "forms-" + EXPORT_NAME.format(Instant.now()) + "-" + UUID.randomUUID().toString().substring(0, 8) + ".csv";
+        AtomicLong rows = new AtomicLong();
+        Flux<String> lines = csv(export, exportedTo.get(target))
+                .doOnNext(line -> rows.incrementAndGet());
+
+        Mono<String> location = switch(target) {
+            case FILE -> toFile(lines, directory.resolve(name));
+            case S3 -> toS3(lines, "exports/" + name);
+        };
+        // The header line isn't a Form:
+        return location.map(written -> new ExportResultDto(written, Math.max(rows.get() - 1, 0)));
+    }
+
+    // Validation errors are raised when the export is subscribed to, before a line has been written:
+    private Flux<String> csv(FormExportDto export, Counter exported) {
+        return Flux.defer(() -> {
+            List<String> columns = columnsOf(export);
+            return Flux.concat(Mono.just(Csv.formatLine(columns)),
+                    formRepository.exportByTokenRange(columns, export.from(), export.to(), export.status(), export.eventType(),
+                                    splits, concurrency, fetchSize, consistency)
+                            .map(row -> Csv.formatLine(values(row, columns.size())))
+                            .doOnNext(line -> exported.increment()));
+        });
+    }
+
+    private static List<String> columnsOf(FormExportDto export) {
+        if(export.from() != null && export.to() != null && export.to().isBefore(export.from())) {
+            throw new InvalidExportException("export.range.invalid");
+        }
+        if(export.columns() == null || export.columns().isEmpty()) {
+            return COLUMNS;
+        }
+        List<String> columns = export.columns().stream()
+                .map(column -> column.trim().toLowerCase())
+                .distinct()
+                .toList();
+        if(!COLUMNS.containsAll(columns)) {
+            throw new InvalidExportException("export.column.invalid");
+        }
+        return columns;
+    }
+
+    private static List<Object> values(Row row, int columns) {
+        List<Object> values = new ArrayList<>(columns);
+        for(int i = 0; i < columns; i++) {
+            values.add(row.getObject(i));
+        }
+        return values;
+    }
+
+    // Lines are appended to the file as they're formatted. A partly written file is removed if the export fails:
+    private Mono<String> toFile(Flux<String> lines, Path file) {
+        Flux<DataBuffer> buffers = lines.map(line -> DefaultDataBufferFactory.sharedInstance.wrap(line.getBytes(StandardCharsets.UTF_8)));
+        return Mono.fromCallable(() -> Files.createDirectories(directory))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(DataBufferUtils.write(buffers, file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+                .onErrorResume(e -> Mono.fromCallable(() -> Files.deleteIfExists(file))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.error(e)))
+                .thenReturn(file.toString());
+    }
+
+    // Lines are gathered into parts of at least part-size, and each part is uploaded before the next is filled. The
+    // upload is aborted if the export fails, so S3 doesn't keep the parts already sent:
+    private Mono<String> toS3(Flux<String> lines, String key) {
+        return s3Service.createMultipartUpload(key, ImportFormat.TEXT_CSV.toString(), Map.of())
+                .flatMap(uploadId -> parts(lines)
+                        .index()
+                        .concatMap(part -> s3Service.uploadPart(key, uploadId, part.getT1().intValue() + 1, part.getT2()), 1)
+                        .collectList()
+                        .flatMap(parts -> s3Service.completeMultipartUpload(key, uploadId, parts))
+                        .onErrorResume(e -> s3Service.abortMultipartUpload(key, uploadId)
+                                .onErrorResume(abortFailure -> Mono.empty())
+                                .then(Mono.error(e))))
+                .thenReturn(key);
+    }
+
+    // Every part but the last must be at least part-size, which is what S3 requires of all but the last part:
+    private Flux<byte[]> parts(Flux<String> lines) {
+        return Flux.defer(() -> {
+            AtomicLong filled = new AtomicLong();
+            return lines.map(line -> line.getBytes(StandardCharsets.UTF_8))
+                    .bufferUntil(bytes -> {
+                        if(filled.addAndGet(bytes.length) < partSize) {
+                            return false;
+                        }
+                        filled.set(0);
+                        return true;
+                    })
+                    .map(FormExportServiceImpl::concat);
+        });
+    }
+
+    private static byte[] concat(List<byte[]> chunks) {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        chunks.forEach(part::writeBytes);
+        return part.toByteArray();
+    }
+}
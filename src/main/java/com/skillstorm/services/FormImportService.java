@@ -0,0 +1,13 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.ImportFormat;
+import com.skillstorm.dtos.ImportResultDto;
+import reactor.core.publisher.Flux;
+
+public interface FormImportService {
+
+    // Import Forms, one record per line, except that a CSV record continues onto the next line while a quoted field is
+    // open. A CSV header may name either FormDto fields or the columns the export writes. A result is streamed back for
+    // every record once it has been written or rejected:
+    Flux<ImportResultDto> importForms(Flux<String> lines, ImportFormat format);
+}
@@ -0,0 +1,227 @@
+package com.skillstorm.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillstorm.constants.ImportFormat;
+import com.skillstorm.dtos.FormDto;
+import com.skillstorm.dtos.ImportResultDto;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.repositories.FormRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Backfills Forms in bulk, such as a new department's history. Records are read a line at a time as the body arrives,
+// checked against the same constraints as FormDto, and written a chunk at a time with unlogged batches. Event dates in
+// the past are allowed, unlike createForm. Imported Forms skip the status machine, so a record may only take an id that
+// no Form has yet. Each record's result is sent as soon as its chunk is done, so neither the file nor the results are
+// ever held in memory as a whole:
+@Service
+public class FormImportServiceImpl implements FormImportService {
+
+    // The most lines a single CSV record may span:
+    private static final int MAX_RECORD_LINES = 100;
+
+    private final FormRepository formRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final Duration maxWait;
+    private final int batchSize;
+    private final int concurrency;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public FormImportServiceImpl(FormRepository formRepository, ObjectMapper objectMapper, Validator validator,
+                                 @Value("${forms.import.chunk-size:500}") int chunkSize,
+                                 @Value("${forms.import.max-wait:200ms}") Duration maxWait,
+                                 @Value("${forms.import.batch-size:10}") int batchSize,
+                                 @Value("${forms.import.concurrency:8}") int concurrency, MeterRegistry meterRegistry) {
+        this.formRepository = formRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxWait = maxWait;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // A record as read from its line. A record with errors is reported without being written:
+    private record ImportRecord(long line, FormDto form, List<String> errors) {
+    }
+
+    @Override
+    public Flux<ImportResultDto> importForms(Flux<String> lines, ImportFormat format) {
+        Flux<NumberedLine> numbered = lines.index((index, line) -> new NumberedLine(index + 1, line));
+        Flux<ImportRecord> records = ((format == ImportFormat.CSV) ? joinQuotedLines(numbered) : numbered)
+                .filter(line -> !line.text().isBlank())
+                .switchOnFirst((first, all) -> {
+                    if(format != ImportFormat.CSV || !first.hasValue()) {
+                        return all.map(this::readJson);
+                    }
+                    List<String> header = Csv.parseLine(first.get().text());
+                    return all.skip(1).map(line -> readCsv(header, line));
+                })
+                .map(this::validate);
+
+        // A chunk is written once it is full, or once the body has gone quiet for max-wait:
+        return records.bufferTimeout(chunkSize, maxWait, true)
+                .concatMap(this::write);
+    }
+
+    private record NumberedLine(long number, String text) {
+    }
+
+    // A CSV record whose quoted field holds a line break arrives as more than one line, so lines are joined back up
+    // until every quote is closed. The body was split on both CRLF and LF, so the break is put back as LF. A record
+    // is given up on after MAX_RECORD_LINES lines, so an unclosed quote can't hold the rest of the body in memory:
+    private static Flux<NumberedLine> joinQuotedLines(Flux<NumberedLine> lines) {
+        return Flux.defer(() -> {
+            AtomicBoolean open = new AtomicBoolean();
+            AtomicInteger joined = new AtomicInteger();
+            return lines.bufferUntil(line -> {
+                        if(Csv.endsInsideQuotes(line.text())) {
+                            open.set(!open.get());
+                        }
+                        if(open.get() && joined.incrementAndGet() < MAX_RECORD_LINES) {
+                            return false;
+                        }
+                        open.set(false);
+                        joined.set(0);
+                        return true;
+                    })
+                    .map(record -> new NumberedLine(record.get(0).number(),
+                            record.stream().map(NumberedLine::text).collect(Collectors.joining("\n"))));
+        });
+    }
+
+    private ImportRecord readJson(NumberedLine line) {
+        try {
+            return new ImportRecord(line.number(), objectMapper.readValue(line.text(), FormDto.class), List.of());
+        } catch(JsonProcessingException e) {
+            return new ImportRecord(line.number(), null, List.of("Malformed record: " + e.getOriginalMessage()));
+        }
+    }
+
+    // Columns are matched to FormDto fields by the header, which may use the exported column names. Empty cells are
+    // left unset:
+    private ImportRecord readCsv(List<String> header, NumberedLine line) {
+        if(Csv.endsInsideQuotes(line.text())) {
+            return new ImportRecord(line.number(), null, List.of("Quoted field is not closed within " + MAX_RECORD_LINES + " lines"));
+        }
+        List<String> cells = Csv.parseLine(line.text());
+        if(cells.size() != header.size()) {
+            return new ImportRecord(line.number(), null, List.of("Expected " + header.size() + " columns but found " + cells.size()));
+        }
+        Map<String, String> fields = new HashMap<>();
+        for(int i = 0; i < header.size(); i++) {
+            if(!cells.get(i).isEmpty()) {
+                fields.put(Csv.fieldFor(header.get(i)), cells.get(i));
+            }
+        }
+        try {
+            return new ImportRecord(line.number(), objectMapper.convertValue(fields, FormDto.class), List.of());
+        } catch(IllegalArgumentException e) {
+            return new ImportRecord(line.number(), null, List.of("Malformed record: " + e.getMessage()));
+        }
+    }
+
+    private ImportRecord validate(ImportRecord record) {
+        if(record.form() == null) {
+            return record;
+        }
+        Set<ConstraintViolation<FormDto>> violations = validator.validate(record.form());
+        if(violations.isEmpty()) {
+            return record;
+        }
+        List<String> errors = violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .toList();
+        return new ImportRecord(record.line(), record.form(), errors);
+    }
+
+    // Rejected records are reported straight away, as are records whose id is already taken. The rest are written
+    // together, and any whose batch failed are reported as failed so they can be sent again. Part of a failed record may
+    // already have been written, so it has to be sent again under the same id, which is generated here if the file
+    // didn't give one:
+    private Flux<ImportResultDto> write(List<ImportRecord> chunk) {
+        List<ImportResultDto> rejected = new ArrayList<>();
+        List<ImportRecord> valid = new ArrayList<>();
+        for(ImportRecord record : chunk) {
+            if(!record.errors().isEmpty()) {
+                rejected.add(new ImportResultDto(record.line(), record.form() == null ? null : record.form().getId(), false, record.errors()));
+            } else {
+                valid.add(record);
+            }
+        }
+
+        return Flux.fromIterable(valid)
+                .flatMapSequential(record -> isTaken(record.form().mapToEntity())
+                        .map(taken -> taken ?
+                                new ImportRecord(record.line(), record.form(), List.of("A Form with id " + record.form().getId() + " already exists")) :
+                                record), concurrency)
+                .collectList()
+                .flatMapMany(checked -> {
+                    List<ImportRecord> accepted = new ArrayList<>();
+                    List<Form> forms = new ArrayList<>();
+                    List<FormEvent> events = new ArrayList<>();
+                    for(ImportRecord record : checked) {
+                        if(!record.errors().isEmpty()) {
+                            rejected.add(new ImportResultDto(record.line(), record.form().getId(), false, record.errors()));
+                            continue;
+                        }
+                        Form form = record.form().mapToEntity();
+                        accepted.add(record);
+                        forms.add(form);
+                        events.add(FormEvent.imported(form));
+                    }
+                    count("rejected", rejected.size());
+                    if(forms.isEmpty()) {
+                        return Flux.fromIterable(rejected);
+                    }
+                    return formRepository.importAll(forms, events, batchSize, concurrency)
+                            .flatMapMany(failed -> {
+                                count("imported", accepted.size() - failed.size());
+                                count("failed", failed.size());
+                                return Flux.fromIterable(rejected)
+                                        .concatWith(Flux.fromIterable(accepted)
+                                                .map(record -> failed.contains(record.form().getId()) ?
+                                                        new ImportResultDto(record.line(), record.form().getId(), false, List.of("Failed to write record, import it again with id " + record.form().getId())) :
+                                                        new ImportResultDto(record.line(), record.form().getId(), true, List.of())));
+                            });
+                });
+    }
+
+    // An id is free if no Form has it. It is also free to the record that a failed import already wrote under it, so
+    // long as the stored Form is exactly what the record would write and so hasn't been changed since:
+    private Mono<Boolean> isTaken(Form form) {
+        return formRepository.findRows(form.getId())
+                .filter(stored -> {
+                    stored.setOutcomes(null);
+                    return !stored.equals(form);
+                })
+                .hasElements();
+    }
+
+    private void count(String outcome, int records) {
+        meterRegistry.counter("form.imports", "outcome", outcome).increment(records);
+    }
+}
@@ -5,12 +5,16 @@ import com.skillstorm.constants.EventType;
 import com.skillstorm.constants.GradeFormat;
 import com.skillstorm.constants.Status;
 import com.skillstorm.dtos.AttachmentUpdateDto;
+import com.skillstorm.dtos.BatchResultDto;
 import com.skillstorm.dtos.DenialDto;
 import com.skillstorm.dtos.FormDto;
+import com.skillstorm.dtos.FormPageDto;
 import com.skillstorm.dtos.UploadUrlResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface FormService {
@@ -21,12 +25,18 @@ public interface FormService {
     // Find Form by ID:
     Mono<FormDto> findById(UUID id);
 
-    // Find all Forms:
-    Flux<FormDto> findAll();
+    // Find one page of Forms, optionally filtered by status and event type:
+    Mono<FormPageDto> findPage(int pageSize, String pageToken, Status status, EventType eventType);
+
+    // Stream all Forms, optionally filtered by status and event type:
+    Flux<FormDto> streamAll(Status status, EventType eventType);
 
     // Find all active forms for a given User. Filter by Status:
     Flux<FormDto> findAllFormsByUsernameAndStatus(String username, String status);
 
+    // Rebuild the forms_by_username row of every Form. Returns the number of Forms indexed:
+    Mono<Long> reindexAll();
+
     // Update Form by ID:
     Mono<FormDto> updateById(UUID id, FormDto updatedForm);
 
@@ -63,12 +73,28 @@ public interface FormService {
     // Deny Request Form:
     Mono<FormDto> denyRequest(UUID id, DenialDto denialDto);
 
+    // Act on a Form that has waited too long on an approver. Supervisor and Department Head approvals are given
+    // automatically, and a Benco's is escalated to their supervisor. Returns false if the Form has already moved on:
+    Mono<Boolean> escalate(UUID id, Status status, String approver);
+
+    // Approve a batch of Forms awaiting the given approver. Streams a result for each Form:
+    Flux<BatchResultDto> batchApprove(List<UUID> ids, String approver);
+
+    // Deny a batch of Forms. Streams a result for each Form:
+    Flux<BatchResultDto> batchDeny(List<UUID> ids, DenialDto denialDto);
+
     // Generate a pre-signed URL to allow user to upload file directly to S3 from their own machine:
     Mono<UploadUrlResponse> generateUploadUrl(UUID formId, String contentType, AttachmentType attachmentType);
 
-    // // Update the Form's attachment fields after a successful upload:
+    // Update the Form's attachment fields after a successful upload. The key must already have been verified:
     Mono<AttachmentUpdateDto> updateAttachmentField(UUID id, AttachmentType attachmentType, String key);
 
+    // Update several of the Form's attachment fields at once. The keys must already have been verified:
+    Flux<AttachmentUpdateDto> updateAttachmentFields(UUID id, Map<AttachmentType, String> keys);
+
     // Generate a pre-signed URL to allow user to download file from S3:
     Mono<String> generateDownloadUrl(UUID id, AttachmentType attachmentType);
+
+    // Generate pre-signed URLs to download each of the Form's attachments that have been uploaded:
+    Mono<Map<AttachmentType, String>> generateDownloadUrls(UUID id);
 }
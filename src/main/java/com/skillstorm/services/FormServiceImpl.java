@@ -2,106 +2,266 @@ package com.skillstorm.services;
 
 import com.skillstorm.constants.*;
 import com.skillstorm.dtos.*;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.entities.FormByUsername;
+import com.skillstorm.entities.OutboxMessage;
 import com.skillstorm.exceptions.FormNotFoundException;
 import com.skillstorm.exceptions.InsufficientNoticeException;
+import com.skillstorm.exceptions.InvalidPageTokenException;
+import com.skillstorm.exceptions.InvalidStatusTransitionException;
 import com.skillstorm.exceptions.RequestAlreadyAwardedException;
 import com.skillstorm.exceptions.UnsupportedFileTypeException;
+import com.skillstorm.messaging.CorrelationRegistry;
+import com.skillstorm.messaging.DeadLetterRouter;
+import com.skillstorm.messaging.MessagePublisher;
+import com.skillstorm.messaging.Outbox;
+import com.skillstorm.messaging.RequestReplyClient;
+import com.skillstorm.repositories.FormByUsernameRepository;
 import com.skillstorm.repositories.FormRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.MonoSink;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class FormServiceImpl implements FormService {
 
+    // How many times a conditional write is retried against the latest version of a Form before giving up:
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
     private final FormRepository formRepository;
+    private final FormByUsernameRepository formByUsernameRepository;
     private final S3Service s3Service;
-    private final RabbitTemplate rabbitTemplate;
-    private final Map<String, MonoSink<UserDto>> lookupCorrelationMap;
-    private final Map<String, MonoSink<ReimbursementMessageDto>> reimbursementCorrelationMap;
+    private final MessagePublisher messagePublisher;
+    private final Outbox outbox;
+    private final RequestReplyClient requestReplyClient;
+    private final DeadLetterRouter deadLetterRouter;
+    private final ApproverCache approverCache;
+    private final CorrelationRegistry<UserDto> lookupCorrelationRegistry;
+    private final CorrelationRegistry<ReimbursementMessageDto> reimbursementCorrelationRegistry;
+    private final Counter autoApprovalsProcessed;
+    private final Counter autoApprovalsRetried;
+    private final Counter autoApprovalsDeadLettered;
+
+    // Number of Forms fetched, planned, and written concurrently during a batch approval:
+    @Value("${batch-approval.concurrency:16}")
+    private int batchConcurrency = 16;
+
+    // Largest page a client may ask for when paging through all Forms:
+    @Value("${forms.paging.max-page-size:500}")
+    private int maxPageSize = 500;
+
+    // Number of rows fetched from Cassandra per round trip while streaming all Forms:
+    @Value("${forms.paging.stream-fetch-size:500}")
+    private int streamFetchSize = 500;
+
+    // Token ranges the form table is split into when rebuilding the forms_by_username index, and how many are read at once:
+    @Value("${forms.reindex.splits:64}")
+    private int reindexSplits = 64;
+
+    @Value("${forms.reindex.concurrency:4}")
+    private int reindexConcurrency = 4;
+
+    // Send each inbox hand-off as a single InboxUpdate rather than an ApprovalRequest and a DeletionRequest. Only enable
+    // once the MessageService consumes the inbox-update-queue:
+    @Value("${messaging.inbox.combined-updates:false}")
+    private boolean combinedInboxUpdates = false;
 
     @Autowired
-    public FormServiceImpl(FormRepository formRepository, S3Service s3Service, RabbitTemplate rabbitTemplate) {
+    public FormServiceImpl(FormRepository formRepository, FormByUsernameRepository formByUsernameRepository, S3Service s3Service, MessagePublisher messagePublisher,
+                           Outbox outbox, RequestReplyClient requestReplyClient, DeadLetterRouter deadLetterRouter, ApproverCache approverCache, CorrelationRegistry<UserDto> lookupCorrelationRegistry,
+                           CorrelationRegistry<ReimbursementMessageDto> reimbursementCorrelationRegistry, MeterRegistry meterRegistry) {
         this.formRepository = formRepository;
+        this.formByUsernameRepository = formByUsernameRepository;
         this.s3Service =s3Service;
-        this.rabbitTemplate = rabbitTemplate;
-        this.lookupCorrelationMap = new ConcurrentHashMap<>();
-        this.reimbursementCorrelationMap = new ConcurrentHashMap<>();
+        this.messagePublisher = messagePublisher;
+        this.outbox = outbox;
+        this.requestReplyClient = requestReplyClient;
+        this.deadLetterRouter = deadLetterRouter;
+        this.approverCache = approverCache;
+        this.lookupCorrelationRegistry = lookupCorrelationRegistry;
+        this.reimbursementCorrelationRegistry = reimbursementCorrelationRegistry;
+        this.autoApprovalsProcessed = autoApprovalCounter(meterRegistry, "processed");
+        this.autoApprovalsRetried = autoApprovalCounter(meterRegistry, "retried");
+        this.autoApprovalsDeadLettered = autoApprovalCounter(meterRegistry, "dead.lettered");
+    }
+
+    private static Counter autoApprovalCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("auto.approvals")
+                .description("Automatic approval messages by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     // Create new Form. Verify event start date is at least a week from today:
     @Override
     public Mono<FormDto> createForm(FormDto newForm) {
-        LocalDate eventDate = LocalDate.parse(newForm.getDate());
-        return (eventDate.minusDays(7).isBefore(LocalDate.now())) ?
-                Mono.error(new InsufficientNoticeException("notice.not.sufficient")) :
-                formRepository.save(newForm.mapToEntity())
-                        .map(FormDto::new);
+        LocalDate eventDate = newForm.getDate();
+        if(eventDate.minusDays(7).isBefore(LocalDate.now())) {
+            return Mono.error(new InsufficientNoticeException("notice.not.sufficient"));
+        }
+        Form form = newForm.mapToEntity();
+        return formRepository.saveWithIndex(form, null, FormEvent.created(form))
+                .map(FormDto::new);
     }
 
     // Find Form by ID:
     @Override
     public Mono<FormDto> findById(UUID id) {
+        return findFormById(id)
+                .map(FormDto::new);
+    }
+
+    // Find the Form entity by ID. State changes hold on to the entity so the stale forms_by_username row can be removed:
+    private Mono<Form> findFormById(UUID id) {
         return formRepository.findById(id)
-                .map(FormDto::new)
                 .switchIfEmpty(Mono.error(new FormNotFoundException("form.not.found", id)));
     }
 
-    // Find all Forms:
+    // Find one page of Forms. The page token wraps Cassandra's paging state so the next request resumes where this one left off:
+    @Override
+    public Mono<FormPageDto> findPage(int pageSize, String pageToken, Status status, EventType eventType) {
+        ByteBuffer pagingState;
+        try {
+            pagingState = (pageToken == null || pageToken.isBlank()) ? null : ByteBuffer.wrap(Base64.getUrlDecoder().decode(pageToken));
+        } catch(IllegalArgumentException e) {
+            return Mono.error(new InvalidPageTokenException("page.token.invalid"));
+        }
+
+        return formRepository.findPage(Math.max(1, Math.min(pageSize, maxPageSize)), pagingState, status, eventType)
+                .map(slice -> {
+                    List<FormDto> forms = slice.getContent().stream()
+                            .map(FormDto::new)
+                            .toList();
+                    String nextPageToken = slice.hasNext() ?
+                            encodePageToken(((CassandraPageRequest) slice.nextPageable()).getPagingState()) :
+                            null;
+                    return new FormPageDto(forms, nextPageToken);
+                });
+    }
+
+    private static String encodePageToken(ByteBuffer pagingState) {
+        ByteBuffer buffer = pagingState.duplicate();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Stream all Forms. Rows are fetched a page at a time as the client reads them, and cancelling the subscription
+    // stops the scan:
     @Override
-    public Flux<FormDto> findAll() {
-        return formRepository.findAll()
+    public Flux<FormDto> streamAll(Status status, EventType eventType) {
+        return formRepository.streamAll(streamFetchSize, status, eventType)
                 .map(FormDto::new);
     }
 
-    // Find all active forms for a given User. Filter by Status:
-    // TODO: Consider denormalizing data into a separate table to query forms by username. For now we'll just include username as
-    // TODO: a Clustering Key so that at least we're searching across partitions using sorted data. Will filter by status using Java since
-    // TODO: result set for a single User will always be small
+    // Find all active forms for a given User. Filter by Status. Both are single partition reads against the forms_by_username table:
     @Override
     public Flux<FormDto> findAllFormsByUsernameAndStatus(String username, String status) {
-        return formRepository.findAllFormsByUsername(username)
-                .filter(form -> status == null || status.equalsIgnoreCase(form.getStatus().toString()))
+        Flux<FormByUsername> forms = (status == null) ?
+                formByUsernameRepository.findAllByUsername(username) :
+                formByUsernameRepository.findAllByUsernameAndStatus(username, status.toUpperCase());
+        return forms.map(FormByUsername::toForm)
                 .map(FormDto::new);
     }
 
-    // Update Form by ID:
+    // Rebuild forms_by_username from the form table. Safe to run while Forms are being changed, and to run again:
+    @Override
+    public Mono<Long> reindexAll() {
+        return formRepository.reindexAll(reindexSplits, reindexConcurrency, streamFetchSize);
+    }
+
+    // Update Form by ID. The write is conditional on the Form not having changed since it was read so that an edit can't
+    // undo a concurrent approval, or write back a stale cached copy. A lost write is retried against the latest version:
     @Override
     public Mono<FormDto> updateById(UUID id, FormDto updatedForm) {
-        return findById(id).flatMap(existingForm -> {
-            // Set the read-only fields that we don't want the user changing in an edit:
+        return updateById(id, updatedForm, 0);
+    }
+
+    private Mono<FormDto> updateById(UUID id, FormDto updatedForm, int attempt) {
+        return findFormById(id).flatMap(existingEntity -> {
+            FormDto existingForm = new FormDto(existingEntity);
+            // Set the read-only fields that we don't want the user changing in an edit. Username is part of the primary key:
             updatedForm.setId(id);
+            updatedForm.setUsername(existingForm.getUsername());
             updatedForm.setAttachment(existingForm.getAttachment());
             updatedForm.setSupervisorAttachment(existingForm.getSupervisorAttachment());
             updatedForm.setDepartmentHeadAttachment(existingForm.getDepartmentHeadAttachment());
+            updatedForm.setCompletionAttachment(existingForm.getCompletionAttachment());
             updatedForm.setStatus(existingForm.getStatus());
             updatedForm.setReasonDenied(existingForm.getReasonDenied());
             updatedForm.setExcessFundsApproved(existingForm.isExcessFundsApproved());
             updatedForm.setReimbursement(existingForm.getReimbursement());
-            return formRepository.save(updatedForm.mapToEntity())
-                    .map(FormDto::new);
+            Form updatedEntity = updatedForm.mapToEntity();
+            return formRepository.updateIfUnchanged(updatedEntity, existingEntity, FormEvent.edited(existingEntity, updatedEntity))
+                    .flatMap(applied -> {
+                        if(applied) {
+                            return Mono.just(new FormDto(updatedEntity));
+                        }
+                        return (attempt < MAX_WRITE_ATTEMPTS) ?
+                                updateById(id, updatedForm, attempt + 1) :
+                                Mono.error(new InvalidStatusTransitionException("form.concurrently.modified"));
+                    });
         });
     }
 
-    // Delete Form by ID:
-    // TODO: Check for existence prior to deleting
+    // Delete Form by ID. The Form is read first so that its forms_by_username row can be located:
     @Override
     public Mono<Void> deleteById(UUID id) {
-        return formRepository.deleteById(id);
+        return findFormById(id)
+                .flatMap(form -> formRepository.deleteWithIndex(form, FormEvent.removed(form, FormEventType.DELETED)));
+    }
+
+    // Move a Form to the target status with a compare-and-set on the Form as it was read, applying any other changes that
+    // go along with the transition. If another request changed the Form first, the latest version is re-read and the
+    // transition retried so long as the transition table still allows it. The messages the transition sends are written
+    // to the outbox as pending before it is attempted, then marked applied or aborted, and relayed to RabbitMQ in the
+    // background; any left pending by a failure part way are resolved against the Form before they are relayed, so they
+    // go out only if the transition applied. The transition is recorded in the form event history as waiting on the
+    // approver, if there is one:
+    private Mono<Form> transition(Form current, Status target, Consumer<FormDto> changes, String approver, Function<Form, List<OutboxMessage>> messages) {
+        return transition(current, target, changes, approver, messages, 0);
+    }
+
+    private Mono<Form> transition(Form current, Status target, Consumer<FormDto> changes, String approver, Function<Form, List<OutboxMessage>> messages, int attempt) {
+        if(!current.getStatus().canTransitionTo(target)) {
+            return Mono.error(new InvalidStatusTransitionException("status.transition.invalid", current.getStatus(), target));
+        }
+
+        FormDto formDto = new FormDto(current);
+        formDto.setStatus(target);
+        changes.accept(formDto);
+        Form updated = formDto.mapToEntity();
+
+        return formRepository.compareAndSetStatus(current, updated, FormEvent.transition(current, updated, approver), messages.apply(updated))
+                .flatMap(applied -> {
+                    if(applied) {
+                        return Mono.just(updated);
+                    }
+                    return (attempt < MAX_WRITE_ATTEMPTS) ?
+                            findFormById(current.getId()).flatMap(latest -> transition(latest, target, changes, approver, messages, attempt + 1)) :
+                            Mono.error(new InvalidStatusTransitionException("form.concurrently.modified"));
+                });
     }
 
     // Get all Event Types:
@@ -122,41 +282,38 @@ public class FormServiceImpl implements FormService {
         return Flux.fromArray(Status.values());
     }
 
-    // Submit Form for Supervisor Approval:
+    // Submit Form for Supervisor Approval. Messages are written with the status change so that a lost race never leaves
+    // a request in an approver's inbox:
     @Override
     public Mono<FormDto> submitForApproval(UUID id, String username) {
-        // Pull the Form from the database and get the user's supervisor from the User-Service:
-        return findById(id).flatMap(formDto -> getApprover(username, Queues.SUPERVISOR_LOOKUP, Queues.SUPERVISOR_RESPONSE)
-                .flatMap(supervisor -> {
+        // Pull the Form from the database and get the user's supervisor from the User-Service at the same time:
+        return withNextApprover(id, getApprover(username, Queues.SUPERVISOR_LOOKUP, Queues.SUPERVISOR_RESPONSE),
+                (form, nextApprover) -> nextApprover.flatMap(supervisor -> {
                     // If Form contains Supervisor pre-approval or if the Supervisor is also a Department Head, skip Supervisor approval step:
-                    if (formDto.getSupervisorAttachment() != null || "DEPARTMENT_HEAD".equalsIgnoreCase(supervisor.getRole())) {
+                    if (form.getSupervisorAttachment() != null || "DEPARTMENT_HEAD".equalsIgnoreCase(supervisor.getRole())) {
                         return supervisorApprove(id, supervisor.getUsername());
                     }
 
                     // Otherwise, submit to Supervisor for approval:
-                    formDto.setStatus(Status.AWAITING_SUPERVISOR_APPROVAL);
-                    return sendRequestForApproval(formDto.getId(), supervisor.getUsername(), formDto.getUsername(), formDto.getDate())
-                            .then(formRepository.save(formDto.mapToEntity())
-                                    .map(FormDto::new));
+                    return transition(form, Status.AWAITING_SUPERVISOR_APPROVAL, formDto -> { }, supervisor.getUsername(),
+                                    submitted -> List.of(approvalRequest(submitted, supervisor.getUsername(), submitted.getUsername())))
+                            .map(FormDto::new);
                 }));
     }
 
-    // Supervisor approve request:
-    // TODO: Should probably set up a Queue specifically for approval actions so that generating a message to the next approver and deleting it from the inbox of the current approver
-    // happens in a single request to the message service:
+    // Supervisor approve request. The Department Head is looked up while the Form is read, and the request moves from the
+    // Supervisor's inbox to the Department Head's in one hand-off:
     @Override
     public Mono<FormDto> supervisorApprove(UUID id, String supervisor) {
-        return findById(id)
-                .flatMap(formDto -> {
-                    if(formDto.getDepartmentHeadAttachment() != null) {
+        return withNextApprover(id, getApprover(supervisor, Queues.DEPARTMENT_HEAD_LOOKUP, Queues.DEPARTMENT_HEAD_RESPONSE),
+                (form, nextApprover) -> {
+                    if(form.getDepartmentHeadAttachment() != null) {
                         return departmentHeadApprove(id,  supervisor);
                     }
 
-                    formDto.setStatus(Status.AWAITING_DEPARTMENT_HEAD_APPROVAL);
-                    return getApprover(supervisor, Queues.DEPARTMENT_HEAD_LOOKUP, Queues.DEPARTMENT_HEAD_RESPONSE)
-                            .flatMap(departmentHead -> sendRequestForApproval(id, departmentHead.getUsername(), formDto.getUsername(), formDto.getDate()))
-                            .then(removeRequestFromInbox(id, supervisor, formDto.getUsername(), formDto.getDate()))
-                            .then(formRepository.save(formDto.mapToEntity()))
+                    return nextApprover.flatMap(departmentHead -> transition(form, Status.AWAITING_DEPARTMENT_HEAD_APPROVAL, formDto -> { }, departmentHead.getUsername(),
+                                    approved -> inboxHandOff(approved.getId(), inboxEntry(approved, departmentHead.getUsername(), approved.getUsername()),
+                                            inboxEntry(approved, supervisor, approved.getUsername()))))
                             .map(FormDto::new);
                 });
     }
@@ -165,247 +322,371 @@ public class FormServiceImpl implements FormService {
     // but so long as the Benco is responsible for a Department it would resolve the same:
     @Override
     public Mono<FormDto> departmentHeadApprove(UUID id, String departmentHead) {
-        return findById(id)
-                .flatMap(formDto -> {
-                    formDto.setStatus(Status.AWAITING_BENCO_APPROVAL);
-                    return getApprover(departmentHead, Queues.BENCO_LOOKUP, Queues.BENCO_RESPONSE)
-                            .flatMap(benco -> sendRequestForApproval(id, benco.getUsername(), formDto.getUsername(), formDto.getDate()))
-                            .then(formRepository.save(formDto.mapToEntity()))
-                            .map(FormDto::new);
-                });
+        return withNextApprover(id, getApprover(departmentHead, Queues.BENCO_LOOKUP, Queues.BENCO_RESPONSE),
+                (form, nextApprover) -> nextApprover.flatMap(benco -> transition(form, Status.AWAITING_BENCO_APPROVAL, formDto -> { }, benco.getUsername(),
+                                approved -> List.of(approvalRequest(approved, benco.getUsername(), approved.getUsername()))))
+                        .map(FormDto::new));
+    }
+
+    // Read the Form and look up the next approver at the same time, since the lookup only depends on the username. The
+    // lookup is started with the read and handed to the step, which joins on it only if it needs it, so a step that
+    // skips ahead to a later stage is neither held up nor failed by a lookup it doesn't use. Lookups that finish unused
+    // still warm the ApproverCache:
+    private Mono<FormDto> withNextApprover(UUID id, Mono<UserDto> lookup, BiFunction<Form, Mono<UserDto>, Mono<FormDto>> step) {
+        return Mono.defer(() -> {
+            CompletableFuture<UserDto> nextApprover = lookup.toFuture();
+            return findFormById(id).flatMap(form -> step.apply(form, Mono.fromFuture(nextApprover, true)));
+        });
     }
 
-    // Benco approve request:
+    // Benco approve request. The User's allowance is adjusted before the status changes, so if the change loses a race
+    // the adjusted amount is handed back to the User-Service:
     @Override
     public Mono<FormDto> bencoApprove(UUID id) {
-        return findById(id).flatMap(formDto -> sendRequestForApproval(id, formDto.getUsername(), formDto.getUsername(), formDto.getDate())
-                .then(getAdjustedReimbursement(formDto.getUsername(), formDto.getReimbursement()))
-                .flatMap(adjustedReimbursement -> {
-                    formDto.setStatus(Status.PENDING);
-                    formDto.setReimbursement(adjustedReimbursement.getReimbursement());
-                    return formRepository.save(formDto.mapToEntity());
-                }).map(FormDto::new));
+        return findFormById(id).flatMap(form -> getAdjustedReimbursement(form.getUsername(), new FormDto(form).getReimbursement())
+                .flatMap(adjustedReimbursement -> transition(form, Status.PENDING, formDto -> formDto.setReimbursement(adjustedReimbursement.getReimbursement()), null,
+                                approved -> List.of(approvalRequest(approved, approved.getUsername(), approved.getUsername())))
+                        .onErrorResume(InvalidStatusTransitionException.class, e -> sendCancellationMessage(adjustedReimbursement)
+                                .then(Mono.error(e))))
+                .map(FormDto::new));
     }
 
     // Awards the reimbursement after satisfactory completion of event:
     @Override
     public Mono<FormDto> awardReimbursement(UUID id) {
-        return findById(id).flatMap(formDto -> {
-            formDto.setStatus(Status.APPROVED);
-            return sendRequestForApproval(id, formDto.getUsername(), formDto.getUsername(), formDto.getDate())
-                    .then(formRepository.save(formDto.mapToEntity()))
-                    .map(FormDto::new);
-        });
+        return findFormById(id).flatMap(form -> transition(form, Status.APPROVED, formDto -> { }, null,
+                        awarded -> List.of(approvalRequest(awarded, awarded.getUsername(), awarded.getUsername())))
+                .map(FormDto::new));
     }
 
-    // Cancel a Reimbursement Request:
+    // Cancel a Reimbursement Request. The delete is conditional on the status that decided whether the User's allowance
+    // needs restoring, and is retried against the latest status if it changed in the meantime. Any message restoring the
+    // allowance is written to the outbox along with the delete:
     @Override
     public Mono<Void> cancelRequest(UUID id) {
-        return findById(id).flatMap(form -> {
+        return cancelRequest(id, 0);
+    }
+
+    private Mono<Void> cancelRequest(UUID id, int attempt) {
+        return findFormById(id).flatMap(form -> {
             // If it has already been approved, it cannot be canceled. May also decide to disable ability to cancel requests that have been explicitly denied for record keeping purposes:
             if("APPROVED".equalsIgnoreCase(form.getStatus().name())) {
                 return Mono.error(new RequestAlreadyAwardedException("request.already.awarded"));
             }
-            // If it is not Pending then no adjustments to User's allowance are necessary, so we can just delete the entry:
-            if(!"PENDING".equalsIgnoreCase(form.getStatus().name())) {
-                return formRepository.deleteById(id);
-            }
-            // Otherwise, we need to return the pending amount to the User's allowance. May also need to find all currently Pending forms for the User and re-run them to utilize the newly available funds:
-            ReimbursementMessageDto reimbursementMessage = new ReimbursementMessageDto(form.getUsername(), form.getReimbursement());
-            return sendCancellationMessage(reimbursementMessage)
-                    .then(formRepository.deleteById(id));
+            // If it is not Pending then no adjustments to User's allowance are necessary. Otherwise, we need to return the pending amount to the User's allowance.
+            // May also need to find all currently Pending forms for the User and re-run them to utilize the newly available funds:
+            List<OutboxMessage> messages = !"PENDING".equalsIgnoreCase(form.getStatus().name()) ? List.of() :
+                    List.of(outbox.message(id, Queues.CANCEL_REQUEST, new ReimbursementMessageDto(form.getUsername(), form.getReimbursement())));
+            return formRepository.deleteIfUnchanged(form, FormEvent.removed(form, FormEventType.CANCELLED), messages).flatMap(deleted -> {
+                if(!deleted) {
+                    return (attempt < MAX_WRITE_ATTEMPTS) ?
+                            cancelRequest(id, attempt + 1) :
+                            Mono.error(new InvalidStatusTransitionException("form.concurrently.modified"));
+                }
+                return Mono.empty();
+            });
         });
     }
 
     private Mono<Void> sendCompletionVerificationRequest(FormDto formDto, String approver) {
-        ApprovalRequestDto approvalRequest = new ApprovalRequestDto(formDto.getId(), approver, formDto.getUsername(), formDto.getDate());
-        return Mono.fromRunnable(() -> rabbitTemplate.convertAndSend(Queues.COMPLETION_VERIFICATION.toString(), approver));
+        ApprovalRequestDto approvalRequest = new ApprovalRequestDto(formDto.getId(), approver, formDto.getUsername(), formDto.getDate().toString());
+        return messagePublisher.publish(Queues.COMPLETION_VERIFICATION.toString(), approver);
     }
 
-    // Send message to User-Service to restore balance from Pending form being cancelled by the User. If status is other than Pending no cross-service communication
-    //  is needed to cancel a request:
+    // Send message to User-Service to restore an allowance that was adjusted for a status change that was then never applied:
     private Mono<Void> sendCancellationMessage(ReimbursementMessageDto reimbursementMessage) {
-        return Mono.fromRunnable(() -> rabbitTemplate.convertAndSend(Queues.CANCEL_REQUEST.toString(), reimbursementMessage));
+        return messagePublisher.publish(Queues.CANCEL_REQUEST.toString(), reimbursementMessage);
     }
 
-    // Send a request to the User-Service to look up an approver based on the employee's username (direct supervisor, department head, benco):
+    // Look up an approver based on the employee's username (direct supervisor, department head, benco). Served from the
+    // ApproverCache when possible, otherwise a request is sent to the User-Service:
     private Mono<UserDto> getApprover(String username, Queues lookupQueue, Queues responseQueue) {
-        return Mono.create(sink -> {
-            String correlationId = UUID.randomUUID().toString();
-
-            // Put the sink into the correlation map for later response handling
-            lookupCorrelationMap.put(correlationId, sink);
+        return approverCache.get(username, lookupQueue, () -> requestApprover(username, lookupQueue, responseQueue));
+    }
 
-            // Set up the RabbitMQ message to send
-            rabbitTemplate.convertAndSend(lookupQueue.toString(), username, message -> {
-                message.getMessageProperties().setCorrelationId(correlationId);
-                message.getMessageProperties().setReplyTo(responseQueue.toString());
-                return message;
-            });
-        });
+    // Send a request to the User-Service to look up an approver. Fails with a QueueResponseTimeoutException if no reply arrives in time:
+    private Mono<UserDto> requestApprover(String username, Queues lookupQueue, Queues responseQueue) {
+        return requestReplyClient.request(lookupCorrelationRegistry, lookupQueue, responseQueue, username, UserDto.class);
     }
 
-    // Return approver to getApprover:
-    @RabbitListener(queues = {"user-response-queue", "supervisor-response-queue", "department-head-response-queue", "benco-response-queue"})
-    public Mono<Void> awaitApproverResponse(@Payload UserDto approver, @Header(AmqpHeaders.CORRELATION_ID) String correlationId) {
-        MonoSink<UserDto> sink = lookupCorrelationMap.remove(correlationId);
-        if(sink != null) {
-            sink.success(approver);
-        }
-        return Mono.empty();
+    // Return approver to getApprover. Replies are handled inline on the reply container, so the listener is synchronous
+    // and acks can be batched. Not started when replies use direct reply-to:
+    @RabbitListener(queues = {"user-response-queue", "supervisor-response-queue", "department-head-response-queue", "benco-response-queue"},
+            containerFactory = "replyListenerContainerFactory", autoStartup = "#{'${messaging.replies.mode:queues}' == 'queues'}")
+    public void awaitApproverResponse(@Payload UserDto approver, @Header(AmqpHeaders.CORRELATION_ID) String correlationId) {
+        lookupCorrelationRegistry.complete(correlationId, approver);
     }
 
     // Send a message to User-Service to update User's yearly allowance to reflect the value of the approved Form
     private Mono<ReimbursementMessageDto> getAdjustedReimbursement(String username, BigDecimal reimbursement) {
-        return Mono.create(sink -> {
-            String correlationId = UUID.randomUUID().toString();
-            reimbursementCorrelationMap.put(correlationId, sink);
-
-            ReimbursementMessageDto reimbursementData = new ReimbursementMessageDto(username, reimbursement);
-            rabbitTemplate.convertAndSend(Queues.ADJUSTMENT_REQUEST.toString(), reimbursementData, message -> {
-                message.getMessageProperties().setCorrelationId(correlationId);
-                message.getMessageProperties().setReplyTo(Queues.ADJUSTMENT_RESPONSE.toString());
-                return message;
-            });
-        });
+        ReimbursementMessageDto reimbursementData = new ReimbursementMessageDto(username, reimbursement);
+        return requestReplyClient.request(reimbursementCorrelationRegistry, Queues.ADJUSTMENT_REQUEST, Queues.ADJUSTMENT_RESPONSE,
+                reimbursementData, ReimbursementMessageDto.class);
     }
 
     // Returns an adjusted amount to account for the fact that User's allowance may not fully cover the amount on the Form:
-    @RabbitListener(queues = "adjustment-response-queue")
-    public Mono<Void> awaitAdjustmentResponse(@Payload ReimbursementMessageDto adjustedReimbursement, @Header(AmqpHeaders.CORRELATION_ID) String correlationId) {
-        MonoSink<ReimbursementMessageDto> sink = reimbursementCorrelationMap.remove(correlationId);
-        if(sink != null) {
-            sink.success(adjustedReimbursement);
-        }
-        return Mono.empty();
+    @RabbitListener(queues = "adjustment-response-queue", containerFactory = "replyListenerContainerFactory",
+            autoStartup = "#{'${messaging.replies.mode:queues}' == 'queues'}")
+    public void awaitAdjustmentResponse(@Payload ReimbursementMessageDto adjustedReimbursement, @Header(AmqpHeaders.CORRELATION_ID) String correlationId) {
+        reimbursementCorrelationRegistry.complete(correlationId, adjustedReimbursement);
+    }
+
+    // ApprovalRequest for an approver's inbox:
+    private OutboxMessage approvalRequest(Form form, String approver, String requester) {
+        return outbox.message(form.getId(), Queues.APPROVAL_REQUEST, inboxEntry(form, approver, requester));
+    }
+
+    // A Form's entry in an inbox, keyed by the inbox's owner:
+    private static ApprovalRequestDto inboxEntry(Form form, String approver, String requester) {
+        return new ApprovalRequestDto(form.getId(), approver.toLowerCase(), requester, form.getDate().toString());
     }
 
-    // Send ApprovalRequest to an approver's inbox:
-    private Mono<Void> sendRequestForApproval(UUID formId, String approver, String requester, String eventDate) {
-        ApprovalRequestDto approvalRequest = new ApprovalRequestDto(formId, approver.toLowerCase(), requester, eventDate);
-        return Mono.fromRunnable(() -> rabbitTemplate.convertAndSend(Queues.APPROVAL_REQUEST.toString(), approvalRequest));
+    // Move a request from one inbox to another. Sent to the MessageService as a single InboxUpdate when combined inbox
+    // updates are enabled, otherwise as an ApprovalRequest to add it and a DeletionRequest to clear it:
+    private List<OutboxMessage> inboxHandOff(UUID formId, ApprovalRequestDto add, ApprovalRequestDto remove) {
+        if(combinedInboxUpdates) {
+            return List.of(outbox.message(formId, Queues.INBOX_UPDATE, new InboxUpdateDto(add, remove)));
+        }
+        return List.of(outbox.message(formId, Queues.APPROVAL_REQUEST, add), outbox.message(formId, Queues.DELETION_REQUEST, remove));
     }
 
-    // Send DeletionRequest to clear message from User's inbox:
-    private Mono<Void> removeRequestFromInbox(UUID formId, String approver, String requester, String eventDate) {
-        ApprovalRequestDto approvalRequest = new ApprovalRequestDto(formId, approver.toLowerCase(), requester, eventDate);
-        return Mono.fromRunnable(() -> rabbitTemplate.convertAndSend(Queues.DELETION_REQUEST.toString(), approvalRequest));
+    // Handle automatic approvals. The listener returns the whole approval, so the message is only acked once the status
+    // change has been written, and the number in flight is bounded by the work container's consumers and prefetch.
+    // Failures are handed to the DeadLetterRouter, which sends the message round a retry queue and acks it here so the
+    // consumer isn't held up while it waits. A Form that no longer exists, or one that retries can't fix, is parked:
+    @RabbitListener(queues = "automatic-approval-queue", containerFactory = "workListenerContainerFactory")
+    public Mono<Void> handleAutomaticApproval(@Payload ApprovalRequestDto approvalRequest, Message message) {
+        return Mono.defer(() -> approveAutomatically(approvalRequest))
+                .doOnSuccess(done -> autoApprovalsProcessed.increment())
+                .onErrorResume(e -> (e instanceof FormNotFoundException ? deadLetterRouter.park(message, e) : deadLetterRouter.retryOrPark(message, e))
+                        .doOnNext(outcome -> (outcome == DeadLetterRouter.Outcome.RETRIED ? autoApprovalsRetried : autoApprovalsDeadLettered).increment())
+                        .then());
     }
 
-    // Handle automatic approvals:
-    // TODO: Currently will not execute without explicitly subscribing. Should revise later to something that follows best practice:
-    @RabbitListener(queues = "automatic-approval-queue")
-    public Mono<Void> handleAutomaticApproval(@Payload ApprovalRequestDto approvalRequest) {
+    private Mono<Void> approveAutomatically(ApprovalRequestDto approvalRequest) {
         return getApprover(approvalRequest.getUsername(), Queues.USER_LOOKUP, Queues.USER_RESPONSE)
-                .map(user -> {
+                .flatMap(user -> {
                     // Username and role should correspond to the user who was supposed to approve the request:
                     String username = user.getUsername().toLowerCase();
                     String role = user.getRole().toLowerCase();
                     UUID formId = approvalRequest.getFormId();
 
-                    switch(role) {
-                        case "benco" -> {
-                            return sendEscalationEmail(username)
-                                    .subscribe();
-                        }
-                        case "department_head" -> {
-                            return departmentHeadApprove(formId, username)
-                                    .subscribe();
-                        }
-                        default -> {
-                            return supervisorApprove(formId, username)
-                                    .subscribe();
-                        }
-                    }
-                }).then();
+                    return switch(role) {
+                        case "benco" -> findFormById(formId).flatMap(form -> sendEscalationEmail(form, username));
+                        case "department_head" -> departmentHeadApprove(formId, username).then();
+                        default -> supervisorApprove(formId, username).then();
+                    };
+                })
+                // If the approver acted before the deadline the Form has already moved on, so there's nothing left to do:
+                .onErrorResume(InvalidStatusTransitionException.class, e -> movedOn(e) ? Mono.empty() : Mono.error(e));
+    }
+
+    // The Form was no longer in the status the approval expected. The message carries the attempted transition after
+    // its key, so only the prefix is compared:
+    private static boolean movedOn(InvalidStatusTransitionException e) {
+        return e.getMessage().startsWith("status.transition.invalid");
     }
 
-    // TODO: Actual email implementation may be beyond scope of the project, but will eventually
-    // TODO: look up Benco's supervisor and send message to MessageService:
-    private Mono<Void> sendEscalationEmail(String username) {
-        return Mono.empty();
+    // Escalate a Benco's overdue approval by adding the request to their supervisor's inbox as well. Either of them may
+    // then approve it, since Benco approval doesn't check who gives it:
+    private Mono<Void> sendEscalationEmail(Form form, String benco) {
+        return getApprover(benco, Queues.SUPERVISOR_LOOKUP, Queues.SUPERVISOR_RESPONSE)
+                .flatMap(supervisor -> messagePublisher.publish(Queues.APPROVAL_REQUEST.toString(),
+                        inboxEntry(form, supervisor.getUsername(), form.getUsername())));
+    }
+
+    // Called by the EscalationScheduler once a Form's deadline has passed. The Form is only escalated if it is still
+    // waiting in the status it was filed under, so a stale deadline is a no-op:
+    @Override
+    public Mono<Boolean> escalate(UUID id, Status status, String approver) {
+        return formRepository.findById(id)
+                .filter(form -> form.getStatus() == status)
+                .flatMap(form -> switch(status) {
+                    case AWAITING_SUPERVISOR_APPROVAL -> supervisorApprove(id, approver).thenReturn(true);
+                    case AWAITING_DEPARTMENT_HEAD_APPROVAL -> departmentHeadApprove(id, approver).thenReturn(true);
+                    case AWAITING_BENCO_APPROVAL -> sendEscalationEmail(form, approver).thenReturn(true);
+                    default -> Mono.just(false);
+                })
+                // The approver may act between the read and the approval:
+                .onErrorResume(InvalidStatusTransitionException.class, e -> movedOn(e) ? Mono.just(false) : Mono.error(e))
+                .defaultIfEmpty(false);
     }
 
     // Deny Request Form:
     @Override
     public Mono<FormDto> denyRequest(UUID id, DenialDto denialDto) {
-        return findById(id).flatMap(formDto -> {
-            formDto.setStatus(Status.DENIED);
-            formDto.setReasonDenied(denialDto.getReason());
-            return sendRequestForApproval(id, formDto.getUsername(), denialDto.getApprover(), formDto.getDate())
-                    .then(removeRequestFromInbox(id, denialDto.getApprover(), formDto.getUsername(), formDto.getDate()))
-                    .then(formRepository.save(formDto.mapToEntity()))
-                    .map(FormDto::new);
-        });
+        return findFormById(id).flatMap(form -> transition(form, Status.DENIED, formDto -> formDto.setReasonDenied(denialDto.getReason()), null,
+                        denied -> inboxHandOff(denied.getId(), inboxEntry(denied, denied.getUsername(), denialDto.getApprover()),
+                                inboxEntry(denied, denialDto.getApprover(), denied.getUsername())))
+                .map(FormDto::new));
+    }
+
+    // Approve a batch of Forms. Forms are fetched concurrently and each next approver is resolved once for the whole batch
+    // since it depends only on the approver and the stage. Inbox messages are written to the outbox with each status change:
+    @Override
+    public Flux<BatchResultDto> batchApprove(List<UUID> ids, String approver) {
+        Map<Queues, Mono<UserDto>> nextApprovers = new ConcurrentHashMap<>();
+        return Flux.fromIterable(new LinkedHashSet<>(ids))
+                .flatMap(id -> findFormById(id)
+                        .flatMap(form -> planApproval(form, approver, nextApprovers))
+                        .onErrorResume(e -> Mono.just(PlannedChange.done(BatchResultDto.failure(id, e.getMessage())))),
+                        batchConcurrency)
+                .flatMap(this::applyPlannedChange, batchConcurrency);
+    }
+
+    // Deny a batch of Forms. No lookups are required so each Form is planned directly from its current state:
+    @Override
+    public Flux<BatchResultDto> batchDeny(List<UUID> ids, DenialDto denialDto) {
+        return Flux.fromIterable(new LinkedHashSet<>(ids))
+                .flatMap(id -> findFormById(id)
+                        .map(form -> planDenial(form, denialDto))
+                        .onErrorResume(e -> Mono.just(PlannedChange.done(BatchResultDto.failure(id, e.getMessage())))),
+                        batchConcurrency)
+                .flatMap(this::applyPlannedChange, batchConcurrency);
+    }
+
+    // Work out the next state of a Form for the approval stage it is currently in. Mirrors supervisorApprove and
+    // departmentHeadApprove. Benco approval needs a per-User reimbursement adjustment so it runs through bencoApprove:
+    private Mono<PlannedChange> planApproval(Form form, String approver, Map<Queues, Mono<UserDto>> nextApprovers) {
+        FormDto formDto = new FormDto(form);
+        String eventDate = formDto.getDate().toString();
+        return switch (form.getStatus()) {
+            case AWAITING_SUPERVISOR_APPROVAL -> {
+                boolean skipDepartmentHead = formDto.getDepartmentHeadAttachment() != null;
+                Queues lookupQueue = skipDepartmentHead ? Queues.BENCO_LOOKUP : Queues.DEPARTMENT_HEAD_LOOKUP;
+                Queues responseQueue = skipDepartmentHead ? Queues.BENCO_RESPONSE : Queues.DEPARTMENT_HEAD_RESPONSE;
+                formDto.setStatus(skipDepartmentHead ? Status.AWAITING_BENCO_APPROVAL : Status.AWAITING_DEPARTMENT_HEAD_APPROVAL);
+                yield nextApprovers.computeIfAbsent(lookupQueue, queue -> getApprover(approver, lookupQueue, responseQueue).cache())
+                        .map(nextApprover -> PlannedChange.write(form, formDto.mapToEntity(), nextApprover.getUsername(),
+                                new ApprovalRequestDto(form.getId(), nextApprover.getUsername().toLowerCase(), form.getUsername(), eventDate),
+                                new ApprovalRequestDto(form.getId(), approver.toLowerCase(), form.getUsername(), eventDate)));
+            }
+            case AWAITING_DEPARTMENT_HEAD_APPROVAL -> {
+                formDto.setStatus(Status.AWAITING_BENCO_APPROVAL);
+                yield nextApprovers.computeIfAbsent(Queues.BENCO_LOOKUP, queue -> getApprover(approver, Queues.BENCO_LOOKUP, Queues.BENCO_RESPONSE).cache())
+                        .map(benco -> PlannedChange.write(form, formDto.mapToEntity(), benco.getUsername(),
+                                new ApprovalRequestDto(form.getId(), benco.getUsername().toLowerCase(), form.getUsername(), eventDate), null));
+            }
+            case AWAITING_BENCO_APPROVAL -> bencoApprove(form.getId())
+                    .map(approved -> PlannedChange.done(BatchResultDto.success(approved.getId(), approved.getStatus())));
+            default -> Mono.just(PlannedChange.done(BatchResultDto.failure(form.getId(), "form.not.awaiting.approval")));
+        };
+    }
+
+    // Mirrors denyRequest: notify the requester and clear the request from the denying approver's inbox:
+    private PlannedChange planDenial(Form form, DenialDto denialDto) {
+        if(!form.getStatus().canTransitionTo(Status.DENIED)) {
+            return PlannedChange.done(BatchResultDto.failure(form.getId(), "status.transition.invalid"));
+        }
+        FormDto formDto = new FormDto(form);
+        formDto.setStatus(Status.DENIED);
+        formDto.setReasonDenied(denialDto.getReason());
+        return PlannedChange.write(form, formDto.mapToEntity(), null,
+                new ApprovalRequestDto(form.getId(), form.getUsername().toLowerCase(), denialDto.getApprover(), form.getDate().toString()),
+                new ApprovalRequestDto(form.getId(), denialDto.getApprover().toLowerCase(), form.getUsername(), form.getDate().toString()));
+    }
+
+    // Apply a planned change. Each status change is its own compare-and-set since conditional writes can't be batched
+    // across partitions, and its inbox messages are written to the outbox with it:
+    private Mono<BatchResultDto> applyPlannedChange(PlannedChange change) {
+        if(change.result() != null) {
+            return Mono.just(change.result());
+        }
+        List<OutboxMessage> messages = change.deletionRequest() == null ?
+                List.of(outbox.message(change.updated().getId(), Queues.APPROVAL_REQUEST, change.approvalRequest())) :
+                inboxHandOff(change.updated().getId(), change.approvalRequest(), change.deletionRequest());
+        FormEvent event = FormEvent.transition(change.previous(), change.updated(), change.nextApprover());
+        return formRepository.compareAndSetStatus(change.previous(), change.updated(), event, messages)
+                .map(applied -> applied ?
+                        BatchResultDto.success(change.updated().getId(), change.updated().getStatus()) :
+                        BatchResultDto.failure(change.updated().getId(), "form.concurrently.modified"))
+                .onErrorResume(e -> Mono.just(BatchResultDto.failure(change.updated().getId(), e.getMessage())));
+    }
+
+    // A Form's next state within a batch. Either a write still to be applied, or a result that is already final:
+    private record PlannedChange(Form previous, Form updated, String nextApprover, ApprovalRequestDto approvalRequest,
+                                 ApprovalRequestDto deletionRequest, BatchResultDto result) {
+
+        static PlannedChange write(Form previous, Form updated, String nextApprover, ApprovalRequestDto approvalRequest, ApprovalRequestDto deletionRequest) {
+            return new PlannedChange(previous, updated, nextApprover, approvalRequest, deletionRequest, null);
+        }
+
+        static PlannedChange done(BatchResultDto result) {
+            return new PlannedChange(null, null, null, null, null, result);
+        }
     }
 
     // Generate a pre-signed URL to allow user to upload file directly to S3 from their own machine:
     @Override
     public Mono<UploadUrlResponse> generateUploadUrl(UUID formId, String contentType, AttachmentType attachmentType) {
         // Verify file type is appropriate for the type of attachment:
-        if(!isValidContentType(contentType, attachmentType)) {
+        if(!attachmentType.accepts(contentType)) {
             return Mono.error(new UnsupportedFileTypeException("Invalid content type"));
         }
 
         // Generate a unique key for the object to be stored in S3:
-        String key = String.format("%s/%s", formId, attachmentType.name().toLowerCase());
+        String key = attachmentType.keyFor(formId);
 
         // Generate the pre-signed url and send both it and the key back in the response:
         return s3Service.generateUploadUrl(key, contentType)
                 .map(url -> new UploadUrlResponse(url, key));
     }
 
-    // Method to verify user file is acceptable content type:
-    private boolean isValidContentType(String contentType, AttachmentType attachmentType) {
-        return switch (attachmentType) {
-            case EVENT -> Set.of("application/pdf", "image/png", "image/jpg", "image/jpeg", "text/plain",
-                            "application/vnd.openxmlformats-officedocument.wordprocessingml.document")
-                            .contains(contentType);
+    // Use the attachment type to set the appropriate attachment column with the file's s3 bucket key. The key is trusted,
+    // so it has to have been verified already:
+    @Override
+    public Mono<AttachmentUpdateDto> updateAttachmentField(UUID id, AttachmentType attachmentType, String key) {
+        return updateAttachmentFields(id, Map.of(attachmentType, key)).next();
+    }
 
-            case SUPERVISOR_APPROVAL, DEPARTMENT_HEAD_APPROVAL ->
-                    "application/vnd.ms-outlook".equalsIgnoreCase(contentType);
+    // Register several uploaded attachments at once. Only the affected columns are written, in a single UPDATE:
+    @Override
+    public Flux<AttachmentUpdateDto> updateAttachmentFields(UUID id, Map<AttachmentType, String> keys) {
+        if(keys.isEmpty()) {
+            return Flux.empty();
+        }
+        Map<String, String> columns = new LinkedHashMap<>();
+        keys.forEach((attachmentType, key) -> columns.put(attachmentType.getColumn(), key));
+
+        return formRepository.updateAttachments(id, columns, FormEvent.attachmentsUpdated(id, columns.keySet()))
+                .flatMapMany(applied -> applied ?
+                        Flux.fromIterable(keys.entrySet())
+                                .map(entry -> new AttachmentUpdateDto(entry.getKey().getFieldName(), entry.getValue())) :
+                        Flux.error(new FormNotFoundException("form.not.found", id)));
+    }
 
-            case PROOF_OF_COMPLETION -> Set.of("application/vnd.openxmlformats-officedocument.presentationml.presentation",
-                    "application/vnd.openxmlformats-officedocument.presentationml.slideshow")
-                    .contains(contentType);
-        };
+    // Generate a pre-signed URL to allow user to download file from S3:
+    @Override
+    public Mono<String> generateDownloadUrl(UUID id, AttachmentType attachmentType) {
+        return findById(id).flatMap(formDto -> s3Service.generateDownloadUrl(attachmentKey(formDto, attachmentType)));
     }
 
-    // Use the attachment type to set the appropriate attachment field with the file's s3 bucket key:
+    // Sign every attachment the Form has in one call. Attachments that haven't been uploaded are left out:
     @Override
-    public Mono<AttachmentUpdateDto> updateAttachmentField(UUID id, AttachmentType attachmentType, String key) {
+    public Mono<Map<AttachmentType, String>> generateDownloadUrls(UUID id) {
         return findById(id).flatMap(formDto -> {
-            String attachmentName = switch (attachmentType) {
-                case EVENT -> {
-                    formDto.setAttachment(key);
-                    yield "attachment";
-                }
-                case SUPERVISOR_APPROVAL -> {
-                    formDto.setSupervisorAttachment(key);
-                    yield "supervisorAttachment";
-                }
-                case DEPARTMENT_HEAD_APPROVAL -> {
-                    formDto.setDepartmentHeadAttachment(key);
-                    yield "departmentHeadAttachment";
+            Map<AttachmentType, String> keys = new EnumMap<>(AttachmentType.class);
+            for(AttachmentType attachmentType : AttachmentType.values()) {
+                String key = attachmentKey(formDto, attachmentType);
+                if(key != null) {
+                    keys.put(attachmentType, key);
                 }
-                case PROOF_OF_COMPLETION -> {
-                    formDto.setCompletionAttachment(key);
-                    yield "completionAttachment";
-                }
-            };
-            return formRepository.save(formDto.mapToEntity())
-                    .thenReturn(new AttachmentUpdateDto(attachmentName, key));
+            }
+            return s3Service.generateDownloadUrls(keys.values())
+                    .map(urls -> {
+                        Map<AttachmentType, String> byType = new EnumMap<>(AttachmentType.class);
+                        keys.forEach((attachmentType, key) -> byType.put(attachmentType, urls.get(key)));
+                        return byType;
+                    });
         });
     }
 
-    // Generate a pre-signed URL to allow user to download file from S3:
-    @Override
-    public Mono<String> generateDownloadUrl(UUID id, AttachmentType attachmentType) {
-        return findById(id).flatMap(formDto -> switch(attachmentType) {
-            case EVENT -> s3Service.generateDownloadUrl(formDto.getAttachment());
-            case SUPERVISOR_APPROVAL -> s3Service.generateDownloadUrl(formDto.getSupervisorAttachment());
-            case DEPARTMENT_HEAD_APPROVAL -> s3Service.generateDownloadUrl(formDto.getDepartmentHeadAttachment());
-            case PROOF_OF_COMPLETION -> s3Service.generateDownloadUrl(formDto.getCompletionAttachment());
-        });
+    private static String attachmentKey(FormDto formDto, AttachmentType attachmentType) {
+        return switch(attachmentType) {
+            case EVENT -> formDto.getAttachment();
+            case SUPERVISOR_APPROVAL -> formDto.getSupervisorAttachment();
+            case DEPARTMENT_HEAD_APPROVAL -> formDto.getDepartmentHeadAttachment();
+            case PROOF_OF_COMPLETION -> formDto.getCompletionAttachment();
+        };
     }
 }
@@ -0,0 +1,9 @@
+package com.skillstorm.services;
+
+import com.skillstorm.dtos.FormStatsDto;
+import reactor.core.publisher.Mono;
+
+public interface FormStatsService {
+
+    Mono<FormStatsDto> getStats();
+}
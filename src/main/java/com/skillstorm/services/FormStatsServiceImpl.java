@@ -0,0 +1,124 @@
+package com.skillstorm.services;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+import com.skillstorm.dtos.FormStatsDto;
+import com.skillstorm.entities.ProjectionRow;
+import com.skillstorm.projections.FormStatsProjection;
+import com.skillstorm.projections.PendingApprovalsProjection;
+import com.skillstorm.projections.StatusCountsProjection;
+import com.skillstorm.repositories.ProjectionRowRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// Builds the dashboard statistics from the projections rather than the form table. Each read is a single partition
+// whose size depends on the number of statuses, event types, approvers, and event dates, never on the number of Forms:
+@Service
+public class FormStatsServiceImpl implements FormStatsService {
+
+    // A Form is urgent if its event is less than this many days away, as in FormDto:
+    private static final int URGENT_WITHIN_DAYS = 14;
+
+    // Reimbursement that has not yet been awarded or denied:
+    private static final List<Status> PENDING_REIMBURSEMENT = List.of(Status.AWAITING_SUPERVISOR_APPROVAL,
+            Status.AWAITING_DEPARTMENT_HEAD_APPROVAL, Status.AWAITING_BENCO_APPROVAL, Status.PENDING);
+
+    private final ProjectionRowRepository projectionRowRepository;
+    private final Clock clock;
+
+    @Autowired
+    public FormStatsServiceImpl(ProjectionRowRepository projectionRowRepository) {
+        this(projectionRowRepository, Clock.systemUTC());
+    }
+
+    FormStatsServiceImpl(ProjectionRowRepository projectionRowRepository, Clock clock) {
+        this.projectionRowRepository = projectionRowRepository;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<FormStatsDto> getStats() {
+        String approvers = PendingApprovalsProjection.APPROVER_PREFIX;
+        return Mono.zip(projectionRowRepository.findAllByProjection(StatusCountsProjection.NAME).collectList(),
+                        projectionRowRepository.findRange(PendingApprovalsProjection.NAME, approvers, ProjectionRow.prefixEnd(approvers)).collectList(),
+                        projectionRowRepository.findAllByProjection(FormStatsProjection.NAME).collectList())
+                .map(projections -> {
+                    List<ProjectionRow> statusCounts = projections.getT1();
+                    List<ProjectionRow> formStats = projections.getT3();
+                    return new FormStatsDto(asOf(statusCounts, formStats), byStatus(statusCounts), pendingByApprover(projections.getT2()),
+                            urgentAwaitingApproval(formStats), pendingReimbursementByEventType(formStats));
+                });
+    }
+
+    private static Map<Status, Long> byStatus(List<ProjectionRow> rows) {
+        Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+        for(ProjectionRow row : rows) {
+            if(!ProjectionRow.CHECKPOINT.equals(row.getKey())) {
+                byStatus.put(Status.valueOf(row.getKey()), row.getCount());
+            }
+        }
+        return byStatus;
+    }
+
+    // Keys are "approver:" status ":" username:
+    private static Map<Status, Map<String, Long>> pendingByApprover(List<ProjectionRow> rows) {
+        Map<Status, Map<String, Long>> pending = new EnumMap<>(Status.class);
+        for(ProjectionRow row : rows) {
+            String[] key = row.getKey().substring(PendingApprovalsProjection.APPROVER_PREFIX.length()).split(":", 2);
+            pending.computeIfAbsent(Status.valueOf(key[0]), status -> new TreeMap<>()).put(key[1], row.getCount());
+        }
+        return pending;
+    }
+
+    // Keys are "awaiting:" status ":" event date. Urgency moves with today's date, so it is decided here:
+    private Map<Status, Long> urgentAwaitingApproval(List<ProjectionRow> rows) {
+        LocalDate urgentBefore = LocalDate.now(clock).plusDays(URGENT_WITHIN_DAYS);
+        Map<Status, Long> urgent = new EnumMap<>(Status.class);
+        for(ProjectionRow row : rows) {
+            if(row.getKey().startsWith(FormStatsProjection.AWAITING_PREFIX)) {
+                String[] key = row.getKey().substring(FormStatsProjection.AWAITING_PREFIX.length()).split(":", 2);
+                if(LocalDate.parse(key[1]).isBefore(urgentBefore)) {
+                    urgent.merge(Status.valueOf(key[0]), row.getCount(), Long::sum);
+                }
+            }
+        }
+        return urgent;
+    }
+
+    // Keys are "reimbursement:" status ":" event type, with totals in cents:
+    private static Map<EventType, BigDecimal> pendingReimbursementByEventType(List<ProjectionRow> rows) {
+        Map<EventType, BigDecimal> pending = new EnumMap<>(EventType.class);
+        for(ProjectionRow row : rows) {
+            if(row.getKey().startsWith(FormStatsProjection.REIMBURSEMENT_PREFIX)) {
+                String[] key = row.getKey().substring(FormStatsProjection.REIMBURSEMENT_PREFIX.length()).split(":", 2);
+                if(PENDING_REIMBURSEMENT.contains(Status.valueOf(key[0]))) {
+                    pending.merge(EventType.valueOf(key[1]), BigDecimal.valueOf(row.getCount(), 2), BigDecimal::add);
+                }
+            }
+        }
+        return pending;
+    }
+
+    // The statistics are only as current as the projection that is furthest behind:
+    private static Instant asOf(List<ProjectionRow> statusCounts, List<ProjectionRow> formStats) {
+        return Stream.of(ProjectionRow.checkpointOf(statusCounts), ProjectionRow.checkpointOf(formStats))
+                .filter(Objects::nonNull)
+                .map(checkpoint -> Instant.ofEpochMilli(Uuids.unixTimestamp(checkpoint)))
+                .min(Instant::compareTo)
+                .orElse(null);
+    }
+}
+
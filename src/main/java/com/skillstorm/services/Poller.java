@@ -0,0 +1,33 @@
+package com.skillstorm.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Runs a background task every interval, starting one interval from now. A run that overruns skips the ticks it misses
+// rather than queueing them up, and a run that fails is logged so that the next tick still goes ahead:
+public final class Poller {
+
+    private static final Logger log = LoggerFactory.getLogger(Poller.class);
+
+    private Poller() {
+    }
+
+    // The task is described for the log, e.g. "relay the outbox". Dispose of the result to stop polling:
+    public static Disposable every(Duration interval, String description, Supplier<? extends Mono<?>> task) {
+        return Flux.interval(interval, Schedulers.parallel())
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.defer(task)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to {}: {}", description, e.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+}
@@ -1,7 +1,14 @@
 package com.skillstorm.services;
 
+import com.skillstorm.dtos.StoredObjectDto;
+import com.skillstorm.dtos.UploadedPartDto;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface S3Service {
 
     // Generate pre-signed URL to allow user upload:
@@ -9,4 +16,29 @@ public interface S3Service {
 
     // Generate pre-signed URL to allow user to retrieve/download file:
     Mono<String> generateDownloadUrl(String key);
+
+    // Generate pre-signed download URLs for several files at once, keyed by object key:
+    Mono<Map<String, String>> generateDownloadUrls(Collection<String> keys);
+
+    // Start a multipart upload. The metadata is stored with the object and returned by headObject once it completes:
+    Mono<String> createMultipartUpload(String key, String contentType, Map<String, String> metadata);
+
+    // Generate pre-signed URL to upload one part. S3 only accepts the part if its bytes match the given MD5:
+    Mono<String> generateUploadPartUrl(String key, String uploadId, int partNumber, String contentMd5);
+
+    // Upload one part from the service itself:
+    Mono<UploadedPartDto> uploadPart(String key, String uploadId, int partNumber, byte[] bytes);
+
+    // Parts S3 has received so far, in order:
+    Flux<UploadedPartDto> listParts(String key, String uploadId);
+
+    // Assemble the object from its parts:
+    Mono<Void> completeMultipartUpload(String key, String uploadId, List<UploadedPartDto> parts);
+
+    // Discard the upload and any parts already received:
+    Mono<Void> abortMultipartUpload(String key, String uploadId);
+
+    Mono<StoredObjectDto> headObject(String key);
+
+    Mono<Void> deleteObject(String key);
 }
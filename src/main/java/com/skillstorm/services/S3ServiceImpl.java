@@ -1,36 +1,89 @@
 package com.skillstorm.services;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.skillstorm.dtos.StoredObjectDto;
+import com.skillstorm.dtos.UploadedPartDto;
+import com.skillstorm.exceptions.InvalidUploadException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
-public class S3ServiceImpl implements S3Service {
+public class S3ServiceImpl implements S3Service, DisposableBean {
+
+    // How long a pre-signed URL stays valid once it has been issued:
+    private static final Duration SIGNATURE_DURATION = Duration.ofMinutes(10);
+
+    // A cached download URL must still be valid for at least this long when it is handed out:
+    private static final Duration MINIMUM_REMAINING_VALIDITY = Duration.ofMinutes(5);
+
     private final S3Presigner presigner;
+    private final S3AsyncClient s3Client;
     private final String bucket;
+    private final Scheduler signingScheduler;
+
+    // Download URLs already issued, by object key. Null when the cache is disabled:
+    private final AsyncCache<String, String> downloadUrls;
 
     @Autowired
-    public S3ServiceImpl(S3Presigner presigner, @Value("${BUCKET}") String bucket) {
+    public S3ServiceImpl(S3Presigner presigner, S3AsyncClient s3Client, @Value("${BUCKET}") String bucket,
+                         @Value("${s3.presign.download-url-cache.ttl:2m}") Duration downloadUrlTtl,
+                         @Value("${s3.presign.download-url-cache.maximum-size:10000}") long maximumSize,
+                         @Value("${s3.presign.threads:4}") int signingThreads, MeterRegistry meterRegistry) {
+        if(downloadUrlTtl.compareTo(SIGNATURE_DURATION.minus(MINIMUM_REMAINING_VALIDITY)) > 0) {
+            throw new IllegalArgumentException("Download URLs may only be cached for up to "
+                    + SIGNATURE_DURATION.minus(MINIMUM_REMAINING_VALIDITY) + ", not " + downloadUrlTtl);
+        }
         this.presigner = presigner;
+        this.s3Client = s3Client;
         this.bucket = bucket;
+        this.signingScheduler = Schedulers.newParallel("s3-presign", signingThreads, true);
+        if(downloadUrlTtl.isZero()) {
+            this.downloadUrls = null;
+        } else {
+            this.downloadUrls = Caffeine.newBuilder()
+                    .expireAfterWrite(downloadUrlTtl)
+                    .maximumSize(maximumSize)
+                    .recordStats()
+                    .buildAsync();
+            CaffeineCacheMetrics.monitor(meterRegistry, downloadUrls, "presigned-download-urls");
+        }
     }
 
-    // AWS SDK calls are all synchronous but Pre-signed Urls are lightweight and non-blocking, thus we don't
-    // need to use subsribeOn(Schedulers.boundedElastic()) to reserve a synchronous thread pool. Instead we
-    // can just defer the call until something subscribes to it:
+    @Override
+    public void destroy() {
+        signingScheduler.dispose();
+    }
+
+    // Signing is pure CPU work: hashing the canonical request and computing the HMAC chain. It is moved off the event
+    // loop onto its own parallel scheduler, sized separately so a burst of signing can't starve request handling.
 
     // Generate pre-signed URL to allow user upload:
     @Override
     public Mono<String> generateUploadUrl(String key, String contentType) {
-        return Mono.defer(() -> {
+        return Mono.fromCallable(() -> {
             PutObjectRequest putRequest = PutObjectRequest.builder()
                     .bucket(bucket)
                     .key(key)
@@ -39,30 +92,157 @@ public class S3ServiceImpl implements S3Service {
 
             PutObjectPresignRequest presignRequest = PutObjectPresignRequest.builder()
                     .putObjectRequest(putRequest)
-                    .signatureDuration(Duration.ofMinutes(10))
+                    .signatureDuration(SIGNATURE_DURATION)
                     .build();
 
-            String presignedUrl = presigner.presignPutObject(presignRequest).url().toString();
-            return Mono.just(presignedUrl);
-        });
+            return presigner.presignPutObject(presignRequest).url().toString();
+        }).subscribeOn(signingScheduler);
     }
 
     // Generate pre-signed URL to allow user to retrieve/download file:
     @Override
     public Mono<String> generateDownloadUrl(String key) {
-        return Mono.defer(() -> {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+        return generateDownloadUrls(Set.of(key))
+                .mapNotNull(urls -> urls.get(key));
+    }
+
+    // Keys that are already cached are answered straight away. The rest are signed together in a single task, and
+    // concurrent requests for the same key share one signature:
+    @Override
+    public Mono<Map<String, String>> generateDownloadUrls(Collection<String> keys) {
+        if(keys.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        if(downloadUrls == null) {
+            return signDownloads(keys);
+        }
+        return Mono.fromFuture(() -> downloadUrls.getAll(keys, (missing, executor) -> signDownloads(missing).toFuture()), true);
+    }
+
+    private Mono<Map<String, String>> signDownloads(Collection<? extends String> keys) {
+        return Mono.fromCallable(() -> {
+            Map<String, String> urls = new HashMap<>();
+            for(String key : keys) {
+                urls.put(key, signDownload(key));
+            }
+            return urls;
+        }).subscribeOn(signingScheduler);
+    }
+
+    private String signDownload(String key) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build();
+
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                .getObjectRequest(getObjectRequest)
+                .signatureDuration(SIGNATURE_DURATION)
+                .build();
+
+        return presigner.presignGetObject(presignRequest).url().toString();
+    }
+
+    // The client's own calls to S3 are asynchronous, so unlike signing they can stay on whichever thread completes them.
+    // Requests naming an upload that doesn't exist, or that belongs to a different key, fail with upload.not.found:
+
+    @Override
+    public Mono<String> createMultipartUpload(String key, String contentType, Map<String, String> metadata) {
+        return Mono.fromFuture(() -> s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(contentType)
+                        .metadata(metadata)
+                        .build()))
+                .map(CreateMultipartUploadResponse::uploadId);
+    }
+
+    // The MD5 is a signed header, so a part that is corrupted in transit is rejected by S3 and only that part needs to
+    // be sent again:
+    @Override
+    public Mono<String> generateUploadPartUrl(String key, String uploadId, int partNumber, String contentMd5) {
+        return Mono.fromCallable(() -> {
+            UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
                     .bucket(bucket)
                     .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .contentMD5(contentMd5)
                     .build();
 
-            GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                    .getObjectRequest(getObjectRequest)
-                    .signatureDuration(Duration.ofMinutes(10))
+            UploadPartPresignRequest presignRequest = UploadPartPresignRequest.builder()
+                    .uploadPartRequest(uploadPartRequest)
+                    .signatureDuration(SIGNATURE_DURATION)
                     .build();
 
-            String presignedUrl = presigner.presignGetObject(presignRequest).url().toString();
-            return Mono.just(presignedUrl);
-        });
+            return presigner.presignUploadPart(presignRequest).url().toString();
+        }).subscribeOn(signingScheduler);
+    }
+
+    @Override
+    public Mono<UploadedPartDto> uploadPart(String key, String uploadId, int partNumber, byte[] bytes) {
+        return Mono.fromFuture(() -> s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .build(), AsyncRequestBody.fromBytes(bytes)))
+                .map(response -> new UploadedPartDto(partNumber, bytes.length, response.eTag()))
+                .onErrorMap(NoSuchUploadException.class, e -> new InvalidUploadException("upload.not.found"));
+    }
+
+    @Override
+    public Flux<UploadedPartDto> listParts(String key, String uploadId) {
+        return Flux.from(s3Client.listPartsPaginator(ListPartsRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build()).parts())
+                .map(part -> new UploadedPartDto(part.partNumber(), part.size(), part.eTag()))
+                .onErrorMap(NoSuchUploadException.class, e -> new InvalidUploadException("upload.not.found"));
+    }
+
+    @Override
+    public Mono<Void> completeMultipartUpload(String key, String uploadId, List<UploadedPartDto> parts) {
+        List<CompletedPart> completedParts = parts.stream()
+                .map(part -> CompletedPart.builder().partNumber(part.partNumber()).eTag(part.eTag()).build())
+                .toList();
+        return Mono.fromFuture(() -> s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                        .build()))
+                .onErrorMap(NoSuchUploadException.class, e -> new InvalidUploadException("upload.not.found"))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> abortMultipartUpload(String key, String uploadId) {
+        return Mono.fromFuture(() -> s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build()))
+                .onErrorMap(NoSuchUploadException.class, e -> new InvalidUploadException("upload.not.found"))
+                .then();
+    }
+
+    @Override
+    public Mono<StoredObjectDto> headObject(String key) {
+        return Mono.fromFuture(() -> s3Client.headObject(HeadObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .build()))
+                .map(head -> new StoredObjectDto(head.contentLength(), head.contentType(), head.eTag(), head.metadata()));
+    }
+
+    @Override
+    public Mono<Void> deleteObject(String key) {
+        return Mono.fromFuture(() -> s3Client.deleteObject(DeleteObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .build()))
+                .then();
     }
 }
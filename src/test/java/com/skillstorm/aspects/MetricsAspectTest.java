@@ -0,0 +1,83 @@
+package com.skillstorm.aspects;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SlowService service;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new SlowService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new MetricsAspect(meterRegistry, false));
+        service = proxyFactory.getProxy();
+    }
+
+    @Test
+    void reactiveResultIsTimedFromSubscriptionToCompletion() {
+        Mono<String> result = service.slow();
+        assertEquals(0, timer("SlowService.slow", "success").count(), "Assembling the Mono should not be recorded");
+
+        StepVerifier.create(result)
+                .expectNext("done")
+                .verifyComplete();
+
+        Timer timer = timer("SlowService.slow", "success");
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    @Test
+    void errorsAndCancellationsAreTaggedByOutcome() {
+        StepVerifier.create(service.failing())
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(service.endless())
+                .expectNext(0L)
+                .thenCancel()
+                .verify();
+
+        assertEquals(1, meterRegistry.get("operation.duration")
+                .tags("operation", "SlowService.failing", "outcome", "error", "exception", "IllegalStateException")
+                .timer().count());
+        assertEquals(1, timer("SlowService.endless", "cancelled").count());
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return meterRegistry.find("operation.duration")
+                .tags("operation", operation, "outcome", outcome)
+                .timer();
+    }
+
+    @Service
+    public static class SlowService {
+
+        public Mono<String> slow() {
+            return Mono.just("done").delayElement(Duration.ofMillis(50));
+        }
+
+        public Mono<String> failing() {
+            return Mono.error(new IllegalStateException("failed"));
+        }
+
+        public Flux<Long> endless() {
+            return Flux.interval(Duration.ofMillis(1));
+        }
+    }
+}
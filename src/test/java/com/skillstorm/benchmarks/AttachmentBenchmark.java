@@ -0,0 +1,29 @@
+package com.skillstorm.benchmarks;
+
+import com.skillstorm.constants.AttachmentType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Attachment upload checks. Pre-signing is measured in PresignBenchmark:
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttachmentBenchmark {
+
+    @Param({"EVENT", "PROOF_OF_COMPLETION"})
+    private AttachmentType attachmentType;
+
+    @Benchmark
+    public boolean validContentType() {
+        return attachmentType.accepts("application/vnd.openxmlformats-officedocument.presentationml.presentation");
+    }
+
+    @Benchmark
+    public boolean invalidContentType() {
+        return attachmentType.accepts("application/x-msdownload");
+    }
+}
@@ -0,0 +1,106 @@
+package com.skillstorm.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.constants.Status;
+import com.skillstorm.dtos.FormDto;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormByUsername;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Per-element cost of the read path: entity to FormDto to JSON, as done for findById and for each element of
+// findAllFormsByUsernameAndStatus. The legacy benchmarks repeat the string conversions the old mapping did so the two
+// can be compared in a single run. Run with -prof gc to see allocations per operation:
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormMappingBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Form form;
+    private FormByUsername indexedForm;
+    private FormDto formDto;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        form = new Form();
+        form.setId(UUID.randomUUID());
+        form.setUsername("benchmarkUser");
+        form.setFirstName("Benchmark");
+        form.setLastName("User");
+        form.setEmail("benchmarkUser@email.com");
+        form.setTime(LocalTime.of(16, 0));
+        form.setDate(LocalDate.now().plusDays(30));
+        form.setLocation("Benchmark Location");
+        form.setDescription("Benchmark Description");
+        form.setCost(BigDecimal.valueOf(1234.56));
+        form.setGradeFormat(GradeFormat.SCORE);
+        form.setPassingGrade("70");
+        form.setEventType(EventType.UNIVERSITY_COURSE);
+        form.setJustification("Benchmark Justification");
+        form.setStatus(Status.AWAITING_SUPERVISOR_APPROVAL);
+        indexedForm = new FormByUsername(form);
+        formDto = new FormDto(form);
+    }
+
+    @Benchmark
+    public byte[] findByIdElement() throws Exception {
+        return objectMapper.writeValueAsBytes(new FormDto(form));
+    }
+
+    @Benchmark
+    public byte[] findAllFormsByUsernameAndStatusElement() throws Exception {
+        return objectMapper.writeValueAsBytes(new FormDto(indexedForm.toForm()));
+    }
+
+    @Benchmark
+    public Form mapToEntity() {
+        return formDto.mapToEntity();
+    }
+
+    // The derived values as the mapping layer now produces them. Urgency is read once when serialized and the default
+    // reimbursement is read by both serialization and mapToEntity:
+    @Benchmark
+    public void typedMapping(Blackhole blackhole) {
+        FormDto formDto = new FormDto(form);
+        blackhole.consume(formDto.getTime());
+        blackhole.consume(formDto.getDate());
+        blackhole.consume(formDto.isUrgent());
+        blackhole.consume(formDto.getReimbursement());
+        blackhole.consume(formDto.getReimbursement());
+    }
+
+    // The same values as the previous mapping produced them from its String fields:
+    @Benchmark
+    public void legacyStringMapping(Blackhole blackhole) {
+        String time = form.getTime().toString();
+        String date = form.getDate().toString();
+        blackhole.consume(time);
+        blackhole.consume(date);
+        blackhole.consume(LocalDate.parse(date).minusDays(14).isBefore(LocalDate.now()));
+        for(int i = 0; i < 2; i++) {
+            blackhole.consume(form.getCost().multiply(BigDecimal.valueOf(form.getEventType().getRate()))
+                    .setScale(2, RoundingMode.HALF_UP));
+        }
+        blackhole.consume(LocalTime.parse(time));
+        blackhole.consume(LocalDate.parse(date));
+    }
+}
@@ -0,0 +1,139 @@
+package com.skillstorm.benchmarks;
+
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.constants.Queues;
+import com.skillstorm.constants.Status;
+import com.skillstorm.dtos.FormDto;
+import com.skillstorm.dtos.ReimbursementMessageDto;
+import com.skillstorm.dtos.UserDto;
+import com.skillstorm.entities.Form;
+import com.skillstorm.messaging.CorrelationRegistry;
+import com.skillstorm.messaging.MessagePublisher;
+import com.skillstorm.messaging.Outbox;
+import com.skillstorm.messaging.RequestReplyClient;
+import com.skillstorm.services.ApproverCache;
+import com.skillstorm.services.FormServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// End to end cost of the Reactor pipelines behind createForm, submitForApproval, and bencoApprove. Cassandra is replaced
+// by an in-memory repository and RabbitMQ by a stub that confirms and replies immediately, so what is measured is the
+// service's own mapping, message conversion, publishing, caching, and correlation overhead. Approver lookups are served from the
+// ApproverCache after the first call, as they would be in steady state:
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormServicePipelineBenchmark {
+
+    private static final String EMPLOYEE = "employee";
+
+    private InMemoryFormRepository formRepository;
+    private HashedWheelTimer timer;
+    private Scheduler publisherScheduler;
+    private FormServiceImpl formService;
+    private Form createdForm;
+    private Form awaitingBencoForm;
+
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        timer = new HashedWheelTimer(new DefaultThreadFactory("benchmark-correlation-timer", true), 100, TimeUnit.MILLISECONDS);
+        CorrelationRegistry<UserDto> lookupRegistry = new CorrelationRegistry<>("approver-lookup", Duration.ofSeconds(6), timer, meterRegistry);
+        CorrelationRegistry<ReimbursementMessageDto> reimbursementRegistry = new CorrelationRegistry<>("reimbursement-adjustment", Duration.ofSeconds(6), timer, meterRegistry);
+
+        formRepository = new InMemoryFormRepository();
+        StubRabbitTemplate rabbitTemplate = new StubRabbitTemplate();
+        publisherScheduler = Schedulers.newBoundedElastic(4, 10_000, "benchmark-publisher");
+        MessagePublisher messagePublisher = new MessagePublisher(rabbitTemplate, publisherScheduler, Duration.ofSeconds(5), meterRegistry);
+        formService = new FormServiceImpl(formRepository, null, null, messagePublisher, new Outbox(new Jackson2JsonMessageConverter(), 16),
+                new RequestReplyClient(messagePublisher, Optional.empty(), Schedulers.immediate()), null, new ApproverCache(Duration.ofMinutes(5), 10_000, meterRegistry),
+                lookupRegistry, reimbursementRegistry, meterRegistry);
+
+        UserDto supervisor = new UserDto();
+        supervisor.setUsername("supervisor");
+        supervisor.setRole("SUPERVISOR");
+        ReimbursementMessageDto adjustment = new ReimbursementMessageDto(EMPLOYEE, BigDecimal.valueOf(800));
+
+        // Reply to lookups the way the User-Service would. Everything else is fire and forget:
+        rabbitTemplate.setBroker((routingKey, message) -> {
+            String correlationId = message.getMessageProperties().getCorrelationId();
+            if(correlationId == null) {
+                return;
+            }
+            if(Queues.ADJUSTMENT_REQUEST.toString().equals(routingKey)) {
+                formService.awaitAdjustmentResponse(adjustment, correlationId);
+            } else {
+                formService.awaitApproverResponse(supervisor, correlationId);
+            }
+        });
+
+        createdForm = newFormDto().mapToEntity();
+        FormDto awaitingBenco = newFormDto();
+        awaitingBenco.setStatus(Status.AWAITING_BENCO_APPROVAL);
+        awaitingBencoForm = awaitingBenco.mapToEntity();
+    }
+
+    @TearDown
+    public void tearDown() {
+        timer.stop();
+        publisherScheduler.dispose();
+    }
+
+    // createForm keeps every Form it is given, so the repository is emptied between iterations:
+    @Setup(Level.Iteration)
+    public void clearRepository() {
+        formRepository.clear();
+    }
+
+    @Benchmark
+    public FormDto createForm() {
+        return formService.createForm(newFormDto()).block();
+    }
+
+    @Benchmark
+    public FormDto submitForApproval() {
+        formRepository.put(createdForm);
+        return formService.submitForApproval(createdForm.getId(), EMPLOYEE).block();
+    }
+
+    @Benchmark
+    public FormDto bencoApprove() {
+        formRepository.put(awaitingBencoForm);
+        return formService.bencoApprove(awaitingBencoForm.getId()).block();
+    }
+
+    private static FormDto newFormDto() {
+        FormDto formDto = new FormDto();
+        formDto.setId(UUID.randomUUID());
+        formDto.setUsername(EMPLOYEE);
+        formDto.setFirstName("Benchmark");
+        formDto.setLastName("Employee");
+        formDto.setEmail("employee@email.com");
+        formDto.setTime(LocalTime.of(16, 0));
+        formDto.setDate(LocalDate.now().plusDays(30));
+        formDto.setLocation("Benchmark Location");
+        formDto.setDescription("Benchmark Description");
+        formDto.setCost(BigDecimal.valueOf(1000));
+        formDto.setGradeFormat(GradeFormat.SCORE);
+        formDto.setEventType(EventType.UNIVERSITY_COURSE);
+        formDto.setJustification("Benchmark Justification");
+        return formDto;
+    }
+}
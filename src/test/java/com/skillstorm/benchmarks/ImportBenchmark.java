@@ -0,0 +1,159 @@
+package com.skillstorm.benchmarks;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.constants.ImportFormat;
+import com.skillstorm.dtos.FormDto;
+import com.skillstorm.entities.EscalationDeadline;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormByUsername;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.repositories.EscalationIndex;
+import com.skillstorm.repositories.FormCache;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.FormRepositoryCustomImpl;
+import com.skillstorm.repositories.FormStatements;
+import com.skillstorm.services.FormImportServiceImpl;
+import com.skillstorm.services.FormServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.cassandra.core.CassandraAdminTemplate;
+import org.springframework.data.cassandra.core.ReactiveCassandraTemplate;
+import org.springframework.data.cassandra.core.cql.session.DefaultBridgedReactiveSession;
+import org.springframework.data.cassandra.core.cql.session.DefaultSessionFactory;
+import org.springframework.data.cassandra.repository.support.ReactiveCassandraRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.testcontainers.containers.CassandraContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Forms imported per second through the bulk import compared with creating them one request at a time, as a client
+// looping over POST /forms would. Both write to a local Cassandra node, through the same repository the service uses
+// and the driver settings in cassandra-tuning.conf. Needs Docker:
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportBenchmark {
+
+    private static final int RECORDS = 500;
+
+    private CassandraContainer<?> cassandra;
+    private CqlSession session;
+    private ObjectMapper objectMapper;
+    private FormServiceImpl formService;
+    private FormImportServiceImpl formImportService;
+    private List<String> lines;
+
+    @Setup
+    public void setup() {
+        cassandra = new CassandraContainer<>("cassandra:4.1");
+        cassandra.start();
+        try(CqlSession admin = CqlSession.builder()
+                .addContactPoint(cassandra.getContactPoint())
+                .withLocalDatacenter(cassandra.getLocalDatacenter())
+                .build()) {
+            admin.execute("CREATE KEYSPACE IF NOT EXISTS trms WITH replication = {'class': 'SimpleStrategy', 'replication_factor': 1}");
+        }
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        session = CqlSession.builder()
+                .withConfigLoader(DriverConfigLoader.fromClasspath("cassandra-tuning.conf"))
+                .addContactPoint(cassandra.getContactPoint())
+                .withLocalDatacenter(cassandra.getLocalDatacenter())
+                .withKeyspace("trms")
+                .build();
+        CassandraAdminTemplate adminTemplate = new CassandraAdminTemplate(session);
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("form"), Form.class, Map.of());
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("forms_by_username"), FormByUsername.class, Map.of());
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("form_events"), FormEvent.class, Map.of());
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("escalation_deadlines"), EscalationDeadline.class, Map.of());
+
+        ReactiveCassandraTemplate cassandraTemplate = new ReactiveCassandraTemplate(new DefaultBridgedReactiveSession(session));
+        FormCache formCache = new FormCache(Duration.ofSeconds(30), 10_000, false, "direct-exchange", null, meterRegistry);
+        FormRepositoryCustomImpl formRepositoryCustom = new FormRepositoryCustomImpl(cassandraTemplate, new FormStatements(new DefaultSessionFactory(session)),
+                formCache, new EscalationIndex(Duration.ofHours(72), Duration.ofDays(2), Duration.ofDays(7)), Duration.ofDays(7));
+        FormRepository formRepository = new ReactiveCassandraRepositoryFactory(cassandraTemplate)
+                .getRepository(FormRepository.class, RepositoryComposition.RepositoryFragments.just(formRepositoryCustom));
+
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        formService = new FormServiceImpl(formRepository, null, null, null, null, null, null, null, null, null, meterRegistry);
+        formImportService = new FormImportServiceImpl(formRepository, objectMapper, Validation.buildDefaultValidatorFactory().getValidator(),
+                500, Duration.ofMillis(200), 10, 8, meterRegistry);
+    }
+
+    // Fresh ids for every iteration. Within one, each invocation writes the same Forms again, which both paths allow:
+    @Setup(Level.Iteration)
+    public void records() {
+        lines = IntStream.range(0, RECORDS)
+                .mapToObj(i -> {
+                    try {
+                        return objectMapper.writeValueAsString(form("employee" + (i % 25)));
+                    } catch(Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+
+    private static FormDto form(String username) {
+        FormDto form = new FormDto();
+        form.setUsername(username);
+        form.setFirstName("Import");
+        form.setLastName("Benchmark");
+        form.setEmail(username + "@email.com");
+        form.setTime(LocalTime.of(9, 0));
+        form.setDate(LocalDate.now().plusWeeks(3));
+        form.setLocation("Benchmark Location");
+        form.setDescription("Benchmark Description");
+        form.setCost(BigDecimal.valueOf(100));
+        form.setGradeFormat(GradeFormat.PASS_FAIL);
+        form.setEventType(EventType.SEMINAR);
+        form.setJustification("Benchmark Justification");
+        return form;
+    }
+
+    @TearDown
+    public void teardown() {
+        if(session != null) {
+            session.close();
+        }
+        cassandra.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public Long createOneAtATime() {
+        return Flux.fromIterable(lines)
+                .concatMap(line -> Mono.fromCallable(() -> objectMapper.readValue(line, FormDto.class))
+                        .flatMap(formService::createForm))
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public Long importAll() {
+        return formImportService.importForms(Flux.fromIterable(lines), ImportFormat.NDJSON)
+                .count()
+                .block();
+    }
+}
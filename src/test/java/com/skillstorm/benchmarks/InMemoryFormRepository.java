@@ -0,0 +1,239 @@
+package com.skillstorm.benchmarks;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.entities.OutboxMessage;
+import com.skillstorm.repositories.FormRepository;
+import org.reactivestreams.Publisher;
+import org.springframework.data.domain.Slice;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// FormRepository backed by a map so that service pipelines can be benchmarked without Cassandra. Conditional writes
+// behave like their lightweight transaction counterparts. Operations the benchmarks don't use are unsupported:
+public class InMemoryFormRepository implements FormRepository {
+
+    private final Map<UUID, Form> forms = new ConcurrentHashMap<>();
+
+    // Store a Form directly, bypassing the reactive API:
+    public void put(Form form) {
+        forms.put(form.getId(), form);
+    }
+
+    public void clear() {
+        forms.clear();
+    }
+
+    @Override
+    public Mono<Form> findById(UUID id) {
+        return Mono.fromSupplier(() -> forms.get(id));
+    }
+
+    @Override
+    public Flux<Form> findRows(UUID id) {
+        return Flux.defer(() -> Mono.justOrEmpty(forms.get(id)));
+    }
+
+    @Override
+    public Mono<Form> findById(Publisher<UUID> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(UUID id) {
+        return Mono.fromSupplier(() -> forms.containsKey(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<UUID> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public <S extends Form> Mono<S> save(S form) {
+        return Mono.fromSupplier(() -> {
+            forms.put(form.getId(), form);
+            return form;
+        });
+    }
+
+    @Override
+    public <S extends Form> Flux<S> saveAll(Iterable<S> forms) {
+        return Flux.fromIterable(forms).flatMap(this::save);
+    }
+
+    @Override
+    public <S extends Form> Flux<S> saveAll(Publisher<S> forms) {
+        return Flux.from(forms).flatMap(this::save);
+    }
+
+    @Override
+    public <S extends Form> Mono<S> insert(S form) {
+        return save(form);
+    }
+
+    @Override
+    public <S extends Form> Flux<S> insert(Iterable<S> forms) {
+        return saveAll(forms);
+    }
+
+    @Override
+    public <S extends Form> Flux<S> insert(Publisher<S> forms) {
+        return saveAll(forms);
+    }
+
+    @Override
+    public Flux<Form> findAll() {
+        return Flux.fromIterable(forms.values());
+    }
+
+    @Override
+    public Flux<Form> findAllById(Iterable<UUID> ids) {
+        return Flux.fromIterable(ids).flatMap(this::findById);
+    }
+
+    @Override
+    public Flux<Form> findAllById(Publisher<UUID> ids) {
+        return Flux.from(ids).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) forms.size());
+    }
+
+    @Override
+    public Mono<Void> deleteById(UUID id) {
+        return Mono.fromRunnable(() -> forms.remove(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<UUID> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(Form form) {
+        return deleteById(form.getId());
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends UUID> ids) {
+        return Mono.fromRunnable(() -> ids.forEach(forms::remove));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends Form> forms) {
+        return Flux.fromIterable(forms).flatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends Form> forms) {
+        return Flux.from(forms).flatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(forms::clear);
+    }
+
+    @Override
+    public Mono<Slice<Form>> findPage(int pageSize, ByteBuffer pagingState, Status status, EventType eventType) {
+        return Mono.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Flux<Form> streamAll(int fetchSize, Status status, EventType eventType) {
+        return Flux.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Flux<Form> scanByTokenRange(List<String> columns, int splits, int concurrency, int fetchSize) {
+        return Flux.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Flux<Row> exportByTokenRange(List<String> columns, LocalDate from, LocalDate to, Status status, EventType eventType,
+                                        int splits, int concurrency, int fetchSize, ConsistencyLevel consistency) {
+        return Flux.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Mono<Form> saveWithIndex(Form form, Form previous, FormEvent event) {
+        return save(form);
+    }
+
+    @Override
+    public Mono<Long> reindexAll(int splits, int concurrency, int fetchSize) {
+        return Mono.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Mono<Boolean> fileEscalation(Form form, String approver) {
+        return Mono.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Mono<Set<UUID>> importAll(List<Form> forms, List<FormEvent> events, int batchSize, int concurrency) {
+        return Mono.fromSupplier(() -> {
+            forms.forEach(this::put);
+            return Set.of();
+        });
+    }
+
+    @Override
+    public Mono<Boolean> updateIfUnchanged(Form form, Form previous, FormEvent event) {
+        return Mono.fromSupplier(() -> replaceIfStatus(form.getId(), previous.getStatus(), form));
+    }
+
+    @Override
+    public Mono<Boolean> compareAndSetStatus(Form previous, Form updated, FormEvent event, List<OutboxMessage> outbox) {
+        return Mono.fromSupplier(() -> replaceIfStatus(updated.getId(), previous.getStatus(), updated));
+    }
+
+    @Override
+    public Mono<Boolean> updateAttachments(UUID id, Map<String, String> columns, FormEvent event) {
+        return Mono.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Mono<Boolean> deleteIfUnchanged(Form form, FormEvent event, List<OutboxMessage> outbox) {
+        return Mono.fromSupplier(() -> replaceIfStatus(form.getId(), form.getStatus(), null));
+    }
+
+    @Override
+    public Mono<Boolean> resolve(UUID formId, UUID eventId) {
+        return Mono.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Mono<Void> deleteWithIndex(Form form, FormEvent event) {
+        return delete(form);
+    }
+
+    // Swap the stored Form for the replacement, or remove it if the replacement is null, only if it still has the
+    // expected status:
+    private boolean replaceIfStatus(UUID id, Status expected, Form replacement) {
+        boolean[] applied = {false};
+        forms.computeIfPresent(id, (key, stored) -> {
+            if(stored.getStatus() != expected) {
+                return stored;
+            }
+            applied[0] = true;
+            return replacement;
+        });
+        return applied[0];
+    }
+}
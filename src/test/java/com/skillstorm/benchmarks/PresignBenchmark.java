@@ -0,0 +1,78 @@
+package com.skillstorm.benchmarks;
+
+import com.skillstorm.constants.AttachmentType;
+import com.skillstorm.services.S3ServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// S3 pre-signing throughput, in signed URLs per second, with the download URL cache off (0s) and on. A detail page
+// signs all four attachments of a Form, so that is measured both one URL at a time and as a single batch. Signing
+// happens locally, so static credentials are enough and no request ever reaches AWS:
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresignBenchmark {
+
+    private static final String FORM = "702772d8-f69f-45ca-870a-5d168bc27169/";
+
+    @Param({"0s", "2m"})
+    private String downloadUrlTtl;
+
+    private S3Presigner presigner;
+    private S3ServiceImpl s3Service;
+    private List<String> keys;
+
+    @Setup
+    public void setup() {
+        presigner = S3Presigner.builder()
+                .region(Region.US_EAST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("benchmark", "benchmark")))
+                .build();
+        // Only signing is measured, which never calls S3, so there is no client:
+        s3Service = new S3ServiceImpl(presigner, null, "benchmark-bucket", Duration.parse("PT" + downloadUrlTtl.toUpperCase()),
+                10_000, Runtime.getRuntime().availableProcessors(), new SimpleMeterRegistry());
+        keys = Arrays.stream(AttachmentType.values())
+                .map(attachmentType -> FORM + attachmentType.getColumn())
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        s3Service.destroy();
+        presigner.close();
+    }
+
+    @Benchmark
+    public String presignUpload() {
+        return s3Service.generateUploadUrl(FORM + AttachmentType.EVENT.getColumn(), "application/pdf").block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public String[] presignDownloadsOneAtATime() {
+        String[] urls = new String[keys.size()];
+        for(int i = 0; i < urls.length; i++) {
+            urls[i] = s3Service.generateDownloadUrl(keys.get(i)).block();
+        }
+        return urls;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public Map<String, String> presignDownloadsBatched() {
+        return s3Service.generateDownloadUrls(keys).block();
+    }
+}
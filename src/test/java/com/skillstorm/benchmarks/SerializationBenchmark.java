@@ -0,0 +1,73 @@
+package com.skillstorm.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.dtos.ApprovalRequestDto;
+import com.skillstorm.dtos.FormDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Jackson cost of the payloads this service produces: FormDto responses through an ObjectMapper configured the way
+// Spring Boot configures WebFlux's, and ApprovalRequestDto messages through the RabbitMQ message converter:
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Jackson2JsonMessageConverter messageConverter;
+    private FormDto formDto;
+    private byte[] formJson;
+    private ApprovalRequestDto approvalRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        messageConverter = new Jackson2JsonMessageConverter();
+
+        formDto = new FormDto();
+        formDto.setUsername("benchmarkUser");
+        formDto.setFirstName("Benchmark");
+        formDto.setLastName("User");
+        formDto.setEmail("benchmarkUser@email.com");
+        formDto.setTime(LocalTime.of(16, 0));
+        formDto.setDate(LocalDate.now().plusDays(30));
+        formDto.setLocation("Benchmark Location");
+        formDto.setDescription("Benchmark Description");
+        formDto.setCost(BigDecimal.valueOf(1234.56));
+        formDto.setGradeFormat(GradeFormat.SCORE);
+        formDto.setEventType(EventType.UNIVERSITY_COURSE);
+        formDto.setJustification("Benchmark Justification");
+        formJson = objectMapper.writeValueAsBytes(formDto);
+
+        approvalRequest = new ApprovalRequestDto(UUID.randomUUID(), "supervisor", "benchmarkUser", formDto.getDate().toString());
+    }
+
+    @Benchmark
+    public byte[] serializeFormDto() throws Exception {
+        return objectMapper.writeValueAsBytes(formDto);
+    }
+
+    @Benchmark
+    public FormDto deserializeFormDto() throws Exception {
+        return objectMapper.readValue(formJson, FormDto.class);
+    }
+
+    @Benchmark
+    public Message convertApprovalRequest() {
+        return messageConverter.toMessage(approvalRequest, new MessageProperties());
+    }
+}
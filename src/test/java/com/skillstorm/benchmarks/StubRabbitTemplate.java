@@ -0,0 +1,52 @@
+package com.skillstorm.benchmarks;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.util.function.BiConsumer;
+
+// RabbitTemplate that converts messages as the real one would but hands them to a callback instead of a broker, and
+// confirms every message straight away. The callback stands in for the other services, e.g. by replying to a lookup
+// using the message's correlation id:
+public class StubRabbitTemplate extends RabbitTemplate {
+
+    private BiConsumer<String, Message> broker = (routingKey, message) -> { };
+
+    public StubRabbitTemplate() {
+        setMessageConverter(new Jackson2JsonMessageConverter());
+    }
+
+    public void setBroker(BiConsumer<String, Message> broker) {
+        this.broker = broker;
+    }
+
+    @Override
+    public void convertAndSend(String exchange, String routingKey, Object object, MessagePostProcessor messagePostProcessor,
+                               CorrelationData correlationData) throws AmqpException {
+        Message message = getMessageConverter().toMessage(object, new MessageProperties());
+        deliver(routingKey, messagePostProcessor.postProcessMessage(message), correlationData);
+    }
+
+    @Override
+    public void convertAndSend(String exchange, String routingKey, Object object, CorrelationData correlationData) throws AmqpException {
+        deliver(routingKey, getMessageConverter().toMessage(object, new MessageProperties()), correlationData);
+    }
+
+    // There is no channel to bind, so operations run directly against the stub:
+    @Override
+    public <T> T invoke(OperationsCallback<T> action) {
+        return action.doInRabbit(this);
+    }
+
+    private void deliver(String routingKey, Message message, CorrelationData correlationData) {
+        broker.accept(routingKey, message);
+        if(correlationData != null) {
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }
+    }
+}
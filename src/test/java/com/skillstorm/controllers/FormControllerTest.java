@@ -0,0 +1,93 @@
+package com.skillstorm.controllers;
+
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.dtos.FormDto;
+import com.skillstorm.dtos.FormPageDto;
+import com.skillstorm.services.AttachmentUploadService;
+import com.skillstorm.services.FormExportService;
+import com.skillstorm.services.FormImportService;
+import com.skillstorm.services.FormService;
+import com.skillstorm.services.FormStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class FormControllerTest {
+
+    @Mock private FormService formService;
+    @Mock private FormStatsService formStatsService;
+    @Mock private AttachmentUploadService attachmentUploadService;
+    @Mock private FormImportService formImportService;
+    @Mock private FormExportService formExportService;
+
+    private WebTestClient webTestClient;
+    private final FormDto first = form();
+    private final FormDto second = form();
+
+    private static FormDto form() {
+        FormDto form = new FormDto();
+        form.setDate(LocalDate.of(2026, 12, 1));
+        form.setCost(BigDecimal.valueOf(100));
+        form.setEventType(EventType.UNIVERSITY_COURSE);
+        form.setGradeFormat(GradeFormat.SCORE);
+        return form;
+    }
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToController(new FormController(formService, formStatsService, attachmentUploadService,
+                formImportService, formExportService)).build();
+    }
+
+    // Clients that accept anything, as most do by default, get the JSON array GET /forms has always returned:
+    @Test
+    void findAllReturnsArrayForAnyMediaType() {
+        given(formService.streamAll(null, null)).willReturn(Flux.just(first, second));
+
+        webTestClient.get().uri("/forms")
+                .accept(MediaType.ALL)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBodyList(FormDto.class).hasSize(2);
+    }
+
+    @Test
+    void findAllStreamsNdjsonWhenAsked() {
+        given(formService.streamAll(null, null)).willReturn(Flux.just(first, second));
+
+        webTestClient.get().uri("/forms")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).value(body -> assertEquals(2, body.lines().count()));
+    }
+
+    @Test
+    void findPageReturnsPageAndToken() {
+        given(formService.findPage(10, "token", null, null)).willReturn(Mono.just(new FormPageDto(List.of(first), "next")));
+
+        webTestClient.get().uri("/forms/page?pageSize=10&pageToken=token")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.forms.length()").isEqualTo(1)
+                .jsonPath("$.nextPageToken").isEqualTo("next");
+    }
+}
@@ -0,0 +1,80 @@
+package com.skillstorm.messaging;
+
+import com.skillstorm.exceptions.QueueResponseTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CorrelationRegistryTest {
+
+    private HashedWheelTimer timer;
+    private CorrelationRegistry<String> registry;
+
+    @BeforeEach
+    void setup() {
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+        registry = new CorrelationRegistry<>("test", Duration.ofMillis(100), timer, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void teardown() {
+        timer.stop();
+    }
+
+    // A reply completes the request and clears its entry:
+    @Test
+    void replyCompletesRequest() {
+        AtomicReference<String> sent = new AtomicReference<>();
+
+        StepVerifier.create(registry.request(correlationId -> Mono.fromRunnable(() -> sent.set(correlationId))))
+                .then(() -> registry.complete(sent.get(), "reply"))
+                .expectNext("reply")
+                .verifyComplete();
+
+        assertEquals(0, registry.inFlight(), "Entry should be removed after the reply");
+    }
+
+    // A missing reply fails with a timeout and late replies are ignored:
+    @Test
+    void missingReplyTimesOut() {
+        AtomicReference<String> sent = new AtomicReference<>();
+
+        StepVerifier.create(registry.request(correlationId -> Mono.fromRunnable(() -> sent.set(correlationId))))
+                .expectError(QueueResponseTimeoutException.class)
+                .verify(Duration.ofSeconds(2));
+
+        assertEquals(0, registry.inFlight(), "Expired entry should be removed");
+        assertFalse(registry.complete(sent.get(), "late"), "Late reply should be dropped");
+    }
+
+    // A message the broker doesn't accept fails the request straight away rather than at the deadline:
+    @Test
+    void failedSendFailsRequest() {
+        StepVerifier.create(registry.request(correlationId -> Mono.error(new IllegalStateException("nacked"))))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofMillis(50));
+
+        assertEquals(0, registry.inFlight(), "Failed entry should be removed");
+    }
+
+    // Cancelling the subscriber removes the entry without waiting for the deadline:
+    @Test
+    void cancelRemovesEntry() {
+        StepVerifier.create(registry.request(correlationId -> Mono.empty()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, registry.inFlight(), "Cancelled entry should be removed");
+    }
+}
@@ -0,0 +1,86 @@
+package com.skillstorm.messaging;
+
+import com.skillstorm.constants.Queues;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class DeadLetterRouterTest {
+
+    @Mock private MessagePublisher messagePublisher;
+    @Mock private RabbitTemplate rabbitTemplate;
+
+    private DeadLetterRouter router;
+
+    @BeforeEach
+    void setup() {
+        router = new DeadLetterRouter(messagePublisher, rabbitTemplate, 3, new SimpleMeterRegistry());
+    }
+
+    private static Message consumedFrom(Queues queue, Integer retries) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(queue.toString());
+        if(retries != null) {
+            properties.setHeader(DeadLetterRouter.RETRY_COUNT_HEADER, retries);
+        }
+        return new Message(new byte[0], properties);
+    }
+
+    // Each failure moves the message on to the next, longer, retry queue:
+    @Test
+    void failedMessageGoesToNextRetryQueue() {
+        Message message = consumedFrom(Queues.AUTO_APPROVAL, 1);
+        given(messagePublisher.publish(anyString(), any())).willReturn(Mono.empty());
+
+        StepVerifier.create(router.retryOrPark(message, new IllegalStateException("timeout")))
+                .expectNext(DeadLetterRouter.Outcome.RETRIED)
+                .verifyComplete();
+
+        verify(messagePublisher).publish(Queues.AUTO_APPROVAL.retryQueue(2), message);
+        assertEquals(2, (Integer) message.getMessageProperties().getHeader(DeadLetterRouter.RETRY_COUNT_HEADER));
+    }
+
+    // A message that has used up its retries is parked along with the reason it failed:
+    @Test
+    void exhaustedMessageIsParked() {
+        Message message = consumedFrom(Queues.AUTO_APPROVAL, 3);
+        given(messagePublisher.publish(anyString(), any())).willReturn(Mono.empty());
+
+        StepVerifier.create(router.retryOrPark(message, new IllegalStateException("timeout")))
+                .expectNext(DeadLetterRouter.Outcome.PARKED)
+                .verifyComplete();
+
+        verify(messagePublisher).publish(Queues.AUTO_APPROVAL.parkingLot(), message);
+        assertEquals("timeout", message.getMessageProperties().getHeader(DeadLetterRouter.EXCEPTION_HEADER));
+    }
+
+    // Queues without retry queues, such as the anonymous invalidation queues, have their failed messages dropped rather
+    // than republished:
+    @Test
+    void messageFromUndeclaredQueueIsDropped() {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue("spring.gen-anonymous");
+
+        StepVerifier.create(router.retryOrPark(new Message(new byte[0], properties), new IllegalStateException("timeout")))
+                .expectNext(DeadLetterRouter.Outcome.DROPPED)
+                .verifyComplete();
+        router.recover(new Message(new byte[0], properties), new IllegalStateException("timeout"));
+        verifyNoInteractions(messagePublisher);
+    }
+}
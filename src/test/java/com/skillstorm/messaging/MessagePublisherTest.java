@@ -0,0 +1,104 @@
+package com.skillstorm.messaging;
+
+import com.skillstorm.exceptions.MessagePublishException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.BDDMockito.willAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class MessagePublisherTest {
+
+    @Mock private RabbitTemplate rabbitTemplate;
+
+    private Scheduler scheduler;
+    private MessagePublisher publisher;
+
+    @BeforeEach
+    void setup() {
+        scheduler = Schedulers.newBoundedElastic(2, 100, "test-publisher");
+        publisher = new MessagePublisher(rabbitTemplate, scheduler, Duration.ofMillis(200), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void teardown() {
+        scheduler.dispose();
+    }
+
+    // The send completes only once the broker acks it, and never on the caller's thread:
+    @Test
+    void publishCompletesOnAck() {
+        Thread caller = Thread.currentThread();
+        willAnswer(invocation -> {
+            assertNotEquals(caller, Thread.currentThread(), "Send should not run on the subscribing thread");
+            invocation.getArgument(4, CorrelationData.class).getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).given(rabbitTemplate).convertAndSend(any(), eq("approval-request-queue"), any(), any(), any(CorrelationData.class));
+
+        StepVerifier.create(publisher.publish("approval-request-queue", "payload"))
+                .verifyComplete();
+        assertEquals(0, publisher.unconfirmed());
+    }
+
+    // Nacked, returned, and unconfirmed messages surface as errors instead of being lost:
+    @Test
+    void publishFailsWhenBrokerDoesNotAccept() {
+        willAnswer(invocation -> {
+            invocation.getArgument(4, CorrelationData.class).getFuture().complete(new CorrelationData.Confirm(false, "overflow"));
+            return null;
+        }).given(rabbitTemplate).convertAndSend(any(), eq("nacked"), any(), any(), any(CorrelationData.class));
+        willAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(4);
+            correlation.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()), 312, "NO_ROUTE", "", "returned"));
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).given(rabbitTemplate).convertAndSend(any(), eq("returned"), any(), any(), any(CorrelationData.class));
+
+        StepVerifier.create(publisher.publish("nacked", "payload"))
+                .verifyError(MessagePublishException.class);
+        StepVerifier.create(publisher.publish("returned", "payload"))
+                .verifyError(MessagePublishException.class);
+        StepVerifier.create(publisher.publish("unconfirmed", "payload"))
+                .verifyError(MessagePublishException.class);
+        assertEquals(0, publisher.unconfirmed());
+    }
+
+    // A group of messages shares one channel and completes once every confirm has arrived:
+    @Test
+    void publishAllAwaitsEveryConfirm() {
+        willAnswer(invocation -> invocation.getArgument(0, RabbitTemplate.OperationsCallback.class).doInRabbit(rabbitTemplate))
+                .given(rabbitTemplate).invoke(any());
+        willAnswer(invocation -> {
+            invocation.getArgument(3, CorrelationData.class).getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).given(rabbitTemplate).convertAndSend(nullable(String.class), anyString(), any(Object.class), any(CorrelationData.class));
+
+        StepVerifier.create(publisher.publishAll(List.of(
+                        new MessagePublisher.OutboundMessage("approval-request-queue", "first"),
+                        new MessagePublisher.OutboundMessage("deletion-request-queue", "second"))))
+                .verifyComplete();
+        assertEquals(0, publisher.unconfirmed());
+    }
+}
@@ -0,0 +1,140 @@
+package com.skillstorm.messaging;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventOutcome;
+import com.skillstorm.constants.Queues;
+import com.skillstorm.dtos.ReimbursementMessageDto;
+import com.skillstorm.entities.OutboxCursor;
+import com.skillstorm.entities.OutboxMessage;
+import com.skillstorm.exceptions.MessagePublishException;
+import com.skillstorm.messaging.MessagePublisher.OutboundMessage;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.LeaseRepository;
+import com.skillstorm.repositories.OutboxCursorRepository;
+import com.skillstorm.repositories.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock private OutboxRepository outboxRepository;
+    @Mock private OutboxCursorRepository outboxCursorRepository;
+    @Mock private LeaseRepository leaseRepository;
+    @Mock private FormRepository formRepository;
+    @Mock private MessagePublisher messagePublisher;
+
+    private Outbox outbox;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setup() {
+        outbox = new Outbox(new Jackson2JsonMessageConverter(), 1);
+        relay = new OutboxRelay(outboxRepository, outboxCursorRepository, leaseRepository, formRepository, messagePublisher, outbox, Duration.ofMillis(500), 100,
+                Duration.ZERO, Duration.ofSeconds(30), Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    // The cursor starts at the beginning of the message's minute:
+    private void givenShardHeldWithCursorBefore(OutboxMessage message) {
+        given(leaseRepository.acquire(eq("outbox:0"), anyString(), eq(Duration.ofSeconds(30)))).willReturn(Mono.just(true));
+        given(outboxCursorRepository.findById(0)).willReturn(Mono.just(new OutboxCursor(0, Uuids.startOf(message.getBucket().toEpochMilli()))));
+    }
+
+    // The cursor only moves past messages once the broker has confirmed them, and each message carries its row id as
+    // the message id:
+    @Test
+    @SuppressWarnings("unchecked")
+    void drainPublishesThenMovesCursor() {
+        OutboxMessage message = outbox.message(UUID.randomUUID(), Queues.CANCEL_REQUEST, new ReimbursementMessageDto("testUser", BigDecimal.TEN));
+        givenShardHeldWithCursorBefore(message);
+        given(outboxRepository.findBetween(eq(0), any(), any(), any(), eq(100))).willReturn(Flux.just(message), Flux.empty());
+        given(messagePublisher.publishAll(anyList())).willReturn(Mono.empty());
+        given(outboxCursorRepository.save(any(OutboxCursor.class))).willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(1L)
+                .verifyComplete();
+
+        ArgumentCaptor<List<OutboundMessage>> published = ArgumentCaptor.forClass(List.class);
+        verify(messagePublisher).publishAll(published.capture());
+        OutboundMessage outbound = published.getValue().get(0);
+        assertEquals(Queues.CANCEL_REQUEST.toString(), outbound.routingKey());
+        assertEquals(message.getId().toString(), ((Message) outbound.payload()).getMessageProperties().getMessageId());
+        verify(outboxCursorRepository).save(new OutboxCursor(0, message.getId()));
+    }
+
+    // A message left pending is resolved through its event first. One whose change never applied is skipped, and the
+    // cursor still moves past it:
+    @Test
+    void pendingMessageOfAbortedChangeIsSkipped() {
+        OutboxMessage message = outbox.message(UUID.randomUUID(), Queues.CANCEL_REQUEST, "payload");
+        message.setEventId(Uuids.timeBased());
+        message.setOutcome(EventOutcome.PENDING);
+        givenShardHeldWithCursorBefore(message);
+        given(outboxRepository.findBetween(eq(0), any(), any(), any(), eq(100))).willReturn(Flux.just(message), Flux.empty());
+        given(formRepository.resolve(message.getFormId(), message.getEventId())).willReturn(Mono.just(false));
+        given(outboxCursorRepository.save(any(OutboxCursor.class))).willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verifyNoInteractions(messagePublisher);
+        verify(outboxCursorRepository).save(new OutboxCursor(0, message.getId()));
+    }
+
+    // A batch the broker didn't confirm is read again on the next poll:
+    @Test
+    void failedPublishLeavesCursor() {
+        OutboxMessage message = outbox.message(UUID.randomUUID(), Queues.APPROVAL_REQUEST, "payload");
+        givenShardHeldWithCursorBefore(message);
+        given(outboxRepository.findBetween(eq(0), any(), any(), any(), eq(100))).willReturn(Flux.just(message));
+        given(messagePublisher.publishAll(anyList()))
+                .willReturn(Mono.error(new MessagePublishException("message.publish.nacked", Queues.APPROVAL_REQUEST.toString())));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(outboxCursorRepository, never()).save(any(OutboxCursor.class));
+    }
+
+    // Another instance holds the shard, so it isn't read here, and the lease isn't tried for again on the next poll:
+    @Test
+    void shardHeldElsewhereIsSkipped() {
+        given(leaseRepository.acquire(eq("outbox:0"), anyString(), any())).willReturn(Mono.just(false));
+
+        StepVerifier.create(relay.drain().then(relay.drain()))
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(leaseRepository, times(1)).acquire(eq("outbox:0"), anyString(), any());
+        verifyNoInteractions(outboxRepository, outboxCursorRepository, messagePublisher);
+    }
+}
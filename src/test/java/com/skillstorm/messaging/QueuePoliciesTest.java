@@ -0,0 +1,63 @@
+package com.skillstorm.messaging;
+
+import com.skillstorm.constants.Queues;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueuePoliciesTest {
+
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+
+    private QueuePolicies policies(String repliesMode, HttpStatus status) {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            requests.add(request);
+            return Mono.just(ClientResponse.create(status).build());
+        });
+        return new QueuePolicies(builder, "rabbit", 15672, "guest", "guest", "/", repliesMode, 500, 10);
+    }
+
+    // One policy per declared queue, named after it, in the default virtual host. Broadcast routing keys are skipped:
+    @Test
+    void applySetsPolicyForEveryDeclaredQueue() {
+        StepVerifier.create(policies("queues", HttpStatus.CREATED).apply())
+                .verifyComplete();
+
+        long declared = List.of(Queues.values()).stream().filter(queue -> queue.getKind() != Queues.Kind.BROADCAST).count();
+        assertEquals(declared, requests.size());
+        ClientRequest first = requests.get(0);
+        assertEquals(HttpMethod.PUT, first.method());
+        assertEquals("http://rabbit:15672/api/policies/%2F/form-service." + Queues.values()[0], first.url().toString());
+    }
+
+    // Routes to the queue's own parking lot and pushes back on publishers once the queue is full:
+    @Test
+    void policyDeadLettersToParkingLot() {
+        Map<String, Object> policy = policies("queues", HttpStatus.CREATED).policyFor(Queues.AUTO_APPROVAL);
+
+        assertEquals("^automatic-approval-queue$", policy.get("pattern"));
+        assertEquals(Map.of("dead-letter-exchange", "", "dead-letter-routing-key", Queues.AUTO_APPROVAL.parkingLot(),
+                "max-length", 500L, "overflow", "reject-publish"), policy.get("definition"));
+    }
+
+    // A broker that refuses the policy doesn't stop the service from starting:
+    @Test
+    void rejectedPolicyIsLoggedAndSkipped() {
+        StepVerifier.create(policies("direct", HttpStatus.UNAUTHORIZED).apply())
+                .verifyComplete();
+
+        assertTrue(requests.stream().noneMatch(request -> request.url().toString().endsWith(Queues.USER_RESPONSE.toString())));
+    }
+}
@@ -0,0 +1,158 @@
+package com.skillstorm.projections;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventOutcome;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.entities.ProjectionRow;
+import com.skillstorm.repositories.FormEventRepository;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.ProjectionRowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FormProjectorTest {
+
+    @Mock private FormEventRepository formEventRepository;
+    @Mock private FormRepository formRepository;
+    @Mock private ProjectionRowRepository projectionRowRepository;
+    @Captor private ArgumentCaptor<Collection<ProjectionRow>> changed;
+    @Captor private ArgumentCaptor<Collection<String>> removed;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LocalDate historyStart;
+    private UUID start;
+    private List<FormEvent> events;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        historyStart = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        start = Uuids.startOf(historyStart.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+
+        // A Form is created, submitted to its supervisor, then approved on to a department head, a minute ago:
+        Form created = form(Status.CREATED);
+        Form submitted = form(Status.AWAITING_SUPERVISOR_APPROVAL);
+        Form approved = form(Status.AWAITING_DEPARTMENT_HEAD_APPROVAL);
+        events = List.of(at(FormEvent.created(created), 3),
+                at(FormEvent.transition(created, submitted, "Supervisor"), 2),
+                at(FormEvent.transition(submitted, approved, "DepartmentHead"), 1));
+
+        given(projectionRowRepository.initialize(any(), eq(start))).willReturn(Mono.empty());
+        given(formEventRepository.findBetween(any(), any(), any(), anyInt())).willAnswer(invocation -> Flux.fromIterable(events)
+                .filter(event -> event.getBucket().equals(invocation.getArgument(0)))
+                .filter(event -> event.getId().timestamp() > ((UUID) invocation.getArgument(1)).timestamp()));
+    }
+
+    private static Form form(Status status) {
+        Form form = new Form();
+        form.setId(UUID.fromString("702772d8-f69f-45ca-870a-5d168bc27169"));
+        form.setUsername("testUser");
+        form.setStatus(status);
+        return form;
+    }
+
+    // Backdate the event so that it is past the settle time:
+    private static FormEvent at(FormEvent event, int secondsAgo) {
+        event.setId(Uuids.startOf(Instant.now().minusSeconds(60 + secondsAgo).toEpochMilli()));
+        event.setBucket(FormEvent.bucketOf(event.getId()));
+        return event;
+    }
+
+    private FormProjector projector(FormProjection... projections) {
+        return new FormProjector(List.of(projections), formEventRepository, formRepository, projectionRowRepository, historyStart, false,
+                Duration.ofSeconds(1), Duration.ofSeconds(10), 100, meterRegistry);
+    }
+
+    private static Map<String, Long> counts(Collection<ProjectionRow> rows) {
+        return rows.stream().collect(Collectors.toMap(ProjectionRow::getKey, ProjectionRow::getCount));
+    }
+
+    // Every event is applied once and the rows it left non-empty are committed with the last event as the checkpoint:
+    @Test
+    void catchUpCommitsEventsWithCheckpoint() {
+        given(projectionRowRepository.findAllByProjection(any()))
+                .willAnswer(invocation -> Flux.just(new ProjectionRow(invocation.getArgument(0), ProjectionRow.CHECKPOINT, 0, start.toString())));
+        given(projectionRowRepository.commit(any(), eq(start), eq(events.get(2).getId()), any(), any())).willReturn(Mono.just(true));
+
+        StepVerifier.create(projector(new StatusCountsProjection(), new PendingApprovalsProjection()).catchUp())
+                .expectNext(6L)
+                .verifyComplete();
+
+        verify(projectionRowRepository).commit(eq(StatusCountsProjection.NAME), eq(start), eq(events.get(2).getId()), changed.capture(), removed.capture());
+        assertEquals(Map.of("AWAITING_DEPARTMENT_HEAD_APPROVAL", 1L), counts(changed.getValue()));
+        assertEquals(2, removed.getValue().size());
+
+        verify(projectionRowRepository).commit(eq(PendingApprovalsProjection.NAME), eq(start), eq(events.get(2).getId()), changed.capture(), removed.capture());
+        assertEquals(1L, counts(changed.getValue()).get("approver:AWAITING_DEPARTMENT_HEAD_APPROVAL:departmenthead"));
+        assertEquals(List.of("approver:AWAITING_SUPERVISOR_APPROVAL:supervisor"), List.copyOf(removed.getValue()));
+    }
+
+    // An event left pending is resolved before it is applied. One whose change never applied is skipped, though the
+    // checkpoint still moves past it:
+    @Test
+    void pendingEventOfAbortedChangeIsSkipped() {
+        FormEvent pending = events.get(2);
+        pending.setOutcome(EventOutcome.PENDING);
+        given(formRepository.resolve(pending.getFormId(), pending.getId())).willReturn(Mono.just(false));
+        given(projectionRowRepository.findAllByProjection(any()))
+                .willAnswer(invocation -> Flux.just(new ProjectionRow(invocation.getArgument(0), ProjectionRow.CHECKPOINT, 0, start.toString())));
+        given(projectionRowRepository.commit(any(), eq(start), eq(pending.getId()), any(), any())).willReturn(Mono.just(true));
+
+        StepVerifier.create(projector(new StatusCountsProjection()).catchUp())
+                .expectNext(3L)
+                .verifyComplete();
+
+        verify(projectionRowRepository).commit(eq(StatusCountsProjection.NAME), eq(start), eq(pending.getId()), changed.capture(), removed.capture());
+        assertEquals(Map.of("AWAITING_SUPERVISOR_APPROVAL", 1L), counts(changed.getValue()));
+    }
+
+    // A commit that misses because another instance moved the checkpoint drops the rows, and the next poll reloads them
+    // from the other instance's checkpoint rather than applying the same events twice:
+    @Test
+    void lostCommitReloadsFromWinningCheckpoint() {
+        UUID winner = events.get(2).getId();
+        given(projectionRowRepository.findAllByProjection(StatusCountsProjection.NAME)).willReturn(
+                Flux.just(new ProjectionRow(StatusCountsProjection.NAME, ProjectionRow.CHECKPOINT, 0, start.toString())),
+                Flux.just(new ProjectionRow(StatusCountsProjection.NAME, ProjectionRow.CHECKPOINT, 0, winner.toString()),
+                        new ProjectionRow(StatusCountsProjection.NAME, "AWAITING_DEPARTMENT_HEAD_APPROVAL", 1, null)));
+        given(projectionRowRepository.commit(any(), eq(start), any(), any(), any())).willReturn(Mono.just(false));
+
+        FormProjector projector = projector(new StatusCountsProjection());
+        StepVerifier.create(projector.catchUp().then(projector.catchUp()))
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(projectionRowRepository, times(2)).findAllByProjection(StatusCountsProjection.NAME);
+        assertEquals(1.0, meterRegistry.get("form.projections.conflicts").counter().count());
+    }
+}
@@ -0,0 +1,111 @@
+package com.skillstorm.projections;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.ProjectionRow;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.LeaseRepository;
+import com.skillstorm.repositories.ProjectionRowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class FormStatsReconcilerTest {
+
+    @Mock private FormRepository formRepository;
+    @Mock private ProjectionRowRepository projectionRowRepository;
+    @Mock private LeaseRepository leaseRepository;
+    @Captor private ArgumentCaptor<Collection<ProjectionRow>> changed;
+    @Captor private ArgumentCaptor<Collection<String>> removed;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FormStatsReconciler reconciler;
+    private UUID checkpoint;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        reconciler = new FormStatsReconciler(formRepository, projectionRowRepository, leaseRepository, new StatusCountsProjection(),
+                new FormStatsProjection(), false, Duration.ofHours(6), 4, 2, 100, 20, Duration.ofHours(1), meterRegistry);
+        checkpoint = Uuids.startOf(System.currentTimeMillis() - 60_000);
+    }
+
+    private static Form form(Status status) {
+        Form form = new Form();
+        form.setId(UUID.randomUUID());
+        form.setStatus(status);
+        form.setEventType(EventType.SEMINAR);
+        form.setDate(LocalDate.of(2026, 11, 2));
+        form.setReimbursement(BigDecimal.valueOf(60));
+        return form;
+    }
+
+    // The stored status counts have one Form too many awaiting its supervisor and a status that no Form is in any more,
+    // and the form stats were never written. The scan replaces both projections and reports the rows that drifted:
+    @Test
+    void reconcileReplacesDriftedStatusCounts() {
+        given(formRepository.scanByTokenRange(any(), eq(4), eq(2), eq(100)))
+                .willReturn(Flux.just(form(Status.AWAITING_SUPERVISOR_APPROVAL), form(Status.CREATED)));
+        given(projectionRowRepository.initialize(any(), any())).willReturn(Mono.empty());
+        given(projectionRowRepository.findAllByProjection(StatusCountsProjection.NAME)).willReturn(Flux.just(
+                new ProjectionRow(StatusCountsProjection.NAME, ProjectionRow.CHECKPOINT, 0, checkpoint.toString()),
+                new ProjectionRow(StatusCountsProjection.NAME, Status.AWAITING_SUPERVISOR_APPROVAL.name(), 2, null),
+                new ProjectionRow(StatusCountsProjection.NAME, Status.CREATED.name(), 1, null),
+                new ProjectionRow(StatusCountsProjection.NAME, Status.DENIED.name(), 1, null)));
+        given(projectionRowRepository.findAllByProjection(FormStatsProjection.NAME)).willReturn(Flux.empty());
+        given(leaseRepository.acquire(any(), any(), any())).willReturn(Mono.just(true));
+        given(leaseRepository.release(any(), any())).willReturn(Mono.empty());
+        given(projectionRowRepository.replace(any(), any(), any(), any(), any(), eq(20))).willReturn(Mono.just(true));
+
+        StepVerifier.create(reconciler.reconcile())
+                .expectNext(2L + 3L)
+                .verifyComplete();
+
+        verify(projectionRowRepository).replace(eq(StatusCountsProjection.NAME), eq(checkpoint), any(), changed.capture(), removed.capture(), eq(20));
+        Map<String, Long> counts = changed.getValue().stream().collect(Collectors.toMap(ProjectionRow::getKey, ProjectionRow::getCount));
+        assertEquals(Map.of(Status.AWAITING_SUPERVISOR_APPROVAL.name(), 1L), counts);
+        assertEquals(List.of(Status.DENIED.name()), List.copyOf(removed.getValue()));
+        assertEquals(2.0, meterRegistry.get("form.stats.drift").tag("projection", StatusCountsProjection.NAME).counter().count());
+        assertEquals(2.0, meterRegistry.get("form.stats.reconcile.rows").counter().count());
+    }
+
+    // Another instance is already reconciling, so the form table isn't scanned here:
+    @Test
+    void reconcileWithoutLeaseSkipsTheScan() {
+        given(leaseRepository.acquire(any(), any(), any())).willReturn(Mono.just(false));
+
+        StepVerifier.create(reconciler.reconcile())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verifyNoInteractions(formRepository, projectionRowRepository);
+    }
+}
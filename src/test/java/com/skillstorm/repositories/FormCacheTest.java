@@ -0,0 +1,92 @@
+package com.skillstorm.repositories;
+
+import com.skillstorm.constants.Queues;
+import com.skillstorm.constants.Status;
+import com.skillstorm.dtos.FormInvalidationDto;
+import com.skillstorm.entities.Form;
+import com.skillstorm.messaging.MessagePublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FormCacheTest {
+
+    @Mock private MessagePublisher messagePublisher;
+
+    private FormCache formCache;
+    private AtomicInteger reads;
+
+    @BeforeEach
+    void setup() {
+        formCache = new FormCache(Duration.ofSeconds(30), 100, true, "direct-exchange", messagePublisher, new SimpleMeterRegistry());
+        reads = new AtomicInteger();
+    }
+
+    private static Form form(UUID id, Status status) {
+        Form form = new Form();
+        form.setId(id);
+        form.setStatus(status);
+        return form;
+    }
+
+    private Mono<Form> read(Form stored) {
+        return Mono.fromSupplier(() -> {
+            reads.incrementAndGet();
+            return stored;
+        });
+    }
+
+    // A status change written by this instance replaces the entry, so the next step of the approval reads it from the cache:
+    @Test
+    void writeThroughServesNextRead() {
+        UUID id = UUID.randomUUID();
+        given(messagePublisher.broadcast(any(), any(), any())).willReturn(Mono.empty());
+        formCache.get(id, () -> read(form(id, Status.AWAITING_SUPERVISOR_APPROVAL))).block();
+
+        Form approved = form(id, Status.AWAITING_DEPARTMENT_HEAD_APPROVAL);
+        formCache.put(approved);
+
+        assertSame(approved, formCache.get(id, () -> read(form(id, Status.CREATED))).block());
+        assertEquals(1, reads.get(), "Only the first read should reach Cassandra");
+        assertEquals(1, formCache.stats().hitCount());
+
+        ArgumentCaptor<FormInvalidationDto> invalidation = ArgumentCaptor.forClass(FormInvalidationDto.class);
+        verify(messagePublisher).broadcast(eq("direct-exchange"), eq(Queues.FORM_INVALIDATION.toString()), invalidation.capture());
+        assertEquals(id, invalidation.getValue().formId());
+    }
+
+    // Invalidations from other instances evict the entry, while this instance's own broadcasts are skipped:
+    @Test
+    void remoteInvalidationEvictsEntry() {
+        UUID id = UUID.randomUUID();
+        given(messagePublisher.broadcast(any(), any(), any())).willReturn(Mono.empty());
+        formCache.put(form(id, Status.CREATED));
+        ArgumentCaptor<FormInvalidationDto> own = ArgumentCaptor.forClass(FormInvalidationDto.class);
+        verify(messagePublisher).broadcast(any(), any(), own.capture());
+
+        formCache.handleInvalidation(own.getValue());
+        formCache.get(id, () -> read(form(id, Status.CREATED))).block();
+        assertEquals(0, reads.get(), "An instance's own broadcast should not evict its entry");
+
+        formCache.handleInvalidation(new FormInvalidationDto(id, "another-instance"));
+        formCache.get(id, () -> read(form(id, Status.AWAITING_SUPERVISOR_APPROVAL))).block();
+        assertEquals(1, reads.get(), "The Form should be read again after another instance changed it");
+    }
+}
@@ -0,0 +1,161 @@
+package com.skillstorm.repositories;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.EscalationDeadline;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormEvent;
+import com.skillstorm.entities.FormByUsername;
+import com.skillstorm.entities.OutboxMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.cassandra.core.CassandraAdminTemplate;
+import org.springframework.data.cassandra.core.ReactiveCassandraTemplate;
+import org.springframework.data.cassandra.core.cql.session.DefaultBridgedReactiveSession;
+import org.springframework.data.cassandra.core.cql.session.DefaultSessionFactory;
+import org.testcontainers.containers.CassandraContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Drives the repository against a local Cassandra node using the driver settings in cassandra-tuning.conf. Requests are
+// issued well past the throttler's concurrency limit so the excess has to queue rather than fail. Skipped without Docker:
+@Testcontainers(disabledWithoutDocker = true)
+class FormRepositoryLoadTest {
+
+    private static final int FORMS = 2_000;
+    private static final int USERS = 50;
+    private static final int READS_PER_FORM = 5;
+
+    // Twice the throttler's max-concurrent-requests:
+    private static final int CONCURRENCY = 4_096;
+
+    @Container
+    private static final CassandraContainer<?> cassandra = new CassandraContainer<>("cassandra:4.1");
+
+    private static CqlSession session;
+    private static SimpleMeterRegistry meterRegistry;
+    private static FormRepositoryCustomImpl formRepository;
+    private static FormByUsernameRepositoryCustomImpl formByUsernameRepository;
+
+    @BeforeAll
+    static void setup() {
+        try(CqlSession admin = CqlSession.builder()
+                .addContactPoint(cassandra.getContactPoint())
+                .withLocalDatacenter(cassandra.getLocalDatacenter())
+                .build()) {
+            admin.execute("CREATE KEYSPACE IF NOT EXISTS trms WITH replication = {'class': 'SimpleStrategy', 'replication_factor': 1}");
+        }
+
+        meterRegistry = new SimpleMeterRegistry();
+        session = CqlSession.builder()
+                .withConfigLoader(DriverConfigLoader.fromClasspath("cassandra-tuning.conf"))
+                .addContactPoint(cassandra.getContactPoint())
+                .withLocalDatacenter(cassandra.getLocalDatacenter())
+                .withKeyspace("trms")
+                .withMetricRegistry(meterRegistry)
+                .build();
+
+        CassandraAdminTemplate adminTemplate = new CassandraAdminTemplate(session);
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("form"), Form.class, Map.of());
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("forms_by_username"), FormByUsername.class, Map.of());
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("outbox_messages"), OutboxMessage.class, Map.of());
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("form_events"), FormEvent.class, Map.of());
+        adminTemplate.createTable(true, CqlIdentifier.fromCql("escalation_deadlines"), EscalationDeadline.class, Map.of());
+
+        ReactiveCassandraTemplate cassandraTemplate = new ReactiveCassandraTemplate(new DefaultBridgedReactiveSession(session));
+        FormStatements formStatements = new FormStatements(new DefaultSessionFactory(session));
+        // Cache sized to nothing so that every read reaches Cassandra:
+        FormCache formCache = new FormCache(Duration.ofSeconds(30), 0, false, "direct-exchange", null, meterRegistry);
+        formRepository = new FormRepositoryCustomImpl(cassandraTemplate, formStatements, formCache, new EscalationIndex(Duration.ofHours(72), Duration.ofDays(2), Duration.ofDays(7)),
+                Duration.ofDays(7));
+        formByUsernameRepository = new FormByUsernameRepositoryCustomImpl(cassandraTemplate, formStatements);
+    }
+
+    @AfterAll
+    static void teardown() {
+        if(session != null) {
+            session.close();
+        }
+    }
+
+    private static Form form(UUID id, String username, Status status) {
+        Form form = new Form();
+        form.setId(id);
+        form.setUsername(username);
+        form.setFirstName("Load");
+        form.setLastName("Test");
+        form.setEmail(username + "@email.com");
+        form.setTime(LocalTime.of(9, 0));
+        form.setDate(LocalDate.now().plusWeeks(2));
+        form.setLocation("Test Location");
+        form.setDescription("Test Description");
+        form.setCost(BigDecimal.valueOf(100));
+        form.setGradeFormat(GradeFormat.PASS_FAIL);
+        form.setEventType(EventType.SEMINAR);
+        form.setJustification("Test Justification");
+        form.setStatus(status);
+        return form;
+    }
+
+    // Every Form is moved on a status while each is read back several times, all at once. Every write should apply,
+    // every read should find its Form, and nothing should be turned away by the throttler:
+    @Test
+    void concurrentStatusChangesAndReadsComplete() {
+        List<Form> forms = IntStream.range(0, FORMS)
+                .mapToObj(i -> form(UUID.randomUUID(), "user" + (i % USERS), Status.CREATED))
+                .toList();
+        StepVerifier.create(Flux.fromIterable(forms).flatMap(form -> formRepository.saveWithIndex(form, null, FormEvent.created(form)), CONCURRENCY).count())
+                .expectNext((long) FORMS)
+                .verifyComplete();
+
+        Mono<Long> applied = Flux.fromIterable(forms)
+                .flatMap(form -> {
+                    Form submitted = form(form.getId(), form.getUsername(), Status.AWAITING_SUPERVISOR_APPROVAL);
+                    return formRepository.compareAndSetStatus(form, submitted, FormEvent.transition(form, submitted, "supervisor"), List.of());
+                }, CONCURRENCY)
+                .filter(Boolean::booleanValue)
+                .count();
+        Mono<Long> found = Flux.fromIterable(forms)
+                .repeat(READS_PER_FORM - 1)
+                .flatMap(form -> formRepository.findById(form.getId()), CONCURRENCY)
+                .count();
+
+        StepVerifier.create(Mono.zip(applied, found))
+                .assertNext(counts -> {
+                    assertEquals(FORMS, counts.getT1());
+                    assertEquals((long) FORMS * READS_PER_FORM, counts.getT2());
+                })
+                .expectComplete()
+                .verify(Duration.ofMinutes(2));
+
+        // The index moved along with the status:
+        StepVerifier.create(formByUsernameRepository.findAllByUsernameAndStatus("user0", Status.AWAITING_SUPERVISOR_APPROVAL.name()).count())
+                .expectNext((long) FORMS / USERS)
+                .verifyComplete();
+
+        assertNotNull(meterRegistry.find("cassandra.session.cql-requests").timer());
+        assertNotNull(meterRegistry.find("cassandra.nodes.pool.in-flight").gauge());
+        assertEquals(0.0, meterRegistry.get("cassandra.session.throttling.errors").counter().count());
+    }
+}
@@ -0,0 +1,112 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.Queues;
+import com.skillstorm.dtos.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ApproverCacheTest {
+
+    private ApproverCache approverCache;
+    private AtomicInteger lookups;
+
+    @BeforeEach
+    void setup() {
+        approverCache = new ApproverCache(Duration.ofMinutes(5), 100, new SimpleMeterRegistry());
+        lookups = new AtomicInteger();
+    }
+
+    private static UserDto approver(String username) {
+        UserDto user = new UserDto();
+        user.setUsername(username);
+        user.setRole("SUPERVISOR");
+        return user;
+    }
+
+    // Concurrent misses for the same key should share one lookup:
+    @Test
+    void concurrentMissesAreCoalesced() {
+        Sinks.One<UserDto> reply = Sinks.one();
+        Mono<UserDto> first = approverCache.get("employee", Queues.SUPERVISOR_LOOKUP, () -> {
+            lookups.incrementAndGet();
+            return reply.asMono();
+        });
+        Mono<UserDto> second = approverCache.get("Employee", Queues.SUPERVISOR_LOOKUP, () -> {
+            lookups.incrementAndGet();
+            return reply.asMono();
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> reply.tryEmitValue(approver("boss")))
+                .assertNext(result -> assertEquals(result.getT1(), result.getT2(), "Both callers should receive the same approver"))
+                .verifyComplete();
+
+        assertEquals(1, lookups.get(), "Only one lookup should have been sent");
+        assertEquals(1, approverCache.stats().hitCount(), "Second caller should count as a hit");
+    }
+
+    // Invalidating the approver should evict entries that returned them:
+    @Test
+    void invalidateRemovesEntriesReferencingApprover() {
+        approverCache.get("employee", Queues.SUPERVISOR_LOOKUP, () -> Mono.just(approver("boss"))).block();
+
+        approverCache.invalidate("BOSS");
+
+        approverCache.get("employee", Queues.SUPERVISOR_LOOKUP, () -> {
+            lookups.incrementAndGet();
+            return Mono.just(approver("newBoss"));
+        }).block();
+        assertEquals(1, lookups.get(), "Lookup should run again after invalidation");
+    }
+
+    // A lookup that was answered before the invalidation but completes after it should not be cached:
+    @Test
+    void invalidateDiscardsLookupInFlight() {
+        Sinks.One<UserDto> reply = Sinks.one();
+        Mono<UserDto> inFlight = approverCache.get("employee", Queues.SUPERVISOR_LOOKUP, reply::asMono);
+
+        StepVerifier.create(inFlight)
+                .then(() -> {
+                    approverCache.invalidate("boss");
+                    reply.tryEmitValue(approver("boss"));
+                })
+                .expectNextCount(1)
+                .verifyComplete();
+
+        approverCache.get("employee", Queues.SUPERVISOR_LOOKUP, () -> {
+            lookups.incrementAndGet();
+            return Mono.just(approver("newBoss"));
+        }).block();
+        assertEquals(1, lookups.get(), "Stale reply should not have been cached");
+    }
+
+    // Invalidating one User leaves lookups in flight for anyone else to be cached as usual:
+    @Test
+    void invalidateKeepsUnrelatedLookupInFlight() {
+        Sinks.One<UserDto> reply = Sinks.one();
+        Mono<UserDto> inFlight = approverCache.get("employee", Queues.SUPERVISOR_LOOKUP, reply::asMono);
+
+        StepVerifier.create(inFlight)
+                .then(() -> {
+                    approverCache.invalidate("someoneElse");
+                    reply.tryEmitValue(approver("boss"));
+                })
+                .expectNextCount(1)
+                .verifyComplete();
+
+        approverCache.get("employee", Queues.SUPERVISOR_LOOKUP, () -> {
+            lookups.incrementAndGet();
+            return Mono.just(approver("newBoss"));
+        }).block();
+        assertEquals(0, lookups.get(), "Reply should have been cached");
+    }
+}
@@ -0,0 +1,144 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.AttachmentType;
+import com.skillstorm.dtos.AttachmentUpdateDto;
+import com.skillstorm.dtos.FormDto;
+import com.skillstorm.dtos.MultipartUploadResponse;
+import com.skillstorm.dtos.UploadedPartDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+// Runs a multipart upload end to end against MinIO standing in for S3: parts are sent to the pre-signed URLs exactly as
+// a browser would send them. Skipped without Docker:
+@Testcontainers(disabledWithoutDocker = true)
+class AttachmentUploadS3Test {
+
+    private static final String BUCKET = "attachments";
+    private static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+    private static final UUID ID = UUID.fromString("702772d8-f69f-45ca-870a-5d168bc27169");
+
+    @Container
+    private static final GenericContainer<?> minio = new GenericContainer<>("minio/minio:RELEASE.2024-06-13T22-53-53Z")
+            .withCommand("server", "/data")
+            .withEnv("MINIO_ROOT_USER", "minioadmin")
+            .withEnv("MINIO_ROOT_PASSWORD", "minioadmin")
+            .withExposedPorts(9000)
+            .waitingFor(Wait.forHttp("/minio/health/live").forPort(9000));
+
+    private static S3Presigner presigner;
+    private static S3AsyncClient s3Client;
+    private static S3ServiceImpl s3Service;
+    private static FormService formService;
+    private static AttachmentUploadServiceImpl attachmentUploadService;
+    private static final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void setup() {
+        URI endpoint = URI.create("http://" + minio.getHost() + ":" + minio.getMappedPort(9000));
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(AwsBasicCredentials.create("minioadmin", "minioadmin"));
+        presigner = S3Presigner.builder()
+                .region(Region.US_EAST_2)
+                .endpointOverride(endpoint)
+                .credentialsProvider(credentials)
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .build();
+        s3Client = S3AsyncClient.builder()
+                .region(Region.US_EAST_2)
+                .endpointOverride(endpoint)
+                .credentialsProvider(credentials)
+                .forcePathStyle(true)
+                .build();
+        s3Client.createBucket(builder -> builder.bucket(BUCKET)).join();
+
+        s3Service = new S3ServiceImpl(presigner, s3Client, BUCKET, Duration.ofMinutes(2), 100, 2, new SimpleMeterRegistry());
+        formService = mock(FormService.class);
+        attachmentUploadService = new AttachmentUploadServiceImpl(formService, s3Service, DataSize.ofMegabytes(5), DataSize.ofMegabytes(100));
+    }
+
+    @AfterAll
+    static void teardown() {
+        if(s3Service != null) {
+            s3Service.destroy();
+            s3Client.close();
+            presigner.close();
+        }
+    }
+
+    private static String md5(byte[] bytes) throws Exception {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(bytes));
+    }
+
+    private static int put(String url, byte[] bytes, String contentMd5) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-MD5", contentMd5)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(bytes))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // The first part is damaged in transit and refused, then sent again on its own. The upload resumes from the parts
+    // already received, completes, passes verification, and is set on the Form:
+    @Test
+    void damagedPartIsRetriedAndUploadCompletes() throws Exception {
+        byte[] deck = new byte[(int) DataSize.ofMegabytes(5).toBytes() + 1_000];
+        new Random(7).nextBytes(deck);
+        given(formService.findById(ID)).willReturn(Mono.just(new FormDto()));
+        MultipartUploadResponse upload = attachmentUploadService.startUpload(ID, AttachmentType.PROOF_OF_COMPLETION, CONTENT_TYPE, deck.length).block();
+        assertEquals(2, upload.partCount());
+        AttachmentUpdateDto update = new AttachmentUpdateDto(AttachmentType.PROOF_OF_COMPLETION.getFieldName(), upload.key());
+        given(formService.updateAttachmentField(ID, AttachmentType.PROOF_OF_COMPLETION, update.key())).willReturn(Mono.just(update));
+        byte[] first = Arrays.copyOfRange(deck, 0, (int) upload.partSize());
+        byte[] second = Arrays.copyOfRange(deck, (int) upload.partSize(), deck.length);
+
+        String firstUrl = attachmentUploadService.generateUploadPartUrl(ID, AttachmentType.PROOF_OF_COMPLETION, upload.uploadId(), 1, md5(first)).block().url();
+        byte[] damaged = first.clone();
+        damaged[0] ^= 1;
+        assertEquals(400, put(firstUrl, damaged, md5(first)));
+
+        String secondUrl = attachmentUploadService.generateUploadPartUrl(ID, AttachmentType.PROOF_OF_COMPLETION, upload.uploadId(), 2, md5(second)).block().url();
+        assertEquals(200, put(secondUrl, second, md5(second)));
+        List<UploadedPartDto> received = attachmentUploadService.findUploadedParts(ID, AttachmentType.PROOF_OF_COMPLETION, upload.uploadId()).collectList().block();
+        assertEquals(List.of(2), received.stream().map(UploadedPartDto::partNumber).toList());
+
+        String retryUrl = attachmentUploadService.generateUploadPartUrl(ID, AttachmentType.PROOF_OF_COMPLETION, upload.uploadId(), 1, md5(first)).block().url();
+        assertEquals(200, put(retryUrl, first, md5(first)));
+
+        StepVerifier.create(attachmentUploadService.completeUpload(ID, AttachmentType.PROOF_OF_COMPLETION, upload.uploadId()))
+                .expectNext(update)
+                .verifyComplete();
+        StepVerifier.create(s3Service.headObject(update.key()))
+                .assertNext(object -> assertEquals(deck.length, object.size()))
+                .verifyComplete();
+    }
+}
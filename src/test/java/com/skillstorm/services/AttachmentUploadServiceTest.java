@@ -0,0 +1,133 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.AttachmentType;
+import com.skillstorm.dtos.AttachmentUpdateDto;
+import com.skillstorm.dtos.StoredObjectDto;
+import com.skillstorm.dtos.UploadedPartDto;
+import com.skillstorm.exceptions.InvalidUploadException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AttachmentUploadServiceTest {
+
+    private static final UUID ID = UUID.fromString("702772d8-f69f-45ca-870a-5d168bc27169");
+    private static final String UPLOAD = "0f8fad5b-d9cb-469f-a165-70867728950e";
+    private static final String KEY = ID + "/proof_of_completion/uploads/" + UPLOAD;
+    private static final String UPLOAD_ID = UPLOAD + "~upload";
+    private static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+    private static final long PART_SIZE = DataSize.ofMegabytes(8).toBytes();
+
+    @Mock private FormService formService;
+    @Mock private S3Service s3Service;
+
+    private AttachmentUploadServiceImpl attachmentUploadService;
+    private List<UploadedPartDto> parts;
+
+    @BeforeEach
+    void setup() {
+        attachmentUploadService = new AttachmentUploadServiceImpl(formService, s3Service, DataSize.ofMegabytes(8), DataSize.ofGigabytes(1));
+        parts = List.of(new UploadedPartDto(1, PART_SIZE, "\"0cc175b9c0f1b6a831c399e269772661\""),
+                new UploadedPartDto(2, 1_000, "\"92eb5ffee6ae2fec3ad71c777531578f\""));
+    }
+
+    private static StoredObjectDto stored(long size, String contentType, String eTag) {
+        return new StoredObjectDto(size, contentType, eTag, Map.of(AttachmentUploadServiceImpl.DECLARED_SIZE, Long.toString(PART_SIZE + 1_000),
+                AttachmentUploadServiceImpl.PART_SIZE, Long.toString(PART_SIZE)));
+    }
+
+    // The declared part size is used unless the file would need more than 10,000 parts:
+    @Test
+    void partSizeGrowsWithVeryLargeFiles() {
+        assertEquals(PART_SIZE, attachmentUploadService.partSizeFor(DataSize.ofMegabytes(200).toBytes()));
+        assertEquals(DataSize.ofMegabytes(11).toBytes(), attachmentUploadService.partSizeFor(DataSize.ofGigabytes(100).toBytes()));
+    }
+
+    @Test
+    void startUploadRejectsFilesOverMaximumSize() {
+        StepVerifier.create(attachmentUploadService.startUpload(ID, AttachmentType.PROOF_OF_COMPLETION, CONTENT_TYPE, DataSize.ofGigabytes(2).toBytes()))
+                .expectError(InvalidUploadException.class)
+                .verify();
+        verify(s3Service, never()).createMultipartUpload(any(), any(), any());
+    }
+
+    // The object S3 assembled matches what was declared, so the Form's attachment is set:
+    @Test
+    void completeUploadSetsAttachmentOnceVerified() {
+        AttachmentUpdateDto update = new AttachmentUpdateDto(AttachmentType.PROOF_OF_COMPLETION.getFieldName(), KEY);
+        given(s3Service.listParts(KEY, "upload")).willReturn(Flux.fromIterable(parts));
+        given(s3Service.completeMultipartUpload(KEY, "upload", parts)).willReturn(Mono.empty());
+        given(s3Service.headObject(KEY)).willReturn(Mono.just(stored(PART_SIZE + 1_000, CONTENT_TYPE, "\"etag-2\"")));
+        given(formService.updateAttachmentField(ID, AttachmentType.PROOF_OF_COMPLETION, KEY)).willReturn(Mono.just(update));
+
+        StepVerifier.create(attachmentUploadService.completeUpload(ID, AttachmentType.PROOF_OF_COMPLETION, UPLOAD_ID))
+                .expectNext(update)
+                .verifyComplete();
+    }
+
+    // The object's content type doesn't match the attachment, so it is deleted and the Form is left alone. Only the
+    // upload's own object is deleted, never the attachment the Form already has:
+    @Test
+    void completeUploadDeletesObjectThatFailsVerification() {
+        given(s3Service.listParts(KEY, "upload")).willReturn(Flux.fromIterable(parts));
+        given(s3Service.completeMultipartUpload(KEY, "upload", parts)).willReturn(Mono.empty());
+        given(s3Service.headObject(KEY)).willReturn(Mono.just(stored(PART_SIZE + 1_000, "application/x-msdownload", "\"etag-2\"")));
+        given(s3Service.deleteObject(KEY)).willReturn(Mono.empty());
+
+        StepVerifier.create(attachmentUploadService.completeUpload(ID, AttachmentType.PROOF_OF_COMPLETION, UPLOAD_ID))
+                .expectError(InvalidUploadException.class)
+                .verify();
+        verify(formService, never()).updateAttachmentField(any(), any(), eq(KEY));
+        verify(s3Service, never()).deleteObject(ID + "/proof_of_completion");
+    }
+
+    // An upload id that doesn't carry the upload's own key can't be used to reach any other object:
+    @Test
+    void completeUploadRejectsUploadIdWithoutItsKey() {
+        StepVerifier.create(attachmentUploadService.completeUpload(ID, AttachmentType.PROOF_OF_COMPLETION, "../../other~upload"))
+                .expectError(InvalidUploadException.class)
+                .verify();
+        verify(s3Service, never()).listParts(any(), any());
+    }
+
+    // A key the Form wasn't given is refused without looking it up, however valid the object there:
+    @Test
+    void registerUploadsRejectsForeignKeys() {
+        StepVerifier.create(attachmentUploadService.registerUploads(ID, Map.of(AttachmentType.EVENT, UUID.randomUUID() + "/event")))
+                .expectError(InvalidUploadException.class)
+                .verify();
+        verify(s3Service, never()).headObject(any());
+        verify(formService, never()).updateAttachmentFields(any(), any());
+    }
+
+    // A single-part upload is registered under its own key once its size and content type check out:
+    @Test
+    void registerUploadsVerifiesObject() {
+        String key = AttachmentType.EVENT.keyFor(ID);
+        AttachmentUpdateDto update = new AttachmentUpdateDto(AttachmentType.EVENT.getFieldName(), key);
+        given(s3Service.headObject(key)).willReturn(Mono.just(new StoredObjectDto(1_000, "application/pdf", "\"etag\"", Map.of())));
+        given(formService.updateAttachmentFields(ID, Map.of(AttachmentType.EVENT, key))).willReturn(Flux.just(update));
+
+        StepVerifier.create(attachmentUploadService.registerUploads(ID, Map.of(AttachmentType.EVENT, key)))
+                .expectNext(update)
+                .verifyComplete();
+    }
+}
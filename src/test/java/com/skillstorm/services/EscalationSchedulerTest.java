@@ -0,0 +1,132 @@
+package com.skillstorm.services;
+
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.EscalationDeadline;
+import com.skillstorm.entities.Form;
+import com.skillstorm.entities.ProjectionRow;
+import com.skillstorm.projections.PendingApprovalsProjection;
+import com.skillstorm.repositories.EscalationDeadlineRepository;
+import com.skillstorm.repositories.FormRepository;
+import com.skillstorm.repositories.LeaseRepository;
+import com.skillstorm.repositories.ProjectionRowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class EscalationSchedulerTest {
+
+    @Mock private FormService formService;
+    @Mock private EscalationDeadlineRepository escalationDeadlineRepository;
+    @Mock private LeaseRepository leaseRepository;
+    @Mock private FormRepository formRepository;
+    @Mock private ProjectionRowRepository projectionRowRepository;
+
+    private EscalationScheduler escalationScheduler;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        // No lookback, so each run only reads the current hour's bucket:
+        escalationScheduler = new EscalationScheduler(formService, escalationDeadlineRepository, leaseRepository, formRepository,
+                projectionRowRepository, true,
+                Duration.ofMinutes(1), Duration.ZERO, Duration.ofMinutes(1), Duration.ofMinutes(2), 2, Duration.ofMillis(10), 4, meterRegistry);
+    }
+
+    private static EscalationDeadline due(Status status, String approver) {
+        Instant deadline = Instant.now().minusSeconds(1);
+        return new EscalationDeadline(EscalationDeadline.bucketOf(deadline), deadline, UUID.randomUUID(), status, approver);
+    }
+
+    // Escalated and stale entries are removed from the index. One that fails is kept for the next run, and the lease is
+    // handed back once the bucket is done:
+    @Test
+    void escalateOverdueTest() {
+        EscalationDeadline escalated = due(Status.AWAITING_SUPERVISOR_APPROVAL, "supervisor");
+        EscalationDeadline stale = due(Status.AWAITING_DEPARTMENT_HEAD_APPROVAL, "departmentHead");
+        EscalationDeadline failed = due(Status.AWAITING_BENCO_APPROVAL, "benco");
+        given(escalationDeadlineRepository.findDue(any(), any())).willReturn(Flux.just(escalated, stale, failed));
+        given(leaseRepository.acquire(any(), anyString(), eq(Duration.ofMinutes(2)))).willReturn(Mono.just(true));
+        given(leaseRepository.release(any(), anyString())).willReturn(Mono.empty());
+        given(formService.escalate(escalated.getFormId(), Status.AWAITING_SUPERVISOR_APPROVAL, "supervisor")).willReturn(Mono.just(true));
+        given(formService.escalate(stale.getFormId(), Status.AWAITING_DEPARTMENT_HEAD_APPROVAL, "departmentHead")).willReturn(Mono.just(false));
+        given(formService.escalate(failed.getFormId(), Status.AWAITING_BENCO_APPROVAL, "benco"))
+                .willReturn(Mono.error(new IllegalStateException("User-Service timeout")));
+        given(escalationDeadlineRepository.delete(any(EscalationDeadline.class))).willReturn(Mono.empty());
+
+        StepVerifier.create(escalationScheduler.escalateOverdue())
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(escalationDeadlineRepository).delete(escalated);
+        verify(escalationDeadlineRepository).delete(stale);
+        verify(escalationDeadlineRepository, never()).delete(failed);
+        verify(leaseRepository).release(eq("escalation:" + escalated.getBucket()), anyString());
+        assertEquals(1.0, meterRegistry.counter("escalations", "outcome", "escalated").count());
+        assertEquals(1.0, meterRegistry.counter("escalations", "outcome", "stale").count());
+        assertEquals(1.0, meterRegistry.counter("escalations", "outcome", "failed").count());
+        assertEquals(3.0, meterRegistry.get("escalations.scan.entries").counter().count());
+        assertEquals(1.0, meterRegistry.get("escalations.scan.buckets").counter().count());
+        assertEquals(1.0, meterRegistry.get("escalations.per.run").summary().totalAmount());
+    }
+
+    // Another instance holds the bucket's lease, so nothing in it is escalated here:
+    @Test
+    void escalateOverdueWithoutLeaseTest() {
+        given(escalationDeadlineRepository.findDue(any(), any())).willReturn(Flux.just(due(Status.AWAITING_SUPERVISOR_APPROVAL, "supervisor")));
+        given(leaseRepository.acquire(any(), anyString(), any())).willReturn(Mono.just(false));
+
+        StepVerifier.create(escalationScheduler.escalateOverdue())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verifyNoInteractions(formService);
+        verify(leaseRepository, never()).release(any(), anyString());
+        assertEquals(1.0, meterRegistry.get("escalations.lease.misses").counter().count());
+    }
+
+    // Only Forms still in the status the projection has them waiting in are filed. Forms that have moved on, and rows
+    // the projection has cleared, are skipped:
+    @Test
+    void backfillTest() {
+        Form waiting = new Form();
+        waiting.setId(UUID.randomUUID());
+        waiting.setStatus(Status.AWAITING_SUPERVISOR_APPROVAL);
+        Form movedOn = new Form();
+        movedOn.setId(UUID.randomUUID());
+        movedOn.setStatus(Status.AWAITING_BENCO_APPROVAL);
+        given(projectionRowRepository.findRange(PendingApprovalsProjection.NAME, "form:", "form;")).willReturn(Flux.just(
+                new ProjectionRow(PendingApprovalsProjection.NAME, "form:" + waiting.getId(), 0, "AWAITING_SUPERVISOR_APPROVAL:supervisor"),
+                new ProjectionRow(PendingApprovalsProjection.NAME, "form:" + movedOn.getId(), 0, "AWAITING_DEPARTMENT_HEAD_APPROVAL:departmentHead"),
+                new ProjectionRow(PendingApprovalsProjection.NAME, "form:" + UUID.randomUUID(), 0, null)));
+        given(formRepository.findById(waiting.getId())).willReturn(Mono.just(waiting));
+        given(formRepository.findById(movedOn.getId())).willReturn(Mono.just(movedOn));
+        given(formRepository.fileEscalation(waiting, "supervisor")).willReturn(Mono.just(true));
+
+        StepVerifier.create(escalationScheduler.backfill())
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(formRepository, never()).fileEscalation(eq(movedOn), anyString());
+    }
+}
@@ -0,0 +1,139 @@
+package com.skillstorm.services;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.skillstorm.constants.ExportTarget;
+import com.skillstorm.constants.Status;
+import com.skillstorm.dtos.FormExportDto;
+import com.skillstorm.dtos.UploadedPartDto;
+import com.skillstorm.exceptions.InvalidExportException;
+import com.skillstorm.repositories.FormRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class FormExportServiceTest {
+
+    private static final UUID FIRST = UUID.fromString("702772d8-f69f-45ca-870a-5d168bc27169");
+    private static final UUID SECOND = UUID.fromString("4e1b5c2a-8a4e-4b8e-9f0e-0c3d3d1f6b7a");
+
+    @Mock private FormRepository formRepository;
+    @Mock private S3Service s3Service;
+    @Captor private ArgumentCaptor<List<UploadedPartDto>> parts;
+
+    @TempDir private Path directory;
+
+    private FormExportServiceImpl formExportService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Parts are kept small so that two Forms span more than one:
+        formExportService = new FormExportServiceImpl(formRepository, s3Service, directory, 16, 2, 100, "LOCAL_ONE",
+                DataSize.ofBytes(40), meterRegistry);
+    }
+
+    private static Row row(Object... values) {
+        Row row = mock(Row.class);
+        for(int i = 0; i < values.length; i++) {
+            given(row.getObject(i)).willReturn(values[i]);
+        }
+        return row;
+    }
+
+    private void givenForms() {
+        Flux<Row> rows = Flux.just(row(FIRST, "Reston, VA", new BigDecimal("1E+2")), row(SECOND, "Tampa", null));
+        given(formRepository.exportByTokenRange(eq(List.of("id", "location", "cost")), isNull(), isNull(), eq(Status.CREATED), isNull(),
+                eq(16), eq(2), eq(100), any()))
+                .willReturn(rows);
+    }
+
+    // Only the named columns are exported, in the order they're named, with fields quoted where CSV needs them:
+    @Test
+    void exportCsvTest() {
+        givenForms();
+
+        StepVerifier.create(formExportService.exportCsv(new FormExportDto(List.of("id", "location", "cost"), null, null, Status.CREATED, null)))
+                .expectNext("id,location,cost\r\n")
+                .expectNext(FIRST + ",\"Reston, VA\",100\r\n")
+                .expectNext(SECOND + ",Tampa,\r\n")
+                .verifyComplete();
+        assertEquals(2.0, meterRegistry.get("form.exports.rows").tag("target", "response").counter().count());
+    }
+
+    // Text that would be run as a formula when the file is opened in a spreadsheet is written as plain text:
+    @Test
+    void exportCsvNeutralisesFormulas() {
+        Flux<Row> rows = Flux.just(row(FIRST, "=HYPERLINK(\"http://example.com\")", new BigDecimal("-5")), row(SECOND, "@SUM(A1)", null));
+        given(formRepository.exportByTokenRange(eq(List.of("id", "location", "cost")), isNull(), isNull(), isNull(), isNull(),
+                eq(16), eq(2), eq(100), any()))
+                .willReturn(rows);
+
+        StepVerifier.create(formExportService.exportCsv(new FormExportDto(List.of("id", "location", "cost"), null, null, null, null)))
+                .expectNext("id,location,cost\r\n")
+                .expectNext(FIRST + ",\"'=HYPERLINK(\"\"http://example.com\"\")\",-5\r\n")
+                .expectNext(SECOND + ",'@SUM(A1),\r\n")
+                .verifyComplete();
+    }
+
+    // Nothing is read for a column the table doesn't have:
+    @Test
+    void exportUnknownColumnTest() {
+        StepVerifier.create(formExportService.exportCsv(new FormExportDto(List.of("id", "password"), null, null, null, null)))
+                .verifyError(InvalidExportException.class);
+        verifyNoInteractions(formRepository);
+    }
+
+    // The export is uploaded a part at a time, and each part but the last is at least part-size:
+    @Test
+    void exportToS3Test() {
+        givenForms();
+        given(s3Service.createMultipartUpload(anyString(), eq("text/csv"), anyMap())).willReturn(Mono.just("upload"));
+        given(s3Service.uploadPart(anyString(), eq("upload"), anyInt(), any()))
+                .willAnswer(invocation -> Mono.just(new UploadedPartDto(invocation.getArgument(2), ((byte[]) invocation.getArgument(3)).length, "etag")));
+        given(s3Service.completeMultipartUpload(anyString(), eq("upload"), parts.capture())).willReturn(Mono.empty());
+
+        StepVerifier.create(formExportService.exportTo(ExportTarget.S3, new FormExportDto(List.of("id", "location", "cost"), null, null, Status.CREATED, null)))
+                .assertNext(result -> {
+                    assertEquals(2, result.rows());
+                    assertTrue(result.location().startsWith("exports/forms-"));
+                })
+                .verifyComplete();
+
+        List<UploadedPartDto> uploaded = parts.getValue();
+        assertEquals(2, uploaded.size());
+        assertEquals(List.of(1, 2), uploaded.stream().map(UploadedPartDto::partNumber).toList());
+        assertTrue(uploaded.get(0).size() >= 40);
+        verify(s3Service, never()).abortMultipartUpload(anyString(), anyString());
+    }
+}
@@ -0,0 +1,159 @@
+package com.skillstorm.services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillstorm.constants.ImportFormat;
+import com.skillstorm.dtos.ImportResultDto;
+import com.skillstorm.entities.Form;
+import com.skillstorm.repositories.FormRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FormImportServiceTest {
+
+    private static final String HEADER = "id,username,firstName,lastName,email,time,date,location,description,cost,gradeFormat,eventType,justification";
+    private static final UUID FIRST = UUID.fromString("702772d8-f69f-45ca-870a-5d168bc27169");
+    private static final UUID SECOND = UUID.fromString("4e1b5c2a-8a4e-4b8e-9f0e-0c3d3d1f6b7a");
+
+    @Mock private FormRepository formRepository;
+    @Captor private ArgumentCaptor<List<Form>> forms;
+
+    private FormImportServiceImpl formImportService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        meterRegistry = new SimpleMeterRegistry();
+        // A max-wait well beyond the test's run time, so every record lands in one chunk however slowly the lines arrive:
+        formImportService = new FormImportServiceImpl(formRepository, objectMapper, Validation.buildDefaultValidatorFactory().getValidator(),
+                100, Duration.ofMinutes(1), 10, 4, meterRegistry);
+    }
+
+    private static String row(UUID id, String username, String location) {
+        return String.join(",", id.toString(), username, "Test", "User", username + "@email.com", "09:00", "2024-03-01",
+                location, "Historical seminar", "150.00", "PASS_FAIL", "SEMINAR", "Backfilled from paper forms");
+    }
+
+    // A past event date is accepted, a quoted cell may hold a comma, a record missing its username is rejected without
+    // being written, and a record whose batch failed is reported so it can be sent again:
+    @Test
+    void importCsvStreamsResultForEveryRecord() {
+        given(formRepository.findRows(any())).willReturn(Flux.empty());
+        given(formRepository.importAll(any(), any(), anyInt(), anyInt())).willReturn(Mono.just(Set.of(SECOND)));
+
+        Flux<String> lines = Flux.just(HEADER,
+                row(FIRST, "employee", "\"Reston, VA\""),
+                row(UUID.randomUUID(), "", "Tampa"),
+                "",
+                row(SECOND, "employee", "Tampa"));
+
+        StepVerifier.create(formImportService.importForms(lines, ImportFormat.CSV).collectList())
+                .assertNext(results -> {
+                    assertEquals(List.of(3L, 2L, 5L), results.stream().map(ImportResultDto::line).toList());
+                    assertFalse(results.get(0).imported());
+                    assertTrue(results.get(0).errors().stream().anyMatch(error -> error.startsWith("username")));
+                    assertEquals(new ImportResultDto(2, FIRST, true, List.of()), results.get(1));
+                    assertFalse(results.get(2).imported());
+                    assertEquals(List.of("Failed to write record, import it again with id " + SECOND), results.get(2).errors());
+                })
+                .verifyComplete();
+
+        verify(formRepository).importAll(forms.capture(), any(), anyInt(), anyInt());
+        assertEquals(2, forms.getValue().size());
+        assertEquals("Reston, VA", forms.getValue().get(0).getLocation());
+        assertEquals(LocalDate.of(2024, 3, 1), forms.getValue().get(0).getDate());
+        assertEquals(1.0, meterRegistry.get("form.imports").tag("outcome", "rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("form.imports").tag("outcome", "failed").counter().count());
+    }
+
+    // A record may not take the id of a Form stored under another username, but may be sent again under the id of a
+    // Form its failed import already wrote:
+    @Test
+    void importRejectsTakenIds() {
+        given(formRepository.findRows(FIRST)).willReturn(Flux.empty());
+        given(formRepository.findRows(SECOND)).willReturn(Flux.empty());
+        given(formRepository.importAll(any(), any(), anyInt(), anyInt())).willReturn(Mono.just(Set.of(FIRST)));
+        Flux<String> lines = Flux.just(HEADER, row(FIRST, "employee", "Tampa"), row(SECOND, "employee", "Tampa"));
+        StepVerifier.create(formImportService.importForms(lines, ImportFormat.CSV).then())
+                .verifyComplete();
+        verify(formRepository).importAll(forms.capture(), any(), anyInt(), anyInt());
+
+        Form written = forms.getValue().get(0);
+        Form other = new Form();
+        other.setId(SECOND);
+        other.setUsername("someoneElse");
+        given(formRepository.findRows(FIRST)).willReturn(Flux.just(written));
+        given(formRepository.findRows(SECOND)).willReturn(Flux.just(other));
+        given(formRepository.importAll(any(), any(), anyInt(), anyInt())).willReturn(Mono.just(Set.of()));
+
+        StepVerifier.create(formImportService.importForms(lines, ImportFormat.CSV).collectList())
+                .assertNext(results -> {
+                    assertEquals(List.of(3L, 2L), results.stream().map(ImportResultDto::line).toList());
+                    assertEquals(List.of("A Form with id " + SECOND + " already exists"), results.get(0).errors());
+                    assertTrue(results.get(1).imported());
+                })
+                .verifyComplete();
+    }
+
+    // A file as the export writes it: column names in the header, and a quoted field holding a line break, which reaches
+    // the importer as two lines. A quote left open to the end of the body is reported rather than imported:
+    @Test
+    void importCsvReadsExportedFiles() {
+        given(formRepository.findRows(any())).willReturn(Flux.empty());
+        given(formRepository.importAll(any(), any(), anyInt(), anyInt())).willReturn(Mono.just(Set.of()));
+        String header = "id,username,first_name,last_name,email,time,date,location,description,cost,grade_format,event_type,justification";
+        String[] multiLine = row(FIRST, "employee", "Tampa").replace("Historical seminar", "\"Historical\nseminar\"").split("\n");
+
+        Flux<String> lines = Flux.just(header, multiLine[0], multiLine[1], row(SECOND, "employee", "\"Tampa"));
+
+        StepVerifier.create(formImportService.importForms(lines, ImportFormat.CSV).collectList())
+                .assertNext(results -> {
+                    assertEquals(List.of(4L, 2L), results.stream().map(ImportResultDto::line).toList());
+                    assertFalse(results.get(0).imported());
+                    assertTrue(results.get(1).imported());
+                })
+                .verifyComplete();
+
+        verify(formRepository).importAll(forms.capture(), any(), anyInt(), anyInt());
+        assertEquals(1, forms.getValue().size());
+        assertEquals("Historical\nseminar", forms.getValue().get(0).getDescription());
+        assertEquals("Test", forms.getValue().get(0).getFirstName());
+    }
+
+    @Test
+    void importNdjsonReportsMalformedLines() {
+        StepVerifier.create(formImportService.importForms(Flux.just("{\"username\": "), ImportFormat.NDJSON))
+                .assertNext(result -> {
+                    assertEquals(1, result.line());
+                    assertFalse(result.imported());
+                })
+                .verifyComplete();
+    }
+}
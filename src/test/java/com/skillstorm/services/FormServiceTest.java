@@ -1,41 +1,94 @@
 package com.skillstorm.services;
 
+import com.skillstorm.constants.AttachmentType;
 import com.skillstorm.constants.EventType;
 import com.skillstorm.constants.GradeFormat;
+import com.skillstorm.constants.Queues;
 import com.skillstorm.constants.Status;
+import com.skillstorm.dtos.ApprovalRequestDto;
+import com.skillstorm.dtos.AttachmentUpdateDto;
+import com.skillstorm.dtos.BatchResultDto;
+import com.skillstorm.dtos.DenialDto;
 import com.skillstorm.dtos.FormDto;
+import com.skillstorm.dtos.ReimbursementMessageDto;
+import com.skillstorm.dtos.UserDto;
 import com.skillstorm.entities.Form;
+import com.skillstorm.entities.FormByUsername;
+import com.skillstorm.exceptions.FormNotFoundException;
+import com.skillstorm.exceptions.InvalidPageTokenException;
+import com.skillstorm.exceptions.InvalidStatusTransitionException;
+import com.skillstorm.messaging.CorrelationRegistry;
+import com.skillstorm.messaging.DeadLetterRouter;
+import com.skillstorm.messaging.MessagePublisher;
+import com.skillstorm.messaging.Outbox;
+import com.skillstorm.messaging.RequestReplyClient;
+import com.skillstorm.repositories.FormByUsernameRepository;
 import com.skillstorm.repositories.FormRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static reactor.core.publisher.Mono.when;
 
 @ExtendWith(MockitoExtension.class)
 class FormServiceTest {
 
-    @InjectMocks private static FormServiceImpl formService;
+    private static FormServiceImpl formService;
     @Mock private static FormRepository formRepository;
+    @Mock private static FormByUsernameRepository formByUsernameRepository;
     @Mock private static S3ServiceImpl s3Service;
-    @Mock private static RabbitTemplate rabbitTemplate;
+    @Mock private static MessagePublisher messagePublisher;
+    @Mock private static RequestReplyClient requestReplyClient;
+    @Mock private static DeadLetterRouter deadLetterRouter;
+    @Mock private static ApproverCache approverCache;
+    @Mock private static CorrelationRegistry<UserDto> lookupCorrelationRegistry;
+    @Mock private static CorrelationRegistry<ReimbursementMessageDto> reimbursementCorrelationRegistry;
 
+    private static SimpleMeterRegistry meterRegistry;
     private static Form returnedForm;
     private static FormDto newFormDto;
 
     @BeforeEach
     void setup() {
-        formService = new FormServiceImpl(formRepository, s3Service, rabbitTemplate);
+        meterRegistry = new SimpleMeterRegistry();
+        formService = new FormServiceImpl(formRepository, formByUsernameRepository, s3Service, messagePublisher,
+                new Outbox(new Jackson2JsonMessageConverter(), 16), requestReplyClient, deadLetterRouter, approverCache, lookupCorrelationRegistry,
+                reimbursementCorrelationRegistry, meterRegistry);
         System.out.println("\n\nSetup called");
         setupRequestForms();
     }
@@ -47,7 +100,7 @@ class FormServiceTest {
         newFormDto.setFirstName("TestFirstname");
         newFormDto.setLastName("TestLastname");
         newFormDto.setEmail("testUser@email.com");
-        newFormDto.setTime("16:00");
+        newFormDto.setTime(LocalTime.of(16, 0));
         newFormDto.setLocation("Test Location");
         newFormDto.setDescription("Test Description");
         newFormDto.setCost(BigDecimal.valueOf(100));
@@ -65,6 +118,7 @@ class FormServiceTest {
         returnedForm.setLastName("TestLastname");
         returnedForm.setEmail("testUser@email.com");
         returnedForm.setTime(LocalTime.parse("16:00"));
+        returnedForm.setDate(LocalDate.parse("2024-06-01"));
         returnedForm.setLocation("Test Location");
         returnedForm.setDescription("Test Description");
         returnedForm.setCost(BigDecimal.valueOf(100));
@@ -99,7 +153,7 @@ class FormServiceTest {
             assertEquals("TestFirstname", result.getFirstName(), "First name should be TestFirstname");
             assertEquals("TestLastname", result.getLastName(), "Last name should be TestLastname");
             assertEquals("testUser@email.com", result.getEmail(), "Email should be testUser@email.com");
-            assertEquals("16:00", result.getTime(), "Time should be 16:00");
+            assertEquals(LocalTime.of(16, 0), result.getTime(), "Time should be 16:00");
             assertEquals("Test Location", result.getLocation(), "Location should be Test Location");
             assertEquals(BigDecimal.valueOf(100).setScale(2), result.getCost(), "Cost should be 100.00");
             assertEquals(EventType.UNIVERSITY_COURSE, result.getEventType(), "Event type should be UNIVERSITY_COURSE");
@@ -110,4 +164,262 @@ class FormServiceTest {
             assertEquals(BigDecimal.valueOf(80).setScale(2), result.getReimbursement(), "Reimbursement should be 80.00");
         });
     }
+
+    // Find a User's Forms by Status reads a single forms_by_username partition rather than scanning the form table:
+    @Test
+    void findAllFormsByUsernameAndStatusReadsSinglePartition() {
+        returnedForm.setStatus(Status.PENDING);
+        given(formByUsernameRepository.findAllByUsernameAndStatus("testUser", "PENDING"))
+                .willReturn(Flux.just(new FormByUsername(returnedForm)));
+
+        StepVerifier.create(formService.findAllFormsByUsernameAndStatus("testUser", "pending"))
+                .assertNext(result -> {
+                    assertEquals(returnedForm.getId(), result.getId(), "ID should match the stored Form");
+                    assertEquals(Status.PENDING, result.getStatus(), "Status should be PENDING");
+                })
+                .verifyComplete();
+
+        verifyNoInteractions(formRepository);
+    }
+
+    // Batch approval resolves the next approver once and writes each Form's inbox message to the outbox with its status change:
+    @Test
+    void batchApproveResolvesApproverOnceAndGroupsWrites() {
+        Form second = new FormByUsername(returnedForm).toForm();
+        second.setId(UUID.randomUUID());
+        returnedForm.setStatus(Status.AWAITING_DEPARTMENT_HEAD_APPROVAL);
+        second.setStatus(Status.AWAITING_DEPARTMENT_HEAD_APPROVAL);
+
+        UserDto benco = new UserDto();
+        benco.setUsername("benco");
+        benco.setRole("BENCO");
+
+        given(formRepository.findById(returnedForm.getId())).willReturn(Mono.just(returnedForm));
+        given(formRepository.findById(second.getId())).willReturn(Mono.just(second));
+        given(approverCache.get(eq("departmentHead"), eq(Queues.BENCO_LOOKUP), any())).willReturn(Mono.just(benco));
+        given(formRepository.compareAndSetStatus(any(), any(), any(), argThat(outbox -> outbox.size() == 1 &&
+                Queues.APPROVAL_REQUEST.toString().equals(outbox.get(0).getRoutingKey())))).willReturn(Mono.just(true));
+
+        StepVerifier.create(formService.batchApprove(List.of(returnedForm.getId(), second.getId()), "departmentHead"))
+                .recordWith(ArrayList::new)
+                .expectNextCount(2)
+                .consumeRecordedWith(results -> results.forEach((BatchResultDto result) ->
+                        assertEquals(Status.AWAITING_BENCO_APPROVAL, result.status(), "Each Form should move to Benco approval")))
+                .verifyComplete();
+
+        verify(approverCache, times(1)).get(eq("departmentHead"), eq(Queues.BENCO_LOOKUP), any());
+        verify(formRepository, times(2)).compareAndSetStatus(any(), any(), any(), anyList());
+        verifyNoInteractions(messagePublisher);
+    }
+
+    // A denial that loses its compare-and-set to another denial should fail with a conflict rather than overwrite it:
+    @Test
+    void denyRequestLosingRaceIsRejectedByTransitionTable() {
+        returnedForm.setStatus(Status.AWAITING_SUPERVISOR_APPROVAL);
+        Form alreadyDenied = new FormByUsername(returnedForm).toForm();
+        alreadyDenied.setStatus(Status.DENIED);
+
+        DenialDto denial = new DenialDto();
+        denial.setApprover("supervisor");
+        denial.setReason("Not relevant");
+
+        given(formRepository.findById(returnedForm.getId())).willReturn(Mono.just(returnedForm), Mono.just(alreadyDenied));
+        given(formRepository.compareAndSetStatus(any(), any(), any(), anyList())).willReturn(Mono.just(false));
+
+        StepVerifier.create(formService.denyRequest(returnedForm.getId(), denial))
+                .expectError(InvalidStatusTransitionException.class)
+                .verify();
+
+        verify(formRepository, times(1)).compareAndSetStatus(any(), any(), any(), anyList());
+        verifyNoInteractions(messagePublisher);
+    }
+
+    // The Department Head lookup runs while the Form is read, and the request moves between inboxes in one message:
+    @Test
+    void supervisorApproveLooksUpDepartmentHeadWhileReadingForm() {
+        ReflectionTestUtils.setField(formService, "combinedInboxUpdates", true);
+        returnedForm.setStatus(Status.AWAITING_SUPERVISOR_APPROVAL);
+
+        UserDto departmentHead = new UserDto();
+        departmentHead.setUsername("departmentHead");
+        departmentHead.setRole("DEPARTMENT_HEAD");
+
+        AtomicBoolean lookupStarted = new AtomicBoolean();
+        Sinks.One<Form> read = Sinks.one();
+        given(formRepository.findById(returnedForm.getId())).willReturn(read.asMono());
+        given(approverCache.get(eq("supervisor"), eq(Queues.DEPARTMENT_HEAD_LOOKUP), any()))
+                .willReturn(Mono.just(departmentHead).doOnSubscribe(subscription -> lookupStarted.set(true)));
+        given(formRepository.compareAndSetStatus(any(), any(), any(), argThat(outbox -> outbox.size() == 1 &&
+                Queues.INBOX_UPDATE.toString().equals(outbox.get(0).getRoutingKey())))).willReturn(Mono.just(true));
+
+        StepVerifier.create(formService.supervisorApprove(returnedForm.getId(), "supervisor"))
+                .then(() -> {
+                    assertTrue(lookupStarted.get(), "Lookup should start before the Form has been read");
+                    read.tryEmitValue(returnedForm);
+                })
+                .assertNext(approved -> assertEquals(Status.AWAITING_DEPARTMENT_HEAD_APPROVAL, approved.getStatus()))
+                .verifyComplete();
+
+        verifyNoInteractions(messagePublisher);
+    }
+
+    @Test
+    void updateAttachmentFieldsWritesOnlyTheAttachmentColumns() {
+        UUID id = UUID.randomUUID();
+        Map<AttachmentType, String> keys = new LinkedHashMap<>();
+        keys.put(AttachmentType.SUPERVISOR_APPROVAL, id + "/supervisor_approval");
+        keys.put(AttachmentType.PROOF_OF_COMPLETION, id + "/proof_of_completion");
+        Map<String, String> columns = Map.of("supervisor_preapproval", id + "/supervisor_approval",
+                "completion_attachment", id + "/proof_of_completion");
+        given(formRepository.updateAttachments(eq(id), eq(columns), any())).willReturn(Mono.just(true));
+
+        StepVerifier.create(formService.updateAttachmentFields(id, keys))
+                .expectNext(new AttachmentUpdateDto("supervisorAttachment", id + "/supervisor_approval"))
+                .expectNext(new AttachmentUpdateDto("completionAttachment", id + "/proof_of_completion"))
+                .verifyComplete();
+        verify(formRepository, times(0)).findById(any(UUID.class));
+    }
+
+    @Test
+    void updateAttachmentFieldOnMissingFormIsNotFound() {
+        UUID id = UUID.randomUUID();
+        given(formRepository.updateAttachments(eq(id), any(), any())).willReturn(Mono.just(false));
+
+        StepVerifier.create(formService.updateAttachmentField(id, AttachmentType.EVENT, id + "/event"))
+                .verifyError(FormNotFoundException.class);
+    }
+
+    @Test
+    void findPageRoundTripsPagingStateThroughToken() {
+        ByteBuffer pagingState = ByteBuffer.wrap(new byte[] {1, 2, 3, 4});
+        CassandraPageRequest nextPage = CassandraPageRequest.of(PageRequest.of(1, 2), pagingState);
+        given(formRepository.findPage(2, null, Status.PENDING, null))
+                .willReturn(Mono.just(new SliceImpl<>(List.of(returnedForm), nextPage, true)));
+        given(formRepository.findPage(eq(2), eq(pagingState), eq(Status.PENDING), eq(null)))
+                .willReturn(Mono.just(new SliceImpl<>(List.of(returnedForm), CassandraPageRequest.first(2), false)));
+
+        String token = formService.findPage(2, null, Status.PENDING, null).block().nextPageToken();
+
+        StepVerifier.create(formService.findPage(2, token, Status.PENDING, null))
+                .assertNext(page -> {
+                    assertEquals(1, page.forms().size());
+                    assertEquals(null, page.nextPageToken());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageRejectsMalformedToken() {
+        StepVerifier.create(formService.findPage(50, "not base64!", null, null))
+                .verifyError(InvalidPageTokenException.class);
+        verifyNoInteractions(formRepository);
+    }
+
+    // An automatic approval that fails on a transient error is handed to a retry queue rather than retried in place, and
+    // the listener completes so the original message is acked:
+    @Test
+    void automaticApprovalSendsTransientFailureToRetryQueue() {
+        returnedForm.setStatus(Status.AWAITING_SUPERVISOR_APPROVAL);
+        UserDto supervisor = new UserDto();
+        supervisor.setUsername("supervisor");
+        supervisor.setRole("SUPERVISOR");
+        UserDto departmentHead = new UserDto();
+        departmentHead.setUsername("departmentHead");
+        departmentHead.setRole("DEPARTMENT_HEAD");
+        Message message = new Message(new byte[0], new MessageProperties());
+
+        given(approverCache.get(eq("supervisor"), eq(Queues.USER_LOOKUP), any())).willReturn(Mono.just(supervisor));
+        given(approverCache.get(eq("supervisor"), eq(Queues.DEPARTMENT_HEAD_LOOKUP), any())).willReturn(Mono.just(departmentHead));
+        given(formRepository.findById(returnedForm.getId())).willReturn(Mono.just(returnedForm));
+        given(formRepository.compareAndSetStatus(any(), any(), any(), anyList()))
+                .willReturn(Mono.error(new IllegalStateException("Cassandra timeout")));
+        given(deadLetterRouter.retryOrPark(eq(message), any(IllegalStateException.class)))
+                .willReturn(Mono.just(DeadLetterRouter.Outcome.RETRIED));
+
+        ApprovalRequestDto approvalRequest = new ApprovalRequestDto(returnedForm.getId(), "supervisor", "testUser", "2024-06-01");
+        StepVerifier.create(formService.handleAutomaticApproval(approvalRequest, message))
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.counter("auto.approvals", "outcome", "retried").count());
+        assertEquals(0.0, meterRegistry.counter("auto.approvals", "outcome", "processed").count());
+    }
+
+    // A Form that no longer exists can't be fixed by retrying, so the message is parked straight away:
+    @Test
+    void automaticApprovalOfMissingFormIsParked() {
+        UserDto supervisor = new UserDto();
+        supervisor.setUsername("supervisor");
+        supervisor.setRole("SUPERVISOR");
+        Message message = new Message(new byte[0], new MessageProperties());
+        given(approverCache.get(eq("supervisor"), eq(Queues.USER_LOOKUP), any())).willReturn(Mono.just(supervisor));
+        // The Department Head lookup starts alongside the read, before the Form is found to be missing:
+        given(approverCache.get(eq("supervisor"), eq(Queues.DEPARTMENT_HEAD_LOOKUP), any())).willReturn(Mono.empty());
+        given(formRepository.findById(returnedForm.getId())).willReturn(Mono.empty());
+        given(deadLetterRouter.park(eq(message), any(FormNotFoundException.class)))
+                .willReturn(Mono.just(DeadLetterRouter.Outcome.PARKED));
+
+        ApprovalRequestDto approvalRequest = new ApprovalRequestDto(returnedForm.getId(), "supervisor", "testUser", "2024-06-01");
+        StepVerifier.create(formService.handleAutomaticApproval(approvalRequest, message))
+                .verifyComplete();
+
+        assertEquals(0.0, meterRegistry.counter("auto.approvals", "outcome", "retried").count());
+        assertEquals(1.0, meterRegistry.counter("auto.approvals", "outcome", "dead.lettered").count());
+    }
+
+    // A Form the supervisor already approved has moved on, so its automatic approval is a no-op rather than a failure:
+    @Test
+    void automaticApprovalOfFormThatMovedOnIsProcessed() {
+        returnedForm.setStatus(Status.AWAITING_DEPARTMENT_HEAD_APPROVAL);
+        UserDto supervisor = new UserDto();
+        supervisor.setUsername("supervisor");
+        supervisor.setRole("SUPERVISOR");
+        UserDto departmentHead = new UserDto();
+        departmentHead.setUsername("departmentHead");
+        departmentHead.setRole("DEPARTMENT_HEAD");
+        Message message = new Message(new byte[0], new MessageProperties());
+
+        given(approverCache.get(eq("supervisor"), eq(Queues.USER_LOOKUP), any())).willReturn(Mono.just(supervisor));
+        given(approverCache.get(eq("supervisor"), eq(Queues.DEPARTMENT_HEAD_LOOKUP), any())).willReturn(Mono.just(departmentHead));
+        given(formRepository.findById(returnedForm.getId())).willReturn(Mono.just(returnedForm));
+
+        ApprovalRequestDto approvalRequest = new ApprovalRequestDto(returnedForm.getId(), "supervisor", "testUser", "2024-06-01");
+        StepVerifier.create(formService.handleAutomaticApproval(approvalRequest, message))
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.counter("auto.approvals", "outcome", "processed").count());
+        verifyNoInteractions(deadLetterRouter);
+        verify(formRepository, times(0)).compareAndSetStatus(any(), any(), any(), anyList());
+    }
+
+    // A Benco's overdue approval is put in their supervisor's inbox rather than given automatically:
+    @Test
+    void escalateBencoApprovalNotifiesSupervisor() {
+        returnedForm.setStatus(Status.AWAITING_BENCO_APPROVAL);
+        returnedForm.setDate(LocalDate.of(2024, 6, 1));
+        UserDto bencoSupervisor = new UserDto();
+        bencoSupervisor.setUsername("bencoSupervisor");
+        given(formRepository.findById(returnedForm.getId())).willReturn(Mono.just(returnedForm));
+        given(approverCache.get(eq("benco"), eq(Queues.SUPERVISOR_LOOKUP), any())).willReturn(Mono.just(bencoSupervisor));
+        given(messagePublisher.publish(eq(Queues.APPROVAL_REQUEST.toString()), any(Object.class))).willReturn(Mono.empty());
+
+        StepVerifier.create(formService.escalate(returnedForm.getId(), Status.AWAITING_BENCO_APPROVAL, "benco"))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(messagePublisher).publish(Queues.APPROVAL_REQUEST.toString(),
+                new ApprovalRequestDto(returnedForm.getId(), "bencosupervisor", "testUser", "2024-06-01"));
+    }
+
+    // A Form that moved on before its deadline came up is left alone:
+    @Test
+    void escalateFormThatMovedOnIsSkipped() {
+        returnedForm.setStatus(Status.AWAITING_DEPARTMENT_HEAD_APPROVAL);
+        given(formRepository.findById(returnedForm.getId())).willReturn(Mono.just(returnedForm));
+
+        StepVerifier.create(formService.escalate(returnedForm.getId(), Status.AWAITING_SUPERVISOR_APPROVAL, "supervisor"))
+                .expectNext(false)
+                .verifyComplete();
+
+        verifyNoInteractions(approverCache, messagePublisher);
+    }
 }
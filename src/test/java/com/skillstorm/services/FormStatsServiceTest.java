@@ -0,0 +1,77 @@
+package com.skillstorm.services;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.skillstorm.constants.EventType;
+import com.skillstorm.constants.Status;
+import com.skillstorm.entities.ProjectionRow;
+import com.skillstorm.projections.FormStatsProjection;
+import com.skillstorm.projections.PendingApprovalsProjection;
+import com.skillstorm.projections.StatusCountsProjection;
+import com.skillstorm.repositories.ProjectionRowRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class FormStatsServiceTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    @Mock private ProjectionRowRepository projectionRowRepository;
+
+    private static ProjectionRow row(String projection, String key, long count) {
+        return new ProjectionRow(projection, key, count, null);
+    }
+
+    private static ProjectionRow checkpoint(String projection, Instant at) {
+        UUID checkpoint = Uuids.startOf(at.toEpochMilli());
+        return new ProjectionRow(projection, ProjectionRow.CHECKPOINT, 0, checkpoint.toString());
+    }
+
+    // Only events less than two weeks out are urgent, only unsettled reimbursement is pending, and the statistics are
+    // as old as the projection furthest behind:
+    @Test
+    void getStatsCombinesProjections() {
+        FormStatsServiceImpl formStatsService = new FormStatsServiceImpl(projectionRowRepository, Clock.fixed(NOW, ZoneOffset.UTC));
+        String awaiting = FormStatsProjection.AWAITING_PREFIX + Status.AWAITING_SUPERVISOR_APPROVAL + ":";
+        String reimbursement = FormStatsProjection.REIMBURSEMENT_PREFIX;
+        given(projectionRowRepository.findAllByProjection(StatusCountsProjection.NAME)).willReturn(Flux.just(
+                checkpoint(StatusCountsProjection.NAME, NOW.minusSeconds(10)),
+                row(StatusCountsProjection.NAME, Status.AWAITING_SUPERVISOR_APPROVAL.name(), 3),
+                row(StatusCountsProjection.NAME, Status.APPROVED.name(), 1)));
+        given(projectionRowRepository.findRange(PendingApprovalsProjection.NAME, "approver:", "approver;")).willReturn(Flux.just(
+                row(PendingApprovalsProjection.NAME, "approver:AWAITING_SUPERVISOR_APPROVAL:supervisor", 3)));
+        given(projectionRowRepository.findAllByProjection(FormStatsProjection.NAME)).willReturn(Flux.just(
+                checkpoint(FormStatsProjection.NAME, NOW.minusSeconds(30)),
+                row(FormStatsProjection.NAME, awaiting + "2026-10-20", 1),
+                row(FormStatsProjection.NAME, awaiting + "2026-10-30", 1),
+                row(FormStatsProjection.NAME, awaiting + "2026-10-31", 1),
+                row(FormStatsProjection.NAME, reimbursement + "AWAITING_SUPERVISOR_APPROVAL:SEMINAR", 18_000),
+                row(FormStatsProjection.NAME, reimbursement + "APPROVED:SEMINAR", 5_050),
+                row(FormStatsProjection.NAME, reimbursement + "PENDING:CERTIFICATION", 12_345)));
+
+        StepVerifier.create(formStatsService.getStats())
+                .assertNext(stats -> {
+                    assertEquals(Map.of(Status.AWAITING_SUPERVISOR_APPROVAL, 3L, Status.APPROVED, 1L), stats.byStatus());
+                    assertEquals(Map.of(Status.AWAITING_SUPERVISOR_APPROVAL, Map.of("supervisor", 3L)), stats.pendingByApprover());
+                    assertEquals(Map.of(Status.AWAITING_SUPERVISOR_APPROVAL, 2L), stats.urgentAwaitingApproval());
+                    assertEquals(Map.of(EventType.SEMINAR, new BigDecimal("180.00"), EventType.CERTIFICATION, new BigDecimal("123.45")),
+                            stats.pendingReimbursementByEventType());
+                    assertEquals(NOW.minusSeconds(30), stats.asOf());
+                })
+                .verifyComplete();
+    }
+}
@@ -1,4 +1,73 @@
 package com.skillstorm.services;
 
-public class S3ServiceTest {
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class S3ServiceTest {
+
+    @Mock private S3Presigner presigner;
+    @Mock private S3AsyncClient s3Client;
+
+    private S3ServiceImpl s3Service;
+
+    @BeforeEach
+    void setup() {
+        s3Service = new S3ServiceImpl(presigner, s3Client, "test-bucket", Duration.ofMinutes(2), 100, 2, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Service.destroy();
+    }
+
+    // A detail page asks for all of a Form's attachments and then for one of them again. Each key is only signed once:
+    @Test
+    void downloadUrlsAreSignedOnceAndReused() {
+        given(presigner.presignGetObject(any(GetObjectPresignRequest.class))).willAnswer(invocation -> {
+            GetObjectPresignRequest request = invocation.getArgument(0);
+            PresignedGetObjectRequest presigned = mock(PresignedGetObjectRequest.class);
+            given(presigned.url()).willReturn(new URL("https://test-bucket.s3.amazonaws.com/" + request.getObjectRequest().key()));
+            return presigned;
+        });
+
+        StepVerifier.create(s3Service.generateDownloadUrls(List.of("form/attachment", "form/completion_attachment")))
+                .expectNext(Map.of("form/attachment", "https://test-bucket.s3.amazonaws.com/form/attachment",
+                        "form/completion_attachment", "https://test-bucket.s3.amazonaws.com/form/completion_attachment"))
+                .verifyComplete();
+        StepVerifier.create(s3Service.generateDownloadUrl("form/attachment"))
+                .expectNext("https://test-bucket.s3.amazonaws.com/form/attachment")
+                .verifyComplete();
+
+        verify(presigner, times(2)).presignGetObject(any(GetObjectPresignRequest.class));
+    }
+
+    // A cached URL has to stay usable for a while after it is handed out:
+    @Test
+    void cacheTtlMustLeaveSignatureValidity() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new S3ServiceImpl(presigner, s3Client, "test-bucket", Duration.ofMinutes(8), 100, 2, new SimpleMeterRegistry()));
+    }
 }